@@ -1,15 +1,43 @@
+import java.time.Clock;
 import java.util.Date;
 
 /**
  * Represents an appointment with a unique ID, scheduled date, and description.
+ * An appointment may also have a duration and a resource, such as a room or a person, that it books.
+ * Appointments without a duration occupy no time and never conflict with others.
+ *
+ * The scheduled time is kept as epoch milliseconds. Whether it lies in the future is judged by a Clock,
+ * the system clock unless one is passed in, so tests and services can control what "now" means.
+ *
+ * The field rules are defined once in RULES; validate() checks fields against them and tryCreate() creates
+ * an appointment from them, neither throwing.
  */
 public class Appointment {
+    // Validation rules, defined once with their messages.
+    private static final ValidationRules.Builder DEFINITIONS = ValidationRules.builder("Appointment");
+    public static final int INVALID_ID = DEFINITIONS.define("appointmentId", "Invalid appointment ID");
+    public static final int MISSING_CLOCK = DEFINITIONS.define("clock", "Clock must be non-null");
+    public static final int PAST_DATE = DEFINITIONS.define("appointmentDate", "Appointment date must be in the future");
+    public static final int INVALID_DESCRIPTION = DEFINITIONS.define("description", "Description cannot be longer than 50 characters");
+    public static final int NEGATIVE_DURATION = DEFINITIONS.define("durationMillis", "Duration must not be negative");
+    public static final int INVALID_RESOURCE = DEFINITIONS.define("resource", "Resource cannot be longer than 10 characters");
+    public static final int DURATION_OVERFLOW = DEFINITIONS.define("durationMillis", "Appointment must end within the range of epoch milliseconds");
+    public static final ValidationRules RULES = DEFINITIONS.build();
+    // Maximum field lengths.
+    private static final int ID_LENGTH = 10;
+    private static final int DESCRIPTION_LENGTH = 50;
+    private static final int RESOURCE_LENGTH = 10;
+
     // Immutable unique identifier for the appointment.
     private final String appointmentId;
-    // Date and time when the appointment is scheduled. Can be updated with future dates.
-    private Date appointmentDate;
+    // Date and time when the appointment is scheduled, in epoch milliseconds.
+    private final long appointmentTime;
     // A brief description of the appointment. Limited to 50 characters.
     private String description;
+    // Length of the appointment in milliseconds; zero if it has no duration.
+    private final long durationMillis;
+    // The resource the appointment books, limited to 10 characters; null for the service's shared calendar.
+    private final String resource;
 
     /**
      * Constructs an Appointment object with specified ID, date, and description.
@@ -21,24 +49,84 @@ public class Appointment {
      * @throws IllegalArgumentException If any parameter is invalid according to the validation rules.
      */
     public Appointment(String appointmentId, Date appointmentDate, String description) {
-        // Validate and set the appointment ID
-        if (appointmentId == null || appointmentId.length() > 10) {
-            throw new IllegalArgumentException("Invalid appointment ID");
-        }
-        
-        // Validate and set the appointment date
-        if (appointmentDate == null || appointmentDate.before(new Date())) {
-            throw new IllegalArgumentException("Appointment date must be in the future");
-        }
-        
-        // Validate and set the description
-        if (description == null || description.length() > 50) {
-            throw new IllegalArgumentException("Description cannot be longer than 50 characters");
-        }
-        
+        this(appointmentId, appointmentDate, description, 0, null);
+    }
+
+    /**
+     * Constructs an Appointment object that books a resource for a length of time.
+     *
+     * @param appointmentId Unique identifier for the appointment, must be non-null and not longer than 10 characters.
+     * @param appointmentDate Scheduled start of the appointment, must be in the future and non-null.
+     * @param description Brief description of the appointment, must be non-null and not longer than 50 characters.
+     * @param durationMillis Length of the appointment in milliseconds, must not be negative or end past Long.MAX_VALUE.
+     * @param resource The resource the appointment books, not longer than 10 characters; null for the shared calendar.
+     * @throws IllegalArgumentException If any parameter is invalid according to the validation rules.
+     */
+    public Appointment(String appointmentId, Date appointmentDate, String description, long durationMillis, String resource) {
+        this(appointmentId, timeOf(appointmentDate), description, durationMillis, resource, Clock.systemUTC());
+    }
+
+    /**
+     * Constructs an Appointment object at an epoch time, judged to be in the future by the given clock.
+     *
+     * @param appointmentId Unique identifier for the appointment, must be non-null and not longer than 10 characters.
+     * @param appointmentTime Scheduled start of the appointment in epoch milliseconds, must not be before the clock's time.
+     * @param description Brief description of the appointment, must be non-null and not longer than 50 characters.
+     * @param durationMillis Length of the appointment in milliseconds, must not be negative or end past Long.MAX_VALUE.
+     * @param resource The resource the appointment books, not longer than 10 characters; null for the shared calendar.
+     * @param clock The clock that supplies the current time, must be non-null.
+     * @throws IllegalArgumentException If any parameter is invalid according to the validation rules.
+     */
+    public Appointment(String appointmentId, long appointmentTime, String description, long durationMillis, String resource, Clock clock) {
+        this(appointmentTime, appointmentId, description, durationMillis, resource);
+        RULES.check(validate(appointmentId, appointmentTime, description, durationMillis, resource, clock));
+    }
+
+    // Constructor for fields that are already validated; the time comes first to keep the signature apart
+    private Appointment(long appointmentTime, String appointmentId, String description, long durationMillis, String resource) {
         this.appointmentId = appointmentId;
-        this.appointmentDate = appointmentDate;
+        this.appointmentTime = appointmentTime;
         this.description = description;
+        this.durationMillis = durationMillis;
+        this.resource = resource;
+    }
+
+    /**
+     * Checks the fields of an appointment against RULES without creating it or throwing.
+     * @param appointmentId The appointment ID to check.
+     * @param appointmentTime The scheduled start in epoch milliseconds, which must not be before the clock's time.
+     * @param description The description to check.
+     * @param durationMillis The duration to check.
+     * @param resource The resource to check; null for the shared calendar.
+     * @param clock The clock that supplies the current time.
+     * @return ValidationRules.VALID, or the code of the first invalid field in parameter order.
+     */
+    public static int validate(String appointmentId, long appointmentTime, String description, long durationMillis,
+            String resource, Clock clock) {
+        int code;
+        if ((code = ValidationRules.required(appointmentId, ID_LENGTH, INVALID_ID)) != ValidationRules.VALID
+                || (code = ValidationRules.require(clock != null, MISSING_CLOCK)) != ValidationRules.VALID
+                || (code = ValidationRules.require(appointmentTime >= clock.millis(), PAST_DATE)) != ValidationRules.VALID
+                || (code = ValidationRules.required(description, DESCRIPTION_LENGTH, INVALID_DESCRIPTION)) != ValidationRules.VALID
+                || (code = ValidationRules.require(durationMillis >= 0, NEGATIVE_DURATION)) != ValidationRules.VALID
+                || (code = ValidationRules.require(endsInRange(appointmentTime, durationMillis), DURATION_OVERFLOW)) != ValidationRules.VALID) {
+            return code;
+        }
+        return ValidationRules.optional(resource, RESOURCE_LENGTH, INVALID_RESOURCE);
+    }
+
+    /**
+     * Creates an appointment if its fields are valid, checking them once and without throwing.
+     * @param result Receives ValidationRules.VALID or the code of the first invalid field.
+     * @return The new appointment, or null if a field is invalid.
+     * @see #validate(String, long, String, long, String, Clock)
+     */
+    public static Appointment tryCreate(String appointmentId, long appointmentTime, String description, long durationMillis,
+            String resource, Clock clock, ValidationRules.Result result) {
+        int code = validate(appointmentId, appointmentTime, description, durationMillis, resource, clock);
+        result.set(RULES, code);
+        return code == ValidationRules.VALID
+                ? new Appointment(appointmentTime, appointmentId, description, durationMillis, resource) : null;
     }
 
     /**
@@ -51,10 +139,18 @@ public class Appointment {
 
     /**
      * Gets the scheduled date and time of the appointment.
-     * @return The appointment date.
+     * @return A copy of the appointment date.
      */
     public Date getAppointmentDate() {
-        return appointmentDate;
+        return new Date(appointmentTime);
+    }
+
+    /**
+     * Gets the scheduled time of the appointment without allocating a Date.
+     * @return The scheduled time in epoch milliseconds.
+     */
+    public long getAppointmentTime() {
+        return appointmentTime;
     }
 
     /**
@@ -64,4 +160,47 @@ public class Appointment {
     public String getDescription() {
         return description;
     }
+
+    /**
+     * Gets the length of the appointment.
+     * @return The duration in milliseconds; zero if the appointment has no duration.
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * Gets the time at which the appointment ends.
+     * @return A new Date at the scheduled date plus the duration.
+     */
+    public Date getEndDate() {
+        return new Date(getEndTime());
+    }
+
+    /**
+     * Gets the time at which the appointment ends without allocating a Date.
+     * @return The scheduled time plus the duration, in epoch milliseconds.
+     */
+    public long getEndTime() {
+        return appointmentTime + durationMillis;
+    }
+
+    /**
+     * Gets the resource the appointment books.
+     * @return The resource, or null if the appointment is on the shared calendar.
+     */
+    public String getResource() {
+        return resource;
+    }
+
+    // Whether the end time does not overflow, as Math.addExact would check, without throwing; the duration is not negative.
+    private static boolean endsInRange(long appointmentTime, long durationMillis) {
+        return appointmentTime + durationMillis >= appointmentTime;
+    }
+
+    // Reads a Date's epoch time; a null Date is rejected the way a past one is.
+    private static long timeOf(Date appointmentDate) {
+        RULES.check(ValidationRules.require(appointmentDate != null, PAST_DATE));
+        return appointmentDate.getTime();
+    }
 }
@@ -0,0 +1,37 @@
+import java.time.Clock;
+
+/**
+ * Writes appointments to RecordFile records and reads them back: ID, start time, description, duration
+ * and resource. Appointments read back are validated against a clock, like those the service creates,
+ * so an appointment that has started since it was written is rejected.
+ */
+final class AppointmentCodec implements RecordCodec<Appointment> {
+    private final Clock clock;
+
+    /**
+     * Creates a codec that validates appointments it reads against the given clock.
+     * @param clock The clock that decides whether an appointment lies in the future.
+     */
+    AppointmentCodec(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public String type() {
+        return "Appointment";
+    }
+
+    @Override
+    public void write(Appointment appointment, RecordFile.Output out) {
+        out.writeString(appointment.getAppointmentId());
+        out.writeLong(appointment.getAppointmentTime());
+        out.writeString(appointment.getDescription());
+        out.writeLong(appointment.getDurationMillis());
+        out.writeString(appointment.getResource());
+    }
+
+    @Override
+    public Appointment read(RecordFile.Input in) {
+        return new Appointment(in.readString(), in.readLong(), in.readString(), in.readLong(), in.readString(), clock);
+    }
+}
@@ -0,0 +1,185 @@
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hierarchical timer wheel holding the time at which each appointment expires.
+ *
+ * Time is counted in ticks of a fixed length. The wheel has four levels of 64 slots; level 0 holds the
+ * appointments due within the next 64 ticks, one slot per tick, and each higher level covers 64 times the
+ * span of the level below, one slot per span of that level. When the current tick reaches a slot of a
+ * higher level, its appointments are redistributed to the lower levels. Each appointment is therefore moved
+ * at most four times before it expires, and adding, removing and expiring one takes amortized O(1), with no
+ * scan over appointments that are not due. Expiry times more than 2^24 ticks ahead wait in an overflow list
+ * that is redistributed each time the top level wraps around.
+ *
+ * Slots are doubly linked lists, so an appointment can be unlinked when it is deleted or rescheduled.
+ */
+final class AppointmentExpiryWheel {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = 4;
+    // Bucket of the expiry times beyond the top level
+    private static final int OVERFLOW = LEVELS * SLOTS;
+    // Bucket of the entries that were due when placed, expired at the end of the next advance
+    private static final int DUE = OVERFLOW + 1;
+
+    /**
+     * Wheel entry for one appointment, linked into the list of its bucket.
+     */
+    private static final class Entry {
+        final Appointment appointment;
+        // Tick at which the appointment expires
+        final long deadline;
+        int bucket;
+        Entry previous;
+        Entry next;
+
+        Entry(Appointment appointment, long deadline) {
+            this.appointment = appointment;
+            this.deadline = deadline;
+        }
+    }
+
+    private final long tickMillis;
+    private final Entry[] buckets = new Entry[DUE + 1];
+    private final Map<String, Entry> entries = new HashMap<>();
+    // The last tick whose slot has been expired
+    private long currentTick;
+
+    /**
+     * Creates an empty wheel.
+     * @param tickMillis The length of a tick; expiry times are rounded up to a whole tick.
+     * @param nowMillis The current time; everything due up to it counts as already expired.
+     */
+    AppointmentExpiryWheel(long tickMillis, long nowMillis) {
+        this.tickMillis = tickMillis;
+        this.currentTick = Math.floorDiv(nowMillis, tickMillis);
+    }
+
+    /**
+     * Adds an appointment, replacing any entry with the same appointment ID.
+     * @param appointment The appointment.
+     * @param expiresAtMillis The time at which it expires.
+     */
+    void add(Appointment appointment, long expiresAtMillis) {
+        // Round up, so no appointment expires before its time
+        Entry entry = new Entry(appointment, -Math.floorDiv(-expiresAtMillis, tickMillis));
+        Entry replaced = entries.put(appointment.getAppointmentId(), entry);
+        if (replaced != null) {
+            unlink(replaced);
+        }
+        place(entry);
+    }
+
+    /**
+     * Removes the entry of an appointment ID.
+     * @return True if the wheel held an entry for it.
+     */
+    boolean remove(String appointmentId) {
+        Entry entry = entries.remove(appointmentId);
+        if (entry == null) {
+            return false;
+        }
+        unlink(entry);
+        return true;
+    }
+
+    /**
+     * Returns the number of appointments waiting to expire.
+     */
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Advances the wheel to the given time and removes every appointment expired by then.
+     * @param nowMillis The current time.
+     * @param expired Receives the expired appointments, in no particular order.
+     */
+    void advance(long nowMillis, List<Appointment> expired) {
+        long target = Math.floorDiv(nowMillis, tickMillis);
+        while (currentTick < target) {
+            if (entries.isEmpty()) {
+                // Nothing to cascade or expire in the ticks in between
+                currentTick = target;
+                break;
+            }
+            currentTick++;
+            // Move the slots the new tick has reached down a level, the highest level first
+            if ((currentTick & ((1L << (SLOT_BITS * LEVELS)) - 1)) == 0) {
+                cascade(OVERFLOW);
+            }
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    cascade(level * SLOTS + slotOf(currentTick, level));
+                }
+            }
+            drain(slotOf(currentTick, 0), expired);
+        }
+        // Entries added when already due, and those cascaded onto the current tick
+        drain(DUE, expired);
+    }
+
+    // Puts an entry into the bucket for its deadline, as seen from the current tick.
+    private void place(Entry entry) {
+        if (entry.deadline <= currentTick) {
+            link(entry, DUE);
+            return;
+        }
+        // The highest bit in which the deadline differs from the current tick picks the level
+        long differing = entry.deadline ^ currentTick;
+        int level = (63 - Long.numberOfLeadingZeros(differing)) / SLOT_BITS;
+        link(entry, level < LEVELS ? level * SLOTS + slotOf(entry.deadline, level) : OVERFLOW);
+    }
+
+    // Empties a bucket and places its entries again; they land on lower levels than before.
+    private void cascade(int bucket) {
+        Entry entry = buckets[bucket];
+        buckets[bucket] = null;
+        while (entry != null) {
+            Entry next = entry.next;
+            entry.previous = null;
+            entry.next = null;
+            place(entry);
+            entry = next;
+        }
+    }
+
+    // Expires every entry of a bucket.
+    private void drain(int bucket, List<Appointment> expired) {
+        Entry entry = buckets[bucket];
+        buckets[bucket] = null;
+        while (entry != null) {
+            entries.remove(entry.appointment.getAppointmentId());
+            expired.add(entry.appointment);
+            entry = entry.next;
+        }
+    }
+
+    private void link(Entry entry, int bucket) {
+        Entry head = buckets[bucket];
+        entry.bucket = bucket;
+        entry.previous = null;
+        entry.next = head;
+        if (head != null) {
+            head.previous = entry;
+        }
+        buckets[bucket] = entry;
+    }
+
+    private void unlink(Entry entry) {
+        if (entry.previous == null) {
+            buckets[entry.bucket] = entry.next;
+        } else {
+            entry.previous.next = entry.next;
+        }
+        if (entry.next != null) {
+            entry.next.previous = entry.previous;
+        }
+    }
+
+    private static int slotOf(long tick, int level) {
+        return (int) (tick >>> (SLOT_BITS * level)) & (SLOTS - 1);
+    }
+}
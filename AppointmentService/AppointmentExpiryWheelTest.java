@@ -0,0 +1,78 @@
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the AppointmentExpiryWheel class.
+ * These tests compare the timer wheel against a brute-force check of every expiry time.
+ */
+public class AppointmentExpiryWheelTest {
+    private static final long TICK = 10;
+
+    /**
+     * Tests that each advance expires exactly the appointments due by then, while appointments are added,
+     * rescheduled and removed at random, with expiry times reaching past the top level of the wheel.
+     */
+    @Test
+    public void testMatchesBruteForce() {
+        Random random = new Random(42);
+        Appointment template = new Appointment("T", new Date(System.currentTimeMillis() + 100000), "Expiring");
+        long now = 1_000_000;
+        AppointmentExpiryWheel wheel = new AppointmentExpiryWheel(TICK, now);
+        Map<String, Long> expiries = new HashMap<>();
+        Map<String, Appointment> appointments = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            int operation = random.nextInt(10);
+            if (operation < 5) {
+                // Mostly near expiry times, some far beyond the 2^24 ticks the levels cover
+                String id = "E" + random.nextInt(5_000);
+                long delay = random.nextInt(8) == 0 ? (long) (random.nextDouble() * 3 * TICK * (1 << 24)) : random.nextInt(100_000);
+                Appointment appointment = appointments.computeIfAbsent(id,
+                        key -> new Appointment(key, template.getAppointmentDate(), template.getDescription()));
+                wheel.add(appointment, now + delay - 50);
+                expiries.put(id, now + delay - 50);
+            } else if (operation < 7 && !expiries.isEmpty()) {
+                String id = expiries.keySet().iterator().next();
+                assertTrue(wheel.remove(id));
+                expiries.remove(id);
+            } else {
+                now += random.nextInt(20) == 0 ? (long) (random.nextDouble() * TICK * (1 << 22)) : random.nextInt(5_000);
+                List<Appointment> expired = new ArrayList<>();
+                wheel.advance(now, expired);
+
+                Set<String> expected = new HashSet<>();
+                for (Iterator<Map.Entry<String, Long>> it = expiries.entrySet().iterator(); it.hasNext(); ) {
+                    Map.Entry<String, Long> entry = it.next();
+                    // Expiry times round up to a tick, and the wheel stands at the last whole tick
+                    if (Math.floorDiv(entry.getValue() + TICK - 1, TICK) <= Math.floorDiv(now, TICK)) {
+                        expected.add(entry.getKey());
+                        it.remove();
+                    }
+                }
+                Set<String> found = new HashSet<>();
+                for (Appointment appointment : expired) {
+                    assertTrue("Appointments must expire once.", found.add(appointment.getAppointmentId()));
+                }
+                assertEquals(expected, found);
+            }
+            assertEquals(expiries.size(), wheel.size());
+        }
+    }
+
+    /**
+     * Tests that removing an unknown appointment ID reports that nothing was removed.
+     */
+    @Test
+    public void testRemoveUnknown() {
+        AppointmentExpiryWheel wheel = new AppointmentExpiryWheel(TICK, 0);
+        assertFalse(wheel.remove("Missing"));
+    }
+}
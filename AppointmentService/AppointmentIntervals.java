@@ -0,0 +1,249 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Interval tree over the appointments of one resource, for overlap checks and free/busy queries.
+ *
+ * Each appointment occupies the half-open interval [start, start + duration). The tree is a treap ordered
+ * by start time, then appointment ID, where every node also records the latest end time in its subtree.
+ * That lets a search skip every subtree whose intervals all end before the time of interest, so finding
+ * one overlap takes O(log n) and listing k overlaps takes O(log n + k), in expectation.
+ *
+ * Appointments without a duration occupy no time and are not stored here.
+ */
+final class AppointmentIntervals {
+
+    /**
+     * Tree node holding one appointment.
+     */
+    private static final class Node {
+        final long start;
+        final long end;
+        final Appointment appointment;
+        final int priority;
+        long maxEnd;
+        Node left;
+        Node right;
+
+        Node(long start, long end, Appointment appointment, int priority) {
+            this.start = start;
+            this.end = end;
+            this.appointment = appointment;
+            this.priority = priority;
+            this.maxEnd = end;
+        }
+    }
+
+    private Node root;
+    private int size;
+    // State of the xorshift generator that draws node priorities.
+    private int seed = 0x9E3779B9;
+
+    /**
+     * Adds an appointment's interval.
+     * @param appointment An appointment with a positive duration.
+     */
+    void add(Appointment appointment) {
+        long start = appointment.getAppointmentTime();
+        root = insert(root, new Node(start, start + appointment.getDurationMillis(), appointment, nextPriority()));
+        size++;
+    }
+
+    /**
+     * Removes an appointment's interval.
+     * @param appointment The appointment as it was added.
+     * @return True if the interval was found and removed.
+     */
+    boolean remove(Appointment appointment) {
+        int before = size;
+        root = delete(root, appointment.getAppointmentTime(), appointment.getAppointmentId());
+        return size < before;
+    }
+
+    /**
+     * Returns the number of stored intervals.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns any appointment overlapping the half-open range [from, to), or null if the range is free.
+     * Runs in O(log n).
+     */
+    Appointment findOverlap(long from, long to) {
+        Node node = root;
+        while (node != null) {
+            if (node.start < to && from < node.end) {
+                return node.appointment;
+            }
+            // If the left subtree reaches past from but holds no overlap, nothing to the right can overlap either
+            node = node.left != null && node.left.maxEnd > from ? node.left : node.right;
+        }
+        return null;
+    }
+
+    /**
+     * Returns every appointment overlapping the half-open range [from, to), ordered by start time.
+     * Runs in O(log n + k) for k results.
+     */
+    List<Appointment> findOverlapping(long from, long to) {
+        List<Appointment> result = new ArrayList<>();
+        collect(root, from, to, result);
+        return result;
+    }
+
+    /**
+     * Returns the free gaps of at least minLength within [from, to), in time order, as {start, end} pairs.
+     */
+    List<long[]> freeSlots(long from, long to, long minLength) {
+        List<long[]> slots = new ArrayList<>();
+        long freeFrom = from;
+        for (Appointment busy : findOverlapping(from, to)) {
+            long start = busy.getAppointmentTime();
+            if (start - freeFrom >= minLength && start > freeFrom) {
+                slots.add(new long[] {freeFrom, start});
+            }
+            freeFrom = Math.max(freeFrom, start + busy.getDurationMillis());
+        }
+        if (to - freeFrom >= minLength && to > freeFrom) {
+            slots.add(new long[] {freeFrom, to});
+        }
+        return slots;
+    }
+
+    /**
+     * Returns the earliest start at or after the given time of a free gap of the given length.
+     * Walks the busy intervals from that time in start order, so it stops at the first gap found.
+     */
+    long nextFree(long after, long length) {
+        long candidate = after;
+        while (true) {
+            Appointment busy = findOverlap(candidate, candidate + length);
+            if (busy == null) {
+                return candidate;
+            }
+            // Jump past the first blocking appointment, then past everything that overlaps the new candidate
+            candidate = latestEndOverlapping(candidate, candidate + length);
+        }
+    }
+
+    // Latest end among the intervals overlapping [from, to); at least one must overlap.
+    private long latestEndOverlapping(long from, long to) {
+        long latest = from;
+        for (Appointment busy : findOverlapping(from, to)) {
+            latest = Math.max(latest, busy.getEndTime());
+        }
+        return latest;
+    }
+
+    private static void collect(Node node, long from, long to, List<Appointment> result) {
+        if (node == null || node.maxEnd <= from) {
+            return;
+        }
+        collect(node.left, from, to, result);
+        if (node.start >= to) {
+            // Everything to the right starts even later
+            return;
+        }
+        if (from < node.end) {
+            result.add(node.appointment);
+        }
+        collect(node.right, from, to, result);
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (compare(added.start, added.appointment.getAppointmentId(), node) < 0) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        update(node);
+        return node;
+    }
+
+    private Node delete(Node node, long start, String appointmentId) {
+        if (node == null) {
+            return null;
+        }
+        int order = compare(start, appointmentId, node);
+        if (order < 0) {
+            node.left = delete(node.left, start, appointmentId);
+        } else if (order > 0) {
+            node.right = delete(node.right, start, appointmentId);
+        } else {
+            size--;
+            return merge(node.left, node.right);
+        }
+        update(node);
+        return node;
+    }
+
+    // Joins two treaps where every key on the left sorts before every key on the right.
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static void update(Node node) {
+        long maxEnd = node.end;
+        if (node.left != null) {
+            maxEnd = Math.max(maxEnd, node.left.maxEnd);
+        }
+        if (node.right != null) {
+            maxEnd = Math.max(maxEnd, node.right.maxEnd);
+        }
+        node.maxEnd = maxEnd;
+    }
+
+    private static int compare(long start, String appointmentId, Node node) {
+        int byStart = Long.compare(start, node.start);
+        return byStart != 0 ? byStart : appointmentId.compareTo(node.appointment.getAppointmentId());
+    }
+
+    private int nextPriority() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+}
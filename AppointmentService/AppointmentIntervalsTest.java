@@ -0,0 +1,72 @@
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the AppointmentIntervals class.
+ * These tests compare the interval tree against a brute-force scan over random appointments.
+ */
+public class AppointmentIntervalsTest {
+
+    /**
+     * Tests overlap, free-slot and next-free queries against a scan of every stored appointment,
+     * while appointments are added and removed at random.
+     */
+    @Test
+    public void testMatchesBruteForce() {
+        Random random = new Random(42);
+        long base = System.currentTimeMillis() + 1_000_000;
+        AppointmentIntervals tree = new AppointmentIntervals();
+        List<Appointment> stored = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            if (!stored.isEmpty() && random.nextInt(4) == 0) {
+                Appointment removed = stored.remove(random.nextInt(stored.size()));
+                assertTrue(tree.remove(removed));
+            } else {
+                Appointment added = new Appointment("I" + i, new Date(base + random.nextInt(100_000)), "Busy",
+                        1 + random.nextInt(2_000), null);
+                tree.add(added);
+                stored.add(added);
+            }
+            assertEquals(stored.size(), tree.size());
+
+            long from = base + random.nextInt(100_000);
+            long to = from + random.nextInt(3_000);
+            List<String> expected = new ArrayList<>();
+            for (Appointment appointment : stored) {
+                if (start(appointment) < to && from < end(appointment)) {
+                    expected.add(appointment.getAppointmentId());
+                }
+            }
+            List<String> found = new ArrayList<>();
+            for (Appointment appointment : tree.findOverlapping(from, to)) {
+                found.add(appointment.getAppointmentId());
+            }
+            assertEquals(expected.size(), found.size());
+            assertTrue(found.containsAll(expected));
+            assertEquals(expected.isEmpty(), tree.findOverlap(from, to) == null);
+
+            long length = 1 + random.nextInt(500);
+            long next = tree.nextFree(from, length);
+            assertTrue(next >= from);
+            assertNull("Next free slot must be free.", tree.findOverlap(next, next + length));
+            List<long[]> slots = tree.freeSlots(from, next + length, length);
+            assertEquals("Next free slot must be the earliest.", next, slots.get(0)[0]);
+            for (long[] slot : slots) {
+                assertNull("Free slots must be free.", tree.findOverlap(slot[0], slot[1]));
+                assertTrue(slot[1] - slot[0] >= length);
+            }
+        }
+    }
+
+    private static long start(Appointment appointment) {
+        return appointment.getAppointmentDate().getTime();
+    }
+
+    private static long end(Appointment appointment) {
+        return start(appointment) + appointment.getDurationMillis();
+    }
+}
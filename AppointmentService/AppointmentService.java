@@ -1,13 +1,146 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Service class for managing a collection of appointments.
- * Provides functionality to add and delete appointments using a unique ID.
+ * Provides functionality to add and delete appointments using a unique ID,
+ * and to query appointments by their scheduled time.
+ * Appointments with a duration are also kept in one AppointmentIntervals tree per resource, which answers
+ * conflict checks and free/busy queries.
+ *
+ * Once expiry is started, appointments are evicted a grace period after they end, by a background
+ * sweeper driven by an AppointmentExpiryWheel. The methods hold the service's lock, so the sweeper
+ * can evict appointments while other threads use it. The lock is a ReentrantLock rather than the monitor,
+ * so a virtual thread of AsyncAppointmentService that waits for it does not pin its carrier thread.
+ *
+ * Times are handled as epoch milliseconds internally. The service's Clock decides the current time for
+ * expiry and for the appointments it creates, so both can be driven by a fixed or offset clock in tests.
+ *
+ * search() finds appointments by the words in their descriptions through a TextIndex, which is built on the
+ * first search and then kept in step with every change.
+ *
+ * exportTo() and importFrom() move all appointments to and from a compact RecordFile, for backups and bulk loads.
+ *
+ * Every add, update and delete is published as a ChangeEvent through getChangePublisher(), numbered in
+ * the order the changes were applied. Calls, failures by error type, latencies and the appointment count
+ * are recorded in getMetrics().
  */
 public class AppointmentService {
+    // Operations recorded in the metrics, by their index in OPERATIONS.
+    private static final String[] OPERATIONS = {"addAppointment", "getAppointment", "deleteAppointment",
+            "addAll", "deleteAll", "updateAll", "findBetween", "countBetween", "nextAfter",
+            "findOverlapping", "isFree", "findFreeSlots", "nextFreeSlot", "search"};
+    private static final int ADD_APPOINTMENT = 0;
+    private static final int GET_APPOINTMENT = 1;
+    private static final int DELETE_APPOINTMENT = 2;
+    private static final int ADD_ALL = 3;
+    private static final int DELETE_ALL = 4;
+    private static final int UPDATE_ALL = 5;
+    private static final int FIND_BETWEEN = 6;
+    private static final int COUNT_BETWEEN = 7;
+    private static final int NEXT_AFTER = 8;
+    private static final int FIND_OVERLAPPING = 9;
+    private static final int IS_FREE = 10;
+    private static final int FIND_FREE_SLOTS = 11;
+    private static final int NEXT_FREE_SLOT = 12;
+    private static final int SEARCH = 13;
+    // Order of the time index, for sorting appointments before they are indexed.
+    private static final Comparator<Appointment> BY_TIME =
+            Comparator.comparingLong(Appointment::getAppointmentTime).thenComparing(Appointment::getAppointmentId);
+
     // Collection to store appointments, using the appointment ID as the key.
-    private Map<String, Appointment> appointments = new HashMap<>();
+    Map<String, Appointment> appointments = new HashMap<>();
+    // Secondary index ordering appointments by scheduled time, then by ID for appointments at the same time.
+    // Not final: large batches rebuild it from sorted entries.
+    private NavigableMap<TimeKey, Appointment> appointmentsByTime = new TreeMap<>();
+    // Interval trees of the appointments with a duration, by resource; the null key holds the shared calendar.
+    private final Map<String, AppointmentIntervals> schedules = new HashMap<>();
+    // Word index of the descriptions; built on the first search.
+    private TextIndex descriptionIndex;
+
+    // Expiry times of the appointments; null until expiry is started.
+    private AppointmentExpiryWheel expiryWheel;
+    private long expiryGraceMillis;
+    private ScheduledExecutorService expirySweeper;
+    private final List<Consumer<Appointment>> expiryListeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLong expiryListenerFailures = new AtomicLong();
+    // Source of the current time for expiry and for appointments created by the service.
+    private final Clock clock;
+    // Guards every field above; held for the whole of each public call.
+    private final ReentrantLock lock = new ReentrantLock();
+    // Stream of changes for downstream consumers; idle until someone subscribes. Appointments cannot be
+    // changed, so events can hold the stored instances.
+    private final ChangePublisher<Appointment> changes = new ChangePublisher<>();
+    // Call counts, failures and latencies of the public operations.
+    private final OperationMetrics metrics = new OperationMetrics("AppointmentService", () -> appointments.size(), OPERATIONS);
+
+    /**
+     * Creates an empty appointment service that runs on the system clock.
+     */
+    public AppointmentService() {
+        this(Clock.systemUTC());
+    }
+
+    /**
+     * Creates an empty appointment service that takes the current time from the given clock.
+     * @param clock The clock for expiry and for validating new appointments.
+     * @throws IllegalArgumentException if the clock is null.
+     */
+    public AppointmentService(Clock clock) {
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock must be non-null");
+        }
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the publisher of this service's changes, including evictions by expiry, which appear as deletes.
+     * Subscribers receive every add, update and delete in batches, and can resume from a sequence number.
+     *
+     * @return The change publisher.
+     */
+    public ChangePublisher<Appointment> getChangePublisher() {
+        return changes;
+    }
+
+    /**
+     * Gets the clock the service takes the current time from.
+     * @return The service's clock.
+     */
+    public Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Returns the metrics of this service's public operations.
+     * @return The metrics, which can be read with snapshot() or published with registerMBean().
+     */
+    public OperationMetrics getMetrics() {
+        return metrics;
+    }
 
     /**
      * Adds a new appointment to the collection.
@@ -17,12 +150,93 @@ public class AppointmentService {
      * @throws IllegalArgumentException if the appointment is null or an appointment with the same ID already exists.
      */
     public void addAppointment(Appointment appointment) {
+        addAppointment(appointment, false);
+    }
+
+    /**
+     * Adds a new appointment to the collection, optionally refusing it if it overlaps another appointment
+     * that books the same resource. The conflict check runs in O(log n).
+     *
+     * @param appointment The appointment to be added to the service.
+     * @param rejectConflicts If true, an appointment that overlaps an existing one on its resource is not added.
+     * @throws IllegalArgumentException if the appointment is null, an appointment with the same ID already exists,
+     *                                  or conflicts are rejected and the appointment overlaps another one.
+     */
+    public void addAppointment(Appointment appointment, boolean rejectConflicts) {
+        lock.lock();
+        try {
+            measured(ADD_APPOINTMENT, () -> store(appointment, rejectConflicts));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Stores an appointment in the collection and every index; see addAppointment.
+    private void store(Appointment appointment, boolean rejectConflicts) {
         // Check if the appointment is null or already exists in the collection
         if (appointment == null || appointments.containsKey(appointment.getAppointmentId())) {
             throw new IllegalArgumentException("Appointment already exists or is null");
         }
-        // Add the appointment to the collection
+        if (rejectConflicts && appointment.getDurationMillis() > 0) {
+            AppointmentIntervals schedule = schedules.get(appointment.getResource());
+            long start = appointment.getAppointmentTime();
+            if (schedule != null && schedule.findOverlap(start, start + appointment.getDurationMillis()) != null) {
+                throw new IllegalArgumentException("Appointment conflicts with an existing appointment");
+            }
+        }
+        // Add the appointment to the collection and to the time index
         appointments.put(appointment.getAppointmentId(), appointment);
+        appointmentsByTime.put(TimeKey.of(appointment), appointment);
+        schedule(appointment);
+        trackExpiry(appointment);
+        indexDescription(appointment);
+        changes.publish(ChangeEvent.Type.ADDED, appointment.getAppointmentId(), appointment);
+    }
+
+    /**
+     * Creates an appointment at an epoch time and adds it, judging whether the time lies in the future by the
+     * service's clock.
+     *
+     * @param appointmentId The unique ID of the new appointment.
+     * @param appointmentTime The scheduled start in epoch milliseconds.
+     * @param description The description of the appointment.
+     * @param durationMillis The length of the appointment; zero if it has no duration.
+     * @param resource The resource the appointment books, or null for the shared calendar.
+     * @throws IllegalArgumentException if the appointment is invalid or an appointment with the same ID already exists.
+     */
+    public void newAppointment(String appointmentId, long appointmentTime, String description, long durationMillis, String resource) {
+        // Timed as one addAppointment call, so an invalid appointment is counted as a failed add
+        measured(ADD_APPOINTMENT, () -> {
+            Appointment appointment = new Appointment(appointmentId, appointmentTime, description, durationMillis, resource, clock);
+            lock.lock();
+            try {
+                store(appointment, false);
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Returns the appointment identified by the appointment ID.
+     *
+     * @param appointmentId The unique ID of the appointment to look up.
+     * @return The stored appointment.
+     * @throws IllegalArgumentException if no appointment with the given ID exists in the collection.
+     */
+    public Appointment getAppointment(String appointmentId) {
+        lock.lock();
+        try {
+            return measured(GET_APPOINTMENT, () -> {
+                Appointment appointment = appointments.get(appointmentId);
+                if (appointment == null) {
+                    throw new IllegalArgumentException("Appointment does not exist");
+                }
+                return appointment;
+            });
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -33,11 +247,818 @@ public class AppointmentService {
      * @throws IllegalArgumentException if no appointment with the given ID exists in the collection.
      */
     public void deleteAppointment(String appointmentId) {
-        // Check if the appointment does not exist in the collection
-        if (!appointments.containsKey(appointmentId)) {
-            throw new IllegalArgumentException("Appointment does not exist");
+        lock.lock();
+        try {
+            measured(DELETE_APPOINTMENT, () -> {
+                // Remove the appointment from the collection, failing if it does not exist
+                Appointment removed = appointments.remove(appointmentId);
+                if (removed == null) {
+                    throw new IllegalArgumentException("Appointment does not exist");
+                }
+                // Keep the time index in sync with the collection
+                appointmentsByTime.remove(TimeKey.of(removed));
+                unschedule(removed);
+                untrackExpiry(removed);
+                unindexDescription(removed);
+                changes.publish(ChangeEvent.Type.DELETED, appointmentId, removed);
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a batch of appointments.
+     * Every rejected appointment is reported instead of aborting the batch on the first failure.
+     * An all-or-nothing batch is validated in one pass before anything is stored.
+     *
+     * @param batch The appointments to be added.
+     * @param atomic If true, nothing is added unless every appointment in the batch is valid.
+     * @return A report listing the rejected appointments.
+     */
+    public BatchResult addAll(Collection<Appointment> batch, boolean atomic) {
+        lock.lock();
+        try {
+            return measured(ADD_ALL, () -> applyAddAll(batch, atomic));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Applies a batch for addAll(), which records it in the metrics.
+    private BatchResult applyAddAll(Collection<Appointment> batch, boolean atomic) {
+        BatchResult result = new BatchResult(batch.size());
+        if (atomic && !validateAtomicBatch(batch, appointment -> appointment.getAppointmentId(), false, "Appointment is null", result)) {
+            return result;
+        }
+
+        ensureCapacity(batch.size());
+        List<Appointment> added = new ArrayList<>(batch.size());
+        int index = 0;
+        for (Appointment appointment : batch) {
+            if (appointment == null) {
+                result.reject(index, null, "Appointment is null");
+            } else if (appointments.putIfAbsent(appointment.getAppointmentId(), appointment) != null) {
+                result.reject(index, appointment.getAppointmentId(), "Appointment already exists");
+            } else {
+                added.add(appointment);
+                schedule(appointment);
+                trackExpiry(appointment);
+                indexDescription(appointment);
+                changes.publish(ChangeEvent.Type.ADDED, appointment.getAppointmentId(), appointment);
+            }
+            index++;
+        }
+        indexAll(added);
+        return result;
+    }
+
+    /**
+     * Deletes a batch of appointments by ID.
+     * Every ID that does not match a stored appointment is reported instead of aborting the batch.
+     *
+     * @param appointmentIds The unique IDs of the appointments to be deleted.
+     * @param atomic If true, nothing is deleted unless every ID matches a stored appointment.
+     * @return A report listing the rejected IDs.
+     */
+    public BatchResult deleteAll(Collection<String> appointmentIds, boolean atomic) {
+        lock.lock();
+        try {
+            return measured(DELETE_ALL, () -> applyDeleteAll(appointmentIds, atomic));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Applies a batch for deleteAll(), which records it in the metrics.
+    private BatchResult applyDeleteAll(Collection<String> appointmentIds, boolean atomic) {
+        BatchResult result = new BatchResult(appointmentIds.size());
+        if (atomic && !validateAtomicBatch(appointmentIds, appointmentId -> appointmentId, true, "Appointment does not exist", result)) {
+            return result;
+        }
+
+        int index = 0;
+        for (String appointmentId : appointmentIds) {
+            Appointment removed = appointments.remove(appointmentId);
+            if (removed == null) {
+                result.reject(index, appointmentId, "Appointment does not exist");
+            } else {
+                appointmentsByTime.remove(TimeKey.of(removed));
+                unschedule(removed);
+                untrackExpiry(removed);
+                unindexDescription(removed);
+                changes.publish(ChangeEvent.Type.DELETED, appointmentId, removed);
+            }
+            index++;
+        }
+        return result;
+    }
+
+    /**
+     * Replaces a batch of existing appointments with new versions carrying the same IDs.
+     * Replaced appointments are re-indexed, so a new date reschedules the appointment.
+     *
+     * @param updates The new appointment versions, matched to stored appointments by ID.
+     * @param atomic If true, nothing is replaced unless every appointment in the batch matches a stored one.
+     * @return A report listing the rejected updates.
+     */
+    public BatchResult updateAll(Collection<Appointment> updates, boolean atomic) {
+        lock.lock();
+        try {
+            return measured(UPDATE_ALL, () -> applyUpdateAll(updates, atomic));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Applies a batch for updateAll(), which records it in the metrics.
+    private BatchResult applyUpdateAll(Collection<Appointment> updates, boolean atomic) {
+        BatchResult result = new BatchResult(updates.size());
+        if (atomic && !validateAtomicBatch(updates, appointment -> appointment.getAppointmentId(), true, "Appointment is null", result)) {
+            return result;
+        }
+
+        int index = 0;
+        for (Appointment update : updates) {
+            Appointment previous = update == null ? null : appointments.replace(update.getAppointmentId(), update);
+            if (previous == null) {
+                result.reject(index, update == null ? null : update.getAppointmentId(),
+                        update == null ? "Appointment is null" : "Appointment does not exist");
+            } else {
+                appointmentsByTime.remove(TimeKey.of(previous));
+                appointmentsByTime.put(TimeKey.of(update), update);
+                unschedule(previous);
+                schedule(update);
+                trackExpiry(update);
+                indexDescription(update);
+                changes.publish(ChangeEvent.Type.UPDATED, update.getAppointmentId(), update);
+            }
+            index++;
+        }
+        return result;
+    }
+
+    /**
+     * Finds the appointments scheduled within a time range, ordered by time.
+     * Runs in O(log n + k) where k is the number of appointments returned.
+     *
+     * @param from The start of the range, inclusive.
+     * @param to The end of the range, exclusive.
+     * @return The appointments scheduled at or after from and before to.
+     * @throws IllegalArgumentException if either bound is null or from is after to.
+     */
+    public List<Appointment> findBetween(Date from, Date to) {
+        lock.lock();
+        try {
+            return measured(FIND_BETWEEN, () -> {
+                checkRange(from, to);
+                return new ArrayList<>(range(from.getTime(), to.getTime()).values());
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Finds the appointments scheduled within a range of epoch times, ordered by time.
+     *
+     * @param from The start of the range in epoch milliseconds, inclusive.
+     * @param to The end of the range in epoch milliseconds, exclusive.
+     * @return The appointments scheduled at or after from and before to.
+     * @throws IllegalArgumentException if from is after to.
+     */
+    public List<Appointment> findBetween(long from, long to) {
+        lock.lock();
+        try {
+            return measured(FIND_BETWEEN, () -> new ArrayList<>(range(from, to).values()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Counts the appointments scheduled within a time range.
+     *
+     * @param from The start of the range, inclusive.
+     * @param to The end of the range, exclusive.
+     * @return The number of appointments scheduled at or after from and before to.
+     * @throws IllegalArgumentException if either bound is null or from is after to.
+     */
+    public int countBetween(Date from, Date to) {
+        lock.lock();
+        try {
+            return measured(COUNT_BETWEEN, () -> {
+                checkRange(from, to);
+                return range(from.getTime(), to.getTime()).size();
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Counts the appointments scheduled within a range of epoch times.
+     *
+     * @param from The start of the range in epoch milliseconds, inclusive.
+     * @param to The end of the range in epoch milliseconds, exclusive.
+     * @return The number of appointments scheduled at or after from and before to.
+     * @throws IllegalArgumentException if from is after to.
+     */
+    public int countBetween(long from, long to) {
+        lock.lock();
+        try {
+            return measured(COUNT_BETWEEN, () -> range(from, to).size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Finds the next appointments scheduled strictly after a given time, ordered by time.
+     * Runs in O(log n + limit).
+     *
+     * @param time The time after which appointments are returned.
+     * @param limit The maximum number of appointments to return.
+     * @return Up to limit appointments scheduled after the given time.
+     * @throws IllegalArgumentException if the time is null or the limit is negative.
+     */
+    public List<Appointment> nextAfter(Date time, int limit) {
+        lock.lock();
+        try {
+            return measured(NEXT_AFTER, () -> {
+                if (time == null) {
+                    throw new IllegalArgumentException("Time must be non-null and limit must not be negative");
+                }
+                return next(time.getTime(), limit);
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Finds the next appointments scheduled strictly after a given epoch time, ordered by time.
+     *
+     * @param time The time after which appointments are returned, in epoch milliseconds.
+     * @param limit The maximum number of appointments to return.
+     * @return Up to limit appointments scheduled after the given time.
+     * @throws IllegalArgumentException if the limit is negative.
+     */
+    public List<Appointment> nextAfter(long time, int limit) {
+        lock.lock();
+        try {
+            return measured(NEXT_AFTER, () -> next(time, limit));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Finds the appointments for both nextAfter() overloads.
+    private List<Appointment> next(long time, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Time must be non-null and limit must not be negative");
+        }
+        // Nothing is scheduled after the last representable time, and time + 1 would wrap around to the first
+        if (time == Long.MAX_VALUE) {
+            return new ArrayList<>();
+        }
+        List<Appointment> result = new ArrayList<>(Math.min(limit, appointmentsByTime.size()));
+        Collection<Appointment> after = appointmentsByTime.tailMap(TimeKey.lowest(time + 1), true).values();
+        for (Appointment appointment : after) {
+            if (result.size() == limit) {
+                break;
+            }
+            result.add(appointment);
+        }
+        return result;
+    }
+
+    /**
+     * Finds the appointments on a resource that overlap a time range, ordered by start time.
+     * Runs in O(log n + k) where k is the number of appointments returned.
+     *
+     * @param resource The resource, or null for the shared calendar.
+     * @param from The start of the range, inclusive.
+     * @param to The end of the range, exclusive.
+     * @return The appointments with a duration that overlap the range.
+     * @throws IllegalArgumentException if either bound is null or from is after to.
+     */
+    public List<Appointment> findOverlapping(String resource, Date from, Date to) {
+        lock.lock();
+        try {
+            return measured(FIND_OVERLAPPING, () -> {
+                checkRange(from, to);
+                AppointmentIntervals schedule = schedules.get(resource);
+                return schedule == null ? new ArrayList<>() : schedule.findOverlapping(from.getTime(), to.getTime());
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks whether a resource is free for a whole time range. Runs in O(log n).
+     *
+     * @param resource The resource, or null for the shared calendar.
+     * @param from The start of the range, inclusive.
+     * @param to The end of the range, exclusive.
+     * @return True if no appointment on the resource overlaps the range.
+     * @throws IllegalArgumentException if either bound is null or from is after to.
+     */
+    public boolean isFree(String resource, Date from, Date to) {
+        lock.lock();
+        try {
+            return measured(IS_FREE, () -> {
+                checkRange(from, to);
+                AppointmentIntervals schedule = schedules.get(resource);
+                return schedule == null || schedule.findOverlap(from.getTime(), to.getTime()) == null;
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lists the free periods of a resource within a time range.
+     *
+     * @param resource The resource, or null for the shared calendar.
+     * @param from The start of the range, inclusive.
+     * @param to The end of the range, exclusive.
+     * @param minDurationMillis The shortest free period worth returning.
+     * @return The free periods in time order.
+     * @throws IllegalArgumentException if either bound is null, from is after to, or the minimum is negative.
+     */
+    public List<TimeSlot> findFreeSlots(String resource, Date from, Date to, long minDurationMillis) {
+        lock.lock();
+        try {
+            return measured(FIND_FREE_SLOTS, () -> freeSlots(resource, from, to, minDurationMillis));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Lists the free periods for findFreeSlots(), which records the call in the metrics.
+    private List<TimeSlot> freeSlots(String resource, Date from, Date to, long minDurationMillis) {
+        checkRange(from, to);
+        if (minDurationMillis < 0) {
+            throw new IllegalArgumentException("Duration must not be negative");
+        }
+        List<TimeSlot> slots = new ArrayList<>();
+        AppointmentIntervals schedule = schedules.get(resource);
+        if (schedule == null) {
+            if (to.getTime() - from.getTime() >= minDurationMillis && to.after(from)) {
+                slots.add(new TimeSlot(from.getTime(), to.getTime()));
+            }
+            return slots;
+        }
+        for (long[] slot : schedule.freeSlots(from.getTime(), to.getTime(), minDurationMillis)) {
+            slots.add(new TimeSlot(slot[0], slot[1]));
+        }
+        return slots;
+    }
+
+    /**
+     * Finds the earliest free period of a given length on a resource, starting at or after a given time.
+     *
+     * @param resource The resource, or null for the shared calendar.
+     * @param after The earliest acceptable start.
+     * @param durationMillis The length of the period needed.
+     * @return The free period, exactly durationMillis long.
+     * @throws IllegalArgumentException if the time is null or the duration is negative.
+     */
+    public TimeSlot nextFreeSlot(String resource, Date after, long durationMillis) {
+        lock.lock();
+        try {
+            return measured(NEXT_FREE_SLOT, () -> {
+                if (after == null || durationMillis < 0) {
+                    throw new IllegalArgumentException("Time must be non-null and duration must not be negative");
+                }
+                AppointmentIntervals schedule = schedules.get(resource);
+                long start = schedule == null ? after.getTime() : schedule.nextFree(after.getTime(), durationMillis);
+                return new TimeSlot(start, start + durationMillis);
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Finds the appointments whose description contains any of the query's words, best matches first.
+     * Appointments containing more of the words, and rarer ones, rank higher. The first search indexes every appointment.
+     *
+     * @param query The words to look for; case and punctuation are ignored.
+     * @param limit The maximum number of appointments to return.
+     * @return The matching appointments, best first.
+     * @throws IllegalArgumentException if the query is null or the limit is negative.
+     */
+    public List<Appointment> search(String query, int limit) {
+        lock.lock();
+        try {
+            return measured(SEARCH, () -> {
+                if (descriptionIndex == null) {
+                    descriptionIndex = new TextIndex();
+                    for (Appointment appointment : appointments.values()) {
+                        indexDescription(appointment);
+                    }
+                }
+                List<Appointment> found = new ArrayList<>();
+                for (String appointmentId : descriptionIndex.search(query, limit)) {
+                    found.add(appointments.get(appointmentId));
+                }
+                return found;
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes all appointments to a RecordFile, replacing the file only once it is complete.
+     * The appointments are collected under the service's lock and written after releasing it, so the export
+     * holds one point in time without blocking other threads while the file is written.
+     *
+     * @param file The file to write.
+     * @param compress Whether to deflate the blocks of the file.
+     * @return The number of appointments written.
+     * @throws IOException if the file cannot be written.
+     */
+    public long exportTo(Path file, boolean compress) throws IOException {
+        List<Appointment> all;
+        lock.lock();
+        try {
+            all = new ArrayList<>(appointments.values());
+        } finally {
+            lock.unlock();
+        }
+        return RecordFile.write(file, new AppointmentCodec(clock), all, compress);
+    }
+
+    /**
+     * Adds the appointments of a file written by exportTo(), one block at a time through addAll().
+     * Appointments that are invalid, already in the past or whose IDs are already in use are reported
+     * rather than added.
+     *
+     * @param file The file to read.
+     * @return The outcome of every appointment in the file, indexed by its position in the file.
+     * @throws IOException if the file cannot be read, is damaged or does not hold appointments.
+     */
+    public BatchResult importFrom(Path file) throws IOException {
+        return RecordFile.read(file, new AppointmentCodec(clock), batch -> addAll(batch, false));
+    }
+
+    /**
+     * Starts evicting appointments a grace period after they end, from a background thread.
+     * Each appointment's expiry time is kept in a timer wheel, so the sweeper only visits appointments
+     * that are due and never scans the whole collection. Expiry happens up to one tick late.
+     *
+     * @param graceMillis How long an appointment is kept after its end.
+     * @param tickMillis How often the sweeper runs, and the resolution of expiry times.
+     * @throws IllegalArgumentException if the grace period is negative or the tick is not positive.
+     * @throws IllegalStateException if expiry has already been started.
+     */
+    public void startExpiry(long graceMillis, long tickMillis) {
+        lock.lock();
+        try {
+            enableExpiry(graceMillis, tickMillis, clock.millis());
+            expirySweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread sweeper = new Thread(runnable, "appointment-expiry");
+                sweeper.setDaemon(true);
+                return sweeper;
+            });
+            expirySweeper.scheduleWithFixedDelay(this::expireDue, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the expiry sweeper. Appointments are kept from then on until they are deleted.
+     */
+    public void stopExpiry() {
+        lock.lock();
+        try {
+            if (expirySweeper != null) {
+                expirySweeper.shutdown();
+                expirySweeper = null;
+            }
+            expiryWheel = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Registers a callback that receives every appointment evicted by expiry, for example to archive it.
+     * Callbacks run on the evicting thread, normally the sweeper, after the appointment has been removed; an exception thrown
+     * by one is counted and does not stop the others.
+     *
+     * @param listener The callback.
+     * @throws IllegalArgumentException if the callback is null.
+     */
+    public void addExpiryListener(Consumer<Appointment> listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener must be non-null");
+        }
+        expiryListeners.add(listener);
+    }
+
+    /**
+     * Evicts the appointments whose grace period has passed, as the sweeper does on each tick.
+     *
+     * @return The number of appointments evicted.
+     */
+    public int expireDue() {
+        return expireDue(clock.millis());
+    }
+
+    /**
+     * Returns the number of appointments evicted by expiry since the service was created.
+     */
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    /**
+     * Returns the number of appointments waiting to expire; zero while expiry is not started.
+     */
+    public int getPendingExpiryCount() {
+        lock.lock();
+        try {
+            return expiryWheel == null ? 0 : expiryWheel.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of exceptions thrown by expiry callbacks.
+     */
+    public long getExpiryListenerFailures() {
+        return expiryListenerFailures.get();
+    }
+
+    /**
+     * Starts tracking expiry times without a sweeper thread, treating the given time as now.
+     * The appointments already stored are added to the timer wheel.
+     */
+    void enableExpiry(long graceMillis, long tickMillis, long nowMillis) {
+        lock.lock();
+        try {
+            if (graceMillis < 0 || tickMillis <= 0) {
+                throw new IllegalArgumentException("Grace period must not be negative and tick must be positive");
+            }
+            if (expiryWheel != null) {
+                throw new IllegalStateException("Expiry is already started");
+            }
+            expiryGraceMillis = graceMillis;
+            expiryWheel = new AppointmentExpiryWheel(tickMillis, nowMillis);
+            for (Appointment appointment : appointments.values()) {
+                trackExpiry(appointment);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Evicts the appointments whose grace period has passed by the given time, then notifies the listeners
+     * outside the service's lock.
+     */
+    int expireDue(long nowMillis) {
+        List<Appointment> expired = new ArrayList<>();
+        lock.lock();
+        try {
+            if (expiryWheel == null) {
+                return 0;
+            }
+            expiryWheel.advance(nowMillis, expired);
+            for (Appointment appointment : expired) {
+                appointments.remove(appointment.getAppointmentId());
+                appointmentsByTime.remove(TimeKey.of(appointment));
+                unschedule(appointment);
+                unindexDescription(appointment);
+                changes.publish(ChangeEvent.Type.DELETED, appointment.getAppointmentId(), appointment);
+            }
+        } finally {
+            lock.unlock();
+        }
+        expiredCount.addAndGet(expired.size());
+        for (Appointment appointment : expired) {
+            for (Consumer<Appointment> listener : expiryListeners) {
+                try {
+                    listener.accept(appointment);
+                } catch (RuntimeException e) {
+                    expiryListenerFailures.incrementAndGet();
+                }
+            }
+        }
+        return expired.size();
+    }
+
+    /**
+     * Adds or moves an appointment's expiry time in the timer wheel, if expiry is started.
+     */
+    private void trackExpiry(Appointment appointment) {
+        if (expiryWheel != null) {
+            // Saturate at Long.MAX_VALUE, so a long grace period never wraps into the past
+            long expiresAt = appointment.getEndTime() + expiryGraceMillis;
+            expiryWheel.add(appointment, expiresAt < appointment.getEndTime() ? Long.MAX_VALUE : expiresAt);
+        }
+    }
+
+    /**
+     * Removes an appointment's expiry time from the timer wheel, if expiry is started.
+     */
+    private void untrackExpiry(Appointment appointment) {
+        if (expiryWheel != null) {
+            expiryWheel.remove(appointment.getAppointmentId());
+        }
+    }
+
+    /**
+     * Adds or replaces an appointment's description in the word index, if it has been built.
+     */
+    private void indexDescription(Appointment appointment) {
+        if (descriptionIndex != null) {
+            descriptionIndex.put(appointment.getAppointmentId(), appointment.getDescription());
+        }
+    }
+
+    /**
+     * Removes an appointment from the word index, if it has been built.
+     */
+    private void unindexDescription(Appointment appointment) {
+        if (descriptionIndex != null) {
+            descriptionIndex.remove(appointment.getAppointmentId());
+        }
+    }
+
+    /**
+     * Adds an appointment with a duration to the interval tree of its resource.
+     */
+    private void schedule(Appointment appointment) {
+        if (appointment.getDurationMillis() > 0) {
+            schedules.computeIfAbsent(appointment.getResource(), resource -> new AppointmentIntervals()).add(appointment);
+        }
+    }
+
+    /**
+     * Removes an appointment from the interval tree of its resource, dropping the tree once it is empty.
+     */
+    private void unschedule(Appointment appointment) {
+        AppointmentIntervals schedule = appointment.getDurationMillis() > 0 ? schedules.get(appointment.getResource()) : null;
+        if (schedule != null && schedule.remove(appointment) && schedule.size() == 0) {
+            schedules.remove(appointment.getResource());
+        }
+    }
+
+    /**
+     * Runs a call and records it in the metrics as the given operation, failed if it throws.
+     */
+    private <T> T measured(int operation, Supplier<T> call) {
+        long start = metrics.start(operation);
+        T result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            throw metrics.failed(operation, start, e);
+        }
+        metrics.succeeded(operation, start);
+        return result;
+    }
+
+    /**
+     * Runs a call that returns nothing and records it in the metrics as the given operation.
+     */
+    private void measured(int operation, Runnable call) {
+        measured(operation, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * Validates the bounds of a time range.
+     */
+    private static void checkRange(Date from, Date to) {
+        if (from == null || to == null || from.after(to)) {
+            throw new IllegalArgumentException("Range bounds must be non-null and from must not be after to");
+        }
+    }
+
+    /**
+     * Returns a view of the time index covering the half-open range [from, to).
+     */
+    private NavigableMap<TimeKey, Appointment> range(long from, long to) {
+        if (from > to) {
+            throw new IllegalArgumentException("Range bounds must be non-null and from must not be after to");
+        }
+        return appointmentsByTime.subMap(TimeKey.lowest(from), true, TimeKey.lowest(to), false);
+    }
+
+    /**
+     * Adds newly stored appointments to the time index.
+     * A batch at least as large as the index is sorted together with the existing entries and the index is
+     * rebuilt by inserting them in ascending order. Every insertion then follows the path of the one before,
+     * which stays in cache, instead of a random path through the tree per appointment.
+     */
+    private void indexAll(List<Appointment> added) {
+        if (added.size() < appointmentsByTime.size()) {
+            for (Appointment appointment : added) {
+                appointmentsByTime.put(TimeKey.of(appointment), appointment);
+            }
+            return;
+        }
+        Appointment[] sorted = new Appointment[appointmentsByTime.size() + added.size()];
+        int count = 0;
+        for (Appointment appointment : appointmentsByTime.values()) {
+            sorted[count++] = appointment;
+        }
+        for (Appointment appointment : added) {
+            sorted[count++] = appointment;
+        }
+        // The existing appointments form one sorted run, which the merge sort picks up without re-sorting
+        Arrays.sort(sorted, BY_TIME);
+        NavigableMap<TimeKey, Appointment> rebuilt = new TreeMap<>();
+        for (Appointment appointment : sorted) {
+            rebuilt.put(TimeKey.of(appointment), appointment);
+        }
+        appointmentsByTime = rebuilt;
+    }
+
+    /**
+     * Validates an all-or-nothing batch in one pass: no null items, no ID repeated within the batch,
+     * and every ID either absent from the service (adds) or present in it (updates and deletes).
+     * Every failure is recorded, and the batch is marked as rolled back if there is any.
+     *
+     * @return True if the whole batch may be applied.
+     */
+    private <T> boolean validateAtomicBatch(Collection<T> batch, Function<T, String> idOf, boolean mustExist,
+            String nullReason, BatchResult result) {
+        Set<String> seen = new HashSet<>(capacityFor(batch.size()));
+        int index = 0;
+        for (T item : batch) {
+            String id = item == null ? null : idOf.apply(item);
+            if (id == null) {
+                result.reject(index, null, nullReason);
+            } else if (!seen.add(id)) {
+                result.reject(index, id, "Duplicate appointment ID in batch");
+            } else if (appointments.containsKey(id) != mustExist) {
+                result.reject(index, id, mustExist ? "Appointment does not exist" : "Appointment already exists");
+            }
+            index++;
+        }
+        if (result.hasFailures()) {
+            result.rollBack();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Grows the appointment map once ahead of a large batch, instead of letting it double repeatedly while inserting.
+     */
+    private void ensureCapacity(int additional) {
+        // Rehashing costs O(size), so it only pays off when the batch is at least as large as the map
+        if (additional > appointments.size()) {
+            Map<String, Appointment> presized = new HashMap<>(capacityFor(appointments.size() + additional));
+            presized.putAll(appointments);
+            appointments = presized;
+        }
+    }
+
+    /**
+     * Returns the initial capacity a hash-based collection needs to hold the given number of entries without resizing.
+     */
+    private static int capacityFor(int expected) {
+        return Math.max(16, (int) (expected / 0.75f) + 1);
+    }
+
+    /**
+     * Sort key for the time index: scheduled time in epoch milliseconds, then appointment ID.
+     */
+    private static final class TimeKey implements Comparable<TimeKey> {
+        private final long time;
+        private final String appointmentId;
+
+        private TimeKey(long time, String appointmentId) {
+            this.time = time;
+            this.appointmentId = appointmentId;
+        }
+
+        static TimeKey of(Appointment appointment) {
+            return new TimeKey(appointment.getAppointmentTime(), appointment.getAppointmentId());
+        }
+
+        // The empty ID sorts before every real ID, so this key marks the start of a time slot
+        static TimeKey lowest(long time) {
+            return new TimeKey(time, "");
+        }
+
+        @Override
+        public int compareTo(TimeKey other) {
+            int byTime = Long.compare(time, other.time);
+            return byTime != 0 ? byTime : appointmentId.compareTo(other.appointmentId);
         }
-        // Remove the appointment from the collection
-        appointments.remove(appointmentId);
     }
 }
@@ -1,6 +1,19 @@
 import org.junit.Before;
 import org.junit.Test;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import static org.junit.Assert.*;
 
 /**
@@ -52,4 +65,405 @@ public class AppointmentServiceTest {
         // Attempt to add the same appointment again, which should throw an exception due to duplicate ID
         service.addAppointment(appointment);
     }
+
+    /**
+     * Tests range queries over the time index.
+     * Verifies that findBetween and countBetween use a half-open range and return appointments in time order.
+     */
+    @Test
+    public void testFindAndCountBetween() {
+        long base = futureDate.getTime();
+        service.addAppointment(new Appointment("A3", new Date(base + 3000), "Third"));
+        service.addAppointment(new Appointment("A1", new Date(base + 1000), "First"));
+        service.addAppointment(new Appointment("A2", new Date(base + 2000), "Second"));
+
+        List<Appointment> found = service.findBetween(new Date(base + 1000), new Date(base + 3000));
+        assertEquals("Two appointments should fall inside the range.", 2, found.size());
+        assertEquals("Results should be ordered by time.", "A1", found.get(0).getAppointmentId());
+        assertEquals("Results should be ordered by time.", "A2", found.get(1).getAppointmentId());
+        assertEquals("Count should match the number of appointments in range.", 2, service.countBetween(new Date(base + 1000), new Date(base + 3000)));
+    }
+
+    /**
+     * Tests that nextAfter returns appointments strictly after the given time, limited and in order,
+     * and that deleted appointments are removed from the time index.
+     */
+    @Test
+    public void testNextAfterAndDelete() {
+        long base = futureDate.getTime();
+        service.addAppointment(new Appointment("B1", new Date(base), "Same time one"));
+        service.addAppointment(new Appointment("B2", new Date(base), "Same time two"));
+        service.addAppointment(new Appointment("B3", new Date(base + 5000), "Later"));
+
+        List<Appointment> next = service.nextAfter(new Date(base - 1), 2);
+        assertEquals("Limit should cap the number of results.", 2, next.size());
+        assertEquals("Appointments at the same time should be ordered by ID.", "B1", next.get(0).getAppointmentId());
+
+        service.deleteAppointment("B1");
+        next = service.nextAfter(new Date(base), 10);
+        assertEquals("Only appointments strictly after the time should be returned.", 1, next.size());
+        assertEquals("B3", next.get(0).getAppointmentId());
+        assertEquals("Deleted appointment should leave the time index.", 1, service.countBetween(new Date(base), new Date(base + 1)));
+    }
+
+    /**
+     * Tests that nothing is found after the last representable time, which must not wrap around to the first.
+     */
+    @Test
+    public void testNextAfterLastTime() {
+        service.addAppointment(new Appointment("E1", futureDate, "Soon"));
+        service.newAppointment("E2", Long.MAX_VALUE, "Last", 0, null);
+
+        assertTrue("Nothing is after the last time.", service.nextAfter(Long.MAX_VALUE, 5).isEmpty());
+        List<Appointment> next = service.nextAfter(Long.MAX_VALUE - 1, 5);
+        assertEquals(1, next.size());
+        assertEquals("E2", next.get(0).getAppointmentId());
+    }
+
+    /**
+     * Tests that an inverted range is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testFindBetweenInvertedRange() {
+        service.findBetween(new Date(futureDate.getTime() + 1), futureDate);
+    }
+
+    /**
+     * Tests batch add, update and delete, and that the time index follows rescheduled appointments.
+     */
+    @Test
+    public void testBatchOperations() {
+        long base = futureDate.getTime();
+        BatchResult added = service.addAll(Arrays.asList(
+                new Appointment("C1", new Date(base + 1000), "One"),
+                new Appointment("C1", new Date(base + 2000), "Duplicate"),
+                new Appointment("C2", new Date(base + 3000), "Two")), false);
+        assertEquals("The duplicate ID should be rejected.", 1, added.getFailures().size());
+        assertEquals(2, service.appointments.size());
+
+        BatchResult atomic = service.addAll(Arrays.asList(new Appointment("C3", futureDate, "Three"), null), true);
+        assertFalse("Atomic batch with a null item should not be applied.", atomic.isApplied());
+        assertEquals(2, service.appointments.size());
+
+        service.updateAll(Arrays.asList(new Appointment("C1", new Date(base + 5000), "Moved")), true);
+        assertEquals("Rescheduled appointment should leave its old slot.", 0, service.countBetween(new Date(base + 1000), new Date(base + 1001)));
+        assertEquals("C1", service.nextAfter(new Date(base + 4000), 1).get(0).getAppointmentId());
+
+        assertEquals(2, service.deleteAll(Arrays.asList("C1", "C2"), true).succeeded());
+        assertTrue(service.appointments.isEmpty());
+        assertTrue(service.findBetween(futureDate, new Date(base + 10000)).isEmpty());
+    }
+
+    /**
+     * Tests that a batch larger than the time index is merged with the existing entries in time order.
+     */
+    @Test
+    public void testLargeBatchMergesIntoTimeIndex() {
+        long base = futureDate.getTime();
+        service.addAppointment(new Appointment("M2", new Date(base + 2000), "Existing"));
+        service.addAppointment(new Appointment("M4", new Date(base + 4000), "Existing"));
+        service.addAll(Arrays.asList(
+                new Appointment("M5", new Date(base + 5000), "New"),
+                new Appointment("M1", new Date(base + 1000), "New"),
+                new Appointment("M3", new Date(base + 3000), "New")), false);
+
+        List<Appointment> all = service.findBetween(futureDate, new Date(base + 10000));
+        assertEquals("All appointments should be indexed.", 5, all.size());
+        for (int i = 0; i < all.size(); i++) {
+            assertEquals("Appointments should be in time order.", "M" + (i + 1), all.get(i).getAppointmentId());
+        }
+        service.deleteAppointment("M3");
+        assertEquals("The rebuilt index should still support deletes.", 4, service.countBetween(futureDate, new Date(base + 10000)));
+        assertEquals("M4", service.nextAfter(new Date(base + 2000), 1).get(0).getAppointmentId());
+    }
+
+    /**
+     * Tests that the conflict-rejecting add mode refuses overlapping bookings of the same resource only.
+     */
+    @Test
+    public void testRejectConflicts() {
+        long base = futureDate.getTime();
+        long minute = 60_000;
+        service.addAppointment(new Appointment("R1", new Date(base), "Meeting", 30 * minute, "Room1"), true);
+        // Back-to-back is fine, as the end of an appointment is not part of it
+        service.addAppointment(new Appointment("R2", new Date(base + 30 * minute), "Meeting", 30 * minute, "Room1"), true);
+        // The same time on another resource, or without a duration, does not conflict
+        service.addAppointment(new Appointment("R3", new Date(base + 10 * minute), "Meeting", 30 * minute, "Room2"), true);
+        service.addAppointment(new Appointment("R4", new Date(base + 10 * minute), "Reminder", 0, "Room1"), true);
+        try {
+            service.addAppointment(new Appointment("R5", new Date(base + 50 * minute), "Meeting", 30 * minute, "Room1"), true);
+            fail("Overlapping appointment should be rejected");
+        } catch (IllegalArgumentException expected) {
+            assertFalse(service.appointments.containsKey("R5"));
+        }
+        // Without conflict checks the double booking is allowed and reported by the queries
+        service.addAppointment(new Appointment("R5", new Date(base + 50 * minute), "Meeting", 30 * minute, "Room1"));
+        assertEquals(2, service.findOverlapping("Room1", new Date(base + 45 * minute), new Date(base + 55 * minute)).size());
+        assertFalse(service.isFree("Room1", new Date(base), new Date(base + minute)));
+        service.deleteAppointment("R1");
+        assertTrue(service.isFree("Room1", new Date(base), new Date(base + 30 * minute)));
+    }
+
+    /**
+     * Tests free/busy queries over a resource's calendar.
+     */
+    @Test
+    public void testFreeSlots() {
+        long base = futureDate.getTime();
+        long minute = 60_000;
+        service.addAll(Arrays.asList(
+                new Appointment("F1", new Date(base + 10 * minute), "Busy", 20 * minute, null),
+                new Appointment("F2", new Date(base + 25 * minute), "Busy", 20 * minute, null),
+                new Appointment("F3", new Date(base + 60 * minute), "Busy", 15 * minute, null)), false);
+
+        List<TimeSlot> free = service.findFreeSlots(null, futureDate, new Date(base + 90 * minute), 10 * minute);
+        assertEquals(3, free.size());
+        assertEquals(base, free.get(0).getStart().getTime());
+        assertEquals(base + 10 * minute, free.get(0).getEnd().getTime());
+        assertEquals(base + 45 * minute, free.get(1).getStart().getTime());
+        assertEquals(15 * minute, free.get(1).getDurationMillis());
+        assertEquals(base + 75 * minute, free.get(2).getStart().getTime());
+
+        assertEquals(base, service.nextFreeSlot(null, futureDate, 10 * minute).getStart().getTime());
+        assertEquals(base + 45 * minute, service.nextFreeSlot(null, futureDate, 15 * minute).getStart().getTime());
+        assertEquals(base + 75 * minute, service.nextFreeSlot(null, futureDate, 30 * minute).getStart().getTime());
+        assertEquals(base, service.nextFreeSlot("Other", futureDate, 30 * minute).getStart().getTime());
+    }
+
+    /**
+     * Tests that expired appointments are evicted from every index and reported to the listeners,
+     * while deleted and rescheduled appointments follow their new state.
+     */
+    @Test
+    public void testExpiry() {
+        long minute = 60_000;
+        // Whole minutes, so expiry times fall on a tick
+        long base = (futureDate.getTime() / minute + 1) * minute;
+        service.addAll(Arrays.asList(
+                new Appointment("X1", new Date(base), "Short", 10 * minute, "Room1"),
+                new Appointment("X2", new Date(base), "Long", 60 * minute, "Room1"),
+                new Appointment("X3", new Date(base), "Deleted"),
+                new Appointment("X4", new Date(base), "Moved")), false);
+        service.enableExpiry(5 * minute, 1000, System.currentTimeMillis());
+        assertEquals(4, service.getPendingExpiryCount());
+
+        List<String> evicted = new ArrayList<>();
+        service.addExpiryListener(appointment -> evicted.add(appointment.getAppointmentId()));
+        service.addExpiryListener(appointment -> {
+            throw new IllegalStateException("Archive unavailable");
+        });
+        service.deleteAppointment("X3");
+        service.updateAll(Arrays.asList(new Appointment("X4", new Date(base + 120 * minute), "Moved")), false);
+
+        // The deleted appointment would have expired here
+        assertEquals(0, service.expireDue(base + 5 * minute));
+        assertEquals(0, service.expireDue(base + 15 * minute - 1));
+        assertEquals(1, service.expireDue(base + 15 * minute));
+        assertEquals(Arrays.asList("X1"), evicted);
+        assertFalse(service.isFree("Room1", new Date(base), new Date(base + 10 * minute)));
+        assertEquals(1, service.expireDue(base + 65 * minute));
+        assertTrue(service.isFree("Room1", new Date(base), new Date(base + 60 * minute)));
+        assertEquals(1, service.expireDue(base + 125 * minute));
+
+        assertEquals(Arrays.asList("X1", "X2", "X4"), evicted);
+        assertTrue(service.appointments.isEmpty());
+        assertEquals(0, service.countBetween(new Date(base), new Date(base + 200 * minute)));
+        assertEquals(3, service.getExpiredCount());
+        assertEquals(3, service.getExpiryListenerFailures());
+        assertEquals(0, service.getPendingExpiryCount());
+    }
+
+    /**
+     * Tests that the background sweeper evicts an appointment once its time has passed.
+     */
+    @Test
+    public void testExpirySweeper() throws InterruptedException {
+        service.addAppointment(new Appointment("S1", new Date(System.currentTimeMillis() + 50), "Soon"));
+        service.startExpiry(0, 10);
+        try {
+            for (int i = 0; i < 200 && service.getExpiredCount() == 0; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, service.getExpiredCount());
+            assertTrue(service.appointments.isEmpty());
+        } finally {
+            service.stopExpiry();
+        }
+    }
+
+    /**
+     * Tests a service on a fixed clock: new appointments are validated against it, and the time index
+     * is queried with epoch times.
+     */
+    @Test
+    public void testInjectedClock() {
+        Clock clock = Clock.fixed(Instant.ofEpochMilli(1_000_000), ZoneOffset.UTC);
+        AppointmentService clocked = new AppointmentService(clock);
+        assertSame(clock, clocked.getClock());
+        clocked.newAppointment("C1", 1_000_000, "Now", 0, null);
+        clocked.newAppointment("C2", 2_000_000, "Later", 60_000, "Room1");
+        try {
+            clocked.newAppointment("C3", 999_999, "Past", 0, null);
+            fail("A time before the service's clock should be rejected.");
+        } catch (IllegalArgumentException expected) {
+            assertEquals(2, clocked.appointments.size());
+        }
+
+        assertEquals(2, clocked.countBetween(1_000_000, 2_000_001));
+        assertEquals("C2", clocked.findBetween(1_000_001, 3_000_000).get(0).getAppointmentId());
+        assertEquals("C2", clocked.nextAfter(1_000_000, 5).get(0).getAppointmentId());
+
+        // Expiry runs on the same clock, which has not moved
+        clocked.enableExpiry(1000, 1000, clock.millis());
+        assertEquals(0, clocked.expireDue());
+        assertEquals(1, clocked.expireDue(1_001_000));
+    }
+
+    /**
+     * Tests that a grace period too long to add to an appointment's end time keeps it from expiring,
+     * rather than wrapping into the past.
+     */
+    @Test
+    public void testExpiryGraceSaturates() {
+        Clock clock = Clock.fixed(Instant.ofEpochMilli(1_000_000), ZoneOffset.UTC);
+        AppointmentService clocked = new AppointmentService(clock);
+        clocked.newAppointment("C1", 2_000_000, "Later", 60_000, null);
+        clocked.enableExpiry(Long.MAX_VALUE, 1000, clock.millis());
+        assertEquals(0, clocked.expireDue(10_000_000));
+        assertEquals(1, clocked.getPendingExpiryCount());
+    }
+
+    /**
+     * Tests that adds, updates, deletes and evictions by expiry are published in order.
+     */
+    @Test
+    public void testChangeEvents() throws InterruptedException {
+        BlockingQueue<ChangeEvent<Appointment>> events = record(service.getChangePublisher());
+        service.addAppointment(new Appointment("E1", futureDate, "First"));
+        service.updateAll(Arrays.asList(new Appointment("E1", futureDate, "Changed")), false);
+        service.addAppointment(new Appointment("E2", futureDate, "Second"));
+        service.deleteAppointment("E2");
+        service.enableExpiry(0, 1000, System.currentTimeMillis());
+        service.expireDue(futureDate.getTime() + 1000);
+
+        expectEvent(events, ChangeEvent.Type.ADDED, "E1");
+        expectEvent(events, ChangeEvent.Type.UPDATED, "E1");
+        expectEvent(events, ChangeEvent.Type.ADDED, "E2");
+        expectEvent(events, ChangeEvent.Type.DELETED, "E2");
+        expectEvent(events, ChangeEvent.Type.DELETED, "E1");
+    }
+
+    /**
+     * Tests that calls and failures are counted per operation, and that overloads are counted once per call.
+     */
+    @Test
+    public void testMetrics() {
+        service.addAppointment(new Appointment("M1", futureDate, "Description"));
+        service.findBetween(new Date(0), futureDate);
+        service.findBetween(0, Long.MAX_VALUE);
+        service.nextAfter(new Date(0), 5);
+        try {
+            service.newAppointment("M2", 0, "In the past", 0, null);
+            fail("Past appointment should be rejected.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        OperationMetrics.Snapshot snapshot = service.getMetrics().snapshot();
+        assertEquals(1, snapshot.getEntityCount());
+        assertEquals(2, snapshot.getOperation("addAppointment").getCalls());
+        assertEquals(1, snapshot.getOperation("addAppointment").getFailures());
+        assertEquals(2, snapshot.getOperation("findBetween").getCalls());
+        assertEquals(1, snapshot.getOperation("nextAfter").getCalls());
+    }
+
+    /**
+     * Tests that search finds appointments by words in their descriptions and follows later changes.
+     */
+    @Test
+    public void testSearch() {
+        service.addAppointment(new Appointment("S1", futureDate, "Dentist checkup"));
+        service.addAppointment(new Appointment("S2", futureDate, "Car checkup at garage"));
+        service.addAppointment(new Appointment("S3", futureDate, "Dentist cleaning"));
+
+        List<Appointment> found = service.search("dentist checkup", 10);
+        assertEquals(3, found.size());
+        assertEquals("S1", found.get(0).getAppointmentId());
+
+        service.updateAll(Arrays.asList(new Appointment("S1", futureDate, "Eye exam")), false);
+        service.deleteAppointment("S3");
+        service.addAll(Arrays.asList(new Appointment("S4", futureDate, "Dentist again")), false);
+        found = service.search("dentist", 10);
+        assertEquals(1, found.size());
+        assertEquals("S4", found.get(0).getAppointmentId());
+        assertEquals("S1", service.search("EXAM", 10).get(0).getAppointmentId());
+        assertEquals(3, service.getMetrics().snapshot().getOperation("search").getCalls());
+    }
+
+    /**
+     * Tests that exported appointments are imported unchanged, and that appointments in the past by the
+     * importing service's clock are reported rather than added.
+     */
+    @Test
+    public void testExportImport() throws Exception {
+        Clock clock = Clock.fixed(Instant.ofEpochMilli(1_000_000), ZoneOffset.UTC);
+        AppointmentService original = new AppointmentService(clock);
+        original.newAppointment("P1", 1_500_000, "Early", 0, null);
+        original.newAppointment("P2", 3_000_000, "Review", 60_000, "Room1");
+        original.newAppointment("P3", 4_000_000, "Retro", 30_000, "Room2");
+        Path file = Files.createTempFile("appointments", ".msrf");
+        try {
+            assertEquals(3, original.exportTo(file, true));
+
+            AppointmentService later = new AppointmentService(Clock.offset(clock, Duration.ofMillis(1_000_000)));
+            BatchResult result = later.importFrom(file);
+            assertEquals(3, result.size());
+            assertEquals(1, result.getFailures().size());
+            assertEquals("P1", result.getFailures().get(0).getId());
+            Appointment review = later.getAppointment("P2");
+            assertEquals(3_000_000, review.getAppointmentTime());
+            assertEquals(60_000, review.getDurationMillis());
+            assertEquals("Room1", review.getResource());
+            assertFalse(later.isFree("Room2", new Date(4_000_000), new Date(4_010_000)));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Subscribes to a change publisher with unbounded demand and returns the queue its events arrive in.
+     */
+    private static <T> BlockingQueue<ChangeEvent<T>> record(ChangePublisher<T> publisher) {
+        BlockingQueue<ChangeEvent<T>> events = new LinkedBlockingQueue<>();
+        publisher.subscribe(new Flow.Subscriber<List<ChangeEvent<T>>>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(List<ChangeEvent<T>> batch) {
+                events.addAll(batch);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        return events;
+    }
+
+    /**
+     * Takes the next event from the queue and checks its kind and ID.
+     */
+    private static <T> void expectEvent(BlockingQueue<ChangeEvent<T>> events, ChangeEvent.Type type, String id) throws InterruptedException {
+        ChangeEvent<T> event = events.poll(5, TimeUnit.SECONDS);
+        assertNotNull("Change event should arrive.", event);
+        assertEquals(type, event.getType());
+        assertEquals(id, event.getId());
+    }
 }
@@ -1,4 +1,7 @@
 import org.junit.Test;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.util.Date;
 import static org.junit.Assert.*;
 
@@ -44,4 +47,68 @@ public class AppointmentTest {
         // Attempt to create an appointment with an empty description
         new Appointment("A123", new Date(System.currentTimeMillis() + 100000), ""); // Future date, but empty description
     }
+
+    /**
+     * Tests that an injected clock decides whether an epoch time lies in the future.
+     */
+    @Test
+    public void testClockDecidesFuture() {
+        Clock clock = Clock.fixed(Instant.ofEpochMilli(1_000_000), ZoneOffset.UTC);
+        Appointment appointment = new Appointment("A123", 1_000_000, "Test Description", 30_000, "Room1", clock);
+        assertEquals(1_000_000, appointment.getAppointmentTime());
+        assertEquals(1_030_000, appointment.getEndTime());
+        assertEquals(new Date(1_000_000), appointment.getAppointmentDate());
+        try {
+            new Appointment("A123", 999_999, "Test Description", 0, null, clock);
+            fail("A time before the clock's time should be rejected.");
+        } catch (IllegalArgumentException expected) {
+            // The clock's time, not the system time, is the cutoff
+        }
+    }
+
+    /**
+     * Tests that the returned date is a copy that cannot move the appointment.
+     */
+    @Test
+    public void testDateIsCopied() {
+        Date futureDate = new Date(System.currentTimeMillis() + 100000);
+        long time = futureDate.getTime();
+        Appointment appointment = new Appointment("A123", futureDate, "Test Description");
+        appointment.getAppointmentDate().setTime(0);
+        futureDate.setTime(0);
+        assertEquals(time, appointment.getAppointmentTime());
+    }
+
+    /**
+     * Tests that validate() reports the first invalid field by its code, without throwing, and that the
+     * constructor throws the message of the same rule.
+     */
+    @Test
+    public void testValidate() {
+        Clock clock = Clock.fixed(Instant.ofEpochMilli(1_000_000), ZoneOffset.UTC);
+        assertEquals(ValidationRules.VALID, Appointment.validate("A1", 1_000_000, "Checkup", 0, null, clock));
+        assertEquals(Appointment.INVALID_ID, Appointment.validate(null, 0, null, -1, null, null));
+        assertEquals(Appointment.MISSING_CLOCK, Appointment.validate("A1", 0, null, -1, null, null));
+        assertEquals(Appointment.PAST_DATE, Appointment.validate("A1", 999_999, "Checkup", 0, null, clock));
+        assertEquals(Appointment.INVALID_DESCRIPTION, Appointment.validate("A1", 1_000_000, null, 0, null, clock));
+        assertEquals(Appointment.NEGATIVE_DURATION, Appointment.validate("A1", 1_000_000, "Checkup", -1, null, clock));
+        assertEquals(Appointment.DURATION_OVERFLOW, Appointment.validate("A1", 1_000_000, "Checkup", Long.MAX_VALUE, null, clock));
+        assertEquals(ValidationRules.VALID, Appointment.validate("A1", 1_000_000, "Checkup", Long.MAX_VALUE - 1_000_000, null, clock));
+        assertEquals(Appointment.INVALID_RESOURCE, Appointment.validate("A1", 1_000_000, "Checkup", 0, "Room 101 East", clock));
+        ValidationRules.Result result = new ValidationRules.Result();
+        assertNull(Appointment.tryCreate("A1", 999_999, "Checkup", 0, null, clock, result));
+        assertEquals("Appointment date must be in the future", result.getMessage());
+        Appointment created = Appointment.tryCreate("A1", 1_000_000, "Checkup", 60_000, "Room 1", clock, result);
+        assertTrue(result.isValid());
+        assertEquals(1_060_000, created.getEndTime());
+        assertEquals("Room 1", created.getResource());
+        try {
+            new Appointment("A1", 1_000_000, "Checkup", -1, null, clock);
+            fail("A negative duration should be rejected.");
+        } catch (IllegalArgumentException e) {
+            assertEquals(Appointment.RULES.message(Appointment.NEGATIVE_DURATION), e.getMessage());
+        }
+        assertNull(Appointment.tryCreate("A1", Long.MAX_VALUE - 1, "Checkup", 2, null, clock, result));
+        assertEquals(Appointment.DURATION_OVERFLOW, result.getCode());
+    }
 }
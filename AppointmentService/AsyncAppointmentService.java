@@ -0,0 +1,135 @@
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Asynchronous facade over an AppointmentService.
+ * Every method returns at once with a CompletableFuture, and the call runs on the facade's executor,
+ * virtual threads by default. Calls on the same appointment ID run one at a time in the order they were
+ * made, and a batch is ordered the same way with the calls on each appointment it names; other calls run
+ * concurrently, and the service's own lock keeps each one consistent. That lock is a ReentrantLock, so
+ * virtual threads waiting for it do not pin their carrier threads.
+ * A rejected call completes its future exceptionally with the exception the service threw.
+ */
+public class AsyncAppointmentService {
+    private final AppointmentService service;
+    private final KeyedExecutor executor;
+
+    /**
+     * Creates a facade that runs on the executor shared by the async facades.
+     * @param service The service to call.
+     */
+    public AsyncAppointmentService(AppointmentService service) {
+        this(service, KeyedExecutor.sharedExecutor());
+    }
+
+    /**
+     * Creates a facade that runs on the given executor.
+     * @param service The service to call.
+     * @param executor The executor that runs the calls.
+     */
+    public AsyncAppointmentService(AppointmentService service, Executor executor) {
+        this.service = service;
+        this.executor = new KeyedExecutor(executor);
+    }
+
+    /**
+     * Adds an appointment; see AppointmentService.addAppointment.
+     * @param appointment The appointment to be added.
+     * @param rejectConflicts If true, an appointment that overlaps another on its resource is refused.
+     * @return A future completed once the appointment is stored.
+     */
+    public CompletableFuture<Void> addAppointment(Appointment appointment, boolean rejectConflicts) {
+        return executor.submit(appointment == null ? null : appointment.getAppointmentId(), () -> {
+            service.addAppointment(appointment, rejectConflicts);
+            return null;
+        });
+    }
+
+    /**
+     * Looks up an appointment; see AppointmentService.getAppointment.
+     * @param appointmentId The unique ID of the appointment.
+     * @return A future completed with the stored appointment.
+     */
+    public CompletableFuture<Appointment> getAppointment(String appointmentId) {
+        return executor.submit(appointmentId, () -> service.getAppointment(appointmentId));
+    }
+
+    /**
+     * Deletes an appointment; see AppointmentService.deleteAppointment.
+     * @param appointmentId The unique ID of the appointment.
+     * @return A future completed once the appointment is deleted.
+     */
+    public CompletableFuture<Void> deleteAppointment(String appointmentId) {
+        return executor.submit(appointmentId, () -> {
+            service.deleteAppointment(appointmentId);
+            return null;
+        });
+    }
+
+    /**
+     * Adds a batch of appointments; see AppointmentService.addAll.
+     * @return A future completed with the batch report.
+     */
+    public CompletableFuture<BatchResult> addAll(Collection<Appointment> batch, boolean atomic) {
+        return executor.submitAll(KeyedExecutor.keysOf(batch, Appointment::getAppointmentId), () -> service.addAll(batch, atomic));
+    }
+
+    /**
+     * Deletes a batch of appointments; see AppointmentService.deleteAll.
+     * @return A future completed with the batch report.
+     */
+    public CompletableFuture<BatchResult> deleteAll(Collection<String> appointmentIds, boolean atomic) {
+        return executor.submitAll(appointmentIds, () -> service.deleteAll(appointmentIds, atomic));
+    }
+
+    /**
+     * Replaces a batch of appointments; see AppointmentService.updateAll.
+     * @return A future completed with the batch report.
+     */
+    public CompletableFuture<BatchResult> updateAll(Collection<Appointment> updates, boolean atomic) {
+        return executor.submitAll(KeyedExecutor.keysOf(updates, Appointment::getAppointmentId), () -> service.updateAll(updates, atomic));
+    }
+
+    /**
+     * Finds the appointments in a time range; see AppointmentService.findBetween.
+     * @return A future completed with the appointments, ordered by time.
+     */
+    public CompletableFuture<List<Appointment>> findBetween(Date from, Date to) {
+        return executor.submit(() -> service.findBetween(from, to));
+    }
+
+    /**
+     * Finds the next appointments after a time; see AppointmentService.nextAfter.
+     * @return A future completed with the appointments, ordered by time.
+     */
+    public CompletableFuture<List<Appointment>> nextAfter(Date time, int limit) {
+        return executor.submit(() -> service.nextAfter(time, limit));
+    }
+
+    /**
+     * Checks whether a resource is free; see AppointmentService.isFree.
+     * @return A future completed with true if nothing on the resource overlaps the range.
+     */
+    public CompletableFuture<Boolean> isFree(String resource, Date from, Date to) {
+        return executor.submit(() -> service.isFree(resource, from, to));
+    }
+
+    /**
+     * Lists the free periods of a resource; see AppointmentService.findFreeSlots.
+     * @return A future completed with the free periods in time order.
+     */
+    public CompletableFuture<List<TimeSlot>> findFreeSlots(String resource, Date from, Date to, long minDurationMillis) {
+        return executor.submit(() -> service.findFreeSlots(resource, from, to, minDurationMillis));
+    }
+
+    /**
+     * Finds the earliest free period on a resource; see AppointmentService.nextFreeSlot.
+     * @return A future completed with the free period.
+     */
+    public CompletableFuture<TimeSlot> nextFreeSlot(String resource, Date after, long durationMillis) {
+        return executor.submit(() -> service.nextFreeSlot(resource, after, durationMillis));
+    }
+}
@@ -0,0 +1,31 @@
+import org.junit.Test;
+import java.util.Date;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the AsyncAppointmentService class.
+ */
+public class AsyncAppointmentServiceTest {
+    private final AppointmentService service = new AppointmentService();
+    private final AsyncAppointmentService async = new AsyncAppointmentService(service);
+
+    /**
+     * Tests an add followed by queries, and a conflicting add that fails its future.
+     */
+    @Test
+    public void testAddAndQuery() throws Exception {
+        long start = System.currentTimeMillis() + 100000;
+        async.addAppointment(new Appointment("A1", new Date(start), "Meeting", 60_000, "Room1"), true).get(10, TimeUnit.SECONDS);
+        assertFalse(async.isFree("Room1", new Date(start), new Date(start + 1)).get(10, TimeUnit.SECONDS));
+        assertEquals(1, async.findBetween(new Date(start), new Date(start + 1)).get(10, TimeUnit.SECONDS).size());
+        assertEquals(start + 60_000, async.nextFreeSlot("Room1", new Date(start), 1000).get(10, TimeUnit.SECONDS).getStart().getTime());
+        try {
+            async.addAppointment(new Appointment("A2", new Date(start + 1000), "Clash", 60_000, "Room1"), true).get(10, TimeUnit.SECONDS);
+            fail("A conflicting appointment should be refused.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+    }
+}
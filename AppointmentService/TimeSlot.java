@@ -0,0 +1,38 @@
+import java.util.Date;
+
+/**
+ * A free period of time on a resource's calendar, from a start time up to but not including an end time.
+ */
+public final class TimeSlot {
+    private final long start;
+    private final long end;
+
+    TimeSlot(long start, long end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Gets the start of the slot.
+     * @return A new Date at the start of the slot.
+     */
+    public Date getStart() {
+        return new Date(start);
+    }
+
+    /**
+     * Gets the end of the slot, which is not part of it.
+     * @return A new Date at the end of the slot.
+     */
+    public Date getEnd() {
+        return new Date(end);
+    }
+
+    /**
+     * Gets the length of the slot.
+     * @return The length in milliseconds.
+     */
+    public long getDurationMillis() {
+        return end - start;
+    }
+}
@@ -0,0 +1,61 @@
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark workload for appointment expiry with the timer wheel, next to the periodic full scan it replaces.
+ * apply(size) creates size appointments that expire at random times during one day. wheelDay fills a wheel
+ * and sweeps it once a second for the whole day; fullScanSweep is one sweep of the full scan, which a day
+ * repeats 86,400 times over every stored appointment.
+ */
+public class AppointmentExpiryWorkload implements IntFunction<Map<String, Supplier<Object>>> {
+    private static final long TICK = 1000;
+    private static final long DAY = 24 * 60 * 60 * 1000;
+
+    @Override
+    public Map<String, Supplier<Object>> apply(int size) {
+        Random random = new Random(BenchmarkData.SEED);
+        Date future = new Date(System.currentTimeMillis() + DAY);
+        List<Appointment> appointments = new ArrayList<>(size);
+        long[] expiries = new long[size];
+        Map<String, Long> byId = new HashMap<>();
+        for (String id : BenchmarkData.shuffledIds("A", size)) {
+            long expiry = (long) (random.nextDouble() * DAY);
+            expiries[appointments.size()] = expiry;
+            appointments.add(new Appointment(id, future, "Expiring"));
+            byId.put(id, expiry);
+        }
+
+        Map<String, Supplier<Object>> operations = new HashMap<>();
+        operations.put("wheelDay", () -> {
+            AppointmentExpiryWheel wheel = new AppointmentExpiryWheel(TICK, 0);
+            for (int i = 0; i < size; i++) {
+                wheel.add(appointments.get(i), expiries[i]);
+            }
+            List<Appointment> expired = new ArrayList<>();
+            int count = 0;
+            for (long now = TICK; now <= DAY + TICK; now += TICK) {
+                wheel.advance(now, expired);
+                count += expired.size();
+                expired.clear();
+            }
+            return count;
+        });
+        // The first sweep of a day, when every appointment is still stored
+        operations.put("fullScanSweep", () -> {
+            int due = 0;
+            for (Map.Entry<String, Long> entry : byId.entrySet()) {
+                if (entry.getValue() <= TICK) {
+                    due++;
+                }
+            }
+            return due;
+        });
+        return operations;
+    }
+}
@@ -0,0 +1,80 @@
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark workload for the booking-flow queries of AppointmentService on a busy calendar: conflict-checked
+ * adds, isFree checks and next-free-slot searches. apply(size) books size appointments of 15 to 60 minutes
+ * over RESOURCES resources, spread so each resource is booked about half of the time, and returns the
+ * operations by name. Queries use windows drawn in a fixed pseudo-random order.
+ */
+public class AppointmentIntervalsWorkload implements IntFunction<Map<String, Supplier<Object>>> {
+    // Number of resources the appointments book.
+    static final int RESOURCES = 100;
+    private static final long MINUTE = 60_000;
+    // Number of distinct query windows, visited in turn.
+    private static final int WINDOWS = 4_096;
+
+    private AppointmentService service;
+    private String[] resources;
+    private Date[] starts;
+    private Date[] ends;
+    private int cursor;
+
+    @Override
+    public Map<String, Supplier<Object>> apply(int size) {
+        Random random = new Random(BenchmarkData.SEED);
+        long base = System.currentTimeMillis() + 24 * 60 * MINUTE;
+        long span = Math.max(1, size / RESOURCES) * 60 * MINUTE;
+        service = new AppointmentService();
+        for (String id : BenchmarkData.shuffledIds("A", size)) {
+            Appointment appointment = new Appointment(id, new Date(base + (random.nextLong() & Long.MAX_VALUE) % span),
+                    "Booking", (15 + random.nextInt(46)) * MINUTE, "R" + random.nextInt(RESOURCES));
+            try {
+                service.addAppointment(appointment, true);
+            } catch (IllegalArgumentException conflict) {
+                // The calendar is busy, so some bookings collide and are left out
+            }
+        }
+        resources = new String[WINDOWS];
+        starts = new Date[WINDOWS];
+        ends = new Date[WINDOWS];
+        for (int i = 0; i < WINDOWS; i++) {
+            long from = base + (random.nextLong() & Long.MAX_VALUE) % span;
+            resources[i] = "R" + random.nextInt(RESOURCES);
+            starts[i] = new Date(from);
+            ends[i] = new Date(from + 30 * MINUTE);
+        }
+
+        Map<String, Supplier<Object>> operations = new HashMap<>();
+        // Booked and deleted again if it fits, so the calendar stays the same
+        operations.put("conflictCheckedAdd", () -> {
+            int at = next();
+            try {
+                service.addAppointment(new Appointment("SCRATCH", starts[at], "Booking", 30 * MINUTE, resources[at]), true);
+            } catch (IllegalArgumentException conflict) {
+                return conflict;
+            }
+            service.deleteAppointment("SCRATCH");
+            return service;
+        });
+        operations.put("isFree", () -> {
+            int at = next();
+            return service.isFree(resources[at], starts[at], ends[at]);
+        });
+        operations.put("nextFreeSlot", () -> {
+            int at = next();
+            return service.nextFreeSlot(resources[at], starts[at], 30 * MINUTE);
+        });
+        return operations;
+    }
+
+    private int next() {
+        int at = cursor;
+        cursor = (cursor + 1) % WINDOWS;
+        return at;
+    }
+}
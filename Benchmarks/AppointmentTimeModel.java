@@ -0,0 +1,103 @@
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Reports the construction rate of Appointment and the rate of sorting appointments by time, next to the
+ * layout it replaced (a Date field, validated against a new Date and copied on the way out).
+ *
+ * Usage: java AppointmentTimeModel [appointments]
+ */
+public class AppointmentTimeModel {
+
+    /**
+     * The previous Appointment layout: the scheduled time held as a Date.
+     */
+    static final class DateFieldAppointment {
+        private final String appointmentId;
+        private final Date appointmentDate;
+        private final String description;
+
+        DateFieldAppointment(String appointmentId, Date appointmentDate, String description) {
+            if (appointmentId == null || appointmentId.length() > 10) {
+                throw new IllegalArgumentException("Invalid appointment ID");
+            }
+            if (appointmentDate == null || appointmentDate.before(new Date())) {
+                throw new IllegalArgumentException("Appointment date must be in the future");
+            }
+            if (description == null || description.length() > 50) {
+                throw new IllegalArgumentException("Description cannot be longer than 50 characters");
+            }
+            this.appointmentId = appointmentId;
+            this.appointmentDate = new Date(appointmentDate.getTime());
+            this.description = description;
+        }
+
+        Date getAppointmentDate() {
+            return new Date(appointmentDate.getTime());
+        }
+    }
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Random random = new Random(42);
+        long base = System.currentTimeMillis() + 365L * 24 * 60 * 60 * 1000;
+        String[] ids = new String[count];
+        long[] times = new long[count];
+        Date[] dates = new Date[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = Integer.toString(i, 36);
+            times[i] = base + random.nextInt(1 << 30);
+            dates[i] = new Date(times[i]);
+        }
+        Clock clock = Clock.systemUTC();
+
+        double dateRate = 0;
+        double fromDateRate = 0;
+        double epochRate = 0;
+        double dateSort = 0;
+        double epochSort = 0;
+        for (int round = 0; round < 5; round++) {
+            long begin = System.nanoTime();
+            List<DateFieldAppointment> old = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                old.add(new DateFieldAppointment(ids[i], dates[i], "Appointment"));
+            }
+            dateRate = count / ((System.nanoTime() - begin) / 1e9);
+
+            begin = System.nanoTime();
+            List<Appointment> fromDates = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                fromDates.add(new Appointment(ids[i], dates[i], "Appointment"));
+            }
+            fromDateRate = count / ((System.nanoTime() - begin) / 1e9);
+
+            begin = System.nanoTime();
+            List<Appointment> current = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                current.add(new Appointment(ids[i], times[i], "Appointment", 0, null, clock));
+            }
+            epochRate = count / ((System.nanoTime() - begin) / 1e9);
+
+            begin = System.nanoTime();
+            old.sort(Comparator.comparing(DateFieldAppointment::getAppointmentDate));
+            dateSort = count / ((System.nanoTime() - begin) / 1e9);
+
+            begin = System.nanoTime();
+            current.sort(Comparator.comparingLong(Appointment::getAppointmentTime));
+            epochSort = count / ((System.nanoTime() - begin) / 1e9);
+        }
+
+        System.out.printf("%-32s %18s%n", "construction", "appointments/sec");
+        System.out.printf("%-32s %18.0f%n", "Date field", dateRate);
+        System.out.printf("%-32s %18.0f%n", "epoch field, from a Date", fromDateRate);
+        System.out.printf("%-32s %18.0f%n", "epoch field, from epoch + Clock", epochRate);
+        System.out.printf("%-32s %18s%n", "sort by time", "appointments/sec");
+        System.out.printf("%-32s %18.0f%n", "Date field", dateSort);
+        System.out.printf("%-32s %18.0f%n", "epoch field", epochSort);
+        System.out.printf("(%d appointments)%n", count);
+    }
+}
@@ -0,0 +1,69 @@
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark workload for the AppointmentService operations: add, delete, lookup by ID and the time range queries.
+ * apply(size) stores size appointments spaced one minute apart, starting one day in the future.
+ * Each range query covers about 100 of them.
+ */
+public class AppointmentWorkload implements IntFunction<Map<String, Supplier<Object>>> {
+    // Spacing between consecutive appointments.
+    private static final long SPACING_MILLIS = 60_000L;
+    // Number of appointments covered by one range query.
+    private static final int RANGE_WIDTH = 100;
+
+    private AppointmentService service;
+    // IDs of the stored appointments, visited in a shuffled order.
+    private String[] ids;
+    // Range bounds matching each ID's slot, so queries are spread across the index.
+    private Date[] rangeStarts;
+    private Date[] rangeEnds;
+    private int cursor;
+
+    @Override
+    public Map<String, Supplier<Object>> apply(int size) {
+        service = new AppointmentService();
+        long base = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1);
+        for (int i = 0; i < size; i++) {
+            service.addAppointment(new Appointment("A" + i, new Date(base + i * SPACING_MILLIS), "Appointment"));
+        }
+        ids = BenchmarkData.shuffledIds("A", size);
+        rangeStarts = new Date[size];
+        rangeEnds = new Date[size];
+        for (int i = 0; i < size; i++) {
+            long slot = Long.parseLong(ids[i].substring(1));
+            rangeStarts[i] = new Date(base + slot * SPACING_MILLIS);
+            rangeEnds[i] = new Date(base + (slot + RANGE_WIDTH) * SPACING_MILLIS);
+        }
+        // Added and deleted again by addAndDelete, so the service size stays constant
+        Appointment scratch = new Appointment("SCRATCH", new Date(base), "Scratch appointment");
+
+        Map<String, Supplier<Object>> operations = new HashMap<>();
+        operations.put("addAndDelete", () -> {
+            service.addAppointment(scratch);
+            service.deleteAppointment(scratch.getAppointmentId());
+            return scratch;
+        });
+        operations.put("lookup", () -> service.getAppointment(ids[next()]));
+        operations.put("findBetween", () -> {
+            int i = next();
+            return service.findBetween(rangeStarts[i], rangeEnds[i]);
+        });
+        operations.put("countBetween", () -> {
+            int i = next();
+            return service.countBetween(rangeStarts[i], rangeEnds[i]);
+        });
+        operations.put("nextAfter", () -> service.nextAfter(rangeStarts[next()], 10));
+        return operations;
+    }
+
+    private int next() {
+        int current = cursor;
+        cursor = cursor + 1 == ids.length ? 0 : cursor + 1;
+        return current;
+    }
+}
@@ -0,0 +1,92 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark workload for a request handler that fans out to all three services, calling them one after the
+ * other (sync) or through the async facades and waiting for all results at once (async).
+ * apply() takes no dataset size: it stores 10,000 tasks in a durable TaskService, whose log lives in a
+ * temporary directory, and 10,000 contacts and appointments. Call close after the run to delete the log.
+ *
+ * Each request renames a task, which waits for the log to reach the disk, looks up a contact, lists the
+ * appointments in a window and checks whether a room is free. Requests are numbered so that concurrent
+ * callers touch different entities.
+ */
+public class AsyncFanOutWorkload implements IntFunction<Map<String, Supplier<Object>>> {
+    private static final int ENTITIES = 10_000;
+    private static final long MINUTE = 60_000;
+
+    private Path directory;
+    private TaskService tasks;
+
+    @Override
+    public Map<String, Supplier<Object>> apply(int unused) {
+        directory = BenchmarkData.temporaryDirectory("fan-out");
+        try {
+            tasks = TaskService.open(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ContactService contacts = new ContactService();
+        AppointmentService appointments = new AppointmentService();
+        long base = System.currentTimeMillis() + 24 * 60 * MINUTE;
+        for (int i = 0; i < ENTITIES; i++) {
+            tasks.addTask(new Task("T" + i, "Name", "Description"));
+            contacts.addAll(Arrays.asList(new Contact("C" + i, "First", "Last", "1234567890", "Address")), false);
+            appointments.addAppointment(new Appointment("A" + i, new Date(base + i * MINUTE), "Meeting", 30 * MINUTE, "R" + i % 100));
+        }
+        AsyncTaskService asyncTasks = new AsyncTaskService(tasks);
+        AsyncContactService asyncContacts = new AsyncContactService(contacts);
+        AsyncAppointmentService asyncAppointments = new AsyncAppointmentService(appointments);
+        AtomicInteger next = new AtomicInteger();
+
+        Map<String, Supplier<Object>> operations = new HashMap<>();
+        operations.put("sync", () -> {
+            int i = next.getAndIncrement() & Integer.MAX_VALUE;
+            Date from = new Date(base + (i % ENTITIES) * MINUTE);
+            Date to = new Date(from.getTime() + 60 * MINUTE);
+            tasks.updateTaskName("T" + i % ENTITIES, "Name" + i % 10);
+            try {
+                contacts.getContact("C" + i % ENTITIES);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            appointments.findBetween(from, to);
+            return appointments.isFree("R" + i % 100, from, to);
+        });
+        operations.put("async", () -> {
+            int i = next.getAndIncrement() & Integer.MAX_VALUE;
+            Date from = new Date(base + (i % ENTITIES) * MINUTE);
+            Date to = new Date(from.getTime() + 60 * MINUTE);
+            return CompletableFuture.allOf(
+                    asyncTasks.updateTaskName("T" + i % ENTITIES, "Name" + i % 10),
+                    asyncContacts.getContact("C" + i % ENTITIES),
+                    asyncAppointments.findBetween(from, to),
+                    asyncAppointments.isFree("R" + i % 100, from, to)).join();
+        });
+        operations.put("close", this::close);
+        return operations;
+    }
+
+    /**
+     * Closes the task store and deletes its log.
+     */
+    private Object close() {
+        try {
+            tasks.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            BenchmarkData.delete(directory);
+        }
+        return tasks;
+    }
+}
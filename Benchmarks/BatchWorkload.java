@@ -0,0 +1,82 @@
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark workload comparing batch ingest against calling the single-item add methods in a loop.
+ * apply(invalidPercent) builds a batch in which that share of the items collide with IDs already stored,
+ * so the loop pays for one exception per rejected item. Call reset before every measured batch.
+ */
+public class BatchWorkload implements IntFunction<Map<String, Supplier<Object>>> {
+    // Number of items in each batch.
+    static final int BATCH_SIZE = 100_000;
+
+    private List<Task> tasks;
+    private List<Appointment> appointments;
+    private String[] invalidIds;
+    private TaskService taskService;
+    private AppointmentService appointmentService;
+
+    @Override
+    public Map<String, Supplier<Object>> apply(int invalidPercent) {
+        String[] ids = BenchmarkData.shuffledIds("B", BATCH_SIZE);
+        invalidIds = new String[BATCH_SIZE * invalidPercent / 100];
+        System.arraycopy(ids, 0, invalidIds, 0, invalidIds.length);
+        tasks = new ArrayList<>(BATCH_SIZE);
+        appointments = new ArrayList<>(BATCH_SIZE);
+        long future = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            tasks.add(new Task(ids[i], "Name", "Description"));
+            appointments.add(new Appointment(ids[i], new Date(future + i * 60_000L), "Description"));
+        }
+
+        Map<String, Supplier<Object>> operations = new HashMap<>();
+        operations.put("reset", this::reset);
+        operations.put("taskLoop", () -> {
+            int added = 0;
+            for (Task task : tasks) {
+                try {
+                    taskService.addTask(task);
+                    added++;
+                } catch (IllegalArgumentException rejected) {
+                    // Counted as a failure, the loop carries on like a sync job would
+                }
+            }
+            return added;
+        });
+        operations.put("taskBatch", () -> taskService.addAll(tasks, false));
+        operations.put("appointmentLoop", () -> {
+            int added = 0;
+            for (Appointment appointment : appointments) {
+                try {
+                    appointmentService.addAppointment(appointment);
+                    added++;
+                } catch (IllegalArgumentException rejected) {
+                    // Counted as a failure, the loop carries on like a sync job would
+                }
+            }
+            return added;
+        });
+        operations.put("appointmentBatch", () -> appointmentService.addAll(appointments, false));
+        return operations;
+    }
+
+    /**
+     * Recreates the services, pre-loaded with the IDs that the batch will collide with.
+     */
+    private Object reset() {
+        taskService = new TaskService();
+        appointmentService = new AppointmentService();
+        Date future = new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1));
+        for (String id : invalidIds) {
+            taskService.addTask(new Task(id, "Existing", "Existing"));
+            appointmentService.addAppointment(new Appointment(id, future, "Existing"));
+        }
+        return taskService;
+    }
+}
@@ -0,0 +1,118 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares two JMH result files written with -rf csv and flags regressions.
+ * Primary scores and the normalized allocation rate (gc.alloc.rate.norm) are compared;
+ * a throughput drop or a latency/allocation increase beyond the threshold counts as a regression.
+ *
+ * Usage: java BenchmarkComparison baseline.csv current.csv [thresholdPercent]
+ * Exits with status 1 if any regression is found.
+ */
+public class BenchmarkComparison {
+    // Default tolerated change before a result counts as a regression.
+    private static final double DEFAULT_THRESHOLD_PERCENT = 10.0;
+    // Secondary metric reported by the gc profiler that is stable enough to compare across runs.
+    private static final String ALLOCATION_METRIC = ":gc.alloc.rate.norm";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: java BenchmarkComparison baseline.csv current.csv [thresholdPercent]");
+            System.exit(2);
+        }
+        Map<String, Result> baseline = read(args[0]);
+        Map<String, Result> current = read(args[1]);
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD_PERCENT;
+
+        int regressions = 0;
+        System.out.printf("%-80s %14s %14s %9s%n", "benchmark", "baseline", "current", "change");
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+            Result before = baseline.get(entry.getKey());
+            Result after = entry.getValue();
+            if (before == null) {
+                System.out.printf("%-80s %14s %14.3f %9s%n", entry.getKey(), "-", after.score, "new");
+                continue;
+            }
+            double change = before.score == 0 ? 0 : (after.score - before.score) / before.score * 100;
+            // Throughput is better when higher; time per operation and bytes per operation are better when lower
+            boolean higherIsBetter = after.mode.equals("thrpt") && !after.name.contains(":");
+            boolean regressed = higherIsBetter ? change < -threshold : change > threshold;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-80s %14.3f %14.3f %+8.1f%%%s%n", entry.getKey(), before.score, after.score, change,
+                    regressed ? "  REGRESSION" : "");
+        }
+        System.out.println(regressions + " regression(s) beyond " + threshold + "%");
+        System.exit(regressions == 0 ? 0 : 1);
+    }
+
+    /**
+     * Reads the comparable rows of a JMH CSV result file, keyed by benchmark, mode and parameters.
+     */
+    private static Map<String, Result> read(String file) throws IOException {
+        List<String> lines = Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8);
+        List<String> header = split(lines.get(0));
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (String line : lines.subList(1, lines.size())) {
+            List<String> row = split(line);
+            String name = row.get(0);
+            if (name.contains(":") && !name.endsWith(ALLOCATION_METRIC)) {
+                continue;
+            }
+            StringBuilder key = new StringBuilder(name).append(" [").append(row.get(1));
+            // Parameter columns follow the fixed JMH columns and are named "Param: <name>"
+            for (int i = 7; i < row.size() && i < header.size(); i++) {
+                if (!row.get(i).isEmpty()) {
+                    key.append(", ").append(header.get(i).replace("Param: ", "")).append('=').append(row.get(i));
+                }
+            }
+            key.append(']');
+            results.put(key.toString(), new Result(name, row.get(1), Double.parseDouble(row.get(4))));
+        }
+        return results;
+    }
+
+    /**
+     * Splits one CSV line, honouring double-quoted fields.
+     */
+    private static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * One comparable measurement from a result file.
+     */
+    private static final class Result {
+        private final String name;
+        private final String mode;
+        private final double score;
+
+        Result(String name, String mode, double score) {
+            this.name = name;
+            this.mode = mode;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Shared dataset helpers for the JMH benchmarks.
+ * Data is generated from a fixed seed so every run and every baseline measures the same workload.
+ */
+final class BenchmarkData {
+    // Fixed seed so datasets are identical across runs.
+    static final long SEED = 42L;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Creates IDs of the form prefix + number, shuffled so lookups do not follow insertion order.
+     * @param prefix The prefix for every ID; the result must stay within the 10 character ID limit.
+     * @param count The number of IDs to create.
+     * @return The shuffled IDs.
+     */
+    static String[] shuffledIds(String prefix, int count) {
+        String[] ids = new String[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = prefix + i;
+        }
+        Random random = new Random(SEED);
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            String swap = ids[i];
+            ids[i] = ids[j];
+            ids[j] = swap;
+        }
+        return ids;
+    }
+
+    /**
+     * Creates an empty temporary directory for a workload that stores files.
+     * @param prefix The prefix of the directory name.
+     * @return The new directory.
+     */
+    static Path temporaryDirectory(String prefix) {
+        try {
+            return Files.createTempDirectory(prefix);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Deletes a directory created by temporaryDirectory() and everything in it, if it still exists.
+     * @param directory The directory to delete.
+     */
+    static void delete(Path directory) {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+import java.time.Clock;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark workload for constructing and validating the entities.
+ * Covers the Contact phone number check and the current-time lookup in the Appointment constructor.
+ * The size argument is not used.
+ */
+public class ConstructionWorkload implements IntFunction<Map<String, Supplier<Object>>> {
+
+    @Override
+    public Map<String, Supplier<Object>> apply(int size) {
+        Contact contact = new Contact("ID12345678", "John", "Doe", "1234567890", "123 Main St");
+        Date futureDate = new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(365));
+
+        Map<String, Supplier<Object>> operations = new HashMap<>();
+        operations.put("newTask", () -> new Task("T123456789", "Task Name", "Task Description"));
+        operations.put("newContact", () -> new Contact("ID12345678", "John", "Doe", "1234567890", "123 Main St"));
+        operations.put("newContactWithDefaults", () -> new Contact("ID12345678"));
+        operations.put("updatePhoneNumber", () -> {
+            contact.updatePhoneNumber("9876543210");
+            return contact;
+        });
+        operations.put("newAppointment", () -> new Appointment("A123456789", futureDate, "Appointment Description"));
+        long futureTime = futureDate.getTime();
+        Clock clock = Clock.systemUTC();
+        operations.put("newAppointmentAtEpoch", () -> new Appointment("A123456789", futureTime, "Appointment Description", 0, null, clock));
+        return operations;
+    }
+}
@@ -0,0 +1,162 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark workload for getContact() and updateFirstName() on a file-backed service with and without a
+ * ContactCache of one contact in a hundred, written through or behind, against an in-memory service holding
+ * every contact on the heap. apply(size) stores size contacts in each service; the file-backed ones have a
+ * copy of the record file each, in a temporary directory that close deletes after closing them.
+ *
+ * IDs are drawn from a Zipf distribution (exponent 0.99) over all contacts, so a small hot set takes most
+ * reads, as in real lookups; the hot IDs are scattered over the file. One call in ten of a mixed operation is
+ * an update. Write-behind services write their changes on flush, which the benchmark calls between iterations.
+ */
+public class ContactCacheWorkload implements IntFunction<Map<String, Supplier<Object>>> {
+    // Number of drawn IDs, visited in turn.
+    private static final int DRAWS = 1 << 20;
+
+    private Path directory;
+    private final List<ContactService> services = new ArrayList<>();
+    private String[] draws;
+    private int cursor;
+
+    @Override
+    public Map<String, Supplier<Object>> apply(int size) {
+        String[] ids = BenchmarkData.shuffledIds("C", size);
+        draws = zipf(ids, 0.99, new Random(BenchmarkData.SEED));
+        int cacheContacts = Math.max(1, size / 100);
+        directory = BenchmarkData.temporaryDirectory("contact-cache");
+        ContactService memory = new ContactService();
+        ContactService file;
+        ContactService writeThrough;
+        ContactService writeBehind;
+        try {
+            Path written = directory.resolve("contacts.dat");
+            try (ContactService service = ContactService.open(written, size)) {
+                List<Contact> batch = new ArrayList<>();
+                for (int i = 0; i < size; i++) {
+                    batch.add(new Contact(ids[i], "First" + i % 1000, "Last" + i % 997, String.format("%010d", i), i + " Main St"));
+                    if (batch.size() == 10_000) {
+                        service.addAll(batch, false);
+                        batch.clear();
+                    }
+                }
+                service.addAll(batch, false);
+                memory.addAll(service.getContactList(), false);
+            }
+            file = open(ContactService.open(written));
+            writeThrough = open(ContactService.open(copy(written, "write-through.dat"), 0, cacheContacts, false));
+            writeBehind = open(ContactService.open(copy(written, "write-behind.dat"), 0, cacheContacts, true));
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException(e);
+        }
+
+        Map<String, Supplier<Object>> operations = new HashMap<>();
+        operations.put("readFile", () -> read(file));
+        operations.put("readWriteThrough", () -> read(writeThrough));
+        operations.put("readWriteBehind", () -> read(writeBehind));
+        operations.put("readMemory", () -> read(memory));
+        operations.put("mixedFile", () -> mixed(file));
+        operations.put("mixedWriteThrough", () -> mixed(writeThrough));
+        operations.put("mixedWriteBehind", () -> mixed(writeBehind));
+        operations.put("mixedMemory", () -> mixed(memory));
+        operations.put("flush", () -> {
+            try {
+                for (ContactService service : services) {
+                    service.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return services;
+        });
+        operations.put("close", this::close);
+        return operations;
+    }
+
+    private ContactService open(ContactService service) {
+        services.add(service);
+        return service;
+    }
+
+    private Path copy(Path file, String name) throws IOException {
+        return Files.copy(file, directory.resolve(name));
+    }
+
+    private Object read(ContactService service) {
+        try {
+            return service.getContact(draws[next()]);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // One call in ten renames the contact, alternating between eight names.
+    private Object mixed(ContactService service) {
+        int at = next();
+        try {
+            if (at % 10 == 0) {
+                service.updateFirstName(draws[at], "Name" + (at & 7));
+                return service;
+            }
+            return service.getContact(draws[at]);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private int next() {
+        int at = cursor;
+        cursor = cursor + 1 == DRAWS ? 0 : cursor + 1;
+        return at;
+    }
+
+    /**
+     * Closes the file-backed services and deletes their files.
+     */
+    private Object close() {
+        try {
+            for (ContactService service : services) {
+                service.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            BenchmarkData.delete(directory);
+        }
+        return services;
+    }
+
+    // Draws IDs with Zipf-distributed ranks, the ranks assigned to IDs at random.
+    private static String[] zipf(String[] ids, double exponent, Random random) {
+        double[] cumulative = new double[ids.length];
+        double sum = 0;
+        for (int i = 0; i < ids.length; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cumulative[i] = sum;
+        }
+        int[] rankToId = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            int j = random.nextInt(i + 1);
+            rankToId[i] = rankToId[j];
+            rankToId[j] = i;
+        }
+        String[] draws = new String[DRAWS];
+        for (int i = 0; i < DRAWS; i++) {
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            draws[i] = ids[rankToId[rank < 0 ? -rank - 1 : rank]];
+        }
+        return draws;
+    }
+}
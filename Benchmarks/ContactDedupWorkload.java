@@ -0,0 +1,107 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark workload for ContactDeduplicator: a full search, an incremental search of newly added contacts,
+ * and scoring one pair, the step the all-pairs comparison would repeat for every pair that blocking avoids.
+ * apply(size) stores size people and returns the operations by name.
+ *
+ * One person in ten is stored a second time with a typo in a name and the street type abbreviated, and one in
+ * fifty shares the number with a relative of the same last name, who must not be matched. A further
+ * NEW_CONTACTS contacts, every other one a copy of a stored person, are stored for the incremental search.
+ */
+public class ContactDedupWorkload implements IntFunction<Map<String, Supplier<Object>>> {
+    // Number of newly added contacts each incremental search checks.
+    static final int NEW_CONTACTS = 1_000;
+    // Number of distinct scored pairs, visited in turn.
+    private static final int PAIRS = 4_096;
+    private static final String[] FIRST = {"James", "Mary", "John", "Patricia", "Robert", "Jennifer", "Michael",
+            "Linda", "William", "Elizabeth", "David", "Barbara", "Richard", "Susan", "Joseph", "Jessica", "Thomas",
+            "Sarah", "Charles", "Karen", "Daniel", "Nancy", "Matthew", "Lisa", "Anthony", "Betty", "Mark", "Sandra"};
+    private static final String[] LAST = {"Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller",
+            "Davis", "Rodriguez", "Martinez", "Hernandez", "Lopez", "Gonzalez", "Wilson", "Anderson", "Thomas",
+            "Taylor", "Moore", "Jackson", "Martin", "Lee", "Perez", "Thompson", "White", "Harris", "Sanchez"};
+    private static final String[] STREET = {"Main", "Oak", "Pine", "Maple", "Cedar", "Elm", "Lake", "Hill", "Park", "Ridge"};
+
+    private Contact[] left;
+    private Contact[] right;
+    private int cursor;
+
+    @Override
+    public Map<String, Supplier<Object>> apply(int size) {
+        Random random = new Random(BenchmarkData.SEED);
+        ContactService service = new ContactService();
+        List<Contact> batch = new ArrayList<>();
+        int id = 0;
+        for (int i = 0; i < size; i++) {
+            String phone = String.format("%010d", 1_000_000_000L + i);
+            String first = FIRST[random.nextInt(FIRST.length)];
+            String last = LAST[random.nextInt(LAST.length)];
+            int house = 1 + random.nextInt(9999);
+            String street = STREET[random.nextInt(STREET.length)];
+            batch.add(new Contact("P" + id++, first, last, phone, house + " " + street + " Street"));
+            if (i % 10 == 0) {
+                batch.add(new Contact("D" + id++, typo(random, first), last, phone, house + " " + street + " St."));
+            }
+            if (i % 50 == 1) {
+                String relative = FIRST[random.nextInt(FIRST.length)];
+                if (!relative.equals(first)) {
+                    batch.add(new Contact("R" + id++, relative, last, phone, house + " " + street + " Street"));
+                }
+            }
+            if (batch.size() >= 10_000) {
+                service.addAll(batch, false);
+                batch.clear();
+            }
+        }
+        service.addAll(batch, false);
+        List<Contact> contacts = service.getContactList();
+        left = new Contact[PAIRS];
+        right = new Contact[PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            left[i] = contacts.get(random.nextInt(contacts.size()));
+            right[i] = contacts.get(random.nextInt(contacts.size()));
+        }
+
+        ContactDeduplicator deduplicator = new ContactDeduplicator(service);
+        // Builds the phone index the incremental search checks against
+        deduplicator.findDuplicates();
+        List<Contact> added = new ArrayList<>();
+        List<String> addedIds = new ArrayList<>();
+        for (int i = 0; i < NEW_CONTACTS; i++) {
+            String phone = String.format("%010d", 1_000_000_000L + (i % 2 == 0 ? random.nextInt(size) : size + i));
+            Contact contact = new Contact("N" + i, FIRST[random.nextInt(FIRST.length)], LAST[random.nextInt(LAST.length)], phone, "1 New Street");
+            added.add(contact);
+            addedIds.add(contact.getContactId());
+        }
+        service.addAll(added, false);
+
+        Map<String, Supplier<Object>> operations = new HashMap<>();
+        operations.put("fullSearch", deduplicator::findDuplicates);
+        operations.put("incrementalSearch", () -> deduplicator.findDuplicatesOf(addedIds));
+        operations.put("scorePair", () -> {
+            int at = cursor;
+            cursor = cursor + 1 == PAIRS ? 0 : cursor + 1;
+            return ContactDeduplicator.score(new ContactDeduplicator.Profile(left[at]), new ContactDeduplicator.Profile(right[at]));
+        });
+        return operations;
+    }
+
+    // Replaces, drops or doubles one letter after the first.
+    private static String typo(Random random, String name) {
+        int at = 1 + random.nextInt(name.length() - 1);
+        switch (random.nextInt(3)) {
+            case 0:
+                return name.substring(0, at) + (char) ('a' + random.nextInt(26)) + name.substring(at + 1);
+            case 1:
+                return name.substring(0, at) + name.substring(at + 1);
+            default:
+                return name.length() < 10 ? name.substring(0, at + 1) + name.substring(at) : name;
+        }
+    }
+}
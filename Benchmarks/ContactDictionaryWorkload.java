@@ -0,0 +1,72 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark workload for an in-memory ContactService without a ContactDictionary, with one for all fields and
+ * with one for the names only: loading the contacts, and findByField() on a last name and findByFieldPrefix()
+ * on an address over all of them. apply(size) creates size contacts, loads a service of each kind with them
+ * for the lookups and returns the operations by name; the load operations build a new service each call.
+ *
+ * First names are drawn from 400 values and last names from 3,000, both skewed towards the common ones as real
+ * names are, and addresses from 250,000 house number and street combinations; one contact in five is created
+ * with only a first name, so its last name and address are the "INITIAL" placeholder.
+ */
+public class ContactDictionaryWorkload implements IntFunction<Map<String, Supplier<Object>>> {
+    private static final int CAPACITY = 1 << 20;
+
+    private List<List<Contact>> batches;
+
+    @Override
+    public Map<String, Supplier<Object>> apply(int size) {
+        Random random = new Random(BenchmarkData.SEED);
+        batches = new ArrayList<>();
+        List<Contact> batch = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            String first = "Name" + skewed(random, 400);
+            if (i % 5 == 0) {
+                batch.add(new Contact("C" + i, first));
+            } else {
+                batch.add(new Contact("C" + i, first, "Last" + skewed(random, 3_000), String.format("%010d", i),
+                        (1 + random.nextInt(500)) + " Street" + random.nextInt(500)));
+            }
+            if (batch.size() == 10_000 || i == size - 1) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        ContactService plain = load(null);
+        ContactService all = load(new ContactDictionary(CAPACITY));
+        ContactService names = load(new ContactDictionary(CAPACITY, Contact.Field.FIRST_NAME, Contact.Field.LAST_NAME));
+
+        Map<String, Supplier<Object>> operations = new HashMap<>();
+        operations.put("loadPlain", () -> load(null));
+        operations.put("loadAllFields", () -> load(new ContactDictionary(CAPACITY)));
+        operations.put("loadNames", () -> load(new ContactDictionary(CAPACITY, Contact.Field.FIRST_NAME, Contact.Field.LAST_NAME)));
+        operations.put("findEqualPlain", () -> plain.findByField(Contact.Field.LAST_NAME, "Last7"));
+        operations.put("findEqualAllFields", () -> all.findByField(Contact.Field.LAST_NAME, "Last7"));
+        operations.put("findEqualNames", () -> names.findByField(Contact.Field.LAST_NAME, "Last7"));
+        operations.put("findPrefixPlain", () -> plain.findByFieldPrefix(Contact.Field.ADDRESS, "12 "));
+        operations.put("findPrefixAllFields", () -> all.findByFieldPrefix(Contact.Field.ADDRESS, "12 "));
+        operations.put("findPrefixNames", () -> names.findByFieldPrefix(Contact.Field.ADDRESS, "12 "));
+        return operations;
+    }
+
+    // Loads every contact into a new service, encoded in the dictionary if one is given.
+    private ContactService load(ContactDictionary dictionary) {
+        ContactService service = new ContactService(new SequenceIdGenerator(1), dictionary);
+        for (List<Contact> batch : batches) {
+            service.addAll(batch, false);
+        }
+        return service;
+    }
+
+    // Draws from n values, the first ones most often: value k with probability about 1 / (k + 1).
+    private static int skewed(Random random, int n) {
+        return (int) Math.pow(n + 1, random.nextDouble()) - 1;
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Reports the heap retained per contact by the compact Contact layout, next to the layout it replaced
+ * (five String fields), and the construction throughput of both.
+ * Every contact gets its own field strings, as contacts read from a file or a request would.
+ *
+ * Usage: java ContactFootprint [contacts]
+ */
+public class ContactFootprint {
+
+    /**
+     * The previous Contact layout: five String fields, with the phone number checked by a regex.
+     */
+    static final class StringFieldsContact {
+        private final String contactId;
+        private final String firstName;
+        private final String lastName;
+        private final String phoneNumber;
+        private final String address;
+
+        StringFieldsContact(String contactId, String firstName, String lastName, String phoneNumber, String address) {
+            if (phoneNumber == null || phoneNumber.length() != 10 || !phoneNumber.matches("[0-9]+")) {
+                throw new IllegalArgumentException("Phone number must be non-null, exactly 10 digits long, and numeric");
+            }
+            this.contactId = contactId;
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.phoneNumber = phoneNumber;
+            this.address = address;
+        }
+    }
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        String[][] fields = new String[count][];
+        for (int i = 0; i < count; i++) {
+            fields[i] = new String[] {"ID" + i, "First" + i % 10_000, "Last" + i % 10_000,
+                    String.format("555%07d", i), i + " Main Street"};
+        }
+
+        // Construction throughput, with the same field strings passed to both layouts
+        double oldRate = 0;
+        double newRate = 0;
+        for (int round = 0; round < 5; round++) {
+            long begin = System.nanoTime();
+            build(fields, false, false);
+            oldRate = count / ((System.nanoTime() - begin) / 1e9);
+            begin = System.nanoTime();
+            build(fields, true, false);
+            newRate = count / ((System.nanoTime() - begin) / 1e9);
+        }
+
+        long before = usedHeap();
+        Object[] old = build(fields, false, true);
+        long oldBytes = usedHeap() - before;
+        old = null;
+        before = usedHeap();
+        Object[] compact = build(fields, true, true);
+        long newBytes = usedHeap() - before;
+
+        System.out.printf("%-22s %16s %18s%n", "layout", "bytes/contact", "contacts/sec");
+        System.out.printf("%-22s %16.1f %18.0f%n", "five String fields", oldBytes / (double) count, oldRate);
+        System.out.printf("%-22s %16.1f %18.0f%n", "compact", newBytes / (double) count, newRate);
+        System.out.printf("(%d contacts measured)%n", compact.length);
+    }
+
+    /**
+     * Builds one contact per row of fields in the old or the compact layout.
+     * With copy set, each contact is given its own copy of every string, as it would be when read from a file.
+     */
+    private static Object[] build(String[][] fields, boolean compact, boolean copy) {
+        Object[] contacts = new Object[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            String[] f = fields[i];
+            if (copy) {
+                f = new String[] {copyOf(f[0]), copyOf(f[1]), copyOf(f[2]), copyOf(f[3]), copyOf(f[4])};
+            }
+            contacts[i] = compact
+                    ? new Contact(f[0], f[1], f[2], f[3], f[4])
+                    : new StringFieldsContact(f[0], f[1], f[2], f[3], f[4]);
+        }
+        return contacts;
+    }
+
+    // A string with its own backing array; new String(String) would share the original's.
+    private static String copyOf(String value) {
+        return new String(value.toCharArray());
+    }
+
+    // Heap in use after a full collection.
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,24 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark workload for contact ID generation: the shared SequenceIdGenerator, and the truncated random
+ * UUIDs ContactService used before. apply() takes no dataset size. Both operations may be called from many
+ * threads at once.
+ */
+public class ContactIdGeneratorWorkload implements IntFunction<Map<String, Supplier<Object>>> {
+
+    @Override
+    public Map<String, Supplier<Object>> apply(int unused) {
+        ContactIdGenerator sequence = SequenceIdGenerator.shared();
+        ContactIdGenerator uuid = () -> UUID.randomUUID().toString().substring(0, 10);
+
+        Map<String, Supplier<Object>> operations = new HashMap<>();
+        operations.put("sequence", sequence::nextId);
+        operations.put("uuid", uuid::nextId);
+        return operations;
+    }
+}
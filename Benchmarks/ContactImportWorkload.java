@@ -0,0 +1,101 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark workload for ContactImporter against the row-at-a-time load it replaces: a BufferedReader loop
+ * that splits each CSV line and calls newContact(), catching the exception of every invalid row. Both flush
+ * the service at the end; the pipeline also runs with its checkpoints, each of which flushes the service.
+ * apply(size) writes a CSV of size rows, one in a hundred with an invalid phone number, to a temporary
+ * directory, which close deletes. Each operation imports the whole file into a new file-backed service.
+ */
+public class ContactImportWorkload implements IntFunction<Map<String, Supplier<Object>>> {
+
+    private Path directory;
+
+    @Override
+    public Map<String, Supplier<Object>> apply(int size) {
+        directory = BenchmarkData.temporaryDirectory("contact-import");
+        Path input = directory.resolve("contacts.csv");
+        Random random = new Random(BenchmarkData.SEED);
+        try (BufferedWriter writer = Files.newBufferedWriter(input, StandardCharsets.UTF_8)) {
+            writer.write("firstName,lastName,phone,address\n");
+            for (int i = 0; i < size; i++) {
+                String phone = random.nextInt(100) == 0 ? "555-0100" : String.format("%010d", random.nextInt(1_000_000_000));
+                writer.write("First" + i % 1000 + ",Last" + i % 997 + "," + phone + ",\"" + i + " Main St, Springfield\"\n");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        Map<String, Supplier<Object>> operations = new HashMap<>();
+        operations.put("rowAtATime", () -> load(size, service -> rowAtATime(service, input)));
+        operations.put("pipeline", () -> load(size, service -> new ContactImporter(service, ContactImporter.Format.CSV, threads)
+                .run(input, directory.resolve("rejects.csv"), null)));
+        operations.put("pipelineCheckpoints", () -> load(size, service -> new ContactImporter(service, ContactImporter.Format.CSV, threads)
+                .run(input, directory.resolve("rejects.csv"), directory.resolve("import.checkpoint"))));
+        operations.put("close", () -> {
+            BenchmarkData.delete(directory);
+            return directory;
+        });
+        return operations;
+    }
+
+    /**
+     * An import into a service.
+     */
+    private interface Import {
+        Object run(ContactService service) throws IOException;
+    }
+
+    // Runs an import into a new file-backed service and flushes it, then deletes the files it wrote.
+    private Object load(int size, Import load) {
+        Path file = directory.resolve("contacts.dat");
+        try {
+            Object result;
+            try (ContactService service = ContactService.open(file, size)) {
+                result = load.run(service);
+                service.flush();
+            }
+            Files.delete(file);
+            Files.deleteIfExists(directory.resolve("rejects.csv"));
+            Files.deleteIfExists(directory.resolve("import.checkpoint"));
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Loads the CSV one newContact() call per row, skipping the rows it rejects.
+    private static Object rowAtATime(ContactService service, Path input) throws IOException {
+        long imported = 0;
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int first = line.indexOf(',');
+                int second = line.indexOf(',', first + 1);
+                int third = line.indexOf(',', second + 1);
+                String address = line.substring(third + 2, line.length() - 1);
+                try {
+                    service.newContact(line.substring(0, first), line.substring(first + 1, second),
+                            line.substring(second + 1, third), address);
+                    imported++;
+                } catch (IllegalArgumentException e) {
+                    // The row is skipped
+                }
+            }
+        }
+        return imported;
+    }
+}
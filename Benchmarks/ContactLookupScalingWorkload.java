@@ -0,0 +1,59 @@
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark workload for how ContactService lookup latency scales with the number of stored contacts.
+ * apply(size) fills a service with size contacts through newContact(), so their IDs are generated as in
+ * production, and returns the operations by name. updateFirstName resolves the contact by ID before
+ * updating it; lookup only resolves it. IDs are drawn in advance in a fixed pseudo-random order.
+ */
+public class ContactLookupScalingWorkload implements IntFunction<Map<String, Supplier<Object>>> {
+    // Number of drawn IDs, visited in turn.
+    private static final int DRAWS = 1 << 21;
+
+    private ContactService service;
+    private String[] order;
+    private int cursor;
+
+    @Override
+    public Map<String, Supplier<Object>> apply(int size) {
+        service = new ContactService();
+        for (int i = 0; i < size; i++) {
+            service.newContact("First", "Last", "1234567890", "123 Main St");
+        }
+        List<Contact> contacts = service.getContactList();
+        Random random = new Random(BenchmarkData.SEED);
+        order = new String[DRAWS];
+        for (int i = 0; i < DRAWS; i++) {
+            order[i] = contacts.get(random.nextInt(size)).getContactId();
+        }
+
+        Map<String, Supplier<Object>> operations = new HashMap<>();
+        operations.put("lookup", () -> {
+            try {
+                return service.getContact(nextId());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        operations.put("updateFirstName", () -> {
+            try {
+                service.updateFirstName(nextId(), "Jane");
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return service;
+        });
+        return operations;
+    }
+
+    private String nextId() {
+        String id = order[cursor];
+        cursor = cursor + 1 == DRAWS ? 0 : cursor + 1;
+        return id;
+    }
+}
@@ -0,0 +1,89 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark workload for the ContactNameIndex behind ContactService.searchByName(). apply(size) indexes size
+ * contacts with random syllable names, so most prefixes match many contacts, and returns the operations by
+ * name. The keystroke operations search the prefixes of 200 query names in turn, as an autocomplete box
+ * would while the user types; the tolerant one types each name with two chars swapped.
+ */
+public class ContactNameIndexWorkload implements IntFunction<Map<String, Supplier<Object>>> {
+    // Maximum number of contacts each search returns.
+    static final int LIMIT = 10;
+    private static final String[] SYLLABLES = {"an", "be", "ca", "da", "el", "fi", "go", "ha", "is", "jo",
+            "ka", "li", "ma", "no", "or", "pe", "ra", "si", "ta", "ul", "vi", "wa", "ya", "ze"};
+
+    private ContactNameIndex index;
+    // Every prefix of every query name, searched in turn.
+    private String[] exact;
+    private String[] tolerant;
+    private int cursor;
+
+    @Override
+    public Map<String, Supplier<Object>> apply(int size) {
+        Random random = new Random(BenchmarkData.SEED);
+        List<Contact> contacts = new ArrayList<>(size);
+        for (String id : BenchmarkData.shuffledIds("C", size)) {
+            contacts.add(new Contact(id, name(random), name(random)));
+        }
+        index = new ContactNameIndex();
+        index.addAll(contacts);
+        List<String> queries = new ArrayList<>();
+        List<String> typos = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String query = name(random);
+            // A typo in the middle of the name: two chars swapped
+            char[] chars = query.toCharArray();
+            int at = chars.length / 2;
+            char swap = chars[at];
+            chars[at] = chars[at - 1];
+            chars[at - 1] = swap;
+            for (int end = 1; end <= query.length(); end++) {
+                queries.add(query.substring(0, end));
+                typos.add(new String(chars, 0, end));
+            }
+        }
+        exact = queries.toArray(new String[0]);
+        tolerant = typos.toArray(new String[0]);
+        String first = name(random);
+        String last = name(random);
+
+        Map<String, Supplier<Object>> operations = new HashMap<>();
+        operations.put("build", () -> {
+            ContactNameIndex built = new ContactNameIndex();
+            built.addAll(contacts);
+            return built;
+        });
+        // Added and removed again, so the index size stays constant
+        operations.put("addAndRemove", () -> {
+            index.add("SCRATCH", first, last);
+            index.remove("SCRATCH", first, last);
+            return index;
+        });
+        operations.put("exactKeystroke", () -> index.search(exact[next(exact.length)], LIMIT, false));
+        operations.put("tolerantKeystroke", () -> index.search(tolerant[next(tolerant.length)], LIMIT, true));
+        return operations;
+    }
+
+    private int next(int length) {
+        int at = cursor % length;
+        cursor = at + 1;
+        return at;
+    }
+
+    // A name of two to five syllables, at most ten chars like Contact allows.
+    private static String name(Random random) {
+        StringBuilder name = new StringBuilder();
+        int syllables = 2 + random.nextInt(4);
+        for (int i = 0; i < syllables; i++) {
+            name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+        return name.toString();
+    }
+}
@@ -0,0 +1,85 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark workload for a ContactRecordStore: in-place writes, lookups by ID, field reads from a slot,
+ * and reopening the file. apply(size) fills a store of size contacts in a temporary directory and keeps it
+ * open; call close after the run to delete it. Operations pick IDs in a fixed pseudo-random order.
+ */
+public class ContactRecordStoreWorkload implements IntFunction<Map<String, Supplier<Object>>> {
+
+    private Path directory;
+    private ContactRecordStore store;
+    // IDs of the stored contacts and their slots, visited in a shuffled order.
+    private String[] ids;
+    private long[] slots;
+    private int cursor;
+
+    @Override
+    public Map<String, Supplier<Object>> apply(int size) {
+        directory = BenchmarkData.temporaryDirectory("contact-records");
+        Path file = directory.resolve("contacts.dat");
+        ids = BenchmarkData.shuffledIds("C", size);
+        slots = new long[size];
+        try {
+            try (ContactRecordStore filling = ContactRecordStore.open(file, size)) {
+                for (String id : ids) {
+                    filling.write(new Contact(id, "First", "Last", "1234567890", "123 Main St"));
+                }
+                filling.flush();
+            }
+            store = ContactRecordStore.open(file, 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        for (int i = 0; i < size; i++) {
+            slots[i] = store.slotOf(ids[i]);
+        }
+        Contact rewritten = new Contact(ids[0], "Rewritten", "Last", "5555555555", "1 Other St");
+
+        Map<String, Supplier<Object>> operations = new HashMap<>();
+        operations.put("write", () -> {
+            store.write(rewritten);
+            return store;
+        });
+        operations.put("lookup", () -> store.slotOf(ids[next()]));
+        operations.put("fieldRead", () -> {
+            long slot = slots[next()];
+            return store.phoneNumber(slot) + store.firstName(slot).length();
+        });
+        operations.put("reopen", () -> {
+            try (ContactRecordStore reopened = ContactRecordStore.open(file, 0)) {
+                return reopened.size();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        operations.put("close", this::close);
+        return operations;
+    }
+
+    private int next() {
+        int index = cursor;
+        cursor = cursor + 1 == ids.length ? 0 : cursor + 1;
+        return index;
+    }
+
+    /**
+     * Closes the store and deletes its file.
+     */
+    private Object close() {
+        try {
+            store.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            BenchmarkData.delete(directory);
+        }
+        return store;
+    }
+}
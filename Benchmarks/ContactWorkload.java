@@ -0,0 +1,75 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark workload for the ContactService operations: add, delete, lookup and update.
+ * apply(size) fills a service with size contacts and returns the operations by name.
+ * Operations pick IDs in a fixed pseudo-random order.
+ */
+public class ContactWorkload implements IntFunction<Map<String, Supplier<Object>>> {
+
+    private ContactService service;
+    // Separate service for newContact, emptied by resetEmpty so it does not grow without bound.
+    private ContactService emptyService;
+    // IDs of the stored contacts, visited in a shuffled order.
+    private String[] ids;
+    private int cursor;
+
+    @Override
+    public Map<String, Supplier<Object>> apply(int size) {
+        service = new ContactService();
+        ids = BenchmarkData.shuffledIds("C", size);
+        List<Contact> contacts = new ArrayList<>(size);
+        for (String id : ids) {
+            contacts.add(new Contact(id, "First", "Last", "1234567890", "123 Main St"));
+        }
+        service.addAll(contacts, true);
+        emptyService = new ContactService();
+        // Added and deleted again by addAndDelete, so the service size stays constant
+        List<Contact> scratch = Collections.singletonList(
+                new Contact("SCRATCH", "Scratch", "Scratch", "5555555555", "1 Scratch Rd"));
+
+        Map<String, Supplier<Object>> operations = new HashMap<>();
+        operations.put("addAndDelete", () -> {
+            service.addAll(scratch, false);
+            try {
+                service.deleteContact("SCRATCH");
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return service;
+        });
+        operations.put("newContact", () -> {
+            emptyService.newContact("First", "Last", "1234567890", "123 Main St");
+            return emptyService;
+        });
+        operations.put("resetEmpty", () -> emptyService = new ContactService());
+        operations.put("lookup", () -> {
+            try {
+                return service.getContact(nextId());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        operations.put("updateFirstName", () -> {
+            try {
+                service.updateFirstName(nextId(), "Jane");
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return service;
+        });
+        return operations;
+    }
+
+    private String nextId() {
+        String id = ids[cursor];
+        cursor = cursor + 1 == ids.length ? 0 : cursor + 1;
+        return id;
+    }
+}
@@ -0,0 +1,118 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark workload for what sharding costs per operation: one TaskService, a ShardedTaskService over four
+ * in-process shards, and one over four shards served by separate JVMs on the loopback interface, plus a
+ * scatter-gather scan and adding a fifth in-process shard. apply(size) stores size tasks in each service and
+ * returns the operations by name; the shard JVMs keep running until close is called.
+ * Lookups pick IDs in a fixed pseudo-random order.
+ */
+public class ShardedTaskServiceWorkload implements IntFunction<Map<String, Supplier<Object>>> {
+    // Number of shards of each sharded service before addShard.
+    private static final int SHARDS = 4;
+
+    private final List<Process> children = new ArrayList<>();
+    private final List<RemoteTaskShard> connections = new ArrayList<>();
+    private ShardedTaskService local;
+    // IDs of the stored tasks, visited in a shuffled order.
+    private String[] ids;
+    private int cursor;
+
+    @Override
+    public Map<String, Supplier<Object>> apply(int size) {
+        TaskService single = new TaskService();
+        local = ShardedTaskService.inProcess(SHARDS);
+        ShardedTaskService remote = new ShardedTaskService();
+        try {
+            for (int i = 0; i < SHARDS; i++) {
+                remote.addShard("shard-" + i, startShard());
+            }
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException(e);
+        }
+        ids = BenchmarkData.shuffledIds("T", size);
+        for (String id : ids) {
+            Task task = new Task(id, "Name", "Description");
+            single.addTask(task);
+            local.addTask(task);
+            remote.addTask(task);
+        }
+        // Added and deleted again by the addAndDelete operations, so the service sizes stay constant
+        Task scratch = new Task("SCRATCH", "Scratch", "Scratch task");
+
+        Map<String, Supplier<Object>> operations = new HashMap<>();
+        operations.put("addAndDeleteSingle", () -> {
+            single.addTask(scratch);
+            single.deleteTask(scratch.getTaskId());
+            return scratch;
+        });
+        operations.put("addAndDeleteLocal", () -> {
+            local.addTask(scratch);
+            local.deleteTask(scratch.getTaskId());
+            return scratch;
+        });
+        operations.put("addAndDeleteRemote", () -> {
+            remote.addTask(scratch);
+            remote.deleteTask(scratch.getTaskId());
+            return scratch;
+        });
+        operations.put("lookupSingle", () -> single.getTask(nextId()));
+        operations.put("lookupLocal", () -> local.getTask(nextId()));
+        operations.put("lookupRemote", () -> remote.getTask(nextId()));
+        operations.put("scan", () -> local.getTaskList());
+        operations.put("addShard", () -> local.addShard("shard-" + SHARDS, new TaskService()));
+        // Removes the shard added by addShard, moving its tasks back
+        operations.put("removeShard", () -> local.getShardCount() > SHARDS ? local.removeShard("shard-" + SHARDS) : local);
+        operations.put("close", this::close);
+        return operations;
+    }
+
+    // Starts a TaskShardServer in a new JVM on the same class path and connects to it.
+    private RemoteTaskShard startShard() throws IOException {
+        Process child = new ProcessBuilder(System.getProperty("java.home") + "/bin/java",
+                "-cp", System.getProperty("java.class.path"), "TaskShardServer")
+                .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        children.add(child);
+        BufferedReader output = new BufferedReader(new InputStreamReader(child.getInputStream()));
+        RemoteTaskShard shard = RemoteTaskShard.connect(Integer.parseInt(output.readLine().trim()));
+        connections.add(shard);
+        return shard;
+    }
+
+    private String nextId() {
+        String id = ids[cursor];
+        cursor = cursor + 1 == ids.length ? 0 : cursor + 1;
+        return id;
+    }
+
+    /**
+     * Disconnects from the shard JVMs and waits for them to exit, which they do once their input is closed.
+     */
+    private Object close() {
+        try {
+            for (RemoteTaskShard connection : connections) {
+                connection.close();
+            }
+            for (Process child : children) {
+                child.getOutputStream().close();
+                child.waitFor();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        return children.size();
+    }
+}
@@ -0,0 +1,71 @@
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark workload for the cost that change events add to TaskService writes: with nobody ever subscribed,
+ * and with one subscriber consuming every event. apply() takes no dataset size. Each burst operation makes
+ * BURST writes, adds and deletes in turn, which fits the publisher's buffer; call catchUp before every
+ * subscribed burst, untimed, so the subscriber never falls behind on a single CPU.
+ */
+public class TaskChangeEventsWorkload implements IntFunction<Map<String, Supplier<Object>>> {
+    // Writes per burst, half the events the publisher retains.
+    static final int BURST = ChangePublisher.DEFAULT_CAPACITY / 2;
+
+    @Override
+    public Map<String, Supplier<Object>> apply(int unused) {
+        Task[] tasks = new Task[1024];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = new Task("T" + i, "Name", "Description");
+        }
+        TaskService idle = new TaskService();
+        TaskService subscribed = new TaskService();
+        AtomicLong received = new AtomicLong();
+        subscribed.getChangePublisher().subscribe(new Flow.Subscriber<List<ChangeEvent<Task>>>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(List<ChangeEvent<Task>> batch) {
+                received.addAndGet(batch.size());
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                throw new IllegalStateException("Subscriber fell behind", throwable);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        Map<String, Supplier<Object>> operations = new HashMap<>();
+        operations.put("idleBurst", () -> burst(idle, tasks));
+        operations.put("subscribedBurst", () -> burst(subscribed, tasks));
+        operations.put("catchUp", () -> {
+            while (received.get() < subscribed.getChangePublisher().getSequence()) {
+                Thread.onSpinWait();
+                Thread.yield();
+            }
+            return received.get();
+        });
+        return operations;
+    }
+
+    // Alternates adds and deletes, so every operation is a change.
+    private static Object burst(TaskService service, Task[] tasks) {
+        for (int i = 0; i < BURST / 2; i++) {
+            Task task = tasks[i & (tasks.length - 1)];
+            service.addTask(task);
+            service.deleteTask(task.getTaskId());
+        }
+        return service;
+    }
+}
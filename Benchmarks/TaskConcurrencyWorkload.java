@@ -0,0 +1,59 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark workload for TaskService under contention: one operation of a mix that cycles through a name update
+ * and a description update of a random stored task, then adding and deleting a scratch task. apply(size)
+ * stores size tasks in one service shared by every calling thread and returns the mix as "mixed".
+ * Each calling thread keeps its own place in the cycle and its own scratch ID, so threads only contend
+ * on the stored tasks.
+ */
+public class TaskConcurrencyWorkload implements IntFunction<Map<String, Supplier<Object>>> {
+
+    // A calling thread's scratch ID and how many operations of the mix it has run.
+    private static final class Caller {
+        final String scratchId;
+        int step;
+
+        Caller(String scratchId) {
+            this.scratchId = scratchId;
+        }
+    }
+
+    @Override
+    public Map<String, Supplier<Object>> apply(int size) {
+        TaskService service = new TaskService();
+        String[] ids = BenchmarkData.shuffledIds("T", size);
+        for (String id : ids) {
+            service.addTask(new Task(id, "Name", "Description"));
+        }
+        AtomicInteger callers = new AtomicInteger();
+        ThreadLocal<Caller> caller = ThreadLocal.withInitial(() -> new Caller("S" + callers.getAndIncrement()));
+
+        Map<String, Supplier<Object>> operations = new HashMap<>();
+        operations.put("mixed", () -> {
+            Caller self = caller.get();
+            String id = ids[ThreadLocalRandom.current().nextInt(ids.length)];
+            switch (self.step++ & 3) {
+                case 0:
+                    service.updateTaskName(id, "Renamed");
+                    break;
+                case 1:
+                    service.updateTaskDescription(id, "Described");
+                    break;
+                case 2:
+                    service.addTask(new Task(self.scratchId, "Scratch", "Scratch"));
+                    break;
+                default:
+                    service.deleteTask(self.scratchId);
+                    break;
+            }
+            return self;
+        });
+        return operations;
+    }
+}
@@ -0,0 +1,122 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark workload for TaskService.exportTo() and importFrom(), with and without compression, against a
+ * line-per-task text dump written with a BufferedWriter and loaded back through addAll() in batches of the
+ * same size. apply(size) fills a service with size tasks and writes each format once, so the imports have a
+ * file to read; the files live in a temporary directory, which close deletes.
+ *
+ * Tasks have short generated names and descriptions drawn from a small vocabulary, like real task text.
+ */
+public class TaskExportWorkload implements IntFunction<Map<String, Supplier<Object>>> {
+    private static final String[] WORDS = {"review", "report", "send", "invoice", "call", "client", "fix", "bug",
+            "update", "docs", "plan", "sprint", "book", "room", "order", "parts", "check", "backup", "deploy", "release"};
+
+    private Path directory;
+
+    @Override
+    public Map<String, Supplier<Object>> apply(int size) {
+        Random random = new Random(BenchmarkData.SEED);
+        TaskService service = new TaskService();
+        for (String id : BenchmarkData.shuffledIds("T", size)) {
+            service.addTask(new Task(id, text(random, 2), text(random, 6)));
+        }
+        directory = BenchmarkData.temporaryDirectory("task-export");
+        Path binary = directory.resolve("tasks.msrf");
+        Path compressed = directory.resolve("tasks-deflate.msrf");
+        Path text = directory.resolve("tasks.txt");
+
+        Map<String, Supplier<Object>> operations = new HashMap<>();
+        operations.put("exportBinary", unchecked(() -> service.exportTo(binary, false)));
+        operations.put("exportCompressed", unchecked(() -> service.exportTo(compressed, true)));
+        operations.put("exportText", unchecked(() -> writeText(service, text)));
+        operations.put("importBinary", unchecked(() -> new TaskService().importFrom(binary)));
+        operations.put("importCompressed", unchecked(() -> new TaskService().importFrom(compressed)));
+        operations.put("importText", unchecked(() -> readText(text)));
+        operations.put("close", () -> {
+            BenchmarkData.delete(directory);
+            return directory;
+        });
+        operations.get("exportBinary").get();
+        operations.get("exportCompressed").get();
+        operations.get("exportText").get();
+        return operations;
+    }
+
+    /**
+     * A step that reads or writes a file.
+     */
+    private interface FileStep {
+        Object run() throws IOException;
+    }
+
+    private static Supplier<Object> unchecked(FileStep step) {
+        return () -> {
+            try {
+                return step.run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    // Writes one tab-separated line per task; returns the file size.
+    private static Object writeText(TaskService service, Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (Task task : service.getTaskList()) {
+                writer.write(task.getTaskId());
+                writer.write('\t');
+                writer.write(task.getName());
+                writer.write('\t');
+                writer.write(task.getDescription());
+                writer.write('\n');
+            }
+        }
+        return Files.size(file);
+    }
+
+    // Loads a text dump into a new service in batches of the size RecordFile blocks hold.
+    private static Object readText(Path file) throws IOException {
+        TaskService service = new TaskService();
+        List<Task> batch = new ArrayList<>(RecordFile.BLOCK_RECORDS);
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int first = line.indexOf('\t');
+                int second = line.indexOf('\t', first + 1);
+                batch.add(new Task(line.substring(0, first), line.substring(first + 1, second), line.substring(second + 1)));
+                if (batch.size() == RecordFile.BLOCK_RECORDS) {
+                    service.addAll(batch, false);
+                    batch.clear();
+                }
+            }
+        }
+        service.addAll(batch, false);
+        return service;
+    }
+
+    // Returns words joined by spaces, staying within the task field limits.
+    private static String text(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+}
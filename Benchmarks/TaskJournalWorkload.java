@@ -0,0 +1,114 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark workload for a durable TaskService: synced updates, synced batches and reopening a store.
+ * apply(size) opens a store of size tasks for the updates and batches, and writes two more stores of size
+ * tasks that the reopen operations load, one from its log alone and one from a snapshot. Every store lives
+ * in a temporary directory; call close after the run to delete them.
+ * update may be called from many threads at once, which then share fsyncs.
+ */
+public class TaskJournalWorkload implements IntFunction<Map<String, Supplier<Object>>> {
+    // Number of tasks each batch adds and deletes again.
+    static final int BATCH_SIZE = 1_000;
+
+    private Path updateDirectory;
+    private Path logDirectory;
+    private Path snapshotDirectory;
+    private TaskService service;
+
+    @Override
+    public Map<String, Supplier<Object>> apply(int size) {
+        String[] ids = BenchmarkData.shuffledIds("T", size);
+        updateDirectory = BenchmarkData.temporaryDirectory("task-journal");
+        logDirectory = BenchmarkData.temporaryDirectory("task-journal-log");
+        snapshotDirectory = BenchmarkData.temporaryDirectory("task-journal-snapshot");
+        try {
+            write(logDirectory, ids, false);
+            write(snapshotDirectory, ids, true);
+            service = TaskService.open(updateDirectory, Long.MAX_VALUE);
+            service.addAll(tasks(ids), false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // Added and deleted again by batch, so the store size stays constant
+        List<Task> batch = new ArrayList<>(BATCH_SIZE);
+        List<String> batchIds = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(new Task("B" + i, "Batch", "Batch task"));
+            batchIds.add("B" + i);
+        }
+
+        Map<String, Supplier<Object>> operations = new HashMap<>();
+        operations.put("update", () -> {
+            service.updateTaskName(ids[ThreadLocalRandom.current().nextInt(ids.length)], "Renamed");
+            return service;
+        });
+        operations.put("batch", () -> {
+            service.addAll(batch, false);
+            return service.deleteAll(batchIds, false);
+        });
+        operations.put("reopenFromLog", () -> reopen(logDirectory, ids[0]));
+        operations.put("reopenFromSnapshot", () -> reopen(snapshotDirectory, ids[0]));
+        operations.put("close", this::close);
+        return operations;
+    }
+
+    /**
+     * Writes a store of the given tasks in batches of 10,000, which sync once per batch.
+     */
+    private static void write(Path directory, String[] ids, boolean checkpoint) throws IOException {
+        try (TaskService store = TaskService.open(directory, Long.MAX_VALUE)) {
+            List<Task> all = tasks(ids);
+            for (int from = 0; from < all.size(); from += 10_000) {
+                store.addAll(all.subList(from, Math.min(from + 10_000, all.size())), false);
+            }
+            if (checkpoint) {
+                store.checkpoint();
+            }
+        }
+    }
+
+    private static List<Task> tasks(String[] ids) {
+        List<Task> tasks = new ArrayList<>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            tasks.add(new Task(ids[i], "Name" + i % 1000, "Description of task " + i));
+        }
+        return tasks;
+    }
+
+    /**
+     * Opens and closes a store, returning a task it restored.
+     */
+    private static Object reopen(Path directory, String id) {
+        try (TaskService store = TaskService.open(directory, Long.MAX_VALUE)) {
+            return store.getTask(id);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Closes the update store and deletes every store.
+     */
+    private Object close() {
+        try {
+            service.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            BenchmarkData.delete(updateDirectory);
+            BenchmarkData.delete(logDirectory);
+            BenchmarkData.delete(snapshotDirectory);
+        }
+        return service;
+    }
+}
@@ -0,0 +1,46 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark workload for what the operation metrics add to TaskService calls: getTask() with calls counted
+ * but never timed, with the default sampling of one timed call in 16, and with every call timed.
+ * apply(size) fills one service per sampling interval with size tasks and returns the operations by name.
+ * Operations pick IDs in a fixed pseudo-random order.
+ */
+public class TaskMetricsWorkload implements IntFunction<Map<String, Supplier<Object>>> {
+
+    // IDs of the stored tasks, visited in a shuffled order.
+    private String[] ids;
+    private int cursor;
+
+    @Override
+    public Map<String, Supplier<Object>> apply(int size) {
+        ids = BenchmarkData.shuffledIds("T", size);
+        TaskService counted = service(1 << 30);
+        TaskService sampled = service(OperationMetrics.DEFAULT_SAMPLING_INTERVAL);
+        TaskService timed = service(1);
+
+        Map<String, Supplier<Object>> operations = new HashMap<>();
+        operations.put("lookupCounted", () -> counted.getTask(nextId()));
+        operations.put("lookupSampled", () -> sampled.getTask(nextId()));
+        operations.put("lookupTimed", () -> timed.getTask(nextId()));
+        return operations;
+    }
+
+    private TaskService service(int samplingInterval) {
+        TaskService service = new TaskService();
+        for (String id : ids) {
+            service.addTask(new Task(id, "Name", "Description"));
+        }
+        service.getMetrics().setSamplingInterval(samplingInterval);
+        return service;
+    }
+
+    private String nextId() {
+        String id = ids[cursor];
+        cursor = cursor + 1 == ids.length ? 0 : cursor + 1;
+        return id;
+    }
+}
@@ -0,0 +1,113 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark workload for TaskService.search() against the full scan it replaces, a String.contains test of
+ * every task's name and description, and for building and updating the word index behind it.
+ * apply(size) fills a service with size tasks, builds its index with a first search and returns the
+ * operations by name.
+ *
+ * Words are drawn from a 20,000-word vocabulary with a Zipf distribution, so a few words appear in a large
+ * share of the tasks, as in real text. Each query has two words drawn the same way and asks for the best 10
+ * matches. Queries, renamed tasks and their new names are drawn in advance in a fixed pseudo-random order.
+ */
+public class TaskSearchWorkload implements IntFunction<Map<String, Supplier<Object>>> {
+    private static final int VOCABULARY = 20_000;
+    // Number of distinct queries and renames, visited in turn.
+    private static final int QUERIES = 2_048;
+
+    private final double[] zipf = zipf();
+    private TaskService service;
+    private String[] queries;
+    private String[] renamedIds;
+    private String[] names;
+    private int cursor;
+
+    @Override
+    public Map<String, Supplier<Object>> apply(int size) {
+        Random random = new Random(BenchmarkData.SEED);
+        service = new TaskService();
+        String[] ids = BenchmarkData.shuffledIds("T", size);
+        for (String id : ids) {
+            service.addTask(new Task(id, text(random, 2), text(random, 5)));
+        }
+        queries = new String[QUERIES];
+        renamedIds = new String[QUERIES];
+        names = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = word(random) + " " + word(random);
+            renamedIds[i] = ids[random.nextInt(ids.length)];
+            names[i] = text(random, 2);
+        }
+        service.search(queries[0], 10);
+
+        Map<String, Supplier<Object>> operations = new HashMap<>();
+        operations.put("search", () -> service.search(queries[next()], 10));
+        operations.put("fullScan", () -> {
+            String[] words = queries[next()].split(" ");
+            int matches = 0;
+            for (Task task : service.getTaskList()) {
+                for (String word : words) {
+                    if (task.getName().toLowerCase(Locale.ROOT).contains(word)
+                            || task.getDescription().toLowerCase(Locale.ROOT).contains(word)) {
+                        matches++;
+                        break;
+                    }
+                }
+            }
+            return matches;
+        });
+        // Indexes every task the way the first search does
+        operations.put("buildIndex", () -> {
+            TextIndex index = new TextIndex();
+            for (Task task : service.getTaskList()) {
+                index.put(task.getTaskId(), task.getName(), task.getDescription());
+            }
+            return index;
+        });
+        operations.put("updateName", () -> {
+            int at = next();
+            service.updateTaskName(renamedIds[at], names[at]);
+            return service;
+        });
+        return operations;
+    }
+
+    private int next() {
+        int at = cursor;
+        cursor = cursor + 1 == QUERIES ? 0 : cursor + 1;
+        return at;
+    }
+
+    // Cumulative Zipf distribution over the vocabulary.
+    private static double[] zipf() {
+        double[] cumulative = new double[VOCABULARY];
+        double sum = 0;
+        for (int i = 0; i < VOCABULARY; i++) {
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < VOCABULARY; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+
+    private String word(Random random) {
+        int found = Arrays.binarySearch(zipf, random.nextDouble());
+        return "w" + (found >= 0 ? found : -found - 1);
+    }
+
+    private String text(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            text.append(i == 0 ? "" : " ").append(word(random));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,55 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark workload for point-in-time views of all tasks: TaskService.snapshot() against copying the task
+ * map, which is what a reporting job had to do before, and what recording snapshot versions adds to writes.
+ * apply(size) fills a plain and a versioned service with size tasks each and returns the operations by name.
+ * Renames pick IDs in a fixed pseudo-random order.
+ */
+public class TaskSnapshotWorkload implements IntFunction<Map<String, Supplier<Object>>> {
+
+    private TaskService plain;
+    private TaskService versioned;
+    // IDs of the stored tasks, visited in a shuffled order.
+    private String[] ids;
+    private int cursor;
+    // Name given by the current pass over the IDs, which alternate so every rename is a change.
+    private String name = "Renamed";
+
+    @Override
+    public Map<String, Supplier<Object>> apply(int size) {
+        plain = new TaskService();
+        versioned = new TaskService(true);
+        ids = BenchmarkData.shuffledIds("T", size);
+        for (String id : ids) {
+            plain.addTask(new Task(id, "Name", "Description"));
+            versioned.addTask(new Task(id, "Name", "Description"));
+        }
+
+        Map<String, Supplier<Object>> operations = new HashMap<>();
+        operations.put("copyMap", () -> new HashMap<>(plain.tasks));
+        operations.put("snapshot", () -> versioned.snapshot());
+        operations.put("iterateSnapshot", () -> {
+            long length = 0;
+            for (Task task : versioned.snapshot()) {
+                length += task.getName().length();
+            }
+            return length;
+        });
+        operations.put("renamePlain", () -> rename(plain));
+        operations.put("renameVersioned", () -> rename(versioned));
+        return operations;
+    }
+
+    private Object rename(TaskService service) {
+        service.updateTaskName(ids[cursor], name);
+        if (++cursor == ids.length) {
+            cursor = 0;
+            name = name.equals("Name") ? "Renamed" : "Name";
+        }
+        return service;
+    }
+}
@@ -0,0 +1,51 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark workload for the TaskService operations: add, delete, lookup and update.
+ * apply(size) fills a service with size tasks and returns the operations by name.
+ * Operations pick IDs in a fixed pseudo-random order.
+ */
+public class TaskWorkload implements IntFunction<Map<String, Supplier<Object>>> {
+
+    private TaskService service;
+    // IDs of the stored tasks, visited in a shuffled order.
+    private String[] ids;
+    private int cursor;
+
+    @Override
+    public Map<String, Supplier<Object>> apply(int size) {
+        service = new TaskService();
+        ids = BenchmarkData.shuffledIds("T", size);
+        for (String id : ids) {
+            service.addTask(new Task(id, "Name", "Description"));
+        }
+        // Added and deleted again by addAndDelete, so the service size stays constant
+        Task scratch = new Task("SCRATCH", "Scratch", "Scratch task");
+
+        Map<String, Supplier<Object>> operations = new HashMap<>();
+        operations.put("addAndDelete", () -> {
+            service.addTask(scratch);
+            service.deleteTask(scratch.getTaskId());
+            return scratch;
+        });
+        operations.put("lookup", () -> service.getTask(nextId()));
+        operations.put("updateName", () -> {
+            service.updateTaskName(nextId(), "Renamed");
+            return service;
+        });
+        operations.put("updateDescription", () -> {
+            service.updateTaskDescription(nextId(), "Described");
+            return service;
+        });
+        return operations;
+    }
+
+    private String nextId() {
+        String id = ids[cursor];
+        cursor = cursor + 1 == ids.length ? 0 : cursor + 1;
+        return id;
+    }
+}
@@ -0,0 +1,124 @@
+import java.time.Clock;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark workload for screening a bulk feed of entity fields, in which apply(invalidPercent) makes that
+ * share of the rows invalid, each in one field chosen at random. Every operation screens the whole feed of
+ * ROWS rows and returns the number accepted: the "Throwing" operations construct every row and catch the
+ * IllegalArgumentException of the invalid ones, the "TryCreate" operations call the entity's tryCreate(),
+ * which validates once and reports invalid rows through a reused ValidationRules.Result.
+ */
+public class ValidationWorkload implements IntFunction<Map<String, Supplier<Object>>> {
+    // Number of rows in each feed.
+    static final int ROWS = 10_000;
+
+    @Override
+    public Map<String, Supplier<Object>> apply(int invalidPercent) {
+        Random random = new Random(9);
+        Clock clock = Clock.systemUTC();
+        long future = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(365);
+        String[][] contacts = new String[ROWS][];
+        String[][] tasks = new String[ROWS][];
+        String[] appointmentIds = new String[ROWS];
+        String[] appointmentDescriptions = new String[ROWS];
+        long[] appointmentTimes = new long[ROWS];
+        long[] appointmentDurations = new long[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            boolean invalid = random.nextInt(100) < invalidPercent;
+            contacts[i] = new String[] {"C" + i, "John", "Doe", String.format("%010d", i), i + " Main St"};
+            tasks[i] = new String[] {"T" + i, "Task Name", "Task Description"};
+            appointmentIds[i] = "A" + i;
+            appointmentDescriptions[i] = "Appointment Description";
+            appointmentTimes[i] = future;
+            appointmentDurations[i] = 30 * 60_000L;
+            if (invalid) {
+                int field = random.nextInt(5);
+                contacts[i][field] = field == 3 ? "555-0100" : "Much longer than the field allows";
+                tasks[i][field % 3] = field % 3 == 0 ? null : "Much longer than the twenty or fifty characters the field allows";
+                switch (field % 3) {
+                    case 0:
+                        appointmentIds[i] = null;
+                        break;
+                    case 1:
+                        appointmentTimes[i] = 0;
+                        break;
+                    default:
+                        appointmentDurations[i] = -1;
+                }
+            }
+        }
+
+        ValidationRules.Result result = new ValidationRules.Result();
+        Map<String, Supplier<Object>> operations = new HashMap<>();
+        operations.put("contactThrowing", () -> {
+            int accepted = 0;
+            for (String[] row : contacts) {
+                try {
+                    new Contact(row[0], row[1], row[2], row[3], row[4]);
+                    accepted++;
+                } catch (IllegalArgumentException rejected) {
+                    // The row is reported and skipped
+                }
+            }
+            return accepted;
+        });
+        operations.put("contactTryCreate", () -> {
+            int accepted = 0;
+            for (String[] row : contacts) {
+                if (Contact.tryCreate(row[0], row[1], row[2], row[3], row[4], result) != null) {
+                    accepted++;
+                }
+            }
+            return accepted;
+        });
+        operations.put("taskThrowing", () -> {
+            int accepted = 0;
+            for (String[] row : tasks) {
+                try {
+                    new Task(row[0], row[1], row[2]);
+                    accepted++;
+                } catch (IllegalArgumentException rejected) {
+                    // The row is reported and skipped
+                }
+            }
+            return accepted;
+        });
+        operations.put("taskTryCreate", () -> {
+            int accepted = 0;
+            for (String[] row : tasks) {
+                if (Task.tryCreate(row[0], row[1], row[2], result) != null) {
+                    accepted++;
+                }
+            }
+            return accepted;
+        });
+        operations.put("appointmentThrowing", () -> {
+            int accepted = 0;
+            for (int i = 0; i < ROWS; i++) {
+                try {
+                    new Appointment(appointmentIds[i], appointmentTimes[i], appointmentDescriptions[i], appointmentDurations[i], null, clock);
+                    accepted++;
+                } catch (IllegalArgumentException rejected) {
+                    // The row is reported and skipped
+                }
+            }
+            return accepted;
+        });
+        operations.put("appointmentTryCreate", () -> {
+            int accepted = 0;
+            for (int i = 0; i < ROWS; i++) {
+                if (Appointment.tryCreate(appointmentIds[i], appointmentTimes[i], appointmentDescriptions[i], appointmentDurations[i],
+                        null, clock, result) != null) {
+                    accepted++;
+                }
+            }
+            return accepted;
+        });
+        return operations;
+    }
+}
@@ -0,0 +1,53 @@
+package managesuite.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for appointment expiry, driven by AppointmentExpiryWorkload: a day of one-second sweeps of
+ * the timer wheel, including filling it, against one sweep of the full scan it replaces.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AppointmentExpiryBenchmark {
+
+    // Number of appointments that expire during the day.
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private Supplier<Object> wheelDay;
+    private Supplier<Object> fullScanSweep;
+
+    @Setup
+    public void setUp() {
+        Map<String, Supplier<Object>> operations = Workloads.load("AppointmentExpiryWorkload", size);
+        wheelDay = operations.get("wheelDay");
+        fullScanSweep = operations.get("fullScanSweep");
+    }
+
+    @Benchmark
+    public Object wheelDay() {
+        return wheelDay.get();
+    }
+
+    @Benchmark
+    public Object fullScanSweep() {
+        return fullScanSweep.get();
+    }
+}
@@ -0,0 +1,60 @@
+package managesuite.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for the booking-flow queries of AppointmentService on a busy calendar of 100 resources,
+ * driven by AppointmentIntervalsWorkload: a conflict-checked add, isFree and nextFreeSlot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AppointmentIntervalsBenchmark {
+
+    // Number of appointments booked before measuring; some collide and are left out.
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private Supplier<Object> conflictCheckedAdd;
+    private Supplier<Object> isFree;
+    private Supplier<Object> nextFreeSlot;
+
+    @Setup
+    public void setUp() {
+        Map<String, Supplier<Object>> operations = Workloads.load("AppointmentIntervalsWorkload", size);
+        conflictCheckedAdd = operations.get("conflictCheckedAdd");
+        isFree = operations.get("isFree");
+        nextFreeSlot = operations.get("nextFreeSlot");
+    }
+
+    @Benchmark
+    public Object conflictCheckedAdd() {
+        return conflictCheckedAdd.get();
+    }
+
+    @Benchmark
+    public Object isFree() {
+        return isFree.get();
+    }
+
+    @Benchmark
+    public Object nextFreeSlot() {
+        return nextFreeSlot.get();
+    }
+}
@@ -0,0 +1,73 @@
+package managesuite.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for the AppointmentService operations and time range queries, driven by AppointmentWorkload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AppointmentOperationsBenchmark {
+
+    // Number of appointments stored in the service while measuring.
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private Supplier<Object> addAndDelete;
+    private Supplier<Object> lookup;
+    private Supplier<Object> findBetween;
+    private Supplier<Object> countBetween;
+    private Supplier<Object> nextAfter;
+
+    @Setup
+    public void setUp() {
+        Map<String, Supplier<Object>> operations = Workloads.load("AppointmentWorkload", size);
+        addAndDelete = operations.get("addAndDelete");
+        lookup = operations.get("lookup");
+        findBetween = operations.get("findBetween");
+        countBetween = operations.get("countBetween");
+        nextAfter = operations.get("nextAfter");
+    }
+
+    @Benchmark
+    public Object addAndDelete() {
+        return addAndDelete.get();
+    }
+
+    @Benchmark
+    public Object lookup() {
+        return lookup.get();
+    }
+
+    @Benchmark
+    public Object findBetween() {
+        return findBetween.get();
+    }
+
+    @Benchmark
+    public Object countBetween() {
+        return countBetween.get();
+    }
+
+    @Benchmark
+    public Object nextAfter() {
+        return nextAfter.get();
+    }
+}
@@ -0,0 +1,70 @@
+package managesuite.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for a request that fans out to all three services, driven by AsyncFanOutWorkload: calling
+ * them one after the other and through the async facades, from 1 and 64 client threads. Sample time gives
+ * the latency percentiles of a request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AsyncFanOutBenchmark {
+
+    private Supplier<Object> sync;
+    private Supplier<Object> async;
+    private Supplier<Object> close;
+
+    @Setup
+    public void setUp() {
+        Map<String, Supplier<Object>> operations = Workloads.load("AsyncFanOutWorkload", 0);
+        sync = operations.get("sync");
+        async = operations.get("async");
+        close = operations.get("close");
+    }
+
+    @TearDown
+    public void tearDown() {
+        close.get();
+    }
+
+    @Benchmark
+    public Object sync() {
+        return sync.get();
+    }
+
+    @Benchmark
+    public Object async() {
+        return async.get();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Object sync64Threads() {
+        return sync.get();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Object async64Threads() {
+        return async.get();
+    }
+}
@@ -0,0 +1,75 @@
+package managesuite.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks comparing batch ingest of 100,000 items against the single-item add loop, driven by BatchWorkload.
+ * The services are recreated before every measured batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchIngestBenchmark {
+
+    // Percentage of each batch that collides with IDs already stored.
+    @Param({"0", "10"})
+    public int invalidPercent;
+
+    private Supplier<Object> reset;
+    private Supplier<Object> taskLoop;
+    private Supplier<Object> taskBatch;
+    private Supplier<Object> appointmentLoop;
+    private Supplier<Object> appointmentBatch;
+
+    @Setup
+    public void setUp() {
+        Map<String, Supplier<Object>> operations = Workloads.load("BatchWorkload", invalidPercent);
+        reset = operations.get("reset");
+        taskLoop = operations.get("taskLoop");
+        taskBatch = operations.get("taskBatch");
+        appointmentLoop = operations.get("appointmentLoop");
+        appointmentBatch = operations.get("appointmentBatch");
+    }
+
+    @Setup(Level.Invocation)
+    public void reset() {
+        reset.get();
+    }
+
+    @Benchmark
+    public Object taskLoop() {
+        return taskLoop.get();
+    }
+
+    @Benchmark
+    public Object taskBatch() {
+        return taskBatch.get();
+    }
+
+    @Benchmark
+    public Object appointmentLoop() {
+        return appointmentLoop.get();
+    }
+
+    @Benchmark
+    public Object appointmentBatch() {
+        return appointmentBatch.get();
+    }
+}
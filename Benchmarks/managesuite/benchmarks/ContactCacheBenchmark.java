@@ -0,0 +1,112 @@
+package managesuite.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for Zipf-distributed lookups and updates, driven by ContactCacheWorkload: a file-backed
+ * service without a cache, with a write-through and with a write-behind ContactCache, and an in-memory
+ * service. Services are flushed between iterations, outside the measured time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContactCacheBenchmark {
+
+    // Number of contacts in each service.
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private Supplier<Object> readFile;
+    private Supplier<Object> readWriteThrough;
+    private Supplier<Object> readWriteBehind;
+    private Supplier<Object> readMemory;
+    private Supplier<Object> mixedFile;
+    private Supplier<Object> mixedWriteThrough;
+    private Supplier<Object> mixedWriteBehind;
+    private Supplier<Object> mixedMemory;
+    private Supplier<Object> flush;
+    private Supplier<Object> close;
+
+    @Setup
+    public void setUp() {
+        Map<String, Supplier<Object>> operations = Workloads.load("ContactCacheWorkload", size);
+        readFile = operations.get("readFile");
+        readWriteThrough = operations.get("readWriteThrough");
+        readWriteBehind = operations.get("readWriteBehind");
+        readMemory = operations.get("readMemory");
+        mixedFile = operations.get("mixedFile");
+        mixedWriteThrough = operations.get("mixedWriteThrough");
+        mixedWriteBehind = operations.get("mixedWriteBehind");
+        mixedMemory = operations.get("mixedMemory");
+        flush = operations.get("flush");
+        close = operations.get("close");
+    }
+
+    @TearDown(Level.Iteration)
+    public void flush() {
+        flush.get();
+    }
+
+    @TearDown
+    public void tearDown() {
+        close.get();
+    }
+
+    @Benchmark
+    public Object readFile() {
+        return readFile.get();
+    }
+
+    @Benchmark
+    public Object readWriteThrough() {
+        return readWriteThrough.get();
+    }
+
+    @Benchmark
+    public Object readWriteBehind() {
+        return readWriteBehind.get();
+    }
+
+    @Benchmark
+    public Object readMemory() {
+        return readMemory.get();
+    }
+
+    @Benchmark
+    public Object mixedFile() {
+        return mixedFile.get();
+    }
+
+    @Benchmark
+    public Object mixedWriteThrough() {
+        return mixedWriteThrough.get();
+    }
+
+    @Benchmark
+    public Object mixedWriteBehind() {
+        return mixedWriteBehind.get();
+    }
+
+    @Benchmark
+    public Object mixedMemory() {
+        return mixedMemory.get();
+    }
+}
@@ -0,0 +1,65 @@
+package managesuite.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for duplicate detection, driven by ContactDedupWorkload: a full search, an incremental
+ * search of 1,000 new contacts, and scoring one pair, which the all-pairs comparison would repeat
+ * n(n - 1) / 2 times.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContactDedupBenchmark {
+
+    // Number of people stored, before their planted copies and relatives.
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private Supplier<Object> fullSearch;
+    private Supplier<Object> incrementalSearch;
+    private Supplier<Object> scorePair;
+
+    @Setup
+    public void setUp() {
+        Map<String, Supplier<Object>> operations = Workloads.load("ContactDedupWorkload", size);
+        fullSearch = operations.get("fullSearch");
+        incrementalSearch = operations.get("incrementalSearch");
+        scorePair = operations.get("scorePair");
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public Object fullSearch() {
+        return fullSearch.get();
+    }
+
+    @Benchmark
+    public Object incrementalSearch() {
+        return incrementalSearch.get();
+    }
+
+    @Benchmark
+    public Object scorePair() {
+        return scorePair.get();
+    }
+}
@@ -0,0 +1,115 @@
+package managesuite.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for dictionary-encoded contacts, driven by ContactDictionaryWorkload: loading a service
+ * without a dictionary, with all fields encoded and with the names encoded, and an equality and a prefix
+ * lookup over all contacts in each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContactDictionaryBenchmark {
+
+    // Number of contacts in each service.
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private Supplier<Object> loadPlain;
+    private Supplier<Object> loadAllFields;
+    private Supplier<Object> loadNames;
+    private Supplier<Object> findEqualPlain;
+    private Supplier<Object> findEqualAllFields;
+    private Supplier<Object> findEqualNames;
+    private Supplier<Object> findPrefixPlain;
+    private Supplier<Object> findPrefixAllFields;
+    private Supplier<Object> findPrefixNames;
+
+    @Setup
+    public void setUp() {
+        Map<String, Supplier<Object>> operations = Workloads.load("ContactDictionaryWorkload", size);
+        loadPlain = operations.get("loadPlain");
+        loadAllFields = operations.get("loadAllFields");
+        loadNames = operations.get("loadNames");
+        findEqualPlain = operations.get("findEqualPlain");
+        findEqualAllFields = operations.get("findEqualAllFields");
+        findEqualNames = operations.get("findEqualNames");
+        findPrefixPlain = operations.get("findPrefixPlain");
+        findPrefixAllFields = operations.get("findPrefixAllFields");
+        findPrefixNames = operations.get("findPrefixNames");
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public Object loadPlain() {
+        return loadPlain.get();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public Object loadAllFields() {
+        return loadAllFields.get();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public Object loadNames() {
+        return loadNames.get();
+    }
+
+    @Benchmark
+    public Object findEqualPlain() {
+        return findEqualPlain.get();
+    }
+
+    @Benchmark
+    public Object findEqualAllFields() {
+        return findEqualAllFields.get();
+    }
+
+    @Benchmark
+    public Object findEqualNames() {
+        return findEqualNames.get();
+    }
+
+    @Benchmark
+    public Object findPrefixPlain() {
+        return findPrefixPlain.get();
+    }
+
+    @Benchmark
+    public Object findPrefixAllFields() {
+        return findPrefixAllFields.get();
+    }
+
+    @Benchmark
+    public Object findPrefixNames() {
+        return findPrefixNames.get();
+    }
+}
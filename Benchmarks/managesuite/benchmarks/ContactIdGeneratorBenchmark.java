@@ -0,0 +1,61 @@
+package managesuite.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for contact ID generation from 1 and 8 threads, driven by ContactIdGeneratorWorkload:
+ * the lock-free SequenceIdGenerator against truncated random UUIDs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContactIdGeneratorBenchmark {
+
+    private Supplier<Object> sequence;
+    private Supplier<Object> uuid;
+
+    @Setup
+    public void setUp() {
+        Map<String, Supplier<Object>> operations = Workloads.load("ContactIdGeneratorWorkload", 0);
+        sequence = operations.get("sequence");
+        uuid = operations.get("uuid");
+    }
+
+    @Benchmark
+    public Object sequence() {
+        return sequence.get();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object sequence8Threads() {
+        return sequence.get();
+    }
+
+    @Benchmark
+    public Object uuid() {
+        return uuid.get();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object uuid8Threads() {
+        return uuid.get();
+    }
+}
@@ -0,0 +1,69 @@
+package managesuite.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for importing a contacts CSV into a file-backed service, driven by ContactImportWorkload:
+ * a row-at-a-time newContact() loop against the ContactImporter pipeline, without and with checkpoints.
+ * Each invocation imports the whole file once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ContactImportBenchmark {
+
+    // Number of rows in the CSV.
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private Supplier<Object> rowAtATime;
+    private Supplier<Object> pipeline;
+    private Supplier<Object> pipelineCheckpoints;
+    private Supplier<Object> close;
+
+    @Setup
+    public void setUp() {
+        Map<String, Supplier<Object>> operations = Workloads.load("ContactImportWorkload", size);
+        rowAtATime = operations.get("rowAtATime");
+        pipeline = operations.get("pipeline");
+        pipelineCheckpoints = operations.get("pipelineCheckpoints");
+        close = operations.get("close");
+    }
+
+    @TearDown
+    public void tearDown() {
+        close.get();
+    }
+
+    @Benchmark
+    public Object rowAtATime() {
+        return rowAtATime.get();
+    }
+
+    @Benchmark
+    public Object pipeline() {
+        return pipeline.get();
+    }
+
+    @Benchmark
+    public Object pipelineCheckpoints() {
+        return pipelineCheckpoints.get();
+    }
+}
@@ -0,0 +1,54 @@
+package managesuite.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for ContactService lookup latency from one thousand to ten million contacts, driven by
+ * ContactLookupScalingWorkload: getContact() and updateFirstName() by generated ID. The fork gets a larger
+ * heap, as ten million contacts do not fit in the suite's usual 3 GB.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class ContactLookupScalingBenchmark {
+
+    // Number of contacts stored in the service while measuring.
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private Supplier<Object> lookup;
+    private Supplier<Object> updateFirstName;
+
+    @Setup
+    public void setUp() {
+        Map<String, Supplier<Object>> operations = Workloads.load("ContactLookupScalingWorkload", size);
+        lookup = operations.get("lookup");
+        updateFirstName = operations.get("updateFirstName");
+    }
+
+    @Benchmark
+    public Object lookup() {
+        return lookup.get();
+    }
+
+    @Benchmark
+    public Object updateFirstName() {
+        return updateFirstName.get();
+    }
+}
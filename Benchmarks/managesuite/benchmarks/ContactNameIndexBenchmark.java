@@ -0,0 +1,72 @@
+package managesuite.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for the contact name index, driven by ContactNameIndexWorkload: building it in one sorted
+ * pass, adding and removing one contact, and the latency of one autocomplete keystroke, exact and with
+ * typo tolerance.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContactNameIndexBenchmark {
+
+    // Number of contacts in the index.
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private Supplier<Object> build;
+    private Supplier<Object> addAndRemove;
+    private Supplier<Object> exactKeystroke;
+    private Supplier<Object> tolerantKeystroke;
+
+    @Setup
+    public void setUp() {
+        Map<String, Supplier<Object>> operations = Workloads.load("ContactNameIndexWorkload", size);
+        build = operations.get("build");
+        addAndRemove = operations.get("addAndRemove");
+        exactKeystroke = operations.get("exactKeystroke");
+        tolerantKeystroke = operations.get("tolerantKeystroke");
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public Object build() {
+        return build.get();
+    }
+
+    @Benchmark
+    public Object addAndRemove() {
+        return addAndRemove.get();
+    }
+
+    @Benchmark
+    public Object exactKeystroke() {
+        return exactKeystroke.get();
+    }
+
+    @Benchmark
+    public Object tolerantKeystroke() {
+        return tolerantKeystroke.get();
+    }
+}
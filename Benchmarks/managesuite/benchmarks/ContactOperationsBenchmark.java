@@ -0,0 +1,75 @@
+package managesuite.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for the ContactService operations, driven by ContactWorkload.
+ * newContact includes ID generation and writes into a service that is emptied before every iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContactOperationsBenchmark {
+
+    // Number of contacts stored in the service while measuring.
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private Supplier<Object> addAndDelete;
+    private Supplier<Object> newContact;
+    private Supplier<Object> resetEmpty;
+    private Supplier<Object> lookup;
+    private Supplier<Object> updateFirstName;
+
+    @Setup
+    public void setUp() {
+        Map<String, Supplier<Object>> operations = Workloads.load("ContactWorkload", size);
+        addAndDelete = operations.get("addAndDelete");
+        newContact = operations.get("newContact");
+        resetEmpty = operations.get("resetEmpty");
+        lookup = operations.get("lookup");
+        updateFirstName = operations.get("updateFirstName");
+    }
+
+    @Setup(Level.Iteration)
+    public void resetEmpty() {
+        resetEmpty.get();
+    }
+
+    @Benchmark
+    public Object addAndDelete() {
+        return addAndDelete.get();
+    }
+
+    @Benchmark
+    public Object newContact() {
+        return newContact.get();
+    }
+
+    @Benchmark
+    public Object lookup() {
+        return lookup.get();
+    }
+
+    @Benchmark
+    public Object updateFirstName() {
+        return updateFirstName.get();
+    }
+}
@@ -0,0 +1,75 @@
+package managesuite.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for the memory-mapped ContactRecordStore, driven by ContactRecordStoreWorkload: an in-place
+ * write, a lookup by ID, reading two fields from a slot without building a Contact, and reopening the file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContactRecordStoreBenchmark {
+
+    // Number of contacts stored in the file.
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private Supplier<Object> write;
+    private Supplier<Object> lookup;
+    private Supplier<Object> fieldRead;
+    private Supplier<Object> reopen;
+    private Supplier<Object> close;
+
+    @Setup
+    public void setUp() {
+        Map<String, Supplier<Object>> operations = Workloads.load("ContactRecordStoreWorkload", size);
+        write = operations.get("write");
+        lookup = operations.get("lookup");
+        fieldRead = operations.get("fieldRead");
+        reopen = operations.get("reopen");
+        close = operations.get("close");
+    }
+
+    @TearDown
+    public void tearDown() {
+        close.get();
+    }
+
+    @Benchmark
+    public Object write() {
+        return write.get();
+    }
+
+    @Benchmark
+    public Object lookup() {
+        return lookup.get();
+    }
+
+    @Benchmark
+    public Object fieldRead() {
+        return fieldRead.get();
+    }
+
+    @Benchmark
+    public Object reopen() {
+        return reopen.get();
+    }
+}
@@ -0,0 +1,76 @@
+package managesuite.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for entity construction and validation, driven by ConstructionWorkload.
+ * Run with -prof gc to see the allocation each path performs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityConstructionBenchmark {
+
+    private Supplier<Object> newTask;
+    private Supplier<Object> newContact;
+    private Supplier<Object> newContactWithDefaults;
+    private Supplier<Object> updatePhoneNumber;
+    private Supplier<Object> newAppointment;
+    private Supplier<Object> newAppointmentAtEpoch;
+
+    @Setup
+    public void setUp() {
+        Map<String, Supplier<Object>> operations = Workloads.load("ConstructionWorkload", 0);
+        newTask = operations.get("newTask");
+        newContact = operations.get("newContact");
+        newContactWithDefaults = operations.get("newContactWithDefaults");
+        updatePhoneNumber = operations.get("updatePhoneNumber");
+        newAppointment = operations.get("newAppointment");
+        newAppointmentAtEpoch = operations.get("newAppointmentAtEpoch");
+    }
+
+    @Benchmark
+    public Object newTask() {
+        return newTask.get();
+    }
+
+    @Benchmark
+    public Object newContact() {
+        return newContact.get();
+    }
+
+    @Benchmark
+    public Object newContactWithDefaults() {
+        return newContactWithDefaults.get();
+    }
+
+    @Benchmark
+    public Object updatePhoneNumber() {
+        return updatePhoneNumber.get();
+    }
+
+    @Benchmark
+    public Object newAppointment() {
+        return newAppointment.get();
+    }
+
+    @Benchmark
+    public Object newAppointmentAtEpoch() {
+        return newAppointmentAtEpoch.get();
+    }
+}
@@ -0,0 +1,81 @@
+package managesuite.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of screening a feed of 10,000 rows with a share of invalid rows, driven by ValidationWorkload:
+ * constructing every row and catching the exceptions, against tryCreate(), which reports invalid rows without throwing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RejectedInputBenchmark {
+
+    // Percentage of the rows that are invalid.
+    @Param({"0", "5", "10", "100"})
+    public int invalidPercent;
+
+    private Supplier<Object> contactThrowing;
+    private Supplier<Object> contactTryCreate;
+    private Supplier<Object> taskThrowing;
+    private Supplier<Object> taskTryCreate;
+    private Supplier<Object> appointmentThrowing;
+    private Supplier<Object> appointmentTryCreate;
+
+    @Setup
+    public void setUp() {
+        Map<String, Supplier<Object>> operations = Workloads.load("ValidationWorkload", invalidPercent);
+        contactThrowing = operations.get("contactThrowing");
+        contactTryCreate = operations.get("contactTryCreate");
+        taskThrowing = operations.get("taskThrowing");
+        taskTryCreate = operations.get("taskTryCreate");
+        appointmentThrowing = operations.get("appointmentThrowing");
+        appointmentTryCreate = operations.get("appointmentTryCreate");
+    }
+
+    @Benchmark
+    public Object contactThrowing() {
+        return contactThrowing.get();
+    }
+
+    @Benchmark
+    public Object contactTryCreate() {
+        return contactTryCreate.get();
+    }
+
+    @Benchmark
+    public Object taskThrowing() {
+        return taskThrowing.get();
+    }
+
+    @Benchmark
+    public Object taskTryCreate() {
+        return taskTryCreate.get();
+    }
+
+    @Benchmark
+    public Object appointmentThrowing() {
+        return appointmentThrowing.get();
+    }
+
+    @Benchmark
+    public Object appointmentTryCreate() {
+        return appointmentTryCreate.get();
+    }
+}
@@ -0,0 +1,117 @@
+package managesuite.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for what sharding costs, driven by ShardedTaskServiceWorkload: adds, deletes and lookups on
+ * one TaskService, on four in-process shards and on four shards in loopback JVMs, a scatter-gather scan,
+ * and adding a fifth in-process shard, which is removed again before every invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShardedTaskServiceBenchmark {
+
+    // Number of tasks in each service. The loopback shards are filled one round trip per task, which would
+    // take minutes for a million tasks.
+    @Param({"1000", "100000"})
+    public int size;
+
+    private Supplier<Object> addAndDeleteSingle;
+    private Supplier<Object> addAndDeleteLocal;
+    private Supplier<Object> addAndDeleteRemote;
+    private Supplier<Object> lookupSingle;
+    private Supplier<Object> lookupLocal;
+    private Supplier<Object> lookupRemote;
+    private Supplier<Object> scan;
+    private Supplier<Object> addShard;
+    private Supplier<Object> removeShard;
+    private Supplier<Object> close;
+
+    @Setup
+    public void setUp() {
+        Map<String, Supplier<Object>> operations = Workloads.load("ShardedTaskServiceWorkload", size);
+        addAndDeleteSingle = operations.get("addAndDeleteSingle");
+        addAndDeleteLocal = operations.get("addAndDeleteLocal");
+        addAndDeleteRemote = operations.get("addAndDeleteRemote");
+        lookupSingle = operations.get("lookupSingle");
+        lookupLocal = operations.get("lookupLocal");
+        lookupRemote = operations.get("lookupRemote");
+        scan = operations.get("scan");
+        addShard = operations.get("addShard");
+        removeShard = operations.get("removeShard");
+        close = operations.get("close");
+    }
+
+    @Setup(Level.Invocation)
+    public void removeShard() {
+        removeShard.get();
+    }
+
+    @TearDown
+    public void tearDown() {
+        close.get();
+    }
+
+    @Benchmark
+    public Object addAndDeleteSingle() {
+        return addAndDeleteSingle.get();
+    }
+
+    @Benchmark
+    public Object addAndDeleteLocal() {
+        return addAndDeleteLocal.get();
+    }
+
+    @Benchmark
+    public Object addAndDeleteRemote() {
+        return addAndDeleteRemote.get();
+    }
+
+    @Benchmark
+    public Object lookupSingle() {
+        return lookupSingle.get();
+    }
+
+    @Benchmark
+    public Object lookupLocal() {
+        return lookupLocal.get();
+    }
+
+    @Benchmark
+    public Object lookupRemote() {
+        return lookupRemote.get();
+    }
+
+    @Benchmark
+    public Object scan() {
+        return scan.get();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public Object addShard() {
+        return addShard.get();
+    }
+}
@@ -0,0 +1,57 @@
+package managesuite.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for the cost of change events on TaskService writes, driven by TaskChangeEventsWorkload:
+ * a burst of 4,096 adds and deletes with nobody subscribed, and with one subscriber, which catches up
+ * before every burst.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskChangeEventsBenchmark {
+
+    private Supplier<Object> idleBurst;
+    private Supplier<Object> subscribedBurst;
+    private Supplier<Object> catchUp;
+
+    @Setup
+    public void setUp() {
+        Map<String, Supplier<Object>> operations = Workloads.load("TaskChangeEventsWorkload", 0);
+        idleBurst = operations.get("idleBurst");
+        subscribedBurst = operations.get("subscribedBurst");
+        catchUp = operations.get("catchUp");
+    }
+
+    @Setup(Level.Invocation)
+    public void catchUp() {
+        catchUp.get();
+    }
+
+    @Benchmark
+    public Object idleBurst() {
+        return idleBurst.get();
+    }
+
+    @Benchmark
+    public Object subscribedBurst() {
+        return subscribedBurst.get();
+    }
+}
@@ -0,0 +1,71 @@
+package managesuite.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for TaskService throughput as the number of threads sharing it grows, driven by
+ * TaskConcurrencyWorkload: a mix of name and description updates and scratch adds and deletes, from 1, 2, 4,
+ * 8 and 16 threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskConcurrencyBenchmark {
+
+    // Number of tasks in the shared service
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private Supplier<Object> mixed;
+
+    @Setup
+    public void setUp() {
+        mixed = Workloads.load("TaskConcurrencyWorkload", size).get("mixed");
+    }
+
+    @Benchmark
+    public Object mixed() {
+        return mixed.get();
+    }
+
+    @Benchmark
+    @Threads(2)
+    public Object mixed2Threads() {
+        return mixed.get();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object mixed4Threads() {
+        return mixed.get();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object mixed8Threads() {
+        return mixed.get();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Object mixed16Threads() {
+        return mixed.get();
+    }
+}
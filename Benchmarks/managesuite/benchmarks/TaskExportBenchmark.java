@@ -0,0 +1,90 @@
+package managesuite.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for bulk export and import of tasks, driven by TaskExportWorkload: exportTo() and
+ * importFrom(), plain and compressed, against a text dump written with a BufferedWriter and read back
+ * through addAll().
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskExportBenchmark {
+
+    // Number of tasks exported and imported.
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private Supplier<Object> exportBinary;
+    private Supplier<Object> exportCompressed;
+    private Supplier<Object> exportText;
+    private Supplier<Object> importBinary;
+    private Supplier<Object> importCompressed;
+    private Supplier<Object> importText;
+    private Supplier<Object> close;
+
+    @Setup
+    public void setUp() {
+        Map<String, Supplier<Object>> operations = Workloads.load("TaskExportWorkload", size);
+        exportBinary = operations.get("exportBinary");
+        exportCompressed = operations.get("exportCompressed");
+        exportText = operations.get("exportText");
+        importBinary = operations.get("importBinary");
+        importCompressed = operations.get("importCompressed");
+        importText = operations.get("importText");
+        close = operations.get("close");
+    }
+
+    @TearDown
+    public void tearDown() {
+        close.get();
+    }
+
+    @Benchmark
+    public Object exportBinary() {
+        return exportBinary.get();
+    }
+
+    @Benchmark
+    public Object exportCompressed() {
+        return exportCompressed.get();
+    }
+
+    @Benchmark
+    public Object exportText() {
+        return exportText.get();
+    }
+
+    @Benchmark
+    public Object importBinary() {
+        return importBinary.get();
+    }
+
+    @Benchmark
+    public Object importCompressed() {
+        return importCompressed.get();
+    }
+
+    @Benchmark
+    public Object importText() {
+        return importText.get();
+    }
+}
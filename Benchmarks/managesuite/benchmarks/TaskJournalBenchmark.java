@@ -0,0 +1,97 @@
+package managesuite.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for a durable TaskService, driven by TaskJournalWorkload: synced updates from 1, 8 and 64
+ * threads, which share fsyncs, a synced batch of 1,000 adds and deletes, and reopening a store from its log
+ * alone and from a snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskJournalBenchmark {
+
+    // Number of tasks in each store.
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private Supplier<Object> update;
+    private Supplier<Object> batch;
+    private Supplier<Object> reopenFromLog;
+    private Supplier<Object> reopenFromSnapshot;
+    private Supplier<Object> close;
+
+    @Setup
+    public void setUp() {
+        Map<String, Supplier<Object>> operations = Workloads.load("TaskJournalWorkload", size);
+        update = operations.get("update");
+        batch = operations.get("batch");
+        reopenFromLog = operations.get("reopenFromLog");
+        reopenFromSnapshot = operations.get("reopenFromSnapshot");
+        close = operations.get("close");
+    }
+
+    @TearDown
+    public void tearDown() {
+        close.get();
+    }
+
+    @Benchmark
+    public Object update() {
+        return update.get();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object update8Threads() {
+        return update.get();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Object update64Threads() {
+        return update.get();
+    }
+
+    @Benchmark
+    public Object batch() {
+        return batch.get();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public Object reopenFromLog() {
+        return reopenFromLog.get();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public Object reopenFromSnapshot() {
+        return reopenFromSnapshot.get();
+    }
+}
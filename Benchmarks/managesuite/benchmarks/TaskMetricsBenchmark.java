@@ -0,0 +1,60 @@
+package managesuite.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for the cost of operation metrics, driven by TaskMetricsWorkload: TaskService.getTask()
+ * with calls counted only, with one call in 16 timed and with every call timed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskMetricsBenchmark {
+
+    // Number of tasks in each service.
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private Supplier<Object> lookupCounted;
+    private Supplier<Object> lookupSampled;
+    private Supplier<Object> lookupTimed;
+
+    @Setup
+    public void setUp() {
+        Map<String, Supplier<Object>> operations = Workloads.load("TaskMetricsWorkload", size);
+        lookupCounted = operations.get("lookupCounted");
+        lookupSampled = operations.get("lookupSampled");
+        lookupTimed = operations.get("lookupTimed");
+    }
+
+    @Benchmark
+    public Object lookupCounted() {
+        return lookupCounted.get();
+    }
+
+    @Benchmark
+    public Object lookupSampled() {
+        return lookupSampled.get();
+    }
+
+    @Benchmark
+    public Object lookupTimed() {
+        return lookupTimed.get();
+    }
+}
@@ -0,0 +1,66 @@
+package managesuite.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for the TaskService operations, driven by TaskWorkload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskOperationsBenchmark {
+
+    // Number of tasks stored in the service while measuring.
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private Supplier<Object> addAndDelete;
+    private Supplier<Object> lookup;
+    private Supplier<Object> updateName;
+    private Supplier<Object> updateDescription;
+
+    @Setup
+    public void setUp() {
+        Map<String, Supplier<Object>> operations = Workloads.load("TaskWorkload", size);
+        addAndDelete = operations.get("addAndDelete");
+        lookup = operations.get("lookup");
+        updateName = operations.get("updateName");
+        updateDescription = operations.get("updateDescription");
+    }
+
+    @Benchmark
+    public Object addAndDelete() {
+        return addAndDelete.get();
+    }
+
+    @Benchmark
+    public Object lookup() {
+        return lookup.get();
+    }
+
+    @Benchmark
+    public Object updateName() {
+        return updateName.get();
+    }
+
+    @Benchmark
+    public Object updateDescription() {
+        return updateDescription.get();
+    }
+}
@@ -0,0 +1,71 @@
+package managesuite.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for word search over tasks, driven by TaskSearchWorkload: a two-word search() against a
+ * full scan with String.contains, building the word index, and a rename that reindexes one task.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskSearchBenchmark {
+
+    // Number of tasks in the service.
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private Supplier<Object> search;
+    private Supplier<Object> fullScan;
+    private Supplier<Object> buildIndex;
+    private Supplier<Object> updateName;
+
+    @Setup
+    public void setUp() {
+        Map<String, Supplier<Object>> operations = Workloads.load("TaskSearchWorkload", size);
+        search = operations.get("search");
+        fullScan = operations.get("fullScan");
+        buildIndex = operations.get("buildIndex");
+        updateName = operations.get("updateName");
+    }
+
+    @Benchmark
+    public Object search() {
+        return search.get();
+    }
+
+    @Benchmark
+    public Object fullScan() {
+        return fullScan.get();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public Object buildIndex() {
+        return buildIndex.get();
+    }
+
+    @Benchmark
+    public Object updateName() {
+        return updateName.get();
+    }
+}
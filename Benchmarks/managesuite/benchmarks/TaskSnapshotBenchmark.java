@@ -0,0 +1,74 @@
+package managesuite.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for point-in-time views of all tasks, driven by TaskSnapshotWorkload: copying the task map
+ * against taking and iterating a snapshot, and renames on a plain service against one recording versions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskSnapshotBenchmark {
+
+    // Number of tasks in each service.
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private Supplier<Object> copyMap;
+    private Supplier<Object> snapshot;
+    private Supplier<Object> iterateSnapshot;
+    private Supplier<Object> renamePlain;
+    private Supplier<Object> renameVersioned;
+
+    @Setup
+    public void setUp() {
+        Map<String, Supplier<Object>> operations = Workloads.load("TaskSnapshotWorkload", size);
+        copyMap = operations.get("copyMap");
+        snapshot = operations.get("snapshot");
+        iterateSnapshot = operations.get("iterateSnapshot");
+        renamePlain = operations.get("renamePlain");
+        renameVersioned = operations.get("renameVersioned");
+    }
+
+    @Benchmark
+    public Object copyMap() {
+        return copyMap.get();
+    }
+
+    @Benchmark
+    public Object snapshot() {
+        return snapshot.get();
+    }
+
+    @Benchmark
+    public Object iterateSnapshot() {
+        return iterateSnapshot.get();
+    }
+
+    @Benchmark
+    public Object renamePlain() {
+        return renamePlain.get();
+    }
+
+    @Benchmark
+    public Object renameVersioned() {
+        return renameVersioned.get();
+    }
+}
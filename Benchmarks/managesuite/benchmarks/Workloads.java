@@ -0,0 +1,34 @@
+package managesuite.benchmarks;
+
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Loads the benchmark workloads that drive the services.
+ * JMH only accepts benchmark classes in a named package, while the services live in the default package,
+ * which a named package cannot import. Each workload is therefore a default-package class implementing
+ * IntFunction, loaded by name, and its operations are called through monomorphic Supplier call sites.
+ */
+final class Workloads {
+
+    private Workloads() {
+    }
+
+    /**
+     * Instantiates a workload and prepares its dataset.
+     * @param className The default-package workload class, for example "TaskWorkload".
+     * @param size The dataset size passed to the workload.
+     * @return The workload operations by name.
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Supplier<Object>> load(String className, int size) {
+        try {
+            IntFunction<Map<String, Supplier<Object>>> workload = (IntFunction<Map<String, Supplier<Object>>>)
+                    Class.forName(className).getDeclaredConstructor().newInstance();
+            return workload.apply(size);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot load benchmark workload " + className, e);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+#!/bin/sh
+# Compiles the services together with the JMH benchmarks and runs them with the GC profiler.
+# JMH_LIB must point to a directory holding the jmh-core, jmh-generator-annprocess,
+# jopt-simple and commons-math3 jars.
+#
+# Usage: JMH_LIB=~/jmh ./Benchmarks/run-benchmarks.sh [JMH options, e.g. TaskOperations -p size=1000]
+# Results are written to Benchmarks/results.csv; compare them against the baseline with
+#   java -cp Benchmarks/target BenchmarkComparison Benchmarks/baseline/results.csv Benchmarks/results.csv
+set -e
+cd "$(dirname "$0")/.."
+OUT=Benchmarks/target
+rm -rf "$OUT"
+mkdir -p "$OUT"
+CP=$(ls "$JMH_LIB"/*.jar | tr '\n' ':')
+SOURCES=$(ls Common/*.java TaskService/*.java ContactService/*.java AppointmentService/*.java Benchmarks/*.java Benchmarks/managesuite/benchmarks/*.java | grep -v 'Test\.java$')
+javac -cp "$CP" -d "$OUT" $SOURCES
+java -cp "$OUT:$CP" org.openjdk.jmh.Main -prof gc -rf csv -rff Benchmarks/results.csv "$@"
@@ -0,0 +1,133 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Per-item report for a batch operation on one of the services.
+ * Instead of aborting on the first invalid item, a batch records every rejected item
+ * together with its position in the batch and the reason it was rejected.
+ */
+public final class BatchResult {
+    // Number of items submitted in the batch.
+    private final int size;
+    // Rejected items, in the order they were detected.
+    private final List<Failure> failures = new ArrayList<>();
+    // False when an all-or-nothing batch was rejected as a whole.
+    private boolean applied = true;
+
+    /**
+     * Creates an empty report for a batch of the given size.
+     * @param size The number of items in the batch.
+     */
+    BatchResult(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Records that an item was rejected.
+     * @param index The position of the item in the batch.
+     * @param id The ID of the item, or null if it has none.
+     * @param reason Why the item was rejected.
+     */
+    void reject(int index, String id, String reason) {
+        failures.add(new Failure(index, id, reason));
+    }
+
+    /**
+     * Marks an all-or-nothing batch as not applied, because at least one item was rejected.
+     */
+    void rollBack() {
+        applied = false;
+    }
+
+    /**
+     * Returns the number of items submitted in the batch.
+     * @return The batch size.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of items that were applied to the service.
+     * @return The number of applied items; zero if the batch was rolled back.
+     */
+    public int succeeded() {
+        return applied ? size - failures.size() : 0;
+    }
+
+    /**
+     * Returns whether any item in the batch was rejected.
+     * @return True if at least one item failed.
+     */
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    /**
+     * Returns whether the accepted items were applied.
+     * Only an all-or-nothing batch containing a rejected item is not applied.
+     * @return False if the whole batch was rolled back.
+     */
+    public boolean isApplied() {
+        return applied;
+    }
+
+    /**
+     * Returns the rejected items in the order they were detected.
+     * @return An unmodifiable list of failures.
+     */
+    public List<Failure> getFailures() {
+        return Collections.unmodifiableList(failures);
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult[size=" + size + ", succeeded=" + succeeded() + ", failed=" + failures.size()
+                + (applied ? "" : ", rolled back") + "]";
+    }
+
+    /**
+     * A single rejected item within a batch.
+     */
+    public static final class Failure {
+        private final int index;
+        private final String id;
+        private final String reason;
+
+        Failure(int index, String id, String reason) {
+            this.index = index;
+            this.id = id;
+            this.reason = reason;
+        }
+
+        /**
+         * Returns the position of the rejected item in the batch.
+         * @return The zero-based batch index.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Returns the ID of the rejected item.
+         * @return The item ID, or null if the item had none.
+         */
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * Returns why the item was rejected.
+         * @return The rejection reason.
+         */
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + index + " (" + id + "): " + reason;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the BatchResult class.
+ * Verifies the success and failure counts reported for applied and rolled back batches.
+ */
+public class BatchResultTest {
+
+    /**
+     * Tests that rejected items are counted and kept with their index, ID and reason.
+     */
+    @Test
+    public void testRejectedItemsAreReported() {
+        BatchResult result = new BatchResult(3);
+        result.reject(1, "ID1", "Invalid");
+
+        assertTrue("Result should report failures.", result.hasFailures());
+        assertTrue("A non-atomic batch is applied.", result.isApplied());
+        assertEquals("Two of three items should succeed.", 2, result.succeeded());
+        assertEquals(1, result.getFailures().get(0).getIndex());
+        assertEquals("ID1", result.getFailures().get(0).getId());
+        assertEquals("Invalid", result.getFailures().get(0).getReason());
+    }
+
+    /**
+     * Tests that a rolled back batch reports no successful items.
+     */
+    @Test
+    public void testRolledBackBatchHasNoSuccesses() {
+        BatchResult result = new BatchResult(3);
+        result.reject(0, null, "Null item");
+        result.rollBack();
+
+        assertFalse("Rolled back batch should not be applied.", result.isApplied());
+        assertEquals("Rolled back batch should have no successes.", 0, result.succeeded());
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * A single change to one of the services: an item was added, updated or deleted.
+ * Events are numbered by their ChangePublisher in the order the changes were applied.
+ *
+ * @param <T> The type of item the service stores.
+ */
+public final class ChangeEvent<T> {
+
+    /**
+     * The kind of change.
+     */
+    public enum Type {
+        ADDED, UPDATED, DELETED
+    }
+
+    private final long sequence;
+    private final Type type;
+    private final String id;
+    private final T value;
+
+    ChangeEvent(long sequence, Type type, String id, T value) {
+        this.sequence = sequence;
+        this.type = type;
+        this.id = id;
+        this.value = value;
+    }
+
+    /**
+     * Returns the position of the event in its publisher's stream.
+     * @return The sequence number, starting at 1; a consumer resumes after the last number it processed.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns the kind of change.
+     * @return Whether the item was added, updated or deleted.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the ID of the changed item.
+     * @return The item ID.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Returns the changed item: the stored item after an add or update, the removed item after a delete.
+     * The item is a snapshot taken when the change was published, so it does not show any later changes.
+     * @return The item.
+     */
+    public T getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + sequence + " " + type + " " + id;
+    }
+}
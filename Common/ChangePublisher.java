@@ -0,0 +1,284 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * Publishes the changes made to a service as a stream of ChangeEvent batches.
+ *
+ * Events are numbered and kept in one bounded ring shared by all subscribers. Each subscriber reads the
+ * ring at its own pace: it receives a batch of up to maxBatch consecutive events per requested item,
+ * delivered on the publisher's executor, so writers never wait for a consumer. A subscriber that falls so
+ * far behind that its next event has been overwritten receives onError and must rebuild its view.
+ * A subscriber that keeps the sequence number of the last event it processed can subscribe again from
+ * the next number, and receives every retained event from there on.
+ *
+ * Until the first subscriber arrives no events are recorded, and publishing costs one volatile read.
+ * After that, events are retained even while nobody is subscribed, so consumers can resume.
+ *
+ * An event holds a snapshot of the item taken when the change is published, made by the function the service
+ * passes in, so later changes to the stored item do not show through events already published.
+ * A subscriber whose onNext throws is cancelled and receives the exception through onError.
+ *
+ * @param <T> The type of item the service stores.
+ */
+public final class ChangePublisher<T> implements Flow.Publisher<List<ChangeEvent<T>>> {
+    // Default number of events retained for subscribers that lag behind or resume.
+    static final int DEFAULT_CAPACITY = 8192;
+    // Default largest number of events delivered in one onNext call.
+    static final int DEFAULT_MAX_BATCH = 256;
+
+    private final Executor executor;
+    private final ChangeEvent<T>[] ring;
+    private final int mask;
+    private final int maxBatch;
+    // Copies an item into the value of its event.
+    private final UnaryOperator<T> snapshot;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    // Sequence number of the last published event; guarded by this publisher.
+    private long lastSequence;
+    // Set by the first subscriber; events are only recorded from then on.
+    private volatile boolean active;
+
+    /**
+     * Creates a publisher of immutable items that delivers on the common fork-join pool.
+     */
+    ChangePublisher() {
+        this(UnaryOperator.identity());
+    }
+
+    /**
+     * Creates a publisher that delivers on the common fork-join pool.
+     * @param snapshot Returns a copy of an item that later changes to the item do not affect.
+     */
+    ChangePublisher(UnaryOperator<T> snapshot) {
+        this(ForkJoinPool.commonPool(), DEFAULT_CAPACITY, DEFAULT_MAX_BATCH, snapshot);
+    }
+
+    /**
+     * Creates a publisher of immutable items.
+     * @param executor Runs the deliveries to subscribers.
+     * @param capacity The number of events retained, rounded up to a power of two.
+     * @param maxBatch The largest number of events delivered in one onNext call.
+     */
+    ChangePublisher(Executor executor, int capacity, int maxBatch) {
+        this(executor, capacity, maxBatch, UnaryOperator.identity());
+    }
+
+    /**
+     * Creates a publisher.
+     * @param executor Runs the deliveries to subscribers.
+     * @param capacity The number of events retained, rounded up to a power of two.
+     * @param maxBatch The largest number of events delivered in one onNext call.
+     * @param snapshot Returns a copy of an item that later changes to the item do not affect.
+     */
+    @SuppressWarnings("unchecked")
+    ChangePublisher(Executor executor, int capacity, int maxBatch, UnaryOperator<T> snapshot) {
+        if (executor == null || capacity <= 0 || maxBatch <= 0 || snapshot == null) {
+            throw new IllegalArgumentException("Executor and snapshot must be non-null and capacity and batch size must be positive");
+        }
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.executor = executor;
+        this.ring = (ChangeEvent<T>[]) new ChangeEvent<?>[size];
+        this.mask = size - 1;
+        this.maxBatch = maxBatch;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Subscribes to the events published from now on.
+     * @param subscriber The subscriber, which receives batches of consecutive events.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super List<ChangeEvent<T>>> subscriber) {
+        long next;
+        synchronized (this) {
+            next = lastSequence + 1;
+        }
+        subscribe(subscriber, next);
+    }
+
+    /**
+     * Subscribes to the events from a given sequence number on, replaying the retained events before now.
+     * If events from that number on are no longer retained, the subscriber receives onError.
+     *
+     * @param subscriber The subscriber, which receives batches of consecutive events.
+     * @param fromSequence The sequence number of the first event to receive.
+     * @throws IllegalArgumentException if the subscriber is null.
+     */
+    public void subscribe(Flow.Subscriber<? super List<ChangeEvent<T>>> subscriber, long fromSequence) {
+        if (subscriber == null) {
+            throw new IllegalArgumentException("Subscriber must be non-null");
+        }
+        Subscription subscription = new Subscription(subscriber, Math.max(1, fromSequence));
+        synchronized (this) {
+            active = true;
+            subscriptions.add(subscription);
+        }
+        subscriber.onSubscribe(subscription);
+        subscription.signal();
+    }
+
+    /**
+     * Returns the sequence number of the last published event.
+     * @return The last sequence number, or 0 if nothing has been published since the first subscriber arrived.
+     */
+    public synchronized long getSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Returns the number of current subscribers.
+     * @return The number of subscriptions that are not cancelled or failed.
+     */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Returns whether events are being recorded, which is the case once anyone has subscribed.
+     * Services use this to skip the work of reporting a change while nobody has ever listened.
+     */
+    boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Records a change and wakes up the subscribers. Does nothing until the first subscriber arrives.
+     * Callers publish while still holding whatever lock orders their changes, so events are numbered in that order.
+     *
+     * @param type The kind of change.
+     * @param id The ID of the changed item.
+     * @param value The changed item, of which the event keeps a snapshot.
+     */
+    void publish(ChangeEvent.Type type, String id, T value) {
+        if (!active) {
+            return;
+        }
+        T copy = value == null ? null : snapshot.apply(value);
+        synchronized (this) {
+            long sequence = ++lastSequence;
+            ring[(int) sequence & mask] = new ChangeEvent<>(sequence, type, id, copy);
+        }
+        for (Subscription subscription : subscriptions) {
+            subscription.signal();
+        }
+    }
+
+    /**
+     * Copies up to maxBatch retained events starting at a sequence number.
+     * @return The events; empty if none are available yet, or null if the first one has been overwritten.
+     */
+    private synchronized List<ChangeEvent<T>> read(long from) {
+        if (from <= lastSequence - ring.length) {
+            return null;
+        }
+        int count = (int) Math.min(maxBatch, lastSequence - from + 1);
+        if (count <= 0) {
+            return Collections.emptyList();
+        }
+        List<ChangeEvent<T>> batch = new ArrayList<>(count);
+        for (long sequence = from; sequence < from + count; sequence++) {
+            batch.add(ring[(int) sequence & mask]);
+        }
+        return batch;
+    }
+
+    /**
+     * One subscriber's position in the stream and its outstanding demand, counted in batches.
+     * Deliveries run on the executor, at most one at a time per subscription.
+     */
+    private final class Subscription implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super List<ChangeEvent<T>>> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        // Counts signals since the running delivery started; a delivery is scheduled when it goes up from zero.
+        private final AtomicInteger pending = new AtomicInteger();
+        // Sequence number of the next event to deliver; only touched by the running delivery.
+        private long next;
+        private volatile boolean done;
+        private volatile Throwable invalidRequest;
+
+        Subscription(Flow.Subscriber<? super List<ChangeEvent<T>>> subscriber, long next) {
+            this.subscriber = subscriber;
+            this.next = next;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Requested batches must be positive");
+            } else {
+                // Saturate at Long.MAX_VALUE, which means unbounded demand
+                demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            done = true;
+            subscriptions.remove(this);
+        }
+
+        void signal() {
+            if (pending.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            while (true) {
+                deliver();
+                missed = pending.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        // Sends batches while there is demand and there are events to send.
+        private void deliver() {
+            while (!done) {
+                if (invalidRequest != null) {
+                    fail(invalidRequest);
+                    return;
+                }
+                if (demand.get() == 0) {
+                    return;
+                }
+                List<ChangeEvent<T>> batch = read(next);
+                if (batch == null) {
+                    fail(new IllegalStateException("Subscriber fell behind; events from sequence " + next + " are no longer retained"));
+                    return;
+                }
+                if (batch.isEmpty()) {
+                    return;
+                }
+                next += batch.size();
+                if (demand.get() != Long.MAX_VALUE) {
+                    demand.decrementAndGet();
+                }
+                try {
+                    subscriber.onNext(batch);
+                } catch (RuntimeException e) {
+                    // The subscriber is broken; it is told why instead of being dropped silently
+                    fail(e);
+                    return;
+                }
+            }
+        }
+
+        private void fail(Throwable error) {
+            cancel();
+            subscriber.onError(error);
+        }
+    }
+}
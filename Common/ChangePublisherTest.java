@@ -0,0 +1,230 @@
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the ChangePublisher class.
+ * Deliveries run on an executor that only queues them, so each test decides when they happen.
+ */
+public class ChangePublisherTest {
+    // Deliveries waiting to run.
+    private final List<Runnable> queued = new ArrayList<>();
+
+    /**
+     * Subscriber that records everything it receives.
+     */
+    private static class Recorder implements Flow.Subscriber<List<ChangeEvent<String>>> {
+        final List<List<ChangeEvent<String>>> batches = new ArrayList<>();
+        Flow.Subscription subscription;
+        Throwable error;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(List<ChangeEvent<String>> batch) {
+            batches.add(batch);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+        }
+
+        List<Long> sequences() {
+            List<Long> sequences = new ArrayList<>();
+            for (List<ChangeEvent<String>> batch : batches) {
+                for (ChangeEvent<String> event : batch) {
+                    sequences.add(event.getSequence());
+                }
+            }
+            return sequences;
+        }
+    }
+
+    private ChangePublisher<String> publisher(int capacity, int maxBatch) {
+        return new ChangePublisher<>(queued::add, capacity, maxBatch);
+    }
+
+    private void runQueued() {
+        while (!queued.isEmpty()) {
+            queued.remove(0).run();
+        }
+    }
+
+    private static void publish(ChangePublisher<String> publisher, int count) {
+        for (int i = 0; i < count; i++) {
+            publisher.publish(ChangeEvent.Type.ADDED, "ID" + i, "Value" + i);
+        }
+    }
+
+    /**
+     * Tests that nothing is recorded before the first subscriber, and events are numbered from then on.
+     */
+    @Test
+    public void testIdleUntilSubscribed() {
+        ChangePublisher<String> publisher = publisher(16, 4);
+        publish(publisher, 3);
+        assertFalse(publisher.isActive());
+        assertEquals(0, publisher.getSequence());
+
+        Recorder recorder = new Recorder();
+        publisher.subscribe(recorder);
+        recorder.subscription.request(Long.MAX_VALUE);
+        publisher.publish(ChangeEvent.Type.UPDATED, "ID1", "Changed");
+        runQueued();
+        assertEquals(1, publisher.getSequence());
+        ChangeEvent<String> event = recorder.batches.get(0).get(0);
+        assertEquals(ChangeEvent.Type.UPDATED, event.getType());
+        assertEquals("ID1", event.getId());
+        assertEquals("Changed", event.getValue());
+    }
+
+    /**
+     * Tests that each requested item is one batch of at most the batch size, and nothing more is sent.
+     */
+    @Test
+    public void testBatchesFollowDemand() {
+        ChangePublisher<String> publisher = publisher(16, 4);
+        Recorder recorder = new Recorder();
+        publisher.subscribe(recorder);
+        publish(publisher, 10);
+        runQueued();
+        assertTrue("Nothing is sent without demand.", recorder.batches.isEmpty());
+
+        recorder.subscription.request(1);
+        runQueued();
+        assertEquals(1, recorder.batches.size());
+        assertEquals(4, recorder.batches.get(0).size());
+
+        recorder.subscription.request(5);
+        runQueued();
+        assertEquals(3, recorder.batches.size());
+        assertEquals(2, recorder.batches.get(2).size());
+        List<Long> expected = new ArrayList<>();
+        for (long sequence = 1; sequence <= 10; sequence++) {
+            expected.add(sequence);
+        }
+        assertEquals(expected, recorder.sequences());
+
+        // The remaining demand is used as soon as new events arrive
+        publish(publisher, 1);
+        runQueued();
+        assertEquals(4, recorder.batches.size());
+    }
+
+    /**
+     * Tests that a subscriber can resume from a sequence number, including while nobody else is subscribed.
+     */
+    @Test
+    public void testResumeFromSequence() {
+        ChangePublisher<String> publisher = publisher(16, 100);
+        Recorder first = new Recorder();
+        publisher.subscribe(first);
+        first.subscription.cancel();
+        assertEquals(0, publisher.getSubscriberCount());
+        publish(publisher, 5);
+
+        Recorder resumed = new Recorder();
+        publisher.subscribe(resumed, 3);
+        resumed.subscription.request(Long.MAX_VALUE);
+        runQueued();
+        assertEquals(3L, (long) resumed.sequences().get(0));
+        assertEquals(3, resumed.sequences().size());
+        assertTrue(first.batches.isEmpty());
+    }
+
+    /**
+     * Tests that a subscriber whose next event has been overwritten fails instead of missing events.
+     */
+    @Test
+    public void testFallingBehindFails() {
+        ChangePublisher<String> publisher = publisher(4, 2);
+        Recorder recorder = new Recorder();
+        publisher.subscribe(recorder);
+        publish(publisher, 10);
+        recorder.subscription.request(1);
+        runQueued();
+        assertTrue(recorder.error instanceof IllegalStateException);
+        assertTrue(recorder.batches.isEmpty());
+        assertEquals(0, publisher.getSubscriberCount());
+
+        Recorder late = new Recorder();
+        publisher.subscribe(late, 2);
+        late.subscription.request(1);
+        runQueued();
+        assertTrue("Events before the retained ones cannot be replayed.", late.error instanceof IllegalStateException);
+    }
+
+    /**
+     * Tests that events hold the snapshot taken when they were published, and that nothing is copied while idle.
+     */
+    @Test
+    public void testEventsHoldSnapshots() {
+        List<String> copied = new ArrayList<>();
+        ChangePublisher<String> publisher = new ChangePublisher<>(queued::add, 16, 4, value -> {
+            copied.add(value);
+            return new String(value);
+        });
+        String value = "Value";
+        publisher.publish(ChangeEvent.Type.ADDED, "ID0", value);
+        assertTrue("Nothing is copied before the first subscriber.", copied.isEmpty());
+
+        Recorder recorder = new Recorder();
+        publisher.subscribe(recorder);
+        recorder.subscription.request(Long.MAX_VALUE);
+        publisher.publish(ChangeEvent.Type.UPDATED, "ID0", value);
+        publisher.publish(ChangeEvent.Type.DELETED, "ID0", null);
+        runQueued();
+        ChangeEvent<String> event = recorder.batches.get(0).get(0);
+        assertEquals(value, event.getValue());
+        assertNotSame("The event should hold the snapshot.", value, event.getValue());
+        assertNull(recorder.batches.get(0).get(1).getValue());
+        assertEquals(1, copied.size());
+    }
+
+    /**
+     * Tests that a subscriber whose onNext throws is cancelled and told why through onError.
+     */
+    @Test
+    public void testThrowingSubscriberFails() {
+        ChangePublisher<String> publisher = publisher(16, 1);
+        IllegalStateException thrown = new IllegalStateException("Consumer failed");
+        Recorder recorder = new Recorder() {
+            @Override
+            public void onNext(List<ChangeEvent<String>> batch) {
+                super.onNext(batch);
+                throw thrown;
+            }
+        };
+        publisher.subscribe(recorder);
+        recorder.subscription.request(Long.MAX_VALUE);
+        publish(publisher, 3);
+        runQueued();
+        assertSame(thrown, recorder.error);
+        assertEquals("No events should follow the failure.", 1, recorder.batches.size());
+        assertEquals(0, publisher.getSubscriberCount());
+    }
+
+    /**
+     * Tests that a request for no items is reported to the subscriber as an error.
+     */
+    @Test
+    public void testNonPositiveRequestFails() {
+        ChangePublisher<String> publisher = publisher(4, 2);
+        Recorder recorder = new Recorder();
+        publisher.subscribe(recorder);
+        recorder.subscription.request(0);
+        runQueued();
+        assertTrue(recorder.error instanceof IllegalArgumentException);
+        assertEquals(0, publisher.getSubscriberCount());
+    }
+}
@@ -0,0 +1,167 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Consistent hash ring that assigns string keys, such as entity IDs, to named shards.
+ *
+ * Each shard is placed on a ring of 64-bit hash values at a number of pseudo-random points, its virtual
+ * nodes, derived from the shard's name. A key belongs to the shard owning the first point at or after the
+ * key's hash, wrapping around. Adding a shard therefore takes over only the keys that fall just before its
+ * own points, about 1/N of all keys, and every moved key moves to the new shard; removing a shard hands
+ * its keys to the shards that follow its points and moves nothing else. Many virtual nodes per shard keep
+ * the shares even.
+ *
+ * Hashes depend only on the strings, so every process with the same shard names routes keys the same way.
+ * Lookups are a binary search over a sorted array. Not thread-safe; callers that change the ring while
+ * others look up keys must synchronize.
+ *
+ * @param <S> The type of shard.
+ */
+public final class ConsistentHashRing<S> {
+    // Default number of points per shard, which keeps shard sizes within a few percent of each other.
+    static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    private final int virtualNodes;
+    private final Map<String, S> shards = new LinkedHashMap<>();
+    // Sorted ring positions and the name of the shard at each one.
+    private long[] points = new long[0];
+    private String[] owners = new String[0];
+
+    /**
+     * Creates an empty ring with the default number of virtual nodes per shard.
+     */
+    public ConsistentHashRing() {
+        this(DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * Creates an empty ring.
+     * @param virtualNodes The number of points each shard is placed at.
+     * @throws IllegalArgumentException if the number is not positive.
+     */
+    public ConsistentHashRing(int virtualNodes) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("Virtual nodes must be positive");
+        }
+        this.virtualNodes = virtualNodes;
+    }
+
+    /**
+     * Adds a shard to the ring.
+     * @param name The shard's name, which decides its positions on the ring.
+     * @param shard The shard.
+     * @throws IllegalArgumentException if the name or shard is null, or the name is already taken.
+     */
+    public void addShard(String name, S shard) {
+        if (name == null || shard == null || shards.containsKey(name)) {
+            throw new IllegalArgumentException("Shard name must be unique and shard must be non-null");
+        }
+        shards.put(name, shard);
+        rebuild();
+    }
+
+    /**
+     * Removes a shard from the ring; its keys now belong to the shards that follow its points.
+     * @param name The shard's name.
+     * @return The removed shard.
+     * @throws IllegalArgumentException if there is no shard with that name.
+     */
+    public S removeShard(String name) {
+        S removed = name == null ? null : shards.remove(name);
+        if (removed == null) {
+            throw new IllegalArgumentException("Shard does not exist");
+        }
+        rebuild();
+        return removed;
+    }
+
+    /**
+     * Returns the shard that owns a key.
+     * @param key The key, such as an entity ID.
+     * @return The owning shard.
+     * @throws IllegalStateException if the ring has no shards.
+     */
+    public S shardFor(String key) {
+        return shards.get(shardNameFor(key));
+    }
+
+    /**
+     * Returns the name of the shard that owns a key.
+     * @param key The key, such as an entity ID.
+     * @return The owning shard's name.
+     * @throws IllegalStateException if the ring has no shards.
+     */
+    public String shardNameFor(String key) {
+        if (points.length == 0) {
+            throw new IllegalStateException("Ring has no shards");
+        }
+        int index = Arrays.binarySearch(points, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    /**
+     * Returns the shards by name, in the order they were added.
+     * @return A read-only view of the shards.
+     */
+    public Map<String, S> getShards() {
+        return Collections.unmodifiableMap(shards);
+    }
+
+    /**
+     * Returns the number of shards.
+     */
+    public int size() {
+        return shards.size();
+    }
+
+    // Recomputes the sorted points of all shards. Equal points, which are vanishingly rare, go to the first name.
+    private void rebuild() {
+        int count = shards.size() * virtualNodes;
+        long[] sorted = new long[count];
+        String[] names = new String[count];
+        int i = 0;
+        for (String name : shards.keySet()) {
+            for (int node = 0; node < virtualNodes; node++) {
+                sorted[i] = hash(name + '#' + node);
+                names[i] = name;
+                i++;
+            }
+        }
+        // Sort point indexes by position, then lay out both arrays in that order
+        Integer[] order = new Integer[count];
+        for (int j = 0; j < count; j++) {
+            order[j] = j;
+        }
+        Arrays.sort(order, (a, b) -> sorted[a] != sorted[b] ? Long.compare(sorted[a], sorted[b]) : names[a].compareTo(names[b]));
+        points = new long[count];
+        owners = new String[count];
+        for (int j = 0; j < count; j++) {
+            points[j] = sorted[order[j]];
+            owners[j] = names[order[j]];
+        }
+    }
+
+    /**
+     * Hashes a string to a ring position: 64-bit FNV-1a over its UTF-8 bytes, finished with the MurmurHash3 mixer
+     * so that keys differing only in their last chars still land far apart.
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
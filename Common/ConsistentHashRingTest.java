@@ -0,0 +1,110 @@
+import org.junit.Test;
+import java.util.HashMap;
+import java.util.Map;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the ConsistentHashRing class.
+ * These tests validate that keys are spread evenly and that adding or removing a shard moves only the keys it must.
+ */
+public class ConsistentHashRingTest {
+    private static final int KEYS = 20_000;
+
+    /**
+     * Tests that every shard receives close to an equal share of the keys.
+     */
+    @Test
+    public void testKeysAreSpreadEvenly() {
+        ConsistentHashRing<String> ring = ring(4);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.shardNameFor("K" + i), 1, Integer::sum);
+        }
+        assertEquals(4, counts.size());
+        for (int count : counts.values()) {
+            assertTrue("Shard share should be within 25% of even: " + count, Math.abs(count - KEYS / 4) < KEYS / 16);
+        }
+    }
+
+    /**
+     * Tests that adding a shard moves about 1/N of the keys, all of them to the new shard.
+     */
+    @Test
+    public void testAddingShardMovesOnlyToIt() {
+        ConsistentHashRing<String> ring = ring(4);
+        String[] before = owners(ring);
+        ring.addShard("shard-4", "shard-4");
+        String[] after = owners(ring);
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            if (!before[i].equals(after[i])) {
+                assertEquals("Keys may only move to the new shard.", "shard-4", after[i]);
+                moved++;
+            }
+        }
+        assertTrue("About a fifth of the keys should move: " + moved, moved > KEYS / 7 && moved < KEYS / 4);
+    }
+
+    /**
+     * Tests that removing a shard moves only its own keys, and that the ring is back where it started.
+     */
+    @Test
+    public void testRemovingShardMovesOnlyItsKeys() {
+        ConsistentHashRing<String> ring = ring(5);
+        String[] before = owners(ring);
+        assertEquals("shard-2", ring.removeShard("shard-2"));
+        String[] after = owners(ring);
+        for (int i = 0; i < KEYS; i++) {
+            if (!before[i].equals("shard-2")) {
+                assertEquals("Keys of other shards must stay put.", before[i], after[i]);
+            }
+            assertNotEquals("shard-2", after[i]);
+        }
+        ring.addShard("shard-2", "shard-2");
+        assertArrayEquals("Routing should depend only on the shard names.", before, owners(ring));
+    }
+
+    /**
+     * Tests that duplicate names, unknown names and lookups on an empty ring are rejected.
+     */
+    @Test
+    public void testInvalidUse() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>();
+        try {
+            ring.shardFor("K1");
+            fail("An empty ring has no owner.");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+        ring.addShard("a", "a");
+        try {
+            ring.addShard("a", "again");
+            fail("Shard names must be unique.");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+        try {
+            ring.removeShard("b");
+            fail("Unknown shard.");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+        assertEquals("a", ring.shardFor("anything"));
+    }
+
+    private static ConsistentHashRing<String> ring(int shards) {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>();
+        for (int i = 0; i < shards; i++) {
+            ring.addShard("shard-" + i, "shard-" + i);
+        }
+        return ring;
+    }
+
+    private static String[] owners(ConsistentHashRing<String> ring) {
+        String[] owners = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            owners[i] = ring.shardNameFor("K" + i);
+        }
+        return owners;
+    }
+}
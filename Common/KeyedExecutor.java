@@ -0,0 +1,198 @@
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Runs service calls asynchronously, one at a time per key and concurrently across keys.
+ *
+ * A call submitted under a key starts only after every earlier call under the same key has finished,
+ * whether it succeeded or failed, so operations on one entity are applied in submission order. Only keys
+ * with calls in flight are tracked. Calls without a key run as soon as the executor picks them up.
+ * A call submitted under several keys, such as a batch, waits for the earlier calls under each of them, and
+ * later calls under any of them wait for it.
+ *
+ * The async service facades share one executor by default: virtual threads where the runtime has them,
+ * otherwise a pool of daemon platform threads.
+ */
+public final class KeyedExecutor {
+    // Size of the platform thread pool used when virtual threads are not available.
+    static final int PLATFORM_THREADS = 256;
+
+    private static ExecutorService shared;
+
+    private final Executor executor;
+    // The last call submitted under each key that has calls in flight.
+    private final Map<String, CompletableFuture<?>> tails = new ConcurrentHashMap<>();
+    // Makes each multi-key submission claim all its keys before the next one starts, so two of them sharing
+    // keys always queue in the same order under every key and never wait for each other.
+    private final ReentrantLock multiKeySubmit = new ReentrantLock();
+
+    /**
+     * Creates a keyed executor that runs calls on the given executor.
+     * @param executor The executor that runs the calls.
+     * @throws IllegalArgumentException if the executor is null.
+     */
+    public KeyedExecutor(Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor must be non-null");
+        }
+        this.executor = executor;
+    }
+
+    /**
+     * Runs a call after the earlier calls under the same key.
+     * @param key The key that orders the call, usually the ID of the entity it changes.
+     * @param call The call; a checked exception it throws completes the future exceptionally.
+     * @return A future completed with the call's result.
+     */
+    public <T> CompletableFuture<T> submit(String key, Callable<T> call) {
+        if (key == null) {
+            return submit(call);
+        }
+        CompletableFuture<T>[] submitted = newArray();
+        tails.compute(key, (k, tail) -> {
+            submitted[0] = tail == null
+                    ? CompletableFuture.supplyAsync(() -> run(call), executor)
+                    : tail.handleAsync((result, error) -> run(call), executor);
+            return submitted[0];
+        });
+        CompletableFuture<T> future = submitted[0];
+        // Stop tracking the key once its last call is done
+        future.whenComplete((result, error) -> tails.remove(key, future));
+        return future;
+    }
+
+    /**
+     * Runs a call after the earlier calls under any of the given keys, and before the later ones.
+     * @param keys The keys that order the call, usually the IDs of the entities a batch changes; null keys and
+     *             repeated keys are ignored.
+     * @param call The call; a checked exception it throws completes the future exceptionally.
+     * @return A future completed with the call's result.
+     */
+    public <T> CompletableFuture<T> submitAll(Collection<String> keys, Callable<T> call) {
+        Set<String> distinct = new LinkedHashSet<>(keys);
+        distinct.remove(null);
+        if (distinct.isEmpty()) {
+            return submit(call);
+        }
+        // Released once every earlier call under the keys is done, whether it succeeded or failed
+        CompletableFuture<Void> earlierDone = new CompletableFuture<>();
+        CompletableFuture<T> future = earlierDone.thenApplyAsync(ignored -> run(call), executor);
+        List<CompletableFuture<?>> earlier = new ArrayList<>();
+        multiKeySubmit.lock();
+        try {
+            for (String key : distinct) {
+                tails.compute(key, (k, tail) -> {
+                    if (tail != null) {
+                        earlier.add(tail);
+                    }
+                    return future;
+                });
+            }
+        } finally {
+            multiKeySubmit.unlock();
+        }
+        CompletableFuture.allOf(earlier.toArray(new CompletableFuture<?>[0]))
+                .whenComplete((result, error) -> earlierDone.complete(null));
+        future.whenComplete((result, error) -> {
+            for (String key : distinct) {
+                tails.remove(key, future);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Runs a call that is not ordered with any other.
+     * @param call The call; a checked exception it throws completes the future exceptionally.
+     * @return A future completed with the call's result.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> call) {
+        return CompletableFuture.supplyAsync(() -> run(call), executor);
+    }
+
+    /**
+     * Returns the keys of a batch's items, for submitAll(); a null item has a null key.
+     */
+    static <T> List<String> keysOf(Collection<T> items, Function<T, String> keyOf) {
+        List<String> keys = new ArrayList<>(items.size());
+        for (T item : items) {
+            keys.add(item == null ? null : keyOf.apply(item));
+        }
+        return keys;
+    }
+
+    /**
+     * Returns the number of keys with calls in flight.
+     */
+    int pendingKeys() {
+        return tails.size();
+    }
+
+    /**
+     * Returns the executor shared by the async service facades, creating it on first use.
+     * It runs each call on a new virtual thread where the runtime supports them (Java 21 and later),
+     * and otherwise on a pool of daemon platform threads.
+     *
+     * @return The shared executor.
+     */
+    public static synchronized ExecutorService sharedExecutor() {
+        if (shared == null) {
+            shared = newVirtualThreadExecutor();
+        }
+        return shared;
+    }
+
+    /**
+     * Creates an executor that starts a virtual thread per call, falling back to a pool of platform threads.
+     * The factory method is looked up by reflection, so the code still compiles and runs on Java 17.
+     */
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(PLATFORM_THREADS, PLATFORM_THREADS, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, "service-async");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            // Idle threads exit, so a quiet service holds none
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+
+    // Runs a call, passing a checked exception through as the cause of a CompletionException.
+    private static <T> T run(Callable<T> call) {
+        try {
+            return call.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> CompletableFuture<T>[] newArray() {
+        return (CompletableFuture<T>[]) new CompletableFuture<?>[1];
+    }
+}
@@ -0,0 +1,152 @@
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the KeyedExecutor class.
+ * Checks that calls under one key run one at a time in order, and calls under different keys do not wait for each other.
+ */
+public class KeyedExecutorTest {
+
+    /**
+     * Tests that calls under the same key never overlap and run in submission order, even after a failure.
+     */
+    @Test
+    public void testSameKeyRunsInOrder() throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            KeyedExecutor executor = new KeyedExecutor(threads);
+            List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger maxRunning = new AtomicInteger();
+            List<CompletableFuture<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                int number = i;
+                futures.add(executor.submit("K", () -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    order.add(number);
+                    running.decrementAndGet();
+                    if (number == 50) {
+                        throw new IllegalStateException("Failed call");
+                    }
+                    return number;
+                }));
+            }
+            CompletableFuture.allOf(futures.get(199)).get(10, TimeUnit.SECONDS);
+            assertEquals(1, maxRunning.get());
+            for (int i = 0; i < 200; i++) {
+                assertEquals(i, (int) order.get(i));
+            }
+            assertTrue(futures.get(50).isCompletedExceptionally());
+            assertEquals(51, (int) futures.get(51).get());
+            // Keys are dropped once their calls are done
+            for (int i = 0; i < 100 && executor.pendingKeys() > 0; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, executor.pendingKeys());
+        } finally {
+            threads.shutdown();
+        }
+    }
+
+    /**
+     * Tests that a call under one key does not wait for a call under another key.
+     */
+    @Test
+    public void testDifferentKeysRunConcurrently() throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        try {
+            KeyedExecutor executor = new KeyedExecutor(threads);
+            CountDownLatch bothStarted = new CountDownLatch(2);
+            Callable<Boolean> meet = () -> {
+                bothStarted.countDown();
+                return bothStarted.await(10, TimeUnit.SECONDS);
+            };
+            CompletableFuture<Boolean> first = executor.submit("A", meet);
+            CompletableFuture<Boolean> second = executor.submit("B", meet);
+            assertTrue("Calls under different keys should overlap.", first.get(10, TimeUnit.SECONDS));
+            assertTrue(second.get(10, TimeUnit.SECONDS));
+        } finally {
+            threads.shutdown();
+        }
+    }
+
+    /**
+     * Tests that a call under several keys waits for the earlier calls under each of them, later calls under
+     * any of them wait for it, and calls under other keys do not.
+     */
+    @Test
+    public void testMultiKeyCallIsOrderedWithEachKey() throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            KeyedExecutor executor = new KeyedExecutor(threads);
+            List<String> order = Collections.synchronizedList(new ArrayList<>());
+            CountDownLatch release = new CountDownLatch(1);
+            CompletableFuture<Boolean> first = executor.submit("A", () -> {
+                boolean released = release.await(10, TimeUnit.SECONDS);
+                order.add("A");
+                return released;
+            });
+            CompletableFuture<String> batch = executor.submitAll(Arrays.asList("A", "B", null, "A"), () -> {
+                order.add("batch");
+                return "batch";
+            });
+            CompletableFuture<String> after = executor.submit("B", () -> {
+                order.add("B");
+                return "B";
+            });
+            CompletableFuture<String> other = executor.submit("C", () -> {
+                order.add("C");
+                return "C";
+            });
+            assertEquals("A call under another key should not wait.", "C", other.get(10, TimeUnit.SECONDS));
+            assertFalse("The batch should wait for the earlier call under A.", batch.isDone());
+            release.countDown();
+            assertTrue(first.get(10, TimeUnit.SECONDS));
+            after.get(10, TimeUnit.SECONDS);
+            assertEquals(Arrays.asList("C", "A", "batch", "B"), order);
+            for (int i = 0; i < 100 && executor.pendingKeys() > 0; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, executor.pendingKeys());
+        } finally {
+            threads.shutdown();
+        }
+    }
+
+    /**
+     * Tests that a checked exception thrown by a call becomes the cause of the failed future.
+     */
+    @Test
+    public void testCheckedExceptionIsTheCause() throws InterruptedException {
+        KeyedExecutor executor = new KeyedExecutor(Runnable::run);
+        try {
+            executor.submit("K", () -> {
+                throw new Exception("Not found");
+            }).get();
+            fail("The future should fail.");
+        } catch (ExecutionException e) {
+            assertEquals("Not found", e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Tests that the shared executor runs calls.
+     */
+    @Test
+    public void testSharedExecutor() throws Exception {
+        KeyedExecutor executor = new KeyedExecutor(KeyedExecutor.sharedExecutor());
+        assertEquals("Done", executor.submit(() -> "Done").get(10, TimeUnit.SECONDS));
+    }
+}
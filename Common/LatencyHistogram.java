@@ -0,0 +1,170 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Histogram of operation latencies in nanoseconds, in the style of HdrHistogram.
+ *
+ * Values are counted in log-linear buckets: each power of two is split into 32 equal sub-buckets, so every
+ * recorded value is known to within about 3% while the whole range up to 2^41 ns (about 36 minutes) fits
+ * in 1184 counters. Larger values are counted in the last bucket. Recording is one atomic increment.
+ *
+ * Counters are striped by thread, so threads recording at the same time mostly touch different memory;
+ * a stripe is allocated on its first use. snapshot() adds the stripes up without stopping recorders, so a
+ * snapshot taken while values are recorded may miss the most recent ones.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 40;
+    // Values below SUB_BUCKETS get one bucket each; each exponent from SUB_BITS up adds SUB_BUCKETS more.
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicReferenceArray<AtomicLongArray> stripes;
+    private final int mask;
+
+    /**
+     * Creates an empty histogram with one stripe per processor, up to 16.
+     */
+    public LatencyHistogram() {
+        int stripeCount = Integer.highestOneBit(Math.min(16, Math.max(1, Runtime.getRuntime().availableProcessors())));
+        this.stripes = new AtomicReferenceArray<>(stripeCount);
+        this.mask = stripeCount - 1;
+    }
+
+    /**
+     * Counts one value.
+     * @param nanos The latency in nanoseconds; negative values count as zero.
+     */
+    public void record(long nanos) {
+        int stripe = (int) Thread.currentThread().getId() & mask;
+        AtomicLongArray counts = stripes.get(stripe);
+        if (counts == null) {
+            stripes.compareAndSet(stripe, null, new AtomicLongArray(BUCKETS));
+            counts = stripes.get(stripe);
+        }
+        counts.getAndIncrement(bucketOf(nanos));
+    }
+
+    /**
+     * Returns the counts recorded so far.
+     * @return A snapshot that no longer changes.
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        for (int s = 0; s < stripes.length(); s++) {
+            AtomicLongArray stripe = stripes.get(s);
+            if (stripe != null) {
+                for (int i = 0; i < BUCKETS; i++) {
+                    counts[i] += stripe.get(i);
+                }
+            }
+        }
+        return new Snapshot(counts);
+    }
+
+    // Index of the bucket holding a value.
+    static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) Math.max(0, nanos);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + (int) ((nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1));
+    }
+
+    // Smallest value counted in a bucket.
+    static long lowestOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BITS);
+    }
+
+    // Largest value counted in a bucket.
+    static long highestOf(int bucket) {
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : lowestOf(bucket + 1) - 1;
+    }
+
+    /**
+     * Counts of a LatencyHistogram at one point in time.
+     * Reported values are the largest value of the bucket they fall in, so they overstate latencies by at most 3%.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long total;
+
+        Snapshot(long[] counts) {
+            this.counts = counts;
+            long sum = 0;
+            for (long count : counts) {
+                sum += count;
+            }
+            this.total = sum;
+        }
+
+        /**
+         * Returns the number of values recorded.
+         */
+        public long getCount() {
+            return total;
+        }
+
+        /**
+         * Returns the value below or at which the given percentage of the recorded values fall.
+         * @param percentile The percentage, from 0 to 100.
+         * @return The value in nanoseconds, or 0 if nothing was recorded.
+         * @throws IllegalArgumentException if the percentage is outside 0 to 100.
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (!(percentile >= 0 && percentile <= 100)) {
+                throw new IllegalArgumentException("Percentile must be between 0 and 100");
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return highestOf(i);
+                }
+            }
+            return getMax();
+        }
+
+        /**
+         * Returns the largest recorded value, to bucket precision.
+         * @return The value in nanoseconds, or 0 if nothing was recorded.
+         */
+        public long getMax() {
+            for (int i = counts.length - 1; i >= 0; i--) {
+                if (counts[i] != 0) {
+                    return highestOf(i);
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Returns the mean of the recorded values, taking each value as the middle of its bucket.
+         * @return The mean in nanoseconds, or 0 if nothing was recorded.
+         */
+        public double getMean() {
+            if (total == 0) {
+                return 0;
+            }
+            double sum = 0;
+            for (int i = 0; i < counts.length - 1; i++) {
+                if (counts[i] != 0) {
+                    sum += counts[i] * ((lowestOf(i) + highestOf(i)) / 2.0);
+                }
+            }
+            sum += counts[counts.length - 1] * (double) lowestOf(counts.length - 1);
+            return sum / total;
+        }
+    }
+}
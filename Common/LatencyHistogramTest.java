@@ -0,0 +1,85 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the LatencyHistogram class.
+ * These tests validate the bucket boundaries and the percentiles read from a snapshot.
+ */
+public class LatencyHistogramTest {
+
+    /**
+     * Tests that every value falls in a bucket whose bounds contain it and are within 1/32 of it.
+     */
+    @Test
+    public void testBucketsContainTheirValues() {
+        for (long value = 0; value < 1_000_000; value = value < 100 ? value + 1 : value * 17 / 16) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue("Lower bound of " + value, LatencyHistogram.lowestOf(bucket) <= value);
+            assertTrue("Upper bound of " + value, LatencyHistogram.highestOf(bucket) >= value);
+            assertTrue("Precision of " + value, LatencyHistogram.highestOf(bucket) - value <= Math.max(1, value / 32));
+        }
+        assertEquals(0, LatencyHistogram.bucketOf(-5));
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    /**
+     * Tests that percentiles, maximum and mean are read from the recorded values.
+     */
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertWithin(500_000, snapshot.getValueAtPercentile(50));
+        assertWithin(990_000, snapshot.getValueAtPercentile(99));
+        assertWithin(1_000_000, snapshot.getValueAtPercentile(100));
+        assertWithin(1_000_000, snapshot.getMax());
+        assertWithin(500_500, (long) snapshot.getMean());
+    }
+
+    /**
+     * Tests that an empty histogram reports zeros and that invalid percentiles are rejected.
+     */
+    @Test
+    public void testEmptyHistogram() {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getValueAtPercentile(99));
+        assertEquals(0, snapshot.getMax());
+        try {
+            snapshot.getValueAtPercentile(101);
+            fail("Percentile above 100 should be rejected.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Tests that values recorded from several threads are all counted.
+     */
+    @Test
+    public void testConcurrentRecording() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40_000, histogram.snapshot().getCount());
+    }
+
+    // Reported values are bucket upper bounds, at most 1/32 above the exact value.
+    private static void assertWithin(long expected, long actual) {
+        assertTrue("Expected about " + expected + " but was " + actual, actual >= expected && actual <= expected + expected / 32);
+    }
+}
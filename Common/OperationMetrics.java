@@ -0,0 +1,481 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Call counts, failure counts and latencies of the public operations of one service instance.
+ *
+ * Every call is counted in a plain counter confined to the calling thread, one array of counters per thread,
+ * published with a release store so snapshot() can sum them without a lock or an atomic instruction on the call
+ * path. Failures are also counted by error type, the exception class and message, since the services report
+ * each validation rule with its own message, defined once in its ValidationRules; a failure finds its type by
+ * comparing the class and that message instance, and the "Class: message" name is built only when a type is
+ * first seen. Latency is timed for a sample of the calls, every 16th per thread by default: reading the clock
+ * costs far more than counting on many machines, and a regular sample gives the same percentiles.
+ *
+ * snapshot() returns the numbers as of now, and registerMBean() publishes them through JMX as attributes
+ * named after each operation, such as addTaskCalls or addTaskP99Nanos.
+ */
+public final class OperationMetrics {
+    // Default number of calls per thread for each one whose latency is timed.
+    static final int DEFAULT_SAMPLING_INTERVAL = 16;
+    // Distinct failure types kept per operation; later ones are counted as "other".
+    static final int MAX_FAILURE_TYPES = 32;
+    private static final AtomicInteger instances = new AtomicInteger();
+    // Release stores and acquire loads of the elements of the per-thread call counters.
+    private static final VarHandle COUNT = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final String type;
+    private final String[] operations;
+    private final IntSupplier entityCount;
+    // Call counters of the calling thread, one slot per operation, written only by that thread.
+    private final ThreadLocal<long[]> calls = ThreadLocal.withInitial(this::register);
+    // The counters of every thread that has called, guarded by itself; finished threads are folded into retired.
+    private final List<ThreadCalls> threads = new ArrayList<>();
+    private final long[] retired;
+    private final LatencyHistogram[] latencies;
+    // Failure types of each operation, copied on write as types are added.
+    private final AtomicReferenceArray<FailureType[]> failures;
+    private volatile int samplingMask = DEFAULT_SAMPLING_INTERVAL - 1;
+    private ObjectName registered;
+
+    /**
+     * Creates the metrics of a service.
+     * @param type The service type, used in the JMX name.
+     * @param entityCount Returns the number of entities the service holds.
+     * @param operations The names of the operations, in the order of the indexes the service records them under.
+     */
+    public OperationMetrics(String type, IntSupplier entityCount, String... operations) {
+        this.type = type;
+        this.operations = operations.clone();
+        this.entityCount = entityCount;
+        this.retired = new long[operations.length];
+        this.latencies = new LatencyHistogram[operations.length];
+        this.failures = new AtomicReferenceArray<>(operations.length);
+        for (int i = 0; i < operations.length; i++) {
+            latencies[i] = new LatencyHistogram();
+            failures.set(i, new FailureType[0]);
+        }
+    }
+
+    /**
+     * Sets how many calls go by, per thread, for each one whose latency is timed.
+     * @param calls The interval, rounded down to a power of two; 1 times every call.
+     * @throws IllegalArgumentException if the interval is not positive.
+     */
+    public void setSamplingInterval(int calls) {
+        if (calls <= 0) {
+            throw new IllegalArgumentException("Sampling interval must be positive");
+        }
+        samplingMask = Integer.highestOneBit(calls) - 1;
+    }
+
+    /**
+     * Counts the start of a call.
+     * @param operation The index of the operation.
+     * @return The start time if this call is timed, otherwise 0.
+     */
+    long start(int operation) {
+        long[] counts = calls.get();
+        long count = counts[operation];
+        // Only this thread writes the slot; the release store publishes it to snapshot()
+        COUNT.setRelease(counts, operation, count + 1);
+        return (count & samplingMask) == 0 ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the end of a call that succeeded.
+     * @param operation The index of the operation.
+     * @param start The value start() returned.
+     */
+    void succeeded(int operation, long start) {
+        if (start != 0) {
+            latencies[operation].record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Records the end of a call that failed, and returns the error so the caller can rethrow it.
+     * @param operation The index of the operation.
+     * @param start The value start() returned.
+     * @param error The exception the call threw.
+     * @return The same exception.
+     */
+    <E extends Throwable> E failed(int operation, long start, E error) {
+        succeeded(operation, start);
+        FailureType type = find(failures.get(operation), error.getClass(), error.getMessage());
+        if (type == null) {
+            type = addFailureType(operation, error.getClass(), error.getMessage());
+        }
+        type.count.increment();
+        return error;
+    }
+
+    // Finds the failure type of an exception class and message; a rule's message matches by reference.
+    private static FailureType find(FailureType[] types, Class<?> errorClass, String message) {
+        for (FailureType type : types) {
+            if (type.errorClass == errorClass && (type.message == message || type.message != null && type.message.equals(message))) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    // Adds a failure type, or returns the "other" type once an operation has MAX_FAILURE_TYPES of them.
+    private FailureType addFailureType(int operation, Class<?> errorClass, String message) {
+        synchronized (failures) {
+            FailureType[] types = failures.get(operation);
+            FailureType type = find(types, errorClass, message);
+            if (type == null) {
+                if (types.length < MAX_FAILURE_TYPES) {
+                    type = new FailureType(errorClass, message, errorClass.getSimpleName() + ": " + message);
+                } else {
+                    type = find(types, null, null);
+                    if (type != null) {
+                        return type;
+                    }
+                    type = new FailureType(null, null, "other");
+                }
+                types = Arrays.copyOf(types, types.length + 1);
+                types[types.length - 1] = type;
+                failures.set(operation, types);
+            }
+            return type;
+        }
+    }
+
+    // Creates the call counters of the calling thread, on its first call.
+    private long[] register() {
+        long[] counts = new long[operations.length];
+        synchronized (threads) {
+            threads.add(new ThreadCalls(Thread.currentThread(), counts));
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the numbers recorded so far.
+     * @return A snapshot that no longer changes.
+     */
+    public Snapshot snapshot() {
+        long[] totals;
+        synchronized (threads) {
+            totals = retired.clone();
+            for (Iterator<ThreadCalls> it = threads.iterator(); it.hasNext();) {
+                ThreadCalls thread = it.next();
+                // Checked before reading, so a finished thread's last counts are seen and then kept in retired
+                boolean finished = thread.isFinished();
+                for (int i = 0; i < totals.length; i++) {
+                    long count = (long) COUNT.getAcquire(thread.counts, i);
+                    totals[i] += count;
+                    if (finished) {
+                        retired[i] += count;
+                    }
+                }
+                if (finished) {
+                    it.remove();
+                }
+            }
+        }
+        Map<String, OperationSnapshot> byName = new LinkedHashMap<>();
+        for (int i = 0; i < operations.length; i++) {
+            Map<String, Long> byType = new TreeMap<>();
+            for (FailureType failure : failures.get(i)) {
+                byType.put(failure.name, failure.count.sum());
+            }
+            byName.put(operations[i], new OperationSnapshot(operations[i], totals[i], byType, latencies[i].snapshot()));
+        }
+        return new Snapshot(entityCount.getAsInt(), byName);
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server, under a name such as
+     * "managesuite:type=TaskService,instance=3". Does nothing if they are already registered.
+     * @return The name they are registered under.
+     * @throws IllegalStateException if the MBean server refuses the registration.
+     */
+    public synchronized ObjectName registerMBean() {
+        if (registered == null) {
+            try {
+                ObjectName name = new ObjectName("managesuite:type=" + type + ",instance=" + instances.incrementAndGet());
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new MBean(), name);
+                registered = name;
+            } catch (JMException e) {
+                throw new IllegalStateException("Metrics could not be registered", e);
+            }
+        }
+        return registered;
+    }
+
+    /**
+     * Removes these metrics from the platform MBean server. Does nothing if they are not registered.
+     */
+    public synchronized void unregisterMBean() {
+        if (registered != null) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            try {
+                server.unregisterMBean(registered);
+            } catch (JMException e) {
+                // Already gone
+            }
+            registered = null;
+        }
+    }
+
+    /**
+     * The call counters of one thread, which are dropped once the thread has finished and they are retired.
+     */
+    private static final class ThreadCalls {
+        private final WeakReference<Thread> owner;
+        final long[] counts;
+
+        ThreadCalls(Thread owner, long[] counts) {
+            this.owner = new WeakReference<>(owner);
+            this.counts = counts;
+        }
+
+        boolean isFinished() {
+            Thread thread = owner.get();
+            return thread == null || !thread.isAlive();
+        }
+    }
+
+    /**
+     * The failures of one operation with one exception class and message.
+     */
+    private static final class FailureType {
+        // Null for the "other" type
+        final Class<?> errorClass;
+        final String message;
+        final String name;
+        final LongAdder count = new LongAdder();
+
+        FailureType(Class<?> errorClass, String message, String name) {
+            this.errorClass = errorClass;
+            this.message = message;
+            this.name = name;
+        }
+    }
+
+    /**
+     * The metrics of a service at one point in time.
+     */
+    public static final class Snapshot {
+        private final int entityCount;
+        private final Map<String, OperationSnapshot> operations;
+
+        Snapshot(int entityCount, Map<String, OperationSnapshot> operations) {
+            this.entityCount = entityCount;
+            this.operations = Collections.unmodifiableMap(operations);
+        }
+
+        /**
+         * Returns the number of entities the service held.
+         */
+        public int getEntityCount() {
+            return entityCount;
+        }
+
+        /**
+         * Returns the metrics of every operation, by name.
+         */
+        public Map<String, OperationSnapshot> getOperations() {
+            return operations;
+        }
+
+        /**
+         * Returns the metrics of one operation.
+         * @param name The operation name, which is the name of the service method.
+         * @return The operation's metrics.
+         * @throws IllegalArgumentException if the service has no such operation.
+         */
+        public OperationSnapshot getOperation(String name) {
+            OperationSnapshot operation = operations.get(name);
+            if (operation == null) {
+                throw new IllegalArgumentException("Unknown operation " + name);
+            }
+            return operation;
+        }
+    }
+
+    /**
+     * The metrics of one operation at one point in time.
+     */
+    public static final class OperationSnapshot {
+        private final String name;
+        private final long calls;
+        private final Map<String, Long> failuresByType;
+        private final long failures;
+        private final LatencyHistogram.Snapshot latency;
+
+        OperationSnapshot(String name, long calls, Map<String, Long> failuresByType, LatencyHistogram.Snapshot latency) {
+            this.name = name;
+            this.calls = calls;
+            this.failuresByType = Collections.unmodifiableMap(failuresByType);
+            long sum = 0;
+            for (long count : failuresByType.values()) {
+                sum += count;
+            }
+            this.failures = sum;
+            this.latency = latency;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the number of calls, including calls still running.
+         */
+        public long getCalls() {
+            return calls;
+        }
+
+        /**
+         * Returns the number of calls that did not throw, counting calls still running as successes.
+         */
+        public long getSuccesses() {
+            return calls - failures;
+        }
+
+        /**
+         * Returns the number of calls that threw.
+         */
+        public long getFailures() {
+            return failures;
+        }
+
+        /**
+         * Returns the failure counts by error type, "ExceptionClass: message", in name order.
+         */
+        public Map<String, Long> getFailuresByType() {
+            return failuresByType;
+        }
+
+        /**
+         * Returns the latencies of the timed calls.
+         */
+        public LatencyHistogram.Snapshot getLatency() {
+            return latency;
+        }
+    }
+
+    /**
+     * JMX view of the metrics. Each attribute read takes a fresh snapshot.
+     */
+    private final class MBean implements DynamicMBean {
+        private static final String ENTITY_COUNT = "EntityCount";
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            return valueOf(snapshot(), attribute);
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            Snapshot snapshot = snapshot();
+            AttributeList values = new AttributeList();
+            for (String attribute : attributes) {
+                try {
+                    values.add(new Attribute(attribute, valueOf(snapshot, attribute)));
+                } catch (AttributeNotFoundException e) {
+                    // Unknown attributes are left out of the list
+                }
+            }
+            return values;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read-only");
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String action, Object[] params, String[] signature) {
+            throw new UnsupportedOperationException("Metrics have no operations");
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            attributes.add(new MBeanAttributeInfo(ENTITY_COUNT, "java.lang.Integer", "Entities held by the service", true, false, false));
+            for (String operation : operations) {
+                attributes.add(attribute(operation + "Calls", "java.lang.Long", "Calls of " + operation));
+                attributes.add(attribute(operation + "Failures", "java.lang.Long", "Calls of " + operation + " that threw"));
+                attributes.add(attribute(operation + "FailuresByType", "java.lang.String", "Failures of " + operation + " by error type"));
+                attributes.add(attribute(operation + "MeanNanos", "java.lang.Double", "Mean latency of " + operation));
+                attributes.add(attribute(operation + "P50Nanos", "java.lang.Long", "Median latency of " + operation));
+                attributes.add(attribute(operation + "P99Nanos", "java.lang.Long", "99th percentile latency of " + operation));
+                attributes.add(attribute(operation + "P999Nanos", "java.lang.Long", "99.9th percentile latency of " + operation));
+                attributes.add(attribute(operation + "MaxNanos", "java.lang.Long", "Largest latency of " + operation));
+            }
+            return new MBeanInfo(OperationMetrics.class.getName(), "Operation metrics of a " + type,
+                    attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+
+        private MBeanAttributeInfo attribute(String name, String valueType, String description) {
+            return new MBeanAttributeInfo(name, valueType, description, true, false, false);
+        }
+
+        // Looks up an attribute, named as the operation followed by the statistic.
+        private Object valueOf(Snapshot snapshot, String attribute) throws AttributeNotFoundException {
+            if (ENTITY_COUNT.equals(attribute)) {
+                return snapshot.getEntityCount();
+            }
+            for (OperationSnapshot operation : snapshot.getOperations().values()) {
+                if (!attribute.startsWith(operation.getName())) {
+                    continue;
+                }
+                LatencyHistogram.Snapshot latency = operation.getLatency();
+                switch (attribute.substring(operation.getName().length())) {
+                    case "Calls":
+                        return operation.getCalls();
+                    case "Failures":
+                        return operation.getFailures();
+                    case "FailuresByType":
+                        return operation.getFailuresByType().toString();
+                    case "MeanNanos":
+                        return latency.getMean();
+                    case "P50Nanos":
+                        return latency.getValueAtPercentile(50);
+                    case "P99Nanos":
+                        return latency.getValueAtPercentile(99);
+                    case "P999Nanos":
+                        return latency.getValueAtPercentile(99.9);
+                    case "MaxNanos":
+                        return latency.getMax();
+                    default:
+                        // An operation whose name is a prefix of another one's; keep looking
+                }
+            }
+            throw new AttributeNotFoundException("No attribute " + attribute);
+        }
+    }
+}
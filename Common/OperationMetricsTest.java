@@ -0,0 +1,125 @@
+import org.junit.Test;
+import java.lang.management.ManagementFactory;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the OperationMetrics class.
+ * These tests validate the call and failure counts, latency sampling and the JMX attributes.
+ */
+public class OperationMetricsTest {
+
+    /**
+     * Tests that calls, successes and failures by type are counted per operation.
+     */
+    @Test
+    public void testCountsCallsAndFailures() {
+        OperationMetrics metrics = new OperationMetrics("Test", () -> 7, "read", "write");
+        for (int i = 0; i < 3; i++) {
+            metrics.succeeded(0, metrics.start(0));
+        }
+        IllegalArgumentException error = new IllegalArgumentException("Bad value");
+        assertSame(error, metrics.failed(1, metrics.start(1), error));
+        metrics.failed(1, metrics.start(1), new IllegalArgumentException("Bad value"));
+        metrics.succeeded(1, metrics.start(1));
+
+        OperationMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(7, snapshot.getEntityCount());
+        assertEquals(3, snapshot.getOperation("read").getCalls());
+        assertEquals(0, snapshot.getOperation("read").getFailures());
+        assertEquals(3, snapshot.getOperation("write").getCalls());
+        assertEquals(1, snapshot.getOperation("write").getSuccesses());
+        assertEquals(Long.valueOf(2), snapshot.getOperation("write").getFailuresByType().get("IllegalArgumentException: Bad value"));
+    }
+
+    /**
+     * Tests that the calls of other threads are counted, and still counted once those threads have finished.
+     */
+    @Test
+    public void testCountsCallsOfFinishedThreads() throws InterruptedException {
+        OperationMetrics metrics = new OperationMetrics("Test", () -> 0, "read");
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    metrics.succeeded(0, metrics.start(0));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        metrics.succeeded(0, metrics.start(0));
+        assertEquals(4001, metrics.snapshot().getOperation("read").getCalls());
+        // The finished threads' counters are retired by the first snapshot and kept in the total
+        assertEquals(4001, metrics.snapshot().getOperation("read").getCalls());
+    }
+
+    /**
+     * Tests that latency is timed for one call in each sampling interval.
+     */
+    @Test
+    public void testSampling() {
+        OperationMetrics metrics = new OperationMetrics("Test", () -> 0, "read");
+        for (int i = 0; i < 64; i++) {
+            metrics.succeeded(0, metrics.start(0));
+        }
+        assertEquals(64 / OperationMetrics.DEFAULT_SAMPLING_INTERVAL, metrics.snapshot().getOperation("read").getLatency().getCount());
+
+        OperationMetrics everyCall = new OperationMetrics("Test", () -> 0, "read");
+        everyCall.setSamplingInterval(1);
+        for (int i = 0; i < 64; i++) {
+            everyCall.succeeded(0, everyCall.start(0));
+        }
+        assertEquals(64, everyCall.snapshot().getOperation("read").getLatency().getCount());
+    }
+
+    /**
+     * Tests that the number of failure types kept is capped and later types are counted as "other".
+     */
+    @Test
+    public void testFailureTypesAreCapped() {
+        OperationMetrics metrics = new OperationMetrics("Test", () -> 0, "read");
+        for (int i = 0; i < OperationMetrics.MAX_FAILURE_TYPES + 10; i++) {
+            metrics.failed(0, metrics.start(0), new IllegalStateException("Failure " + i));
+        }
+        OperationMetrics.OperationSnapshot read = metrics.snapshot().getOperation("read");
+        assertEquals(OperationMetrics.MAX_FAILURE_TYPES + 1, read.getFailuresByType().size());
+        assertEquals(Long.valueOf(10), read.getFailuresByType().get("other"));
+        assertEquals(OperationMetrics.MAX_FAILURE_TYPES + 10, read.getFailures());
+    }
+
+    /**
+     * Tests that the metrics can be read through the platform MBean server once registered.
+     */
+    @Test
+    public void testMBeanAttributes() throws Exception {
+        OperationMetrics metrics = new OperationMetrics("Test", () -> 5, "read");
+        metrics.setSamplingInterval(1);
+        metrics.succeeded(0, metrics.start(0));
+        metrics.failed(0, metrics.start(0), new IllegalArgumentException("Missing"));
+
+        ObjectName name = metrics.registerMBean();
+        assertEquals(name, metrics.registerMBean());
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            assertEquals(5, server.getAttribute(name, "EntityCount"));
+            assertEquals(2L, server.getAttribute(name, "readCalls"));
+            assertEquals(1L, server.getAttribute(name, "readFailures"));
+            assertTrue((Long) server.getAttribute(name, "readMaxNanos") >= 0);
+        } finally {
+            metrics.unregisterMBean();
+        }
+        assertFalse(server.isRegistered(name));
+    }
+
+    /**
+     * Tests that an invalid sampling interval is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSamplingInterval() {
+        new OperationMetrics("Test", () -> 0, "read").setSamplingInterval(0);
+    }
+}
@@ -0,0 +1,30 @@
+/**
+ * Converts one entity type to and from the fields of a RecordFile record.
+ * Every record starts with the entity's ID, so a record that cannot be turned back into an entity
+ * can still be reported by ID.
+ *
+ * @param <T> The entity type.
+ */
+public interface RecordCodec<T> {
+
+    /**
+     * Returns the name of the entity type, which is written in the file header and checked when reading.
+     * @return The type name, at most 255 ASCII characters.
+     */
+    String type();
+
+    /**
+     * Writes the fields of an entity, its ID first.
+     * @param entity The entity to write.
+     * @param out The record being written.
+     */
+    void write(T entity, RecordFile.Output out);
+
+    /**
+     * Reads the fields of an entity in the order write() wrote them and creates the entity.
+     * @param in The record being read.
+     * @return The entity.
+     * @throws IllegalArgumentException if a field is not valid for the entity.
+     */
+    T read(RecordFile.Input in);
+}
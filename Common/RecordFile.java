@@ -0,0 +1,556 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Versioned binary file format for exporting and importing the entities of a service.
+ *
+ * Records are grouped into blocks of up to 4096. Each block is checksummed with CRC32C and can be compressed
+ * with Deflate, so a damaged file is detected at the block it is damaged in, before any of it is imported. Blocks are encoded and decoded in
+ * parallel on the common fork-join pool, with a few blocks in flight per core, and written and applied in file
+ * order. The reader memory-maps the file and parses uncompressed blocks straight from the mapping; compressed
+ * blocks are inflated into one array each.
+ *
+ * File layout, all integers big-endian:
+ *   header   magic "MSRF", version (2 bytes), flags (1 byte, 1 = compressed),
+ *            entity type (1 length byte and ASCII name)
+ *   blocks   stored length, raw length, record count, CRC32C of the stored bytes (4 bytes each),
+ *            then the stored bytes: the raw records, or their Deflate stream if compressed
+ *   end      -1, 0 and the total record count (8 bytes)
+ *
+ * A raw record is its length as a varint followed by its fields. Strings are written as a varint of their
+ * UTF-8 length plus one, 0 meaning null, followed by the bytes; longs as zigzag varints.
+ */
+public final class RecordFile {
+    static final int MAGIC = 0x4d535246; // "MSRF"
+    static final short VERSION = 1;
+    static final int BLOCK_RECORDS = 4096;
+    private static final byte COMPRESSED = 1;
+    private static final int BLOCK_HEADER_BYTES = 16;
+    private static final int END_OF_BLOCKS = -1;
+    // Largest part of the file mapped at once; a MappedByteBuffer is limited to 2 GB.
+    private static final long MAX_MAPPING = 1L << 30;
+
+    private RecordFile() {
+    }
+
+    /**
+     * Writes entities to a file, replacing it once it is complete.
+     *
+     * @param file The file to write.
+     * @param codec Converts the entities to records.
+     * @param entities The entities, in the order they are written.
+     * @param compress If true, blocks are compressed with Deflate.
+     * @return The number of records written.
+     * @throws IOException If the file cannot be written.
+     */
+    public static <T> long write(Path file, RecordCodec<T> codec, Iterable<T> entities, boolean compress) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        int window = 2 * Runtime.getRuntime().availableProcessors();
+        Deque<CompletableFuture<ByteBuffer>> inFlight = new ArrayDeque<>();
+        long count = 0;
+        boolean written = false;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header(codec.type(), compress));
+            List<T> block = new ArrayList<>(BLOCK_RECORDS);
+            for (T entity : entities) {
+                block.add(entity);
+                count++;
+                if (block.size() == BLOCK_RECORDS) {
+                    List<T> full = block;
+                    inFlight.add(CompletableFuture.supplyAsync(() -> encodeBlock(codec, full, compress), ForkJoinPool.commonPool()));
+                    block = new ArrayList<>(BLOCK_RECORDS);
+                    if (inFlight.size() >= window) {
+                        writeFully(channel, join(inFlight.poll()));
+                    }
+                }
+            }
+            if (!block.isEmpty()) {
+                inFlight.add(CompletableFuture.completedFuture(encodeBlock(codec, block, compress)));
+            }
+            while (!inFlight.isEmpty()) {
+                writeFully(channel, join(inFlight.poll()));
+            }
+            ByteBuffer end = ByteBuffer.allocate(BLOCK_HEADER_BYTES);
+            end.putInt(END_OF_BLOCKS).putInt(0).putLong(count).flip();
+            writeFully(channel, end);
+            channel.force(true);
+            written = true;
+        } finally {
+            if (!written) {
+                // Blocks not yet started are dropped; the incomplete file never replaces the old one
+                for (CompletableFuture<ByteBuffer> block : inFlight) {
+                    block.cancel(false);
+                }
+                Files.deleteIfExists(temp);
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    /**
+     * Reads the entities of a file and hands them to a store one block at a time, in file order.
+     * Records whose fields the codec rejects are reported instead of stored. The checksum of every block is
+     * verified, in parallel, before any block is stored, so a damaged file stores nothing.
+     *
+     * @param file The file to read.
+     * @param codec Converts records back to entities; must be for the type the file was written with.
+     * @param store Stores a block of entities, such as a service's non-atomic addAll.
+     * @return A report of the rejected records, indexed by their position in the file.
+     * @throws IOException If the file cannot be read, is not a record file of the codec's type, or is damaged.
+     */
+    public static <T> BatchResult read(Path file, RecordCodec<T> codec, Function<List<T>, BatchResult> store) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate((int) Math.min(size, 8 + 255));
+            readFully(channel, header, 0);
+            header.flip();
+            boolean compressed = readHeader(header, codec.type(), file);
+
+            // Walk the block headers to find every block before mapping any of them
+            List<long[]> blocks = new ArrayList<>();
+            long position = header.position();
+            long total;
+            ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_BYTES);
+            while (true) {
+                blockHeader.clear();
+                if (position + BLOCK_HEADER_BYTES > size) {
+                    throw new IOException("Truncated record file: " + file);
+                }
+                readFully(channel, blockHeader, position);
+                blockHeader.flip();
+                int storedLength = blockHeader.getInt();
+                if (storedLength == END_OF_BLOCKS) {
+                    blockHeader.getInt();
+                    total = blockHeader.getLong();
+                    break;
+                }
+                int rawLength = blockHeader.getInt();
+                int records = blockHeader.getInt();
+                int checksum = blockHeader.getInt();
+                position += BLOCK_HEADER_BYTES;
+                if (storedLength < 0 || rawLength < 0 || records < 0 || position + storedLength > size) {
+                    throw new IOException("Corrupt record file: " + file);
+                }
+                blocks.add(new long[] {position, storedLength, rawLength, records, checksum});
+                position += storedLength;
+            }
+            long counted = 0;
+            for (long[] block : blocks) {
+                counted += block[3];
+            }
+            if (counted != total || total > Integer.MAX_VALUE) {
+                throw new IOException("Corrupt record file: " + file);
+            }
+
+            // Map every block, then check them all before the first one is stored
+            List<ByteBuffer> storedBlocks = new ArrayList<>(blocks.size());
+            MappedByteBuffer mapping = null;
+            long mappingStart = 0;
+            for (long[] block : blocks) {
+                if (mapping == null || block[0] + block[1] > mappingStart + mapping.capacity()) {
+                    mappingStart = block[0];
+                    mapping = channel.map(FileChannel.MapMode.READ_ONLY, mappingStart, Math.min(size - mappingStart, MAX_MAPPING));
+                }
+                storedBlocks.add(mapping.slice((int) (block[0] - mappingStart), (int) block[1]));
+            }
+            verifyChecksums(storedBlocks, blocks, file);
+
+            BatchResult result = new BatchResult((int) total);
+            int window = 2 * Runtime.getRuntime().availableProcessors();
+            Deque<CompletableFuture<Decoded<T>>> inFlight = new ArrayDeque<>();
+            int firstIndex = 0;
+            try {
+                for (int b = 0; b < blocks.size(); b++) {
+                    long[] block = blocks.get(b);
+                    ByteBuffer stored = storedBlocks.get(b);
+                    int blockIndex = firstIndex;
+                    int blockNumber = b;
+                    inFlight.add(CompletableFuture.supplyAsync(() -> decodeBlock(codec, stored, block, compressed, blockIndex,
+                            blockNumber, file), ForkJoinPool.commonPool()));
+                    firstIndex += (int) block[3];
+                    if (inFlight.size() >= window) {
+                        apply(join(inFlight.poll()), store, result);
+                    }
+                }
+                while (!inFlight.isEmpty()) {
+                    apply(join(inFlight.poll()), store, result);
+                }
+            } finally {
+                for (CompletableFuture<Decoded<T>> block : inFlight) {
+                    block.cancel(false);
+                }
+            }
+            return result;
+        }
+    }
+
+    private static ByteBuffer header(String type, boolean compress) {
+        byte[] name = type.getBytes(StandardCharsets.US_ASCII);
+        if (name.length > 255) {
+            throw new IllegalArgumentException("Entity type name is too long");
+        }
+        ByteBuffer header = ByteBuffer.allocate(8 + name.length);
+        header.putInt(MAGIC).putShort(VERSION).put(compress ? COMPRESSED : 0).put((byte) name.length).put(name).flip();
+        return header;
+    }
+
+    // Checks the file header and returns whether the blocks are compressed.
+    private static boolean readHeader(ByteBuffer header, String type, Path file) throws IOException {
+        if (header.remaining() < 8 || header.getInt() != MAGIC) {
+            throw new IOException("Not a record file: " + file);
+        }
+        short version = header.getShort();
+        if (version > VERSION) {
+            throw new IOException("Unsupported record file version " + version + ": " + file);
+        }
+        byte flags = header.get();
+        int nameLength = header.get() & 0xff;
+        if (header.remaining() < nameLength) {
+            throw new IOException("Not a record file: " + file);
+        }
+        byte[] name = new byte[nameLength];
+        header.get(name);
+        String stored = new String(name, StandardCharsets.US_ASCII);
+        if (!stored.equals(type)) {
+            throw new IOException("Record file holds " + stored + " records, not " + type + ": " + file);
+        }
+        return (flags & COMPRESSED) != 0;
+    }
+
+    /**
+     * Encodes one block with its header, ready to be written.
+     */
+    private static <T> ByteBuffer encodeBlock(RecordCodec<T> codec, List<T> entities, boolean compress) {
+        Output raw = new Output(entities.size() * 64);
+        Output record = new Output(256);
+        for (T entity : entities) {
+            record.size = 0;
+            codec.write(entity, record);
+            raw.writeVarint(record.size);
+            raw.write(record.bytes, 0, record.size);
+        }
+        byte[] stored = raw.bytes;
+        int storedLength = raw.size;
+        if (compress) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                deflater.setInput(raw.bytes, 0, raw.size);
+                deflater.finish();
+                stored = new byte[Math.max(64, raw.size / 2)];
+                storedLength = 0;
+                while (!deflater.finished()) {
+                    if (storedLength == stored.length) {
+                        stored = Arrays.copyOf(stored, stored.length * 2);
+                    }
+                    storedLength += deflater.deflate(stored, storedLength, stored.length - storedLength);
+                }
+            } finally {
+                deflater.end();
+            }
+        }
+        CRC32C checksum = new CRC32C();
+        checksum.update(stored, 0, storedLength);
+        ByteBuffer block = ByteBuffer.allocate(BLOCK_HEADER_BYTES + storedLength);
+        block.putInt(storedLength).putInt(raw.size).putInt(entities.size()).putInt((int) checksum.getValue());
+        block.put(stored, 0, storedLength).flip();
+        return block;
+    }
+
+    /**
+     * Verifies the checksums of all blocks on the common fork-join pool, a range of blocks per task.
+     * @throws IOException naming the first damaged block, if any.
+     */
+    private static void verifyChecksums(List<ByteBuffer> stored, List<long[]> blocks, Path file) throws IOException {
+        int tasks = Math.min(blocks.size(), 4 * Runtime.getRuntime().availableProcessors());
+        List<CompletableFuture<Integer>> checks = new ArrayList<>(tasks);
+        for (int t = 0; t < tasks; t++) {
+            int from = (int) ((long) blocks.size() * t / tasks);
+            int to = (int) ((long) blocks.size() * (t + 1) / tasks);
+            checks.add(CompletableFuture.supplyAsync(() -> {
+                CRC32C checksum = new CRC32C();
+                for (int b = from; b < to; b++) {
+                    checksum.reset();
+                    checksum.update(stored.get(b).duplicate());
+                    if ((int) checksum.getValue() != (int) blocks.get(b)[4]) {
+                        return b;
+                    }
+                }
+                return -1;
+            }, ForkJoinPool.commonPool()));
+        }
+        for (CompletableFuture<Integer> check : checks) {
+            int damaged = join(check);
+            if (damaged >= 0) {
+                throw new IOException("Corrupt block " + damaged + " in record file: " + file);
+            }
+        }
+    }
+
+    /**
+     * Decodes one block whose checksum has been verified. Records the codec rejects are kept aside with their
+     * position in the file.
+     */
+    private static <T> Decoded<T> decodeBlock(RecordCodec<T> codec, ByteBuffer stored, long[] block, boolean compressed,
+                                              int firstIndex, int blockNumber, Path file) {
+        int records = (int) block[3];
+        ByteBuffer raw = stored;
+        if (compressed) {
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(stored);
+                byte[] inflated = new byte[(int) block[2]];
+                if (inflater.inflate(inflated) != inflated.length || !inflater.finished()) {
+                    throw new DataFormatException("Inflated length does not match the block header");
+                }
+                raw = ByteBuffer.wrap(inflated);
+            } catch (DataFormatException e) {
+                throw new UncheckedIOException(new IOException("Corrupt block " + blockNumber + " in record file: " + file, e));
+            } finally {
+                inflater.end();
+            }
+        }
+        Decoded<T> decoded = new Decoded<>(records);
+        Input in = new Input(raw);
+        try {
+            for (int i = 0; i < records; i++) {
+                int length = in.readVarint();
+                int start = raw.position();
+                try {
+                    decoded.add(codec.read(in), firstIndex + i);
+                } catch (IllegalArgumentException e) {
+                    raw.position(start);
+                    decoded.reject(firstIndex + i, in.readString(), e.getMessage());
+                }
+                raw.position(start + length);
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new UncheckedIOException(new IOException("Corrupt block " + blockNumber + " in record file: " + file, e));
+        }
+        return decoded;
+    }
+
+    // Stores a decoded block and adds its rejected records to the report.
+    private static <T> void apply(Decoded<T> decoded, Function<List<T>, BatchResult> store, BatchResult result) {
+        for (BatchResult.Failure failure : decoded.rejected) {
+            result.reject(failure.getIndex(), failure.getId(), failure.getReason());
+        }
+        if (decoded.entities.isEmpty()) {
+            return;
+        }
+        for (BatchResult.Failure failure : store.apply(decoded.entities).getFailures()) {
+            result.reject(decoded.indexes[failure.getIndex()], failure.getId(), failure.getReason());
+        }
+    }
+
+    // Waits for a block, rethrowing what its task threw.
+    private static <T> T join(CompletableFuture<T> block) throws IOException {
+        try {
+            return block.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * The entities decoded from one block, with their positions in the file, and the records the codec rejected.
+     */
+    private static final class Decoded<T> {
+        final List<T> entities;
+        final int[] indexes;
+        final List<BatchResult.Failure> rejected = new ArrayList<>();
+
+        Decoded(int records) {
+            this.entities = new ArrayList<>(records);
+            this.indexes = new int[records];
+        }
+
+        void add(T entity, int index) {
+            indexes[entities.size()] = index;
+            entities.add(entity);
+        }
+
+        void reject(int index, String id, String reason) {
+            rejected.add(new BatchResult.Failure(index, id, reason));
+        }
+    }
+
+    /**
+     * Fields of a record being written.
+     */
+    public static final class Output {
+        private byte[] bytes;
+        private int size;
+
+        Output(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        /**
+         * Writes a string, which may be null.
+         * @param value The string.
+         */
+        public void writeString(String value) {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+            int length = value.length();
+            // ASCII strings, the common case, are copied char by char without encoding them first
+            ensure(5 + length);
+            int mark = size;
+            writeVarint(length + 1);
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c >= 0x80) {
+                    size = mark;
+                    byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+                    writeVarint(encoded.length + 1);
+                    write(encoded, 0, encoded.length);
+                    return;
+                }
+                bytes[size++] = (byte) c;
+            }
+        }
+
+        /**
+         * Writes a long.
+         * @param value The long.
+         */
+        public void writeLong(long value) {
+            long zigzag = (value << 1) ^ (value >> 63);
+            ensure(10);
+            while ((zigzag & ~0x7fL) != 0) {
+                bytes[size++] = (byte) ((zigzag & 0x7f) | 0x80);
+                zigzag >>>= 7;
+            }
+            bytes[size++] = (byte) zigzag;
+        }
+
+        void writeVarint(int value) {
+            ensure(5);
+            while ((value & ~0x7f) != 0) {
+                bytes[size++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void write(byte[] source, int offset, int length) {
+            ensure(length);
+            System.arraycopy(source, offset, bytes, size, length);
+            size += length;
+        }
+
+        private void ensure(int more) {
+            if (size + more > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + more));
+            }
+        }
+    }
+
+    /**
+     * Fields of a record being read, straight from the file mapping or the inflated block.
+     */
+    public static final class Input {
+        private final ByteBuffer buffer;
+        // Reused for the bytes of each string on its way from the buffer into the String.
+        private byte[] scratch = new byte[64];
+
+        Input(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /**
+         * Reads a string.
+         * @return The string, or null if null was written.
+         */
+        public String readString() {
+            int length = readVarint() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (length > scratch.length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            buffer.get(scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Reads a long.
+         * @return The long.
+         */
+        public long readLong() {
+            long zigzag = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = buffer.get();
+                zigzag |= (long) (b & 0x7f) << shift;
+                if (b >= 0) {
+                    break;
+                }
+                if (shift > 63) {
+                    throw new IllegalArgumentException("Malformed varint");
+                }
+            }
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+
+        int readVarint() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = buffer.get();
+                value |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+                if (shift > 28) {
+                    throw new IllegalArgumentException("Malformed varint");
+                }
+            }
+        }
+    }
+}
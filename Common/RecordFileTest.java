@@ -0,0 +1,271 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the RecordFile class.
+ * These tests validate round trips with and without compression, reporting of rejected records,
+ * and that damaged or mismatched files are refused.
+ */
+public class RecordFileTest {
+    private Path directory; // Directory holding the record file of each test
+    private Path file; // Record file of each test
+
+    /**
+     * A record of an ID, a count and an optional note; negative counts are rejected when read.
+     */
+    private static final class Item {
+        final String id;
+        final long count;
+        final String note;
+
+        Item(String id, long count, String note) {
+            if (count < 0) {
+                throw new IllegalArgumentException("Count must not be negative");
+            }
+            this.id = id;
+            this.count = count;
+            this.note = note;
+        }
+    }
+
+    private static final RecordCodec<Item> CODEC = new RecordCodec<Item>() {
+        @Override
+        public String type() {
+            return "Item";
+        }
+
+        @Override
+        public void write(Item item, RecordFile.Output out) {
+            out.writeString(item.id);
+            out.writeLong(item.count);
+            out.writeString(item.note);
+        }
+
+        @Override
+        public Item read(RecordFile.Input in) {
+            return new Item(in.readString(), in.readLong(), in.readString());
+        }
+    };
+
+    /**
+     * Creates an empty directory for the record file before each test.
+     */
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("record-file");
+        file = directory.resolve("items.msrf");
+    }
+
+    /**
+     * Removes the record file after each test.
+     */
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(path -> path.toFile().delete());
+        }
+        Files.delete(directory);
+    }
+
+    // Items spanning several blocks, with non-ASCII and null notes and counts of every varint length.
+    private static List<Item> items(int count) {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String note = i % 7 == 0 ? null : i % 5 == 0 ? "caf\u00e9 " + i : "note " + i;
+            items.add(new Item("I" + i, i % 3 == 0 ? Long.MAX_VALUE - i : (long) i * i, note));
+        }
+        return items;
+    }
+
+    // Reads a file, keeping every item in the order it is stored.
+    private static BatchResult readInto(Path file, List<Item> stored) throws IOException {
+        return RecordFile.read(file, CODEC, batch -> {
+            stored.addAll(batch);
+            return new BatchResult(batch.size());
+        });
+    }
+
+    private static void assertSameItems(List<Item> expected, List<Item> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).id, actual.get(i).id);
+            assertEquals(expected.get(i).count, actual.get(i).count);
+            assertEquals(expected.get(i).note, actual.get(i).note);
+        }
+    }
+
+    /**
+     * Tests that records come back in order, field for field, from an uncompressed file of several blocks.
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        List<Item> items = items(2 * RecordFile.BLOCK_RECORDS + 17);
+        assertEquals(items.size(), RecordFile.write(file, CODEC, items, false));
+        List<Item> stored = new ArrayList<>();
+        BatchResult result = readInto(file, stored);
+        assertEquals(items.size(), result.size());
+        assertFalse(result.hasFailures());
+        assertSameItems(items, stored);
+        assertFalse(Files.exists(directory.resolve("items.msrf.tmp")));
+    }
+
+    /**
+     * Tests that a compressed file holds the same records in fewer bytes.
+     */
+    @Test
+    public void testCompressedRoundTrip() throws IOException {
+        List<Item> items = items(10000);
+        RecordFile.write(file, CODEC, items, false);
+        long uncompressed = Files.size(file);
+        RecordFile.write(file, CODEC, items, true);
+        assertTrue(Files.size(file) < uncompressed);
+        List<Item> stored = new ArrayList<>();
+        readInto(file, stored);
+        assertSameItems(items, stored);
+    }
+
+    /**
+     * Tests that an empty file round-trips to no records.
+     */
+    @Test
+    public void testEmpty() throws IOException {
+        assertEquals(0, RecordFile.write(file, CODEC, new ArrayList<>(), true));
+        List<Item> stored = new ArrayList<>();
+        assertEquals(0, readInto(file, stored).size());
+        assertTrue(stored.isEmpty());
+    }
+
+    /**
+     * Tests that records the codec or the store reject are reported by their position in the file and their ID.
+     */
+    @Test
+    public void testRejectedRecords() throws IOException {
+        RecordCodec<Item> lenient = new RecordCodec<Item>() {
+            @Override
+            public String type() {
+                return "Item";
+            }
+
+            @Override
+            public void write(Item item, RecordFile.Output out) {
+                out.writeString(item.id);
+                out.writeLong(item.id.equals("I5000") ? -1 : item.count);
+                out.writeString(item.note);
+            }
+
+            @Override
+            public Item read(RecordFile.Input in) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        RecordFile.write(file, lenient, items(6000), false);
+        // The store turns down one item of the second block
+        BatchResult result = RecordFile.read(file, CODEC, batch -> {
+            BatchResult stored = new BatchResult(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                if (batch.get(i).id.equals("I4100")) {
+                    stored.reject(i, batch.get(i).id, "Duplicate ID");
+                }
+            }
+            return stored;
+        });
+        assertEquals(6000, result.size());
+        assertEquals(5998, result.succeeded());
+        List<String> rejected = new ArrayList<>();
+        for (BatchResult.Failure failure : result.getFailures()) {
+            rejected.add(failure.getIndex() + ":" + failure.getId());
+        }
+        assertTrue(rejected.containsAll(Arrays.asList("5000:I5000", "4100:I4100")));
+    }
+
+    /**
+     * Tests that a flipped byte in a block is detected by its checksum, in both formats, before the blocks
+     * ahead of it are stored.
+     */
+    @Test
+    public void testCorruptBlock() throws IOException {
+        for (boolean compress : new boolean[] {false, true}) {
+            RecordFile.write(file, CODEC, items(3 * RecordFile.BLOCK_RECORDS), compress);
+            try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+                long position = raw.length() / 2;
+                raw.seek(position);
+                int b = raw.read();
+                raw.seek(position);
+                raw.write(b ^ 0x10);
+            }
+            List<Item> stored = new ArrayList<>();
+            try {
+                readInto(file, stored);
+                fail("Expected a corrupt block to be detected");
+            } catch (IOException e) {
+                assertTrue(e.getMessage().contains("Corrupt block 1"));
+                assertTrue("Nothing should be stored from a damaged file.", stored.isEmpty());
+            }
+        }
+    }
+
+    /**
+     * Tests that a file cut short is refused before any record is stored.
+     */
+    @Test
+    public void testTruncated() throws IOException {
+        RecordFile.write(file, CODEC, items(5000), false);
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.setLength(raw.length() - 20);
+        }
+        List<Item> stored = new ArrayList<>();
+        try {
+            readInto(file, stored);
+            fail("Expected a truncated file to be refused");
+        } catch (IOException e) {
+            assertTrue(stored.isEmpty());
+        }
+    }
+
+    /**
+     * Tests that a file of another entity type, or not a record file at all, is refused.
+     */
+    @Test
+    public void testWrongType() throws IOException {
+        RecordFile.write(file, CODEC, items(10), false);
+        RecordCodec<Item> other = new RecordCodec<Item>() {
+            @Override
+            public String type() {
+                return "Other";
+            }
+
+            @Override
+            public void write(Item item, RecordFile.Output out) {
+                CODEC.write(item, out);
+            }
+
+            @Override
+            public Item read(RecordFile.Input in) {
+                return CODEC.read(in);
+            }
+        };
+        try {
+            RecordFile.read(file, other, batch -> new BatchResult(batch.size()));
+            fail("Expected a file of another type to be refused");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("Item"));
+        }
+        Files.write(file, "id,name\n1,Alice\n".getBytes());
+        try {
+            readInto(file, new ArrayList<>());
+            fail("Expected a text file to be refused");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
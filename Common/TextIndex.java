@@ -0,0 +1,400 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index over the free text of entities, answering ranked keyword queries without scanning them.
+ *
+ * Text is split into lower-case words at every character that is not a letter or digit. Each indexed entity
+ * is a document with an int number, and each word has a posting list: a growable int array of the numbers of
+ * the documents containing it, in increasing order. Indexing an entity again gives it a new number, appended
+ * to the postings of its words, and only marks the old number deleted. Once deleted numbers outnumber live
+ * ones, the postings are compacted and the documents renumbered, so an update costs amortized O(words) and
+ * never shifts a posting list.
+ *
+ * Queries rank documents by the summed inverse document frequency of the query words they contain, so rare
+ * words count most and documents containing every word come first; ties go to the document indexed first.
+ * The best results are found with the MaxScore algorithm: once enough good results are found, the postings of
+ * words too common to lift a document among them are no longer walked, only probed for the documents found
+ * in the rarer lists, so a query costs about the length of its rarest postings rather than of all of them.
+ *
+ * Safe for concurrent use: queries share a read lock and changes take the write lock.
+ */
+public final class TextIndex {
+    // Deleted documents always tolerated before the postings are compacted.
+    static final int MIN_COMPACTION = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> postings = new HashMap<>();
+    // ID of each document number; null once the document is deleted.
+    private String[] ids = new String[16];
+    private int nextDoc;
+    private int deletedCount;
+    // Open-addressing table from live ID to document number, to avoid a boxed map entry per document.
+    private String[] slotIds = new String[16];
+    private int[] slotDocs = new int[16];
+    private int liveCount;
+
+    /**
+     * Indexes the text of an entity, replacing any text indexed for it before.
+     * @param id The entity's unique ID.
+     * @param fields The entity's text fields; null fields are skipped.
+     * @throws IllegalArgumentException if the ID is null.
+     */
+    public void put(String id, String... fields) {
+        if (id == null) {
+            throw new IllegalArgumentException("ID must be non-null");
+        }
+        lock.writeLock().lock();
+        try {
+            delete(id);
+            int doc = nextDoc++;
+            if (doc == ids.length) {
+                ids = Arrays.copyOf(ids, doc * 2);
+            }
+            ids[doc] = id;
+            putSlot(id, doc);
+            for (String field : fields) {
+                if (field != null) {
+                    for (String word : tokenize(field)) {
+                        postings.computeIfAbsent(word, w -> new Postings()).add(doc);
+                    }
+                }
+            }
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes an entity from the index. Does nothing if it is not indexed.
+     * @param id The entity's unique ID.
+     */
+    public void remove(String id) {
+        if (id == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            delete(id);
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the entities whose text contains any of the query's words, best matches first.
+     * @param query The words to look for; case and punctuation are ignored.
+     * @param limit The maximum number of IDs to return.
+     * @return The IDs of the matching entities, ranked by the rarity of the query words they contain.
+     * @throws IllegalArgumentException if the query is null or the limit is negative.
+     */
+    public List<String> search(String query, int limit) {
+        if (query == null || limit < 0) {
+            throw new IllegalArgumentException("Query must be non-null and limit must not be negative");
+        }
+        lock.readLock().lock();
+        try {
+            List<Postings> lists = new ArrayList<>();
+            for (String word : new LinkedHashSet<>(tokenize(query))) {
+                Postings list = postings.get(word);
+                if (list != null) {
+                    lists.add(list);
+                }
+            }
+            List<String> found = new ArrayList<>();
+            if (lists.isEmpty() || limit == 0) {
+                return found;
+            }
+            for (Hit hit : topDocuments(lists, limit)) {
+                found.add(ids[hit.doc]);
+            }
+            return found;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of indexed entities.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Splits text into the lower-case words it is indexed under.
+     * @param text The text to split.
+     * @return The words in order, with repeats.
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean inWord = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Scores the live documents in the postings with MaxScore and returns the best ones, best first.
+     */
+    private List<Hit> topDocuments(List<Postings> lists, int limit) {
+        // Most common words first, so their weights are the smallest and bounds[i] covers the i+1 commonest
+        lists.sort(Comparator.comparingInt((Postings list) -> list.size).reversed());
+        int terms = lists.size();
+        double[] weights = new double[terms];
+        double[] bounds = new double[terms];
+        for (int i = 0; i < terms; i++) {
+            weights[i] = idf(lists.get(i).size);
+            bounds[i] = (i == 0 ? 0 : bounds[i - 1]) + weights[i];
+        }
+        int[] cursors = new int[terms];
+        // Lists from firstEssential on can still put a document among the best; the others are only probed
+        int firstEssential = 0;
+        PriorityQueue<Hit> best = new PriorityQueue<>();
+        double threshold = -1;
+        while (true) {
+            int doc = Integer.MAX_VALUE;
+            for (int i = firstEssential; i < terms; i++) {
+                Postings list = lists.get(i);
+                if (cursors[i] < list.size) {
+                    doc = Math.min(doc, list.docs[cursors[i]]);
+                }
+            }
+            if (doc == Integer.MAX_VALUE) {
+                break;
+            }
+            double score = 0;
+            for (int i = firstEssential; i < terms; i++) {
+                Postings list = lists.get(i);
+                if (cursors[i] < list.size && list.docs[cursors[i]] == doc) {
+                    score += weights[i];
+                    cursors[i]++;
+                }
+            }
+            if (ids[doc] == null) {
+                continue;
+            }
+            for (int i = firstEssential - 1; i >= 0 && score + bounds[i] > threshold; i--) {
+                Postings list = lists.get(i);
+                cursors[i] = list.seek(cursors[i], doc);
+                if (cursors[i] < list.size && list.docs[cursors[i]] == doc) {
+                    score += weights[i];
+                }
+            }
+            // Documents arrive in increasing order, so an equal score loses to the one indexed first
+            if (best.size() < limit) {
+                best.add(new Hit(doc, score));
+            } else if (score > threshold) {
+                best.poll();
+                best.add(new Hit(doc, score));
+            } else {
+                continue;
+            }
+            if (best.size() == limit) {
+                threshold = best.peek().score;
+                while (firstEssential < terms && bounds[firstEssential] <= threshold) {
+                    firstEssential++;
+                }
+            }
+        }
+        List<Hit> ranked = new ArrayList<>(best);
+        ranked.sort(Comparator.reverseOrder());
+        return ranked;
+    }
+
+    // BM25 inverse document frequency; postings may still count deleted documents, so it is capped at the live count.
+    private double idf(int postingCount) {
+        int frequency = Math.min(postingCount, liveCount);
+        return Math.log(1 + (liveCount - frequency + 0.5) / (frequency + 0.5));
+    }
+
+    // Marks the document of an ID deleted; its number stays in the postings until the next compaction.
+    private void delete(String id) {
+        int doc = removeSlot(id);
+        if (doc >= 0) {
+            ids[doc] = null;
+            deletedCount++;
+        }
+    }
+
+    // Drops deleted documents from the postings and renumbers the live ones once most numbers are deleted.
+    private void compactIfSparse() {
+        if (deletedCount < MIN_COMPACTION || deletedCount < liveCount) {
+            return;
+        }
+        int[] renumbered = new int[nextDoc];
+        int live = 0;
+        for (int doc = 0; doc < nextDoc; doc++) {
+            if (ids[doc] == null) {
+                renumbered[doc] = -1;
+            } else {
+                renumbered[doc] = live;
+                ids[live] = ids[doc];
+                putSlot(ids[live], live);
+                live++;
+            }
+        }
+        ids = Arrays.copyOf(ids, Math.max(16, live * 2));
+        nextDoc = live;
+        deletedCount = 0;
+        for (Iterator<Postings> it = postings.values().iterator(); it.hasNext(); ) {
+            Postings list = it.next();
+            list.renumber(renumbered);
+            if (list.size == 0) {
+                it.remove();
+            }
+        }
+    }
+
+    // Slot holding an ID, or the empty slot where it would go.
+    private int slotOf(String id) {
+        int mask = slotIds.length - 1;
+        int slot = spread(id.hashCode()) & mask;
+        while (slotIds[slot] != null && !slotIds[slot].equals(id)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void putSlot(String id, int doc) {
+        int slot = slotOf(id);
+        slotDocs[slot] = doc;
+        if (slotIds[slot] == null) {
+            slotIds[slot] = id;
+            liveCount++;
+            if (liveCount * 4 > slotIds.length * 3) {
+                String[] oldIds = slotIds;
+                int[] oldDocs = slotDocs;
+                slotIds = new String[oldIds.length * 2];
+                slotDocs = new int[oldIds.length * 2];
+                for (int i = 0; i < oldIds.length; i++) {
+                    if (oldIds[i] != null) {
+                        int moved = slotOf(oldIds[i]);
+                        slotIds[moved] = oldIds[i];
+                        slotDocs[moved] = oldDocs[i];
+                    }
+                }
+            }
+        }
+    }
+
+    // Removes an ID from the table and returns its document number, or -1 if it was not there.
+    private int removeSlot(String id) {
+        int slot = slotOf(id);
+        if (slotIds[slot] == null) {
+            return -1;
+        }
+        int doc = slotDocs[slot];
+        slotIds[slot] = null;
+        liveCount--;
+        // Shift later entries of the probe run back into the hole, so lookups never stop early
+        int mask = slotIds.length - 1;
+        int hole = slot;
+        for (int next = (slot + 1) & mask; slotIds[next] != null; next = (next + 1) & mask) {
+            int home = spread(slotIds[next].hashCode()) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                slotIds[hole] = slotIds[next];
+                slotDocs[hole] = slotDocs[next];
+                slotIds[next] = null;
+                hole = next;
+            }
+        }
+        return doc;
+    }
+
+    private static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Numbers of the documents containing one word, in increasing order.
+     */
+    private static final class Postings {
+        int[] docs = new int[4];
+        int size;
+
+        void add(int doc) {
+            // A word repeated in one document is listed once
+            if (size > 0 && docs[size - 1] == doc) {
+                return;
+            }
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+        }
+
+        // Index of the first posting from the given one on that is at least doc, found by galloping.
+        int seek(int from, int doc) {
+            if (from >= size || docs[from] >= doc) {
+                return from;
+            }
+            int low = from;
+            int step = 1;
+            while (low + step < size && docs[low + step] < doc) {
+                low += step;
+                step <<= 1;
+            }
+            int found = Arrays.binarySearch(docs, low + 1, Math.min(low + step, size), doc);
+            return found >= 0 ? found : -found - 1;
+        }
+
+        void renumber(int[] renumbered) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int doc = renumbered[docs[i]];
+                if (doc >= 0) {
+                    docs[kept++] = doc;
+                }
+            }
+            size = kept;
+            if (docs.length > 4 && kept < docs.length / 4) {
+                docs = Arrays.copyOf(docs, Math.max(4, kept * 2));
+            }
+        }
+    }
+
+    /**
+     * A scored document; compares lower for a worse match, so the queue's head is the weakest of the best.
+     */
+    private static final class Hit implements Comparable<Hit> {
+        final int doc;
+        final double score;
+
+        Hit(int doc, double score) {
+            this.doc = doc;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(Hit other) {
+            int byScore = Double.compare(score, other.score);
+            return byScore != 0 ? byScore : Integer.compare(other.doc, doc);
+        }
+    }
+}
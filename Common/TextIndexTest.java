@@ -0,0 +1,117 @@
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the TextIndex class.
+ * These tests validate tokenization, ranking, and that updates and deletes are reflected in the results.
+ */
+public class TextIndexTest {
+
+    /**
+     * Tests that text is split into lower-case words at punctuation and spaces.
+     */
+    @Test
+    public void testTokenize() {
+        assertEquals(Arrays.asList("fix", "login", "bug", "v2", "ui"), TextIndex.tokenize("Fix login-bug (v2) UI!"));
+        assertTrue(TextIndex.tokenize(" -- ").isEmpty());
+    }
+
+    /**
+     * Tests that documents with more, and rarer, query words rank first, and ties keep indexing order.
+     */
+    @Test
+    public void testRanking() {
+        TextIndex index = new TextIndex();
+        index.put("1", "Weekly meeting");
+        index.put("2", "Budget meeting", "Review the budget");
+        index.put("3", "Budget review");
+        index.put("4", "Team meeting");
+        index.put("5", "Lunch");
+
+        assertEquals(Arrays.asList("2", "3"), index.search("budget review", 10));
+        assertEquals(Arrays.asList("2", "3", "1", "4"), index.search("budget meeting", 10));
+        assertEquals(Arrays.asList("2", "3"), index.search("BUDGET meeting", 2));
+        assertEquals(Arrays.asList("1", "2", "4"), index.search("meeting", 10));
+        assertTrue(index.search("dinner", 10).isEmpty());
+        assertTrue(index.search("", 10).isEmpty());
+    }
+
+    /**
+     * Tests that re-indexing an entity replaces its words and removing it drops it from the results.
+     */
+    @Test
+    public void testUpdateAndRemove() {
+        TextIndex index = new TextIndex();
+        index.put("1", "Call the bank");
+        index.put("2", "Call mom");
+        index.put("1", "Email the bank");
+        assertEquals(Arrays.asList("2"), index.search("call", 10));
+        assertEquals(Arrays.asList("1"), index.search("email", 10));
+        index.remove("2");
+        index.remove("missing");
+        assertTrue(index.search("call", 10).isEmpty());
+        assertEquals(1, index.size());
+    }
+
+    /**
+     * Tests that results stay correct across compactions, against a brute-force scan of the same text.
+     */
+    @Test
+    public void testMatchesScanAcrossCompactions() {
+        String[] words = {"alpha", "beta", "gamma", "delta", "epsilon", "zeta", "eta", "theta"};
+        Random random = new Random(42);
+        TextIndex index = new TextIndex();
+        Map<String, String> texts = new HashMap<>();
+        for (int round = 0; round < 20_000; round++) {
+            String id = "E" + random.nextInt(2_000);
+            if (random.nextInt(4) == 0) {
+                index.remove(id);
+                texts.remove(id);
+            } else {
+                // Skewed toward the first words, so some are common and some rare
+                String text = words[random.nextInt(1 + random.nextInt(words.length))] + " " + words[random.nextInt(words.length)];
+                index.put(id, text);
+                texts.put(id, text);
+            }
+        }
+        assertEquals(texts.size(), index.size());
+        for (String word : words) {
+            List<String> expected = new ArrayList<>();
+            for (Map.Entry<String, String> entry : texts.entrySet()) {
+                if (TextIndex.tokenize(entry.getValue()).contains(word)) {
+                    expected.add(entry.getKey());
+                }
+            }
+            List<String> found = index.search(word, Integer.MAX_VALUE);
+            assertEquals(expected.size(), found.size());
+            assertTrue(found.containsAll(expected));
+        }
+    }
+
+    /**
+     * Tests that the top results of a two-word query are the documents containing both words.
+     */
+    @Test
+    public void testTopResultsContainEveryWord() {
+        TextIndex index = new TextIndex();
+        for (int i = 0; i < 5_000; i++) {
+            index.put("E" + i, i % 1000 == 0 ? "urgent review" : i % 2 == 0 ? "review" : "notes");
+        }
+        assertEquals(Arrays.asList("E0", "E1000", "E2000"), index.search("review urgent", 3));
+        assertEquals(2_500, index.search("review urgent", Integer.MAX_VALUE).size());
+    }
+
+    /**
+     * Tests that a null query or negative limit is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidQuery() {
+        new TextIndex().search(null, 10);
+    }
+}
@@ -0,0 +1,199 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The validation rules of one entity type, defined once when the entity class loads.
+ *
+ * Each rule gets a small error code, its position in the set counting from 1, and its message is built
+ * when the rule is defined rather than on every failure. An entity's static validate() method checks all
+ * of its fields with the helpers below and returns VALID or the code of the first rule broken, without
+ * throwing or allocating, so bulk feeds can reject invalid rows at the cost of a few comparisons. The
+ * entity's constructors and setters delegate to the same checks and throw through check(), so the
+ * IllegalArgumentException callers already handle carries the same message as before. An entity's static
+ * tryCreate() validates once and either creates the entity or records the code in a reusable Result.
+ *
+ * Codes are only meaningful together with the rule set that issued them, such as Contact.RULES. An entity
+ * defines its rules on a Builder in static field initializers and builds RULES after the last of them, so
+ * the set is frozen by the time the entity class is initialized and can be read from any thread.
+ */
+public final class ValidationRules {
+    /**
+     * The code returned when every rule holds.
+     */
+    public static final int VALID = 0;
+
+    private final String entity;
+    private final List<String> fields;
+    private final List<String> messages;
+
+    private ValidationRules(String entity, List<String> fields, List<String> messages) {
+        this.entity = entity;
+        this.fields = List.copyOf(fields);
+        this.messages = List.copyOf(messages);
+    }
+
+    /**
+     * Starts defining a rule set.
+     * @param entity The name of the entity type the rules are for, such as "Contact".
+     * @return A builder with no rules.
+     */
+    public static Builder builder(String entity) {
+        return new Builder(entity);
+    }
+
+    /**
+     * Returns the message of a broken rule.
+     * @param code An error code from this rule set.
+     * @return The message, or null for VALID.
+     * @throws IllegalArgumentException if the code is not from this rule set.
+     */
+    public String message(int code) {
+        return code == VALID ? null : messages.get(index(code));
+    }
+
+    /**
+     * Returns the name of the field a rule checks.
+     * @param code An error code from this rule set.
+     * @return The field name, or null for VALID.
+     * @throws IllegalArgumentException if the code is not from this rule set.
+     */
+    public String field(int code) {
+        return code == VALID ? null : fields.get(index(code));
+    }
+
+    /**
+     * Throws the IllegalArgumentException of a broken rule, for constructors and setters.
+     * @param code VALID or an error code from this rule set.
+     * @throws IllegalArgumentException with the rule's message, unless the code is VALID.
+     */
+    public void check(int code) {
+        if (code != VALID) {
+            throw new IllegalArgumentException(message(code));
+        }
+    }
+
+    /**
+     * Returns the number of rules in the set.
+     */
+    public int size() {
+        return messages.size();
+    }
+
+    private int index(int code) {
+        if (code < 1 || code > messages.size()) {
+            throw new IllegalArgumentException("No " + entity + " rule has code " + code);
+        }
+        return code - 1;
+    }
+
+    /**
+     * Checks that a value is present and not longer than a limit.
+     * @return VALID, or the given code if the value is null or too long.
+     */
+    public static int required(String value, int maxLength, int code) {
+        return value != null && value.length() <= maxLength ? VALID : code;
+    }
+
+    /**
+     * Checks that a value, if present, is not longer than a limit.
+     * @return VALID, or the given code if the value is too long.
+     */
+    public static int optional(String value, int maxLength, int code) {
+        return value == null || value.length() <= maxLength ? VALID : code;
+    }
+
+    /**
+     * Checks that a condition holds.
+     * @return VALID, or the given code if the condition is false.
+     */
+    public static int require(boolean condition, int code) {
+        return condition ? VALID : code;
+    }
+
+    @Override
+    public String toString() {
+        return entity + " rules " + messages;
+    }
+
+    /**
+     * Collects the rules of an entity type and builds them into an immutable rule set, once.
+     */
+    public static final class Builder {
+        private final String entity;
+        private final List<String> fields = new ArrayList<>();
+        private final List<String> messages = new ArrayList<>();
+        private boolean built;
+
+        private Builder(String entity) {
+            this.entity = entity;
+        }
+
+        /**
+         * Defines a rule.
+         * @param field The name of the field the rule checks.
+         * @param message The message reported when the rule is broken.
+         * @return The rule's error code.
+         * @throws IllegalStateException if the rule set was already built.
+         */
+        public int define(String field, String message) {
+            if (built) {
+                throw new IllegalStateException(entity + " rules are already built");
+            }
+            fields.add(field);
+            messages.add(message);
+            return messages.size();
+        }
+
+        /**
+         * Builds the rule set; no rule can be defined afterwards.
+         * @return The rules defined so far, in code order.
+         * @throws IllegalStateException if the rule set was already built.
+         */
+        public ValidationRules build() {
+            if (built) {
+                throw new IllegalStateException(entity + " rules are already built");
+            }
+            built = true;
+            return new ValidationRules(entity, fields, messages);
+        }
+    }
+
+    /**
+     * The outcome of the last tryCreate() call it was passed to. One instance can be reused for every row of
+     * a feed, so rejecting a row allocates nothing.
+     */
+    public static final class Result {
+        private ValidationRules rules;
+        private int code;
+
+        /**
+         * Records an outcome.
+         * @param rules The rule set the code is from.
+         * @param code VALID or the code of the broken rule.
+         */
+        public void set(ValidationRules rules, int code) {
+            this.rules = rules;
+            this.code = code;
+        }
+
+        /** Returns VALID or the code of the broken rule. */
+        public int getCode() {
+            return code;
+        }
+
+        /** Returns whether every rule held. */
+        public boolean isValid() {
+            return code == VALID;
+        }
+
+        /** Returns the message of the broken rule, or null if every rule held. */
+        public String getMessage() {
+            return code == VALID ? null : rules.message(code);
+        }
+
+        /** Returns the field of the broken rule, or null if every rule held. */
+        public String getField() {
+            return code == VALID ? null : rules.field(code);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the ValidationRules class.
+ * These tests validate rule codes and messages, the field checks, and the exception thrown by check().
+ */
+public class ValidationRulesTest {
+
+    /**
+     * Tests that rules get consecutive codes from 1, with their fields and messages.
+     */
+    @Test
+    public void testDefine() {
+        ValidationRules.Builder builder = ValidationRules.builder("Thing");
+        int name = builder.define("name", "Name is invalid");
+        int size = builder.define("size", "Size must be positive");
+        ValidationRules rules = builder.build();
+
+        assertEquals(1, name);
+        assertEquals(2, size);
+        assertEquals(2, rules.size());
+        assertEquals("Size must be positive", rules.message(size));
+        assertEquals("name", rules.field(name));
+        assertNull(rules.message(ValidationRules.VALID));
+        try {
+            rules.message(3);
+            fail("A code the set did not issue should be rejected.");
+        } catch (IllegalArgumentException e) {
+            assertEquals("No Thing rule has code 3", e.getMessage());
+        }
+    }
+
+    /**
+     * Tests that a built rule set is frozen: the builder accepts no more rules and builds only once.
+     */
+    @Test
+    public void testBuiltRulesAreFrozen() {
+        ValidationRules.Builder builder = ValidationRules.builder("Thing");
+        builder.define("name", "Name is invalid");
+        ValidationRules rules = builder.build();
+        try {
+            builder.define("size", "Size must be positive");
+            fail("A rule defined after the build should be rejected.");
+        } catch (IllegalStateException e) {
+            assertEquals("Thing rules are already built", e.getMessage());
+        }
+        try {
+            builder.build();
+            fail("A second build should be rejected.");
+        } catch (IllegalStateException e) {
+            assertEquals("Thing rules are already built", e.getMessage());
+        }
+        assertEquals(1, rules.size());
+    }
+
+    /**
+     * Tests the field checks at and around their limits.
+     */
+    @Test
+    public void testChecks() {
+        assertEquals(ValidationRules.VALID, ValidationRules.required("abc", 3, 7));
+        assertEquals(7, ValidationRules.required("abcd", 3, 7));
+        assertEquals(7, ValidationRules.required(null, 3, 7));
+        assertEquals(ValidationRules.VALID, ValidationRules.optional(null, 3, 7));
+        assertEquals(7, ValidationRules.optional("abcd", 3, 7));
+        assertEquals(ValidationRules.VALID, ValidationRules.require(true, 7));
+        assertEquals(7, ValidationRules.require(false, 7));
+    }
+
+    /**
+     * Tests that a Result reports the message and field of the rule recorded last.
+     */
+    @Test
+    public void testResult() {
+        ValidationRules.Builder builder = ValidationRules.builder("Thing");
+        int name = builder.define("name", "Name is invalid");
+        ValidationRules rules = builder.build();
+        ValidationRules.Result result = new ValidationRules.Result();
+        result.set(rules, name);
+        assertFalse(result.isValid());
+        assertEquals("Name is invalid", result.getMessage());
+        assertEquals("name", result.getField());
+        result.set(rules, ValidationRules.VALID);
+        assertTrue(result.isValid());
+        assertNull(result.getMessage());
+    }
+
+    /**
+     * Tests that check() throws the rule's message and does nothing for VALID.
+     */
+    @Test
+    public void testCheck() {
+        ValidationRules.Builder builder = ValidationRules.builder("Thing");
+        int name = builder.define("name", "Name is invalid");
+        ValidationRules rules = builder.build();
+        rules.check(ValidationRules.VALID);
+        try {
+            rules.check(name);
+            fail("A broken rule should throw.");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Name is invalid", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,137 @@
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Asynchronous facade over a ContactService.
+ * Every method returns at once with a CompletableFuture, and the call runs on the facade's executor,
+ * virtual threads by default. Calls on the same contact ID run in the order they were made, and a batch is
+ * ordered the same way with the calls on each contact it names.
+ * ContactService is not thread-safe, so the facade also holds a lock around each call: calls to this
+ * service run one at a time, while calls to the other services' facades proceed concurrently.
+ * A rejected call completes its future exceptionally with the exception the service threw.
+ */
+public class AsyncContactService {
+    private final ContactService service;
+    private final KeyedExecutor executor;
+    // A ReentrantLock rather than synchronized, which would pin a virtual thread to its carrier while it waits.
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Creates a facade that runs on the executor shared by the async facades.
+     * @param service The service to call.
+     */
+    public AsyncContactService(ContactService service) {
+        this(service, KeyedExecutor.sharedExecutor());
+    }
+
+    /**
+     * Creates a facade that runs on the given executor.
+     * @param service The service to call.
+     * @param executor The executor that runs the calls.
+     */
+    public AsyncContactService(ContactService service, Executor executor) {
+        this.service = service;
+        this.executor = new KeyedExecutor(executor);
+    }
+
+    /**
+     * Returns the stored contacts; see ContactService.getContactList.
+     * @return A future completed with a copy of the contact list.
+     */
+    public CompletableFuture<List<Contact>> getContactList() {
+        return executor.submit(locked(service::getContactList));
+    }
+
+    /**
+     * Adds a new contact with a generated ID; see ContactService.newContact.
+     * @return A future completed once the contact is stored.
+     */
+    public CompletableFuture<Void> newContact(String firstname, String lastname, String phonenumber, String address) {
+        return executor.submit(locked(() -> {
+            service.newContact(firstname, lastname, phonenumber, address);
+            return null;
+        }));
+    }
+
+    /**
+     * Looks up a contact; see ContactService.getContact.
+     * @param id The unique ID of the contact.
+     * @return A future completed with the stored contact.
+     */
+    public CompletableFuture<Contact> getContact(String id) {
+        return executor.submit(id, locked(() -> service.getContact(id)));
+    }
+
+    /**
+     * Deletes a contact; see ContactService.deleteContact.
+     * @param id The unique ID of the contact.
+     * @return A future completed once the contact is deleted.
+     */
+    public CompletableFuture<Void> deleteContact(String id) {
+        return executor.submit(id, locked(() -> {
+            service.deleteContact(id);
+            return null;
+        }));
+    }
+
+    /**
+     * Changes a contact's first name; see ContactService.updateFirstName.
+     * @param id The unique ID of the contact.
+     * @param firstName The new first name.
+     * @return A future completed once the contact is updated.
+     */
+    public CompletableFuture<Void> updateFirstName(String id, String firstName) {
+        return executor.submit(id, locked(() -> {
+            service.updateFirstName(id, firstName);
+            return null;
+        }));
+    }
+
+    /**
+     * Finds contacts by name; see ContactService.searchByName.
+     * @return A future completed with the matching contacts.
+     */
+    public CompletableFuture<List<Contact>> searchByName(String prefix, int limit, boolean typoTolerant) {
+        return executor.submit(locked(() -> service.searchByName(prefix, limit, typoTolerant)));
+    }
+
+    /**
+     * Adds a batch of contacts; see ContactService.addAll.
+     * @return A future completed with the batch report.
+     */
+    public CompletableFuture<BatchResult> addAll(Collection<Contact> batch, boolean atomic) {
+        return executor.submitAll(KeyedExecutor.keysOf(batch, Contact::getContactId), locked(() -> service.addAll(batch, atomic)));
+    }
+
+    /**
+     * Deletes a batch of contacts; see ContactService.deleteAll.
+     * @return A future completed with the batch report.
+     */
+    public CompletableFuture<BatchResult> deleteAll(Collection<String> ids, boolean atomic) {
+        return executor.submitAll(ids, locked(() -> service.deleteAll(ids, atomic)));
+    }
+
+    /**
+     * Updates a batch of contacts; see ContactService.updateAll.
+     * @return A future completed with the batch report.
+     */
+    public CompletableFuture<BatchResult> updateAll(Collection<Contact> updates, boolean atomic) {
+        return executor.submitAll(KeyedExecutor.keysOf(updates, Contact::getContactId), locked(() -> service.updateAll(updates, atomic)));
+    }
+
+    // Wraps a call so it runs while holding the service lock.
+    private <T> Callable<T> locked(Callable<T> call) {
+        return () -> {
+            lock.lock();
+            try {
+                return call.call();
+            } finally {
+                lock.unlock();
+            }
+        };
+    }
+}
@@ -0,0 +1,41 @@
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the AsyncContactService class.
+ */
+public class AsyncContactServiceTest {
+    private final ContactService service = new ContactService();
+    private final AsyncContactService async = new AsyncContactService(service);
+
+    /**
+     * Tests that many concurrent calls leave the service consistent.
+     */
+    @Test
+    public void testConcurrentCreates() throws Exception {
+        List<CompletableFuture<Void>> creates = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            creates.add(async.newContact("First", "Last", "1234567890", "Address"));
+        }
+        CompletableFuture.allOf(creates.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+        assertEquals(500, async.getContactList().get(10, TimeUnit.SECONDS).size());
+    }
+
+    /**
+     * Tests that the checked exception of a missing contact becomes the cause of the failed future.
+     */
+    @Test
+    public void testMissingContactFailsFuture() throws Exception {
+        try {
+            async.getContact("Missing").get(10, TimeUnit.SECONDS);
+            fail("Looking up a missing contact should fail.");
+        } catch (ExecutionException e) {
+            assertEquals("Contact not found.", e.getCause().getMessage());
+        }
+    }
+}
@@ -1,7 +1,25 @@
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+
 /**
  * The Contact class represents a contact with unique identifier and personal details.
  * It provides methods to update contact details while ensuring they meet specific criteria.
- * 
+ *
+ * The fields are kept in a compact form: the phone number as a long, and the first name, last name
+ * and address packed into one byte array, one byte per char when they are all Latin-1. The contact ID
+ * stays a String, as the same instance is the key under which ContactService stores the contact.
+ * The getters build their String on each call.
+ *
+ * A ContactService with a ContactDictionary stores its contacts dictionary-encoded instead: the array holds
+ * the int code of each field the dictionary covers in place of its chars, so values repeated across contacts
+ * are held once, and equality and prefix lookups on those fields compare codes. A value a full dictionary
+ * refuses is kept as chars. The contact does not point to the dictionary, which stays with the service, so
+ * an encoded contact is read only by that service, and the service hands out decoded copies.
+ *
+ * The field rules are defined once in RULES. validate() checks a set of fields against them and tryCreate()
+ * creates a contact from them, neither throwing, for bulk feeds; the constructors and update methods apply
+ * the same rules and throw.
+ *
  * @author John Hamwi
  * @course CS-320
  * @date Mar 21, 2024
@@ -17,13 +35,46 @@ public class Contact {
     // Initial values for default constructor
     private static final String INITIALIZER = "INITIAL";
     private static final String INITIALIZER_NUM = "1235559999";
-    
+    // Exclusive upper bound of a phone number held as a number
+    private static final long PHONE_LIMIT = 10_000_000_000L;
+
+    // Validation rules, defined once with their messages
+    private static final ValidationRules.Builder DEFINITIONS = ValidationRules.builder("Contact");
+    public static final int INVALID_ID = DEFINITIONS.define("contactId",
+            "Contact ID must be non-null and not exceed " + CONTACT_ID_LENGTH + " characters");
+    public static final int INVALID_FIRST_NAME = DEFINITIONS.define("firstName",
+            "First name must be non-null and not exceed " + CONTACT_FNAME_LENGTH + " characters");
+    public static final int INVALID_LAST_NAME = DEFINITIONS.define("lastName",
+            "Last name must be non-null and not exceed " + CONTACT_LNAME_LENGTH + " characters");
+    public static final int INVALID_PHONE_NUMBER = DEFINITIONS.define("phoneNumber",
+            "Phone number must be non-null, exactly " + CONTACT_PHONENUM_LENGTH + " digits long, and numeric");
+    public static final int INVALID_ADDRESS = DEFINITIONS.define("address",
+            "Address must be non-null and not exceed " + CONTACT_ADDRESS_LENGTH + " characters");
+    public static final ValidationRules RULES = DEFINITIONS.build();
+
+    // Packed field layout: a header byte, then each field as a length in chars followed by its chars, or as a
+    // four-byte dictionary code if its bit CODED << field is set in the header; the header's low bit is the
+    // coder of the fields held as chars
+    private static final byte LATIN1 = 0;
+    private static final byte UTF16 = 1;
+    private static final int CODED = 2;
+    private static final int FIRST_NAME = 0;
+    private static final int LAST_NAME = 1;
+    private static final int ADDRESS = 2;
+
     // Contact information fields
     private String contactId;
-    private String firstName;
-    private String lastName;
-    private String phoneNumber;
-    private String address;
+    private long phoneNumber;
+    private byte[] packed;
+
+    /**
+     * The text fields a dictionary-encoded service can look contacts up by.
+     */
+    public enum Field {
+        FIRST_NAME,
+        LAST_NAME,
+        ADDRESS
+    }
 
     // Default constructor initializing with default values
     Contact() {
@@ -50,53 +101,366 @@ public class Contact {
     // Main constructor that all other constructors call
     Contact(String contactId, String firstName, String lastName, String phoneNumber, String address) {
         updateContactId(contactId);
-        updateFirstName(firstName);
-        updateLastName(lastName);
-        updatePhoneNumber(phoneNumber);
-        updateAddress(address);
+        checkFirstName(firstName);
+        checkLastName(lastName);
+        this.phoneNumber = parsePhoneNumber(phoneNumber);
+        checkAddress(address);
+        this.packed = pack(firstName, lastName, address);
+    }
+
+    // Constructor for stores that keep the phone number as a number, such as ContactRecordStore
+    Contact(String contactId, String firstName, String lastName, long phoneNumber, String address) {
+        updateContactId(contactId);
+        checkFirstName(firstName);
+        checkLastName(lastName);
+        RULES.check(ValidationRules.require(phoneNumber >= 0 && phoneNumber < PHONE_LIMIT, INVALID_PHONE_NUMBER));
+        this.phoneNumber = phoneNumber;
+        checkAddress(address);
+        this.packed = pack(firstName, lastName, address);
+    }
+
+    // Copy constructor for stores that hand out copies; the packed fields are shared, as updates replace them
+    Contact(Contact other) {
+        this(other.contactId, other.phoneNumber, other.packed);
+    }
+
+    // Constructor for fields that are already validated
+    private Contact(String contactId, long phoneNumber, byte[] packed) {
+        this.contactId = contactId;
+        this.phoneNumber = phoneNumber;
+        this.packed = packed;
     }
 
     // Getters provide read access to contact fields
     public final String getContactId() { return contactId; }
-    public final String getFirstName() { return firstName; }
-    public final String getLastName() { return lastName; }
-    public final String getPhoneNumber() { return phoneNumber; }
-    public final String getAddress() { return address; }
+    public final String getFirstName() { return field(FIRST_NAME); }
+    public final String getLastName() { return field(LAST_NAME); }
+    public final String getAddress() { return field(ADDRESS); }
+
+    public final String getPhoneNumber() {
+        // Restore the leading zeros that the numeric form drops
+        byte[] digits = new byte[CONTACT_PHONENUM_LENGTH];
+        long rest = phoneNumber;
+        for (int i = CONTACT_PHONENUM_LENGTH - 1; i >= 0; i--) {
+            digits[i] = (byte) ('0' + rest % 10);
+            rest /= 10;
+        }
+        return new String(digits, StandardCharsets.ISO_8859_1);
+    }
+
+    // Phone number digits as a number, for stores that keep it in that form
+    final long getPhoneDigits() { return phoneNumber; }
 
     // Update methods apply validation rules before setting fields
     public void updateFirstName(String firstName) {
-        if (firstName == null || firstName.length() > CONTACT_FNAME_LENGTH) {
-            throw new IllegalArgumentException("First name must be non-null and not exceed " + CONTACT_FNAME_LENGTH + " characters");
-        }
-        this.firstName = firstName;
+        checkFirstName(firstName);
+        setField(FIRST_NAME, firstName);
     }
 
     public void updateLastName(String lastName) {
-        if (lastName == null || lastName.length() > CONTACT_LNAME_LENGTH) {
-            throw new IllegalArgumentException("Last name must be non-null and not exceed " + CONTACT_LNAME_LENGTH + " characters");
-        }
-        this.lastName = lastName;
+        checkLastName(lastName);
+        setField(LAST_NAME, lastName);
     }
 
     public void updatePhoneNumber(String phoneNumber) {
-        if (phoneNumber == null || phoneNumber.length() != CONTACT_PHONENUM_LENGTH || !phoneNumber.matches("[0-9]+")) {
-            throw new IllegalArgumentException("Phone number must be non-null, exactly " + CONTACT_PHONENUM_LENGTH + " digits long, and numeric");
-        }
-        this.phoneNumber = phoneNumber;
+        this.phoneNumber = parsePhoneNumber(phoneNumber);
     }
 
     public void updateAddress(String address) {
-        if (address == null || address.length() > CONTACT_ADDRESS_LENGTH) {
-            throw new IllegalArgumentException("Address must be non-null and not exceed " + CONTACT_ADDRESS_LENGTH + " characters");
+        checkAddress(address);
+        setField(ADDRESS, address);
+    }
+
+    /**
+     * Checks the fields of a contact against RULES without creating it or throwing.
+     * @return ValidationRules.VALID, or the code of the first invalid field in constructor order.
+     */
+    public static int validate(String contactId, String firstName, String lastName, String phoneNumber, String address) {
+        return validate(contactId, firstName, lastName, phoneDigits(phoneNumber), address);
+    }
+
+    /**
+     * Creates a contact if its fields are valid, checking them once and without throwing.
+     * @param result Receives ValidationRules.VALID or the code of the first invalid field.
+     * @return The new contact, or null if a field is invalid.
+     */
+    public static Contact tryCreate(String contactId, String firstName, String lastName, String phoneNumber, String address,
+            ValidationRules.Result result) {
+        long digits = phoneDigits(phoneNumber);
+        int code = validate(contactId, firstName, lastName, digits, address);
+        result.set(RULES, code);
+        return code == ValidationRules.VALID ? new Contact(contactId, digits, pack(firstName, lastName, address)) : null;
+    }
+
+    // Checks the fields with the phone number already parsed, -1 standing for an invalid one
+    private static int validate(String contactId, String firstName, String lastName, long phoneDigits, String address) {
+        int code;
+        if ((code = ValidationRules.required(contactId, CONTACT_ID_LENGTH, INVALID_ID)) != ValidationRules.VALID
+                || (code = ValidationRules.required(firstName, CONTACT_FNAME_LENGTH, INVALID_FIRST_NAME)) != ValidationRules.VALID
+                || (code = ValidationRules.required(lastName, CONTACT_LNAME_LENGTH, INVALID_LAST_NAME)) != ValidationRules.VALID
+                || (code = ValidationRules.require(phoneDigits >= 0, INVALID_PHONE_NUMBER)) != ValidationRules.VALID) {
+            return code;
         }
-        this.address = address;
+        return ValidationRules.required(address, CONTACT_ADDRESS_LENGTH, INVALID_ADDRESS);
     }
 
     // Contact ID is set at creation and cannot be changed, thus no public update method for it
     private void updateContactId(String contactId) {
-        if (contactId == null || contactId.length() > CONTACT_ID_LENGTH) {
-            throw new IllegalArgumentException("Contact ID must be non-null and not exceed " + CONTACT_ID_LENGTH + " characters");
-        }
+        RULES.check(ValidationRules.required(contactId, CONTACT_ID_LENGTH, INVALID_ID));
         this.contactId = contactId;
     }
+
+    // Validation checks; they allocate nothing unless the value is rejected
+    private static void checkFirstName(String firstName) {
+        RULES.check(ValidationRules.required(firstName, CONTACT_FNAME_LENGTH, INVALID_FIRST_NAME));
+    }
+
+    private static void checkLastName(String lastName) {
+        RULES.check(ValidationRules.required(lastName, CONTACT_LNAME_LENGTH, INVALID_LAST_NAME));
+    }
+
+    private static void checkAddress(String address) {
+        RULES.check(ValidationRules.required(address, CONTACT_ADDRESS_LENGTH, INVALID_ADDRESS));
+    }
+
+    // Checks that the phone number is exactly ten ASCII digits and returns them as a number
+    private static long parsePhoneNumber(String phoneNumber) {
+        long digits = phoneDigits(phoneNumber);
+        RULES.check(ValidationRules.require(digits >= 0, INVALID_PHONE_NUMBER));
+        return digits;
+    }
+
+    // Returns the ten ASCII digits of a phone number as a number, or -1 if it is not ten digits
+    private static long phoneDigits(String phoneNumber) {
+        if (phoneNumber == null || phoneNumber.length() != CONTACT_PHONENUM_LENGTH) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 0; i < CONTACT_PHONENUM_LENGTH; i++) {
+            char c = phoneNumber.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Returns an encoded copy of this plain contact, with the fields the dictionary covers held as codes and the
+     * values the dictionary lacks added while it has room. A value the dictionary refuses is kept as chars.
+     * @param dictionary The dictionary of the service storing the copy, the only one that can read it.
+     */
+    Contact encodedIn(ContactDictionary dictionary) {
+        if (width() == 2) {
+            // Encoding may let the fields left as chars narrow, which is rare enough to go through Strings
+            return new Contact(contactId, phoneNumber, pack(dictionary, field(FIRST_NAME), field(LAST_NAME), field(ADDRESS)));
+        }
+        // One byte per char: the covered fields are looked up by their bytes and the others copied as bytes
+        int[] codes = new int[ADDRESS + 1];
+        int length = 1;
+        int header = LATIN1;
+        for (int field = FIRST_NAME, offset = 1; field <= ADDRESS; offset += 1 + packed[offset], field++) {
+            codes[field] = dictionary.encodes(field) ? dictionary.encode(packed, offset + 1, packed[offset]) : -1;
+            if (codes[field] >= 0) {
+                header |= CODED << field;
+            }
+            length += codes[field] >= 0 ? 4 : 1 + packed[offset];
+        }
+        byte[] bytes = new byte[length];
+        bytes[0] = (byte) header;
+        for (int field = FIRST_NAME, from = 1, to = 1; field <= ADDRESS; from += 1 + packed[from], field++) {
+            if (codes[field] >= 0) {
+                to = putCode(bytes, to, codes[field]);
+            } else {
+                System.arraycopy(packed, from, bytes, to, 1 + packed[from]);
+                to += 1 + packed[from];
+            }
+        }
+        return new Contact(contactId, phoneNumber, bytes);
+    }
+
+    /**
+     * Returns a plain copy of this encoded contact, which reads and updates like any other.
+     * @param dictionary The dictionary the contact is encoded in.
+     */
+    Contact decodedFrom(ContactDictionary dictionary) {
+        return new Contact(contactId, phoneNumber,
+                pack(field(FIRST_NAME, dictionary), field(LAST_NAME, dictionary), field(ADDRESS, dictionary)));
+    }
+
+    /**
+     * Checks whether a field equals a value, comparing codes if the contact holds the field as one.
+     * @param code The value's code in the dictionary the contact is encoded in, or -1 if it has none.
+     */
+    boolean fieldEquals(Field field, int code, String value) {
+        if (isCode(field.ordinal())) {
+            return codeAt(offsetOf(field.ordinal())) == code;
+        }
+        return field(field.ordinal()).equals(value);
+    }
+
+    /**
+     * Checks whether a field starts with a prefix, testing its code if the contact holds the field as one.
+     * @param codes The codes of the values that start with the prefix, in the dictionary the contact is encoded in.
+     */
+    boolean fieldStartsWith(Field field, BitSet codes, String prefix) {
+        if (isCode(field.ordinal())) {
+            return codes.get(codeAt(offsetOf(field.ordinal())));
+        }
+        return field(field.ordinal()).startsWith(prefix);
+    }
+
+    // Whether every field the dictionary covers is held as a code, none having been refused
+    boolean isEncodedIn(ContactDictionary dictionary) {
+        return packed[0] >> 1 == dictionary.fieldMask();
+    }
+
+    // Length of the array holding the fields
+    int fieldBytes() {
+        return packed.length;
+    }
+
+    // Length the array holding the fields would have unencoded
+    int unencodedFieldBytes(ContactDictionary dictionary) {
+        if (packed[0] >> 1 == 0) {
+            return packed.length;
+        }
+        String firstName = field(FIRST_NAME, dictionary);
+        String lastName = field(LAST_NAME, dictionary);
+        String address = field(ADDRESS, dictionary);
+        int width = isLatin1(firstName) && isLatin1(lastName) && isLatin1(address) ? 1 : 2;
+        return 4 + width * (firstName.length() + lastName.length() + address.length());
+    }
+
+    // Decodes one packed field of a plain contact
+    private String field(int field) {
+        return field(field, null);
+    }
+
+    // Decodes one packed or encoded field; the dictionary is only read for a field held as a code
+    private String field(int field, ContactDictionary dictionary) {
+        int offset = offsetOf(field);
+        if (isCode(field)) {
+            return dictionary.value(codeAt(offset));
+        }
+        int length = packed[offset];
+        if (width() == 1) {
+            return new String(packed, offset + 1, length, StandardCharsets.ISO_8859_1);
+        }
+        return new String(packed, offset + 1, 2 * length, StandardCharsets.UTF_16BE);
+    }
+
+    // Replaces one packed field of a plain contact, copying the others as bytes
+    private void setField(int field, String value) {
+        if (width() == 1 && !isLatin1(value)) {
+            // The other fields have to be widened as well, which is rare enough to go through Strings
+            String[] values = {field(FIRST_NAME), field(LAST_NAME), field(ADDRESS)};
+            values[field] = value;
+            packed = pack(values[0], values[1], values[2]);
+            return;
+        }
+        int width = width();
+        int offset = offsetOf(field);
+        int oldEnd = offset + 1 + width * packed[offset];
+        byte[] updated = new byte[packed.length - (oldEnd - offset) + 1 + width * value.length()];
+        System.arraycopy(packed, 0, updated, 0, offset);
+        int end = putField(updated, offset, value, width);
+        System.arraycopy(packed, oldEnd, updated, end, packed.length - oldEnd);
+        packed = updated;
+    }
+
+    // Returns the position of a packed field: its length byte, or its code
+    private int offsetOf(int field) {
+        int width = width();
+        int offset = 1;
+        for (int i = 0; i < field; i++) {
+            offset += isCode(i) ? 4 : 1 + width * packed[offset];
+        }
+        return offset;
+    }
+
+    // Bytes per char of the fields held as chars
+    private int width() {
+        return (packed[0] & UTF16) == 0 ? 1 : 2;
+    }
+
+    // Whether a field is held as a dictionary code
+    private boolean isCode(int field) {
+        return (packed[0] & CODED << field) != 0;
+    }
+
+    // Returns the dictionary code at a position
+    private int codeAt(int offset) {
+        return (packed[offset] & 0xFF) << 24 | (packed[offset + 1] & 0xFF) << 16 | (packed[offset + 2] & 0xFF) << 8
+                | packed[offset + 3] & 0xFF;
+    }
+
+    // Packs the three fields, using one byte per char if they are all Latin-1
+    private static byte[] pack(String firstName, String lastName, String address) {
+        return pack(null, firstName, lastName, address);
+    }
+
+    // Packs the three fields, each as its code if the dictionary covers the field and holds or takes the value,
+    // and otherwise as chars, one byte per char if all fields held as chars are Latin-1
+    private static byte[] pack(ContactDictionary dictionary, String firstName, String lastName, String address) {
+        int firstCode = codeIn(dictionary, FIRST_NAME, firstName);
+        int lastCode = codeIn(dictionary, LAST_NAME, lastName);
+        int addressCode = codeIn(dictionary, ADDRESS, address);
+        int width = (firstCode >= 0 || isLatin1(firstName)) && (lastCode >= 0 || isLatin1(lastName))
+                && (addressCode >= 0 || isLatin1(address)) ? 1 : 2;
+        byte[] bytes = new byte[1 + packedLength(firstCode, firstName, width) + packedLength(lastCode, lastName, width)
+                + packedLength(addressCode, address, width)];
+        bytes[0] = (byte) ((width == 1 ? LATIN1 : UTF16) | (firstCode >= 0 ? CODED << FIRST_NAME : 0)
+                | (lastCode >= 0 ? CODED << LAST_NAME : 0) | (addressCode >= 0 ? CODED << ADDRESS : 0));
+        int offset = putField(bytes, 1, firstCode, firstName, width);
+        offset = putField(bytes, offset, lastCode, lastName, width);
+        putField(bytes, offset, addressCode, address, width);
+        return bytes;
+    }
+
+    // Returns the code of a value in the dictionary, or -1 if it is held as chars
+    private static int codeIn(ContactDictionary dictionary, int field, String value) {
+        return dictionary != null && dictionary.encodes(field) ? dictionary.encode(value) : -1;
+    }
+
+    private static int packedLength(int code, String value, int width) {
+        return code >= 0 ? 4 : 1 + width * value.length();
+    }
+
+    // Writes a field as its code, or as chars if it has none, returning the position after it
+    private static int putField(byte[] bytes, int offset, int code, String value, int width) {
+        return code < 0 ? putField(bytes, offset, value, width) : putCode(bytes, offset, code);
+    }
+
+    // Writes a dictionary code, returning the position after it
+    private static int putCode(byte[] bytes, int offset, int code) {
+        bytes[offset] = (byte) (code >>> 24);
+        bytes[offset + 1] = (byte) (code >>> 16);
+        bytes[offset + 2] = (byte) (code >>> 8);
+        bytes[offset + 3] = (byte) code;
+        return offset + 4;
+    }
+
+    // Writes a length byte and the chars of a field, returning the position after it
+    private static int putField(byte[] bytes, int offset, String value, int width) {
+        bytes[offset++] = (byte) value.length();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (width == 2) {
+                bytes[offset++] = (byte) (c >>> 8);
+            }
+            bytes[offset++] = (byte) c;
+        }
+        return offset;
+    }
+
+    private static boolean isLatin1(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -0,0 +1,485 @@
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bounded in-heap cache in front of a ContactRecordStore, for services with more contacts than fit in the
+ * heap whose reads mostly hit a small hot set. Cached reads cost a HashMap lookup and a copy instead of a
+ * probe and decode of the mapped file, and the heap holds at most the given number of contacts.
+ *
+ * Eviction follows W-TinyLFU. A contact read or written for the first time enters a small LRU window, 1% of
+ * the capacity. Leaving the window, it is only admitted to the main area if a frequency sketch has seen it
+ * more often than the contact the main area would evict for it; otherwise it is dropped. The main area is a
+ * segmented LRU: contacts read again while on probation move to a protected segment of 80% of the area, and
+ * the least recently used protected contact falls back to probation. The sketch counts every ID read or
+ * written, cached or not, in 4-bit counters that are halved after every ten times the capacity in counts,
+ * so a one-off scan cannot flush the hot set and old popularity fades.
+ *
+ * In write-through mode adds and changes go to the store at once. In write-behind mode they stay in the
+ * cache, marked dirty, until the contact is evicted or writeBack() is called, so repeated changes of a hot
+ * contact cost one store write; dirty contacts are lost if the process dies before then. Deletes always go
+ * to the store at once. Iterating writes the dirty contacts back first and then reads the store.
+ *
+ * Contacts are copied in and out, like the store's, so a contact can only be changed by writing it back.
+ * Not thread-safe, like the ContactService that owns it.
+ */
+final class ContactCache extends AbstractMap<String, Contact> {
+    // Queues a cached contact can be on.
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private final ContactRecordStore store;
+    private final boolean writeBehind;
+    private final int windowMax;
+    private final int mainMax;
+    private final int protectedMax;
+    private final Map<String, Node> nodes;
+    // Sentinels of the three LRU queues, least recently used first.
+    private final Node[] queues = {new Node(null), new Node(null), new Node(null)};
+    private final int[] queueSizes = new int[3];
+    private final FrequencySketch sketch;
+    // Dirty contacts that are not in the store yet, which size() has to count.
+    private int pending;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long storeWrites;
+
+    /**
+     * Creates a cache of at most the given number of contacts over a store.
+     * @param store The store holding every written-back contact.
+     * @param capacity The maximum number of cached contacts, at least 1.
+     * @param writeBehind Whether adds and changes wait in the cache until eviction or writeBack().
+     * @throws IllegalArgumentException if the capacity is less than 1.
+     */
+    ContactCache(ContactRecordStore store, int capacity, boolean writeBehind) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be at least 1");
+        }
+        this.store = store;
+        this.writeBehind = writeBehind;
+        this.windowMax = Math.max(1, capacity / 100);
+        this.mainMax = capacity - windowMax;
+        this.protectedMax = (int) (mainMax * 0.8);
+        this.nodes = new HashMap<>(Math.max(16, (int) (capacity / 0.75f) + 1));
+        this.sketch = new FrequencySketch(capacity);
+        for (Node sentinel : queues) {
+            sentinel.previous = sentinel;
+            sentinel.next = sentinel;
+        }
+    }
+
+    @Override
+    public int size() {
+        return store.size() + pending;
+    }
+
+    @Override
+    public boolean containsKey(Object id) {
+        return nodes.containsKey(id) || store.containsKey(id);
+    }
+
+    @Override
+    public Contact get(Object id) {
+        if (!(id instanceof String)) {
+            return null;
+        }
+        sketch.increment(id.hashCode());
+        Node node = nodes.get(id);
+        if (node != null) {
+            hits++;
+            onHit(node);
+            return new Contact(node.contact);
+        }
+        misses++;
+        Contact stored = store.get(id);
+        if (stored == null) {
+            return null;
+        }
+        admit(new Node(stored));
+        return new Contact(stored);
+    }
+
+    @Override
+    public Contact put(String id, Contact contact) {
+        Node node = nodes.get(id);
+        if (node != null) {
+            Contact previous = node.contact;
+            write(contact);
+            return previous;
+        }
+        Contact previous = store.get(id);
+        insert(contact, previous != null);
+        return previous;
+    }
+
+    @Override
+    public Contact putIfAbsent(String id, Contact contact) {
+        Node node = nodes.get(id);
+        if (node != null) {
+            return new Contact(node.contact);
+        }
+        Contact stored = store.get(id);
+        if (stored != null) {
+            return stored;
+        }
+        insert(contact, false);
+        return null;
+    }
+
+    @Override
+    public Contact remove(Object id) {
+        Node node = nodes.remove(id);
+        if (node != null) {
+            unlink(node);
+            if (!node.stored) {
+                pending--;
+                return node.contact;
+            }
+        }
+        Contact removed = store.remove(id);
+        return node != null ? node.contact : removed;
+    }
+
+    /**
+     * Stores a changed contact, which must be cached or stored already.
+     * @param contact The contact that was changed.
+     */
+    void write(Contact contact) {
+        Node node = nodes.get(contact.getContactId());
+        if (node == null) {
+            insert(contact, true);
+            return;
+        }
+        sketch.increment(node.id.hashCode());
+        node.contact = new Contact(contact);
+        onHit(node);
+        if (writeBehind) {
+            node.dirty = true;
+        } else {
+            store.write(node.contact);
+            storeWrites++;
+        }
+    }
+
+    /**
+     * Writes every dirty contact to the store. Does nothing in write-through mode.
+     */
+    void writeBack() {
+        if (writeBehind) {
+            for (Node node : nodes.values()) {
+                if (node.dirty) {
+                    writeToStore(node);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the cache's counts so far.
+     * @return The counts as of now.
+     */
+    Stats stats() {
+        int dirty = 0;
+        for (Node node : nodes.values()) {
+            dirty += node.dirty ? 1 : 0;
+        }
+        return new Stats(hits, misses, evictions, storeWrites, nodes.size(), dirty);
+    }
+
+    @Override
+    public Set<Map.Entry<String, Contact>> entrySet() {
+        writeBack();
+        Set<Map.Entry<String, Contact>> entries = store.entrySet();
+        return new AbstractSet<Map.Entry<String, Contact>>() {
+            @Override
+            public int size() {
+                return entries.size();
+            }
+
+            @Override
+            public Iterator<Map.Entry<String, Contact>> iterator() {
+                Iterator<Map.Entry<String, Contact>> iterator = entries.iterator();
+                return new Iterator<Map.Entry<String, Contact>>() {
+                    private String last;
+
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<String, Contact> next() {
+                        Map.Entry<String, Contact> entry = iterator.next();
+                        last = entry.getKey();
+                        return entry;
+                    }
+
+                    @Override
+                    public void remove() {
+                        iterator.remove();
+                        Node node = nodes.remove(last);
+                        if (node != null) {
+                            unlink(node);
+                        }
+                    }
+                };
+            }
+        };
+    }
+
+    // Caches a contact that is not cached yet, writing it to the store unless writes are behind.
+    private void insert(Contact contact, boolean stored) {
+        Node node = new Node(new Contact(contact));
+        sketch.increment(node.id.hashCode());
+        if (writeBehind) {
+            node.dirty = true;
+            node.stored = stored;
+            pending += stored ? 0 : 1;
+        } else if (stored) {
+            store.write(node.contact);
+            storeWrites++;
+        } else {
+            store.put(node.id, node.contact);
+            storeWrites++;
+        }
+        admit(node);
+    }
+
+    // Moves a cached contact up its queue, promoting it from probation to protected. A protected contact is
+    // only marked, which saves relinking it and its neighbours on most hits; see demote().
+    private void onHit(Node node) {
+        if (node.queue == PROTECTED) {
+            node.referenced = true;
+            return;
+        }
+        unlink(node);
+        if (node.queue == PROBATION) {
+            link(node, PROTECTED);
+            if (queueSizes[PROTECTED] > protectedMax) {
+                demote();
+            }
+        } else {
+            link(node, node.queue);
+        }
+    }
+
+    // Moves the least recently used protected contact to probation. Marked contacts get a second chance
+    // at the back of the queue, which orders the segment like an LRU list relinked on every hit.
+    private void demote() {
+        Node demoted = queues[PROTECTED].next;
+        while (demoted.referenced) {
+            demoted.referenced = false;
+            unlink(demoted);
+            link(demoted, PROTECTED);
+            demoted = queues[PROTECTED].next;
+        }
+        unlink(demoted);
+        link(demoted, PROBATION);
+    }
+
+    // Adds a contact to the window, and settles the contact leaving the window against the main area's victim.
+    private void admit(Node node) {
+        nodes.put(node.id, node);
+        link(node, WINDOW);
+        if (queueSizes[WINDOW] <= windowMax) {
+            return;
+        }
+        Node candidate = queues[WINDOW].next;
+        unlink(candidate);
+        link(candidate, PROBATION);
+        if (queueSizes[PROBATION] + queueSizes[PROTECTED] <= mainMax) {
+            return;
+        }
+        // The candidate itself is the victim when it is the only contact on probation and nothing is protected
+        Node victim = queueSizes[PROBATION] > 1 || queueSizes[PROTECTED] == 0 ? queues[PROBATION].next : queues[PROTECTED].next;
+        if (victim == candidate || sketch.frequency(candidate.id.hashCode()) <= sketch.frequency(victim.id.hashCode())) {
+            evict(candidate);
+        } else {
+            evict(victim);
+        }
+    }
+
+    private void evict(Node node) {
+        nodes.remove(node.id);
+        unlink(node);
+        if (node.dirty) {
+            writeToStore(node);
+        }
+        evictions++;
+    }
+
+    private void writeToStore(Node node) {
+        if (node.stored) {
+            store.write(node.contact);
+        } else {
+            store.put(node.id, node.contact);
+            node.stored = true;
+            pending--;
+        }
+        node.dirty = false;
+        storeWrites++;
+    }
+
+    private void link(Node node, int queue) {
+        Node sentinel = queues[queue];
+        node.queue = queue;
+        node.previous = sentinel.previous;
+        node.next = sentinel;
+        sentinel.previous.next = node;
+        sentinel.previous = node;
+        queueSizes[queue]++;
+    }
+
+    private void unlink(Node node) {
+        node.previous.next = node.next;
+        node.next.previous = node.previous;
+        queueSizes[node.queue]--;
+    }
+
+    /**
+     * A cached contact and its place in the LRU queues.
+     */
+    private static final class Node {
+        final String id;
+        Contact contact;
+        // Changed since it was last written to the store; only in write-behind mode.
+        boolean dirty;
+        // In the store, possibly in an older version.
+        boolean stored = true;
+        // Hit while protected since it was last moved.
+        boolean referenced;
+        int queue;
+        Node previous;
+        Node next;
+
+        Node(Contact contact) {
+            this.id = contact == null ? null : contact.getContactId();
+            this.contact = contact;
+        }
+    }
+
+    /**
+     * Count-min sketch of how often IDs were used, in 4-bit counters, 16 to a long. Each ID has a counter in
+     * four of the eight longs of one 64-byte block, so counting costs one cache miss rather than four, and
+     * its estimate is the least of them.
+     */
+    private static final class FrequencySketch {
+        private final long[] table;
+        private final int blockMask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int capacity) {
+            int length = Integer.highestOneBit(Math.max(16, capacity - 1) << 1);
+            this.table = new long[length];
+            this.blockMask = (length >> 3) - 1;
+            this.sampleSize = (int) Math.min(10L * capacity, Integer.MAX_VALUE);
+        }
+
+        void increment(int hash) {
+            long spread = spread(hash);
+            int block = ((int) (spread >>> 32) & blockMask) << 3;
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                // Counter i is in long 2i or 2i + 1 of the block, so the four are always in different longs
+                int index = block + (i << 1) + (int) (spread >>> (i << 3) & 1);
+                int shift = (int) (spread >>> ((i << 3) + 1) & 15) << 2;
+                if (((table[index] >>> shift) & 15) < 15) {
+                    table[index] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions == sampleSize) {
+                // Halve every counter, so counts of the past weigh half as much as new ones
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = (table[i] >>> 1) & 0x7777777777777777L;
+                }
+                additions /= 2;
+            }
+        }
+
+        int frequency(int hash) {
+            long spread = spread(hash);
+            int block = ((int) (spread >>> 32) & blockMask) << 3;
+            int frequency = 15;
+            for (int i = 0; i < 4; i++) {
+                int index = block + (i << 1) + (int) (spread >>> (i << 3) & 1);
+                int shift = (int) (spread >>> ((i << 3) + 1) & 15) << 2;
+                frequency = Math.min(frequency, (int) ((table[index] >>> shift) & 15));
+            }
+            return frequency;
+        }
+
+        private static long spread(int hash) {
+            long spread = (hash ^ 0x97cb3127L) * 0x9e3779b97f4a7c15L;
+            return spread ^ (spread >>> 29);
+        }
+    }
+
+    /**
+     * Counts of a cache's reads, evictions and store writes.
+     */
+    public static final class Stats {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long storeWrites;
+        private final int size;
+        private final int dirty;
+
+        Stats(long hits, long misses, long evictions, long storeWrites, int size, int dirty) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.storeWrites = storeWrites;
+            this.size = size;
+            this.dirty = dirty;
+        }
+
+        /** Returns the number of reads answered from the cache. */
+        public long getHits() {
+            return hits;
+        }
+
+        /** Returns the number of reads that went to the store, including reads of IDs not stored. */
+        public long getMisses() {
+            return misses;
+        }
+
+        /** Returns the fraction of reads answered from the cache, or 0 before the first read. */
+        public double getHitRate() {
+            return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+        }
+
+        /** Returns the number of contacts evicted or refused admission. */
+        public long getEvictions() {
+            return evictions;
+        }
+
+        /** Returns the number of contacts written to the store. */
+        public long getStoreWrites() {
+            return storeWrites;
+        }
+
+        /** Returns the number of cached contacts. */
+        public int getSize() {
+            return size;
+        }
+
+        /** Returns the number of cached contacts not written to the store yet. */
+        public int getDirty() {
+            return dirty;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d, misses=%d, hitRate=%.3f, evictions=%d, storeWrites=%d, size=%d, dirty=%d",
+                    hits, misses, getHitRate(), evictions, storeWrites, size, dirty);
+        }
+    }
+}
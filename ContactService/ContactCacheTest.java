@@ -0,0 +1,227 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the ContactCache class.
+ * These tests validate reads through the cache, its bound and eviction policy, and both write modes.
+ */
+public class ContactCacheTest {
+    private Path directory; // Directory holding the record file of each test
+    private Path file; // Record file of each test
+
+    /**
+     * Creates an empty directory for the record file before each test.
+     */
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("contact-cache");
+        file = directory.resolve("contacts.dat");
+    }
+
+    /**
+     * Removes the record file after each test.
+     */
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(path -> path.toFile().delete());
+        }
+        Files.delete(directory);
+    }
+
+    private static Contact contact(int i) {
+        return new Contact("C" + i, "First" + i % 100, "Last", String.format("%010d", i), i + " Main St");
+    }
+
+    // Opens a store holding the contacts C0 to C(count - 1).
+    private ContactRecordStore store(int count) throws IOException {
+        ContactRecordStore store = ContactRecordStore.open(file, count);
+        for (int i = 0; i < count; i++) {
+            store.put("C" + i, contact(i));
+        }
+        return store;
+    }
+
+    /**
+     * Tests that reads go through to the store once, and that the cache hands out copies.
+     */
+    @Test
+    public void testReadThrough() throws IOException {
+        try (ContactRecordStore store = store(100)) {
+            ContactCache cache = new ContactCache(store, 10, false);
+            assertEquals("First5", cache.get("C5").getFirstName());
+            Contact copy = cache.get("C5");
+            copy.updateFirstName("Changed");
+            assertEquals("First5", cache.get("C5").getFirstName());
+            assertNull(cache.get("missing"));
+            assertEquals(100, cache.size());
+            assertTrue(cache.containsKey("C99"));
+
+            ContactCache.Stats stats = cache.stats();
+            assertEquals(2, stats.getHits());
+            assertEquals(2, stats.getMisses());
+            assertEquals(1, stats.getSize());
+        }
+    }
+
+    /**
+     * Tests that the cache never holds more contacts than its capacity, down to a capacity of 1.
+     */
+    @Test
+    public void testBound() throws IOException {
+        try (ContactRecordStore store = store(1000)) {
+            for (int capacity : new int[] {1, 2, 50}) {
+                ContactCache cache = new ContactCache(store, capacity, false);
+                for (int round = 0; round < 3; round++) {
+                    for (int i = 0; i < 1000; i++) {
+                        assertEquals("C" + i, cache.get("C" + i).getContactId());
+                        assertTrue(cache.stats().getSize() <= capacity);
+                    }
+                }
+                assertTrue(cache.stats().getEvictions() >= 3000 - capacity);
+            }
+        }
+    }
+
+    /**
+     * Tests that a hot set read many times stays cached through a scan of every other contact.
+     */
+    @Test
+    public void testScanResistance() throws IOException {
+        try (ContactRecordStore store = store(2000)) {
+            ContactCache cache = new ContactCache(store, 100, false);
+            for (int round = 0; round < 20; round++) {
+                for (int i = 0; i < 50; i++) {
+                    cache.get("C" + i);
+                }
+            }
+            for (int i = 50; i < 2000; i++) {
+                cache.get("C" + i);
+            }
+            long hits = cache.stats().getHits();
+            for (int i = 0; i < 50; i++) {
+                cache.get("C" + i);
+            }
+            // An LRU cache would hold none; a hot contact still in the window when the scan starts may be lost
+            assertTrue(cache.stats().getHits() - hits >= 45);
+        }
+    }
+
+    /**
+     * Tests that in write-through mode adds, changes and deletes reach the store at once.
+     */
+    @Test
+    public void testWriteThrough() throws IOException {
+        try (ContactRecordStore store = store(10)) {
+            ContactCache cache = new ContactCache(store, 5, false);
+            Contact changed = cache.get("C1");
+            changed.updateLastName("Moved");
+            cache.write(changed);
+            assertEquals("Moved", store.get("C1").getLastName());
+            assertNull(cache.putIfAbsent("C10", contact(10)));
+            assertEquals("First10", store.get("C10").getFirstName());
+            assertEquals("First10", cache.putIfAbsent("C10", contact(11)).getFirstName());
+            assertEquals("Moved", cache.remove("C1").getLastName());
+            assertFalse(store.containsKey("C1"));
+            assertEquals(10, cache.size());
+            assertEquals(2, cache.stats().getStoreWrites());
+            assertEquals(0, cache.stats().getDirty());
+        }
+    }
+
+    /**
+     * Tests that in write-behind mode adds and changes wait in the cache until evicted or written back,
+     * while the cache already reports them.
+     */
+    @Test
+    public void testWriteBehind() throws IOException {
+        try (ContactRecordStore store = store(10)) {
+            ContactCache cache = new ContactCache(store, 3, true);
+            Contact changed = cache.get("C1");
+            changed.updateLastName("Moved");
+            cache.write(changed);
+            cache.write(changed);
+            cache.putIfAbsent("C10", contact(10));
+            cache.putIfAbsent("C11", contact(11));
+            assertEquals("Last", store.get("C1").getLastName());
+            assertFalse(store.containsKey("C10"));
+            assertEquals("Moved", cache.get("C1").getLastName());
+            assertTrue(cache.containsKey("C10"));
+            assertEquals(12, cache.size());
+            assertEquals(3, cache.stats().getDirty());
+
+            // A pending add that is deleted never reaches the store
+            assertEquals("First11", cache.remove("C11").getFirstName());
+            assertEquals(11, cache.size());
+
+            // Reading other contacts evicts the dirty ones, writing them back
+            for (int i = 2; i < 10; i++) {
+                cache.get("C" + i);
+            }
+            cache.writeBack();
+            assertEquals("Moved", store.get("C1").getLastName());
+            assertEquals("First10", store.get("C10").getFirstName());
+            assertFalse(store.containsKey("C11"));
+            assertEquals(11, store.size());
+            assertEquals(11, cache.size());
+            assertEquals(2, cache.stats().getStoreWrites());
+            assertEquals(0, cache.stats().getDirty());
+
+            // Iterating sees pending changes
+            cache.write(contact(10));
+            List<String> names = new ArrayList<>();
+            for (Contact contact : cache.values()) {
+                names.add(contact.getFirstName());
+            }
+            assertEquals(11, names.size());
+            assertEquals("First10", store.get("C10").getFirstName());
+        }
+    }
+
+    /**
+     * Tests that a cached service keeps the service's semantics, and that a write-behind service stores
+     * everything by the time it is closed.
+     */
+    @Test
+    public void testCachedService() throws Exception {
+        try (ContactService service = ContactService.open(file, 100, 4, true)) {
+            List<Contact> batch = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                batch.add(contact(i));
+            }
+            service.addAll(batch, false);
+            service.updateFirstName("C3", "Renamed");
+            service.getContact("C3").updateFirstName("Ignored");
+            assertEquals("Renamed", service.getContact("C3").getFirstName());
+            service.deleteContact("C4");
+            assertEquals(19, service.getContactList().size());
+            assertEquals("Renamed", service.searchByName("renamed", 5).get(0).getFirstName());
+            assertTrue(service.getCacheStats().getHits() > 0);
+            try {
+                service.getContact("C4");
+                fail("A deleted contact should not be found.");
+            } catch (Exception e) {
+                assertEquals("Contact not found.", e.getMessage());
+            }
+        }
+        try (ContactService reopened = ContactService.open(file)) {
+            assertNull(reopened.getCacheStats());
+            assertEquals(19, reopened.getContactList().size());
+            assertEquals("Renamed", reopened.getContact("C3").getFirstName());
+        }
+        try {
+            ContactService.open(file, 0, 0, false);
+            fail("A cache of no contacts should be rejected.");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("at least 1"));
+        }
+    }
+}
@@ -0,0 +1,30 @@
+/**
+ * Writes contacts to RecordFile records and reads them back: ID, first name, last name, phone number and address.
+ * The phone number is written as the number its digits form, as ContactRecordStore keeps it.
+ * Contacts read back are validated by the Contact constructor.
+ */
+final class ContactCodec implements RecordCodec<Contact> {
+    static final ContactCodec INSTANCE = new ContactCodec();
+
+    private ContactCodec() {
+    }
+
+    @Override
+    public String type() {
+        return "Contact";
+    }
+
+    @Override
+    public void write(Contact contact, RecordFile.Output out) {
+        out.writeString(contact.getContactId());
+        out.writeString(contact.getFirstName());
+        out.writeString(contact.getLastName());
+        out.writeLong(contact.getPhoneDigits());
+        out.writeString(contact.getAddress());
+    }
+
+    @Override
+    public Contact read(RecordFile.Input in) {
+        return new Contact(in.readString(), in.readString(), in.readString(), in.readLong(), in.readString());
+    }
+}
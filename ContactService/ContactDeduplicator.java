@@ -0,0 +1,619 @@
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Finds contacts that are stored more than once and merges them into one.
+ *
+ * Only contacts with the same phone number are compared, so the phone number is the blocking key: a full
+ * pass sorts every contact by phone number with a parallel sort and scores the pairs within each block of
+ * equal numbers on the common fork-join pool. Contacts whose names and address normalize to the same text
+ * are duplicates outright. The rest are scored by the Jaro-Winkler similarity of their first names, last
+ * names (either way round) and addresses, after lowercasing, removing accents and punctuation, and
+ * expanding common street abbreviations. Pairs scoring at least the threshold are joined into groups,
+ * transitively. Blocks with more than 256 distinct contacts, such as a shared switchboard number, are
+ * compared by sorted neighbourhood instead: sorted by name, each contact is compared with the next 64.
+ *
+ * The sorted phone numbers are kept as an index, so findDuplicatesOf() can check newly added contacts
+ * against the contacts with their number without another full pass. Index entries of contacts deleted
+ * since are skipped when they are met.
+ *
+ * merge() keeps one contact of each group, the one with the longest names and address, and deletes the rest.
+ *
+ * Not thread-safe, like the ContactService it works on; only the scoring runs on other threads.
+ */
+public class ContactDeduplicator {
+    // Pairs scoring at least this are duplicates by default.
+    static final double DEFAULT_THRESHOLD = 0.9;
+    // Names less similar than this never make a duplicate, whatever the address.
+    private static final double NAME_FLOOR = 0.8;
+    // Blocks with more distinct contacts than this are compared by sorted neighbourhood.
+    static final int MAX_BLOCK = 256;
+    private static final int WINDOW = 64;
+    // Contacts scored by one fork-join task before it splits its blocks.
+    private static final int TASK_CONTACTS = 4096;
+    // Bits of a sort key holding the contact's position; the phone number goes above them.
+    private static final int INDEX_BITS = 30;
+    private static final Map<String, String> ABBREVIATIONS = Map.ofEntries(
+            Map.entry("st", "street"), Map.entry("rd", "road"), Map.entry("ave", "avenue"), Map.entry("av", "avenue"),
+            Map.entry("blvd", "boulevard"), Map.entry("dr", "drive"), Map.entry("ln", "lane"), Map.entry("ct", "court"),
+            Map.entry("pl", "place"), Map.entry("sq", "square"), Map.entry("hwy", "highway"), Map.entry("apt", "apartment"),
+            Map.entry("ste", "suite"), Map.entry("n", "north"), Map.entry("s", "south"), Map.entry("e", "east"),
+            Map.entry("w", "west"));
+
+    private final ContactService service;
+    private final double threshold;
+    // Phone number index of the contacts seen so far; null until the first search.
+    private PhoneIndex index;
+
+    /**
+     * Creates a deduplicator with the default threshold of 0.9.
+     * @param service The service whose contacts are checked.
+     */
+    public ContactDeduplicator(ContactService service) {
+        this(service, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Creates a deduplicator that treats pairs scoring at least the threshold as duplicates.
+     * @param service The service whose contacts are checked.
+     * @param threshold The least score of a duplicate, from 0 to 1.
+     * @throws IllegalArgumentException if the service is null or the threshold is not between 0 and 1.
+     */
+    public ContactDeduplicator(ContactService service, double threshold) {
+        if (service == null || !(threshold >= 0 && threshold <= 1)) {
+            throw new IllegalArgumentException("Service must be non-null and threshold between 0 and 1");
+        }
+        this.service = service;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Compares all contacts and returns the groups of duplicates, ordered by the ID of the contact each keeps.
+     * Also rebuilds the index used by findDuplicatesOf().
+     * @return The groups; empty if there are no duplicates.
+     */
+    public List<DuplicateGroup> findDuplicates() {
+        List<Contact> contacts = service.getContactList();
+        long[] keys = sortedKeys(contacts);
+        index = new PhoneIndex(keys, contacts);
+
+        // Blocks of two or more contacts with the same number, as [start, end) ranges of the sorted keys
+        int[] bounds = new int[16];
+        int blocks = 0;
+        for (int start = 0; start < keys.length; ) {
+            int end = start + 1;
+            while (end < keys.length && phoneOf(keys[end]) == phoneOf(keys[start])) {
+                end++;
+            }
+            if (end - start > 1) {
+                if (2 * blocks + 2 > bounds.length) {
+                    bounds = Arrays.copyOf(bounds, 2 * bounds.length);
+                }
+                bounds[2 * blocks] = start;
+                bounds[2 * blocks + 1] = end;
+                blocks++;
+            }
+            start = end;
+        }
+        Pairs pairs = ForkJoinPool.commonPool().invoke(new ScoreBlocks(contacts, keys, bounds, 0, blocks));
+
+        // Join the pairs into groups
+        int[] parent = new int[contacts.size()];
+        Arrays.setAll(parent, i -> i);
+        float[] groupScore = new float[contacts.size()];
+        Arrays.fill(groupScore, 1);
+        for (int p = 0; p < pairs.size; p++) {
+            int a = find(parent, pairs.first[p]);
+            int b = find(parent, pairs.second[p]);
+            int root = Math.min(a, b);
+            groupScore[root] = Math.min(Math.min(groupScore[a], groupScore[b]), pairs.score[p]);
+            parent[Math.max(a, b)] = root;
+        }
+        Map<Integer, List<Contact>> members = new HashMap<>();
+        for (int p = 0; p < pairs.size; p++) {
+            for (int i : new int[] {pairs.first[p], pairs.second[p]}) {
+                members.computeIfAbsent(find(parent, i), root -> new ArrayList<>());
+            }
+        }
+        for (int i = 0; i < parent.length; i++) {
+            List<Contact> group = members.get(find(parent, i));
+            if (group != null) {
+                group.add(contacts.get(i));
+            }
+        }
+        List<DuplicateGroup> groups = new ArrayList<>();
+        for (Map.Entry<Integer, List<Contact>> group : members.entrySet()) {
+            groups.add(new DuplicateGroup(group.getValue(), groupScore[group.getKey()]));
+        }
+        groups.sort((a, b) -> a.getSurvivorId().compareTo(b.getSurvivorId()));
+        return groups;
+    }
+
+    /**
+     * Compares newly added or changed contacts with the stored contacts that have their phone number, and
+     * with each other, and adds them to the index. The first call without a full pass builds the index.
+     * @param contactIds The IDs of the contacts to check; IDs of contacts not in the service are skipped.
+     * @return The groups holding at least one of the contacts, ordered by the ID of the contact each keeps.
+     */
+    public List<DuplicateGroup> findDuplicatesOf(Collection<String> contactIds) {
+        if (index == null) {
+            List<Contact> contacts = service.getContactList();
+            index = new PhoneIndex(sortedKeys(contacts), contacts);
+        }
+        Map<String, Group> groupOf = new HashMap<>();
+        for (String id : new LinkedHashSet<>(contactIds)) {
+            Contact contact = lookUp(id);
+            if (contact == null) {
+                continue;
+            }
+            Profile profile = new Profile(contact);
+            boolean indexed = false;
+            for (String memberId : index.get(contact.getPhoneDigits())) {
+                if (memberId.equals(id)) {
+                    indexed = true;
+                    continue;
+                }
+                Contact member = lookUp(memberId);
+                if (member == null || member.getPhoneDigits() != contact.getPhoneDigits()) {
+                    continue;
+                }
+                double score = score(profile, new Profile(member));
+                if (score >= threshold) {
+                    join(groupOf, contact, member, score);
+                }
+            }
+            if (!indexed) {
+                index.add(contact.getPhoneDigits(), id);
+            }
+        }
+        List<DuplicateGroup> groups = new ArrayList<>();
+        for (Group group : new LinkedHashSet<>(groupOf.values())) {
+            groups.add(new DuplicateGroup(new ArrayList<>(group.members.values()), group.score));
+        }
+        groups.sort((a, b) -> a.getSurvivorId().compareTo(b.getSurvivorId()));
+        return groups;
+    }
+
+    /**
+     * Deletes every contact of the groups except the one each keeps.
+     * @param groups The groups to merge.
+     * @return A report of the deletions; contacts already gone are listed as rejected.
+     */
+    public BatchResult merge(Collection<DuplicateGroup> groups) {
+        List<String> ids = new ArrayList<>();
+        for (DuplicateGroup group : groups) {
+            ids.addAll(group.getDuplicateIds());
+        }
+        return service.deleteAll(ids, false);
+    }
+
+    private Contact lookUp(String id) {
+        try {
+            return service.getContact(id);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    // Adds a pair to the groups found by findDuplicatesOf(), merging the groups of its two contacts.
+    private static void join(Map<String, Group> groupOf, Contact a, Contact b, double score) {
+        Group group = groupOf.get(a.getContactId());
+        Group other = groupOf.get(b.getContactId());
+        if (group == null) {
+            group = other != null ? other : new Group();
+        } else if (other != null && other != group) {
+            for (Contact moved : other.members.values()) {
+                group.members.put(moved.getContactId(), moved);
+                groupOf.put(moved.getContactId(), group);
+            }
+            group.score = Math.min(group.score, other.score);
+        }
+        group.members.put(a.getContactId(), a);
+        group.members.put(b.getContactId(), b);
+        group.score = Math.min(group.score, score);
+        groupOf.put(a.getContactId(), group);
+        groupOf.put(b.getContactId(), group);
+    }
+
+    // Returns one key per contact, phone number above position, sorted so equal numbers are adjacent.
+    private static long[] sortedKeys(List<Contact> contacts) {
+        if (contacts.size() >= 1 << INDEX_BITS) {
+            throw new IllegalStateException("Too many contacts to deduplicate: " + contacts.size());
+        }
+        long[] keys = new long[contacts.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = contacts.get(i).getPhoneDigits() << INDEX_BITS | i;
+        }
+        // Numbers above 2^33 make negative keys; equal numbers still sort next to each other
+        Arrays.parallelSort(keys);
+        return keys;
+    }
+
+    private static long phoneOf(long key) {
+        return key >>> INDEX_BITS;
+    }
+
+    private static int positionOf(long key) {
+        return (int) (key & ((1 << INDEX_BITS) - 1));
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /**
+     * Scores two contacts with the same phone number, from 0 to 1.
+     * Contacts whose first or last names, taken either way round, are less similar than 0.8 score 0.
+     */
+    static double score(Profile a, Profile b) {
+        if (a.exact.equals(b.exact)) {
+            return 1;
+        }
+        double first = nameSimilarity(a.first, b.first);
+        double last = nameSimilarity(a.last, b.last);
+        double swappedFirst = nameSimilarity(a.first, b.last);
+        double swappedLast = nameSimilarity(a.last, b.first);
+        if (swappedFirst + swappedLast > first + last) {
+            first = swappedFirst;
+            last = swappedLast;
+        }
+        if (first < NAME_FLOOR || last < NAME_FLOOR) {
+            return 0;
+        }
+        return 0.35 * first + 0.35 * last + 0.3 * jaroWinkler(a.address, b.address);
+    }
+
+    // Similarity of two names, counting an initial as a near match for a name it starts.
+    private static double nameSimilarity(String a, String b) {
+        if ((a.length() == 1 || b.length() == 1) && !a.isEmpty() && !b.isEmpty() && a.charAt(0) == b.charAt(0)) {
+            return 0.9;
+        }
+        return jaroWinkler(a, b);
+    }
+
+    /**
+     * Returns the Jaro-Winkler similarity of two strings: 1 for equal strings, 0 for strings with nothing in
+     * common, higher for strings sharing a prefix.
+     */
+    static double jaroWinkler(String a, String b) {
+        if (a.equals(b)) {
+            return 1;
+        }
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0;
+        }
+        int range = Math.max(0, Math.max(a.length(), b.length()) / 2 - 1);
+        long[] matchedB = new long[(b.length() + 63) >> 6];
+        char[] matchesA = new char[a.length()];
+        int matches = 0;
+        for (int i = 0; i < a.length(); i++) {
+            char c = a.charAt(i);
+            for (int j = Math.max(0, i - range), end = Math.min(b.length(), i + range + 1); j < end; j++) {
+                if ((matchedB[j >> 6] & 1L << j) == 0 && b.charAt(j) == c) {
+                    matchedB[j >> 6] |= 1L << j;
+                    matchesA[matches++] = c;
+                    break;
+                }
+            }
+        }
+        if (matches == 0) {
+            return 0;
+        }
+        int transpositions = 0;
+        for (int j = 0, k = 0; j < b.length(); j++) {
+            if ((matchedB[j >> 6] & 1L << j) != 0) {
+                if (b.charAt(j) != matchesA[k++]) {
+                    transpositions++;
+                }
+            }
+        }
+        double m = matches;
+        double jaro = (m / a.length() + m / b.length() + (m - transpositions / 2) / m) / 3;
+        int prefix = 0;
+        while (prefix < 4 && prefix < a.length() && prefix < b.length() && a.charAt(prefix) == b.charAt(prefix)) {
+            prefix++;
+        }
+        return jaro + prefix * 0.1 * (1 - jaro);
+    }
+
+    // Lowercases text, strips accents and turns everything but letters and digits into single spaces.
+    static String normalize(String text, boolean expandAbbreviations) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < lower.length(); i++) {
+            if (lower.charAt(i) >= 0x80) {
+                lower = Normalizer.normalize(lower, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+                break;
+            }
+        }
+        StringBuilder normalized = new StringBuilder(lower.length());
+        int wordStart = 0;
+        for (int i = 0; i <= lower.length(); i++) {
+            char c = i < lower.length() ? lower.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (i == wordStart && normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+                continue;
+            }
+            if (i > wordStart) {
+                String word = lower.substring(wordStart, i);
+                normalized.append(expandAbbreviations ? ABBREVIATIONS.getOrDefault(word, word) : word);
+            }
+            wordStart = i + 1;
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * The normalized fields of a contact that scoring compares.
+     */
+    static final class Profile {
+        final String first;
+        final String last;
+        final String address;
+        // All three fields, so contacts that normalize to the same text are found without scoring.
+        final String exact;
+
+        Profile(Contact contact) {
+            this.first = normalize(contact.getFirstName(), false);
+            this.last = normalize(contact.getLastName(), false);
+            this.address = normalize(contact.getAddress(), true);
+            this.exact = first + '|' + last + '|' + address;
+        }
+    }
+
+    /**
+     * A group found by findDuplicatesOf(), by contact ID, with the lowest score that joined it.
+     */
+    private static final class Group {
+        final Map<String, Contact> members = new LinkedHashMap<>();
+        double score = 1;
+    }
+
+    /**
+     * Fork-join task that scores the pairs within a range of blocks, splitting ranges of many contacts.
+     */
+    private final class ScoreBlocks extends RecursiveTask<Pairs> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Contact> contacts;
+        private final long[] keys;
+        private final int[] bounds;
+        private final int from;
+        private final int to;
+
+        ScoreBlocks(List<Contact> contacts, long[] keys, int[] bounds, int from, int to) {
+            this.contacts = contacts;
+            this.keys = keys;
+            this.bounds = bounds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Pairs compute() {
+            int size = bounds[2 * to - 1] - bounds[2 * from];
+            if (to - from > 1 && size > TASK_CONTACTS) {
+                int middle = (from + to) >>> 1;
+                ScoreBlocks left = new ScoreBlocks(contacts, keys, bounds, from, middle);
+                left.fork();
+                Pairs right = new ScoreBlocks(contacts, keys, bounds, middle, to).compute();
+                return left.join().append(right);
+            }
+            Pairs pairs = new Pairs();
+            for (int block = from; block < to; block++) {
+                scoreBlock(bounds[2 * block], bounds[2 * block + 1], pairs);
+            }
+            return pairs;
+        }
+
+        // Scores the contacts of one block, pairing exact copies with the first of their kind.
+        private void scoreBlock(int start, int end, Pairs pairs) {
+            Map<String, Integer> firstOfKind = new HashMap<>();
+            List<Profile> distinct = new ArrayList<>();
+            List<Integer> positions = new ArrayList<>();
+            for (int k = start; k < end; k++) {
+                int position = positionOf(keys[k]);
+                Profile profile = new Profile(contacts.get(position));
+                Integer same = firstOfKind.putIfAbsent(profile.exact, position);
+                if (same != null) {
+                    pairs.add(same, position, 1);
+                } else {
+                    distinct.add(profile);
+                    positions.add(position);
+                }
+            }
+            int count = distinct.size();
+            int window = count;
+            if (count > MAX_BLOCK) {
+                // Sorted neighbourhood: compare each contact with the next few in name order
+                Integer[] order = new Integer[count];
+                Arrays.setAll(order, i -> i);
+                Arrays.sort(order, (x, y) -> (distinct.get(x).last + ' ' + distinct.get(x).first)
+                        .compareTo(distinct.get(y).last + ' ' + distinct.get(y).first));
+                List<Profile> sortedProfiles = new ArrayList<>(count);
+                List<Integer> sortedPositions = new ArrayList<>(count);
+                for (int i : order) {
+                    sortedProfiles.add(distinct.get(i));
+                    sortedPositions.add(positions.get(i));
+                }
+                distinct.clear();
+                distinct.addAll(sortedProfiles);
+                positions.clear();
+                positions.addAll(sortedPositions);
+                window = WINDOW;
+            }
+            for (int i = 0; i < count; i++) {
+                for (int j = i + 1; j < count && j <= i + window; j++) {
+                    double score = score(distinct.get(i), distinct.get(j));
+                    if (score >= threshold) {
+                        pairs.add(positions.get(i), positions.get(j), (float) score);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Growable list of scored pairs of contact positions.
+     */
+    private static final class Pairs {
+        int[] first = new int[16];
+        int[] second = new int[16];
+        float[] score = new float[16];
+        int size;
+
+        void add(int a, int b, float pairScore) {
+            if (size == first.length) {
+                first = Arrays.copyOf(first, 2 * size);
+                second = Arrays.copyOf(second, 2 * size);
+                score = Arrays.copyOf(score, 2 * size);
+            }
+            first[size] = a;
+            second[size] = b;
+            score[size] = pairScore;
+            size++;
+        }
+
+        Pairs append(Pairs other) {
+            for (int p = 0; p < other.size; p++) {
+                add(other.first[p], other.second[p], other.score[p]);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Contact IDs by phone number: the sorted result of a full pass, plus the contacts added since.
+     */
+    private static final class PhoneIndex {
+        // Distinct phone numbers in key order, and where each one's IDs start in ids.
+        private final long[] phones;
+        private final int[] starts;
+        private final String[] ids;
+        private final Map<Long, List<String>> added = new HashMap<>();
+
+        PhoneIndex(long[] keys, List<Contact> contacts) {
+            long[] distinctPhones = new long[keys.length];
+            int[] blockStarts = new int[keys.length + 1];
+            ids = new String[keys.length];
+            int count = 0;
+            for (int k = 0; k < keys.length; k++) {
+                if (k == 0 || phoneOf(keys[k]) != phoneOf(keys[k - 1])) {
+                    distinctPhones[count] = phoneOf(keys[k]);
+                    blockStarts[count++] = k;
+                }
+                ids[k] = contacts.get(positionOf(keys[k])).getContactId();
+            }
+            blockStarts[count] = keys.length;
+            phones = Arrays.copyOf(distinctPhones, count);
+            starts = Arrays.copyOf(blockStarts, count + 1);
+        }
+
+        // Returns the IDs indexed under a phone number.
+        List<String> get(long phone) {
+            List<String> found = new ArrayList<>();
+            int block = search(phone);
+            if (block >= 0) {
+                found.addAll(Arrays.asList(ids).subList(starts[block], starts[block + 1]));
+            }
+            found.addAll(added.getOrDefault(phone, Collections.emptyList()));
+            return found;
+        }
+
+        void add(long phone, String id) {
+            added.computeIfAbsent(phone, p -> new ArrayList<>()).add(id);
+        }
+
+        // Binary search in key order, which compares the phone numbers shifted into keys.
+        private int search(long phone) {
+            long key = phone << INDEX_BITS;
+            int low = 0;
+            int high = phones.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                long middleKey = phones[middle] << INDEX_BITS;
+                if (middleKey < key) {
+                    low = middle + 1;
+                } else if (middleKey > key) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Contacts found to be the same person, and the one a merge keeps.
+     */
+    public static final class DuplicateGroup {
+        private final String survivorId;
+        private final List<String> duplicateIds = new ArrayList<>();
+        private final double score;
+
+        DuplicateGroup(List<Contact> contacts, double score) {
+            Contact survivor = contacts.get(0);
+            for (Contact contact : contacts) {
+                int lengthDifference = length(contact) - length(survivor);
+                if (lengthDifference > 0 || lengthDifference == 0 && contact.getContactId().compareTo(survivor.getContactId()) < 0) {
+                    survivor = contact;
+                }
+            }
+            this.survivorId = survivor.getContactId();
+            for (Contact contact : contacts) {
+                if (contact != survivor) {
+                    duplicateIds.add(contact.getContactId());
+                }
+            }
+            Collections.sort(duplicateIds);
+            this.score = score;
+        }
+
+        private static int length(Contact contact) {
+            return contact.getFirstName().length() + contact.getLastName().length() + contact.getAddress().length();
+        }
+
+        /**
+         * Returns the ID of the contact a merge keeps: the one with the longest names and address, then the lowest ID.
+         */
+        public String getSurvivorId() {
+            return survivorId;
+        }
+
+        /**
+         * Returns the IDs of the contacts a merge deletes, in order.
+         */
+        public List<String> getDuplicateIds() {
+            return Collections.unmodifiableList(duplicateIds);
+        }
+
+        /**
+         * Returns the lowest score of the pairs that joined the group.
+         */
+        public double getScore() {
+            return score;
+        }
+
+        @Override
+        public String toString() {
+            return "DuplicateGroup{survivor=" + survivorId + ", duplicates=" + duplicateIds + ", score=" + score + "}";
+        }
+    }
+}
@@ -0,0 +1,157 @@
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the ContactDeduplicator class.
+ * These tests validate the similarity scoring, full and incremental searches, and merging.
+ */
+public class ContactDeduplicatorTest {
+
+    // Contacts with three people stored twice or more, a family sharing a number, and a stranger
+    private static ContactService service() {
+        ContactService service = new ContactService();
+        service.addAll(List.of(
+                new Contact("C1", "John", "Smith", "5551234567", "12 Main Street"),
+                new Contact("C2", "Jon", "Smith", "5551234567", "12 Main St."),
+                new Contact("C3", "Smith", "John", "5551234567", "12 main st"),
+                new Contact("C4", "Jane", "Smith", "5551234567", "12 Main Street"),
+                new Contact("C5", "Ren\u00e9e", "Dubois", "5550000001", "4 Rue Haute"),
+                new Contact("C6", "RENEE", "DUBOIS", "5550000001", "4 rue haute"),
+                new Contact("C7", "Alice", "Wong", "5550000002", "9 Elm Road"),
+                new Contact("C8", "Alice", "Wong", "5550000003", "9 Elm Road"),
+                new Contact("C9", "Bob", "Stone", "5550000004", "1 High St"),
+                new Contact("C10", "Bob", "Stone", "5550000004", "1 High St"),
+                new Contact("C11", "Bob", "Stone", "5550000004", "1 High Street")), false);
+        return service;
+    }
+
+    // Returns the groups as "survivor=duplicates" strings.
+    private static List<String> describe(List<ContactDeduplicator.DuplicateGroup> groups) {
+        List<String> described = new ArrayList<>();
+        for (ContactDeduplicator.DuplicateGroup group : groups) {
+            described.add(group.getSurvivorId() + "=" + group.getDuplicateIds());
+        }
+        return described;
+    }
+
+    /**
+     * Tests the Jaro-Winkler similarity against known values.
+     */
+    @Test
+    public void testJaroWinkler() {
+        assertEquals(1.0, ContactDeduplicator.jaroWinkler("martha", "martha"), 1e-9);
+        assertEquals(0.961, ContactDeduplicator.jaroWinkler("martha", "marhta"), 1e-3);
+        assertEquals(0.840, ContactDeduplicator.jaroWinkler("dwayne", "duane"), 1e-3);
+        assertEquals(0.813, ContactDeduplicator.jaroWinkler("dixon", "dicksonx"), 1e-3);
+        assertEquals(0.0, ContactDeduplicator.jaroWinkler("abc", "xyz"), 1e-9);
+        assertEquals(0.0, ContactDeduplicator.jaroWinkler("", "abc"), 1e-9);
+    }
+
+    /**
+     * Tests that normalizing removes case, accents and punctuation, and expands street abbreviations.
+     */
+    @Test
+    public void testNormalize() {
+        assertEquals("renee", ContactDeduplicator.normalize("Ren\u00e9e", false));
+        assertEquals("12 main street apartment 4", ContactDeduplicator.normalize(" 12 Main St., Apt #4", true));
+        assertEquals("o neil", ContactDeduplicator.normalize("O'Neil", false));
+    }
+
+    /**
+     * Tests that a full search groups the contacts of each person, keeping the most complete one, and leaves
+     * apart a relative sharing the number and the same name under another number.
+     */
+    @Test
+    public void testFindDuplicates() {
+        List<ContactDeduplicator.DuplicateGroup> groups = new ContactDeduplicator(service()).findDuplicates();
+
+        assertEquals(List.of("C1=[C2, C3]", "C11=[C10, C9]", "C5=[C6]"), describe(groups));
+        assertEquals(1.0, groups.get(2).getScore(), 1e-9);
+        assertTrue(groups.get(0).getScore() >= ContactDeduplicator.DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Tests that a threshold of 1 keeps only contacts that normalize to the same names and address.
+     */
+    @Test
+    public void testThreshold() {
+        List<ContactDeduplicator.DuplicateGroup> groups = new ContactDeduplicator(service(), 1.0).findDuplicates();
+
+        assertEquals(List.of("C1=[C3]", "C11=[C10, C9]", "C5=[C6]"), describe(groups));
+        try {
+            new ContactDeduplicator(service(), 1.5);
+            fail("A threshold above 1 should be rejected.");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("threshold"));
+        }
+    }
+
+    /**
+     * Tests that a block larger than the fully compared size still finds the duplicates next to each other by name.
+     */
+    @Test
+    public void testLargeBlock() {
+        ContactService service = new ContactService();
+        List<Contact> contacts = new ArrayList<>();
+        for (int i = 0; i < ContactDeduplicator.MAX_BLOCK * 3; i++) {
+            contacts.add(new Contact("S" + i, "Staff" + i, "Office", "5550000000", "1 Corporate Plaza"));
+        }
+        contacts.add(new Contact("X1", "Zara", "Quinn", "5550000000", "1 Corporate Plaza"));
+        contacts.add(new Contact("X2", "Zara", "Quin", "5550000000", "1 Corporate Pl"));
+        service.addAll(contacts, false);
+
+        List<ContactDeduplicator.DuplicateGroup> groups = new ContactDeduplicator(service).findDuplicates();
+
+        assertTrue(describe(groups).contains("X1=[X2]"));
+        for (ContactDeduplicator.DuplicateGroup group : groups) {
+            assertTrue(group.getSurvivorId().startsWith("X") || group.getSurvivorId().startsWith("S"));
+        }
+    }
+
+    /**
+     * Tests that new contacts are compared with the index and each other, and deleted contacts are skipped.
+     */
+    @Test
+    public void testFindDuplicatesOf() throws Exception {
+        ContactService service = service();
+        ContactDeduplicator deduplicator = new ContactDeduplicator(service);
+        deduplicator.findDuplicates();
+
+        service.addAll(List.of(new Contact("N1", "Alice", "Wong", "5550000002", "9 Elm Rd"),
+                new Contact("N2", "Carl", "Berg", "5550000009", "7 Low Lane"),
+                new Contact("N3", "Karl", "Berg", "5550000009", "7 Low Ln")), false);
+        service.deleteContact("C8");
+        List<ContactDeduplicator.DuplicateGroup> groups = deduplicator.findDuplicatesOf(List.of("N1", "N2", "N3", "missing"));
+
+        assertEquals(List.of("C7=[N1]", "N2=[N3]"), describe(groups));
+        // The new contacts are indexed, so a later one is matched against them
+        service.addAll(List.of(new Contact("N4", "Carl", "Berg", "5550000009", "7 Low Lane")), false);
+        assertEquals(List.of("N2=[N3, N4]"), describe(deduplicator.findDuplicatesOf(List.of("N4"))));
+    }
+
+    /**
+     * Tests that the first incremental search builds the index without a full search.
+     */
+    @Test
+    public void testFindDuplicatesOfWithoutIndex() {
+        ContactService service = service();
+        assertEquals(List.of("C1=[C2, C3]"), describe(new ContactDeduplicator(service).findDuplicatesOf(List.of("C2"))));
+    }
+
+    /**
+     * Tests that merging deletes all but the kept contact of each group.
+     */
+    @Test
+    public void testMerge() throws Exception {
+        ContactService service = service();
+        ContactDeduplicator deduplicator = new ContactDeduplicator(service);
+        BatchResult result = deduplicator.merge(deduplicator.findDuplicates());
+
+        assertEquals(5, result.succeeded());
+        assertEquals(6, service.getContactList().size());
+        assertEquals("John", service.getContact("C1").getFirstName());
+        assertTrue(deduplicator.findDuplicates().isEmpty());
+    }
+}
@@ -0,0 +1,328 @@
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded dictionary of contact field values, for ContactServices that store their contacts dictionary-encoded.
+ *
+ * Each distinct value of the fields the dictionary covers gets an int code the first time a contact with it is
+ * stored, and the contact keeps the code instead of the chars, so a value shared by many contacts, such as the
+ * "INITIAL" placeholder or a common surname, is held once. An entry costs about a hundred bytes more than the
+ * chars it replaces in one contact, so only fields whose values repeat pay off: names usually do, while street
+ * addresses are often close to unique and are better left out. Codes are never evicted or reused, as contacts
+ * refer to them: once the dictionary holds its capacity it refuses new values, which are then kept as chars,
+ * losing their saving and nothing else.
+ *
+ * An equality lookup resolves the value to its code once and then compares ints. A prefix lookup resolves the
+ * prefix to the set of codes whose values start with it, one pass over the dictionary rather than the contacts,
+ * and then tests a bit per contact.
+ *
+ * Thread-safe: codes are assigned inside a ConcurrentHashMap, so one dictionary can be shared by services used
+ * from different threads, such as the shards of a ShardedContactService.
+ */
+public final class ContactDictionary {
+    // Values are kept by code in pages allocated as codes reach them, so a large capacity costs nothing up front.
+    private static final int PAGE_BITS = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    // Estimated heap bytes per entry besides the value's char array: the String, the map node, the boxed code,
+    // the map's table slot and the page slot.
+    private static final int ENTRY_OVERHEAD = 24 + 32 + 16 + 8 + 4;
+
+    private final int capacity;
+    // Bit per Contact.Field ordinal of the fields the dictionary covers.
+    private final int fieldMask;
+    private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<String[]> pages;
+    // Next code to assign; may pass the capacity by the number of threads racing for the last codes.
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicLong refused = new AtomicLong();
+    private final AtomicLong valueBytes = new AtomicLong();
+
+    /**
+     * Creates an empty dictionary for first names, last names and addresses.
+     * @param capacity The maximum number of distinct values, at least 1.
+     * @throws IllegalArgumentException if the capacity is less than 1.
+     */
+    public ContactDictionary(int capacity) {
+        this(capacity, Contact.Field.values());
+    }
+
+    /**
+     * Creates an empty dictionary for the given fields; the others are kept as chars.
+     * @param capacity The maximum number of distinct values, at least 1.
+     * @param fields The fields to encode, at least one.
+     * @throws IllegalArgumentException if the capacity is less than 1 or no field is given.
+     */
+    public ContactDictionary(int capacity, Contact.Field... fields) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Dictionary capacity must be at least 1");
+        }
+        if (fields == null || fields.length == 0) {
+            throw new IllegalArgumentException("Dictionary must cover at least one field");
+        }
+        int mask = 0;
+        for (Contact.Field field : fields) {
+            mask |= 1 << field.ordinal();
+        }
+        this.capacity = capacity;
+        this.fieldMask = mask;
+        this.pages = new AtomicReferenceArray<>(((capacity - 1) >>> PAGE_BITS) + 1);
+    }
+
+    /**
+     * Returns the code of a value, adding the value if it is new and there is room.
+     * @return The code, or -1 if the value is new and the dictionary is full.
+     */
+    int encode(String value) {
+        Integer code = codes.get(value);
+        if (code == null && next.get() < capacity) {
+            code = codes.computeIfAbsent(value, this::assign);
+        }
+        if (code == null) {
+            refused.incrementAndGet();
+            return -1;
+        }
+        return code;
+    }
+
+    /**
+     * Returns the code of a value held as one byte per char, adding the value if it is new and there is room.
+     * The value is only built as a String if it is new, so contacts packed as Latin-1 are encoded from their
+     * bytes without decoding them.
+     * @return The code, or -1 if the value is new and the dictionary is full.
+     */
+    int encode(byte[] latin1, int offset, int length) {
+        Integer code = codes.get(new Latin1Key(latin1, offset, length));
+        return code != null ? code : encode(new String(latin1, offset, length, StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Returns whether the dictionary covers a field.
+     * @param field A Contact.Field ordinal.
+     */
+    boolean encodes(int field) {
+        return (fieldMask & 1 << field) != 0;
+    }
+
+    /**
+     * Returns a bit per Contact.Field ordinal of the fields the dictionary covers.
+     */
+    int fieldMask() {
+        return fieldMask;
+    }
+
+    /**
+     * Returns the code of a value without adding it.
+     * @return The code, or -1 if the value is not in the dictionary.
+     */
+    int codeOf(String value) {
+        Integer code = codes.get(value);
+        return code == null ? -1 : code;
+    }
+
+    /**
+     * Returns the value of a code.
+     * @param code A code returned by encode().
+     */
+    String value(int code) {
+        return pages.get(code >>> PAGE_BITS)[code & (PAGE_SIZE - 1)];
+    }
+
+    /**
+     * Returns the codes of the values that start with a prefix.
+     */
+    BitSet codesStartingWith(String prefix) {
+        BitSet matching = new BitSet(Math.min(next.get(), capacity));
+        for (Map.Entry<String, Integer> entry : codes.entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                matching.set(entry.getValue());
+            }
+        }
+        return matching;
+    }
+
+    /**
+     * Returns the number of values in the dictionary.
+     */
+    public int size() {
+        return codes.size();
+    }
+
+    /**
+     * Returns the maximum number of values the dictionary holds.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of times a new value was refused because the dictionary was full.
+     */
+    public long refused() {
+        return refused.get();
+    }
+
+    /**
+     * Returns the estimated heap bytes the dictionary takes, for its values and the map and pages indexing them.
+     */
+    public long heapBytes() {
+        return valueBytes.get() + (long) size() * ENTRY_OVERHEAD + (long) pages.length() * 4;
+    }
+
+    @Override
+    public String toString() {
+        return "ContactDictionary[" + size() + "/" + capacity + " values]";
+    }
+
+    // Assigns the next code to a new value, or refuses it if the codes have run out; called once per value.
+    private Integer assign(String value) {
+        int code = next.getAndIncrement();
+        if (code >= capacity) {
+            return null;
+        }
+        int page = code >>> PAGE_BITS;
+        if (pages.get(page) == null) {
+            pages.compareAndSet(page, null, new String[PAGE_SIZE]);
+        }
+        // Readers find the code through the map or a contact published after this, so they see the value
+        pages.get(page)[code & (PAGE_SIZE - 1)] = value;
+        valueBytes.addAndGet(arrayBytes(isLatin1(value) ? value.length() : 2 * value.length()));
+        return code;
+    }
+
+    // Heap bytes of a byte array: a 16-byte header, rounded up to 8 bytes.
+    static long arrayBytes(int length) {
+        return (16 + length + 7) & ~7L;
+    }
+
+    private static boolean isLatin1(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Lookup key for a Latin-1 value in a byte array. Its hash is the String's hash, and it equals a String with
+     * the same chars, so Map.get(), which compares the key it is given to the stored ones, finds the String's
+     * entry. It is never stored, as a String would not equal it back.
+     */
+    private static final class Latin1Key {
+        private final byte[] bytes;
+        private final int offset;
+        private final int length;
+
+        Latin1Key(byte[] bytes, int offset, int length) {
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 0;
+            for (int i = offset; i < offset + length; i++) {
+                hash = 31 * hash + (bytes[i] & 0xFF);
+            }
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof String) || ((String) o).length() != length) {
+                return false;
+            }
+            String value = (String) o;
+            for (int i = 0; i < length; i++) {
+                if (value.charAt(i) != (bytes[offset + i] & 0xFF)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The memory a dictionary-encoded service saves, as estimated by ContactService.getDictionaryStats().
+     */
+    public static final class Stats {
+        private final int entries;
+        private final int capacity;
+        private final long refused;
+        private final long encodedContacts;
+        private final long unencodedContacts;
+        private final long fieldBytes;
+        private final long unencodedFieldBytes;
+        private final long dictionaryBytes;
+
+        Stats(ContactDictionary dictionary, long encodedContacts, long unencodedContacts, long fieldBytes,
+                long unencodedFieldBytes) {
+            this.entries = dictionary.size();
+            this.capacity = dictionary.capacity();
+            this.refused = dictionary.refused();
+            this.encodedContacts = encodedContacts;
+            this.unencodedContacts = unencodedContacts;
+            this.fieldBytes = fieldBytes;
+            this.unencodedFieldBytes = unencodedFieldBytes;
+            this.dictionaryBytes = dictionary.heapBytes();
+        }
+
+        /** Returns the number of values in the dictionary. */
+        public int getEntries() {
+            return entries;
+        }
+
+        /** Returns the maximum number of values the dictionary holds. */
+        public int getCapacity() {
+            return capacity;
+        }
+
+        /** Returns the number of times a new value was refused because the dictionary was full. */
+        public long getRefused() {
+            return refused;
+        }
+
+        /** Returns the number of contacts with every covered field held as a code. */
+        public long getEncodedContacts() {
+            return encodedContacts;
+        }
+
+        /** Returns the number of contacts with a covered field kept as chars, as the dictionary refused its value. */
+        public long getUnencodedContacts() {
+            return unencodedContacts;
+        }
+
+        /** Returns the heap bytes of the contacts' field arrays. */
+        public long getFieldBytes() {
+            return fieldBytes;
+        }
+
+        /** Returns the heap bytes the contacts' field arrays would take unencoded. */
+        public long getUnencodedFieldBytes() {
+            return unencodedFieldBytes;
+        }
+
+        /** Returns the estimated heap bytes of the dictionary, all of it even if other services share it. */
+        public long getDictionaryBytes() {
+            return dictionaryBytes;
+        }
+
+        /** Returns the heap bytes saved, net of the dictionary; negative if the values hardly repeat. */
+        public long getSavedBytes() {
+            return unencodedFieldBytes - fieldBytes - dictionaryBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d/%d values, %d encoded and %d partly encoded contacts, %d field bytes instead of %d,"
+                    + " dictionary %d bytes, %d bytes saved", entries, capacity, encodedContacts, unencodedContacts,
+                    fieldBytes, unencodedFieldBytes, dictionaryBytes, getSavedBytes());
+        }
+    }
+}
@@ -0,0 +1,252 @@
+import org.junit.Test;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the ContactDictionary class.
+ * These tests validate code assignment, the bound, and dictionary-encoded contacts in a ContactService.
+ */
+public class ContactDictionaryTest {
+
+    private static Contact contact(int i) {
+        return new Contact("C" + i, "First" + i % 10, "Last" + i % 3, String.format("%010d", i), i % 4 + " Main St");
+    }
+
+    // Sorted IDs of a list of contacts, for comparing lookups whose order is not defined.
+    private static List<String> ids(List<Contact> contacts) {
+        List<String> ids = new ArrayList<>();
+        for (Contact contact : contacts) {
+            ids.add(contact.getContactId());
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Tests that each distinct value gets one code and that codes map back to their values.
+     */
+    @Test
+    public void testEncode() {
+        ContactDictionary dictionary = new ContactDictionary(10);
+        int smith = dictionary.encode("Smith");
+        int jones = dictionary.encode("Jones");
+        assertNotEquals(smith, jones);
+        assertEquals(smith, dictionary.encode("Smith"));
+        assertEquals(jones, dictionary.codeOf("Jones"));
+        assertEquals(-1, dictionary.codeOf("Brown"));
+        assertEquals("Smith", dictionary.value(smith));
+        assertEquals(2, dictionary.size());
+
+        BitSet codes = dictionary.codesStartingWith("Sm");
+        assertTrue(codes.get(smith));
+        assertFalse(codes.get(jones));
+        assertTrue(dictionary.codesStartingWith("").get(jones));
+
+        // Values held as Latin-1 bytes get the same codes as their Strings
+        byte[] bytes = "[Smith][Caf\u00e9]".getBytes(StandardCharsets.ISO_8859_1);
+        assertEquals(smith, dictionary.encode(bytes, 1, 5));
+        assertEquals(-1, dictionary.codeOf("Smit"));
+        int cafe = dictionary.encode(bytes, 8, 4);
+        assertEquals("Caf\u00e9", dictionary.value(cafe));
+        assertEquals(cafe, dictionary.encode("Caf\u00e9"));
+        assertEquals(3, dictionary.size());
+        try {
+            new ContactDictionary(0);
+            fail("A dictionary of no values should be rejected.");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("at least 1"));
+        }
+    }
+
+    /**
+     * Tests that a full dictionary refuses new values and still encodes the ones it holds.
+     */
+    @Test
+    public void testBound() {
+        ContactDictionary dictionary = new ContactDictionary(2);
+        assertEquals(0, dictionary.encode("a"));
+        assertEquals(1, dictionary.encode("b"));
+        assertEquals(-1, dictionary.encode("c"));
+        assertEquals(0, dictionary.encode("a"));
+        assertEquals(2, dictionary.size());
+        assertEquals(1, dictionary.refused());
+    }
+
+    /**
+     * Tests that threads encoding the same values concurrently agree on their codes, and that a value is
+     * never given two codes.
+     */
+    @Test
+    public void testConcurrentEncode() throws Exception {
+        ContactDictionary dictionary = new ContactDictionary(5000);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<int[]>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                results.add(executor.submit(() -> {
+                    int[] codes = new int[3000];
+                    for (int i = 0; i < codes.length; i++) {
+                        codes[i] = dictionary.encode("value" + i);
+                    }
+                    return codes;
+                }));
+            }
+            int[] first = results.get(0).get();
+            for (Future<int[]> result : results) {
+                assertArrayEquals(first, result.get());
+            }
+            Set<Integer> distinct = new HashSet<>();
+            for (int i = 0; i < first.length; i++) {
+                assertEquals("value" + i, dictionary.value(first[i]));
+                distinct.add(first[i]);
+            }
+            assertEquals(3000, distinct.size());
+            assertEquals(3000, dictionary.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Tests that encoded contacts read and update like plain ones through the service, which stores and hands
+     * out copies, and that updates stay encoded.
+     */
+    @Test
+    public void testEncodedContacts() throws Exception {
+        ContactDictionary dictionary = new ContactDictionary(100);
+        ContactService service = new ContactService(new SequenceIdGenerator(1), dictionary);
+        service.newContact("Ann", "Smith", "5550001111", "1 Elm St");
+        Contact given = contact(1);
+        service.addAll(Arrays.asList(given, contact(11)), false);
+        Contact added = service.getContactList().stream().filter(c -> c.getFirstName().equals("Ann")).findFirst().get();
+        assertEquals("Smith", added.getLastName());
+        assertEquals("1 Elm St", added.getAddress());
+        assertEquals("5550001111", added.getPhoneNumber());
+        assertEquals(3, service.getDictionaryStats().getEncodedContacts());
+        // The caller's contact stays plain; the service stores its own encoded copy
+        assertNotSame(given, service.getContact("C1"));
+        assertEquals("First1", given.getFirstName());
+        assertEquals(8, dictionary.size());
+
+        service.updateFirstName("C1", "\u00c9lodie");
+        Contact updated = service.getContact("C1");
+        assertEquals("\u00c9lodie", updated.getFirstName());
+        assertEquals("Last1", updated.getLastName());
+        assertEquals(3, service.getDictionaryStats().getEncodedContacts());
+        // Changing a returned copy leaves the stored contact alone until it is passed back
+        updated.updateAddress("Caf\u00e9 \u4e2d\u6587");
+        assertEquals("1 Main St", service.getContact("C1").getAddress());
+        service.updateAll(Collections.singletonList(updated), false);
+        assertEquals("Caf\u00e9 \u4e2d\u6587", service.getContact("C1").getAddress());
+        assertEquals("\u00c9lodie", service.getContact("C1").getFirstName());
+        assertEquals(1, service.findByField(Contact.Field.ADDRESS, "Caf\u00e9 \u4e2d\u6587").size());
+        try {
+            service.updateFirstName("C1", null);
+            fail("A null first name should be rejected.");
+        } catch (IllegalArgumentException e) {
+            assertEquals("\u00c9lodie", service.getContact("C1").getFirstName());
+        }
+        service.deleteContact("C1");
+        assertTrue(service.searchByName("\u00e9lodie", 10).isEmpty());
+    }
+
+    /**
+     * Tests that field lookups on an encoded service find the same contacts as on a plain one.
+     */
+    @Test
+    public void testFindByField() {
+        ContactService plain = new ContactService(new SequenceIdGenerator(1));
+        ContactService encoded = new ContactService(new SequenceIdGenerator(1), new ContactDictionary(100));
+        for (int i = 0; i < 100; i++) {
+            plain.addAll(Collections.singletonList(contact(i)), false);
+            encoded.addAll(Collections.singletonList(contact(i)), false);
+        }
+        assertEquals(10, encoded.findByField(Contact.Field.FIRST_NAME, "First3").size());
+        assertEquals(ids(plain.findByField(Contact.Field.FIRST_NAME, "First3")),
+                ids(encoded.findByField(Contact.Field.FIRST_NAME, "First3")));
+        assertEquals(ids(plain.findByField(Contact.Field.LAST_NAME, "Last2")),
+                ids(encoded.findByField(Contact.Field.LAST_NAME, "Last2")));
+        assertTrue(encoded.findByField(Contact.Field.ADDRESS, "9 Main St").isEmpty());
+        assertEquals(100, encoded.findByFieldPrefix(Contact.Field.ADDRESS, "").size());
+        assertEquals(ids(plain.findByFieldPrefix(Contact.Field.ADDRESS, "1 ")),
+                ids(encoded.findByFieldPrefix(Contact.Field.ADDRESS, "1 ")));
+        assertEquals(ids(plain.findByFieldPrefix(Contact.Field.FIRST_NAME, "First")),
+                ids(encoded.findByFieldPrefix(Contact.Field.FIRST_NAME, "First")));
+        try {
+            encoded.findByFieldPrefix(Contact.Field.ADDRESS, null);
+            fail("A null prefix should be rejected.");
+        } catch (IllegalArgumentException e) {
+            assertEquals(1, encoded.getMetrics().snapshot().getOperation("findByFieldPrefix").getFailures());
+        }
+    }
+
+    /**
+     * Tests that contacts with values a full dictionary refuses stay unencoded and are still found,
+     * and that the stats count the saving.
+     */
+    @Test
+    public void testFullDictionary() throws Exception {
+        ContactDictionary dictionary = new ContactDictionary(10);
+        ContactService service = new ContactService(new SequenceIdGenerator(1), dictionary);
+        List<Contact> batch = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            batch.add(new Contact("C" + i, "First" + i % 3, "Last" + i % 3, String.format("%010d", i),
+                    i < 990 ? "1 Main St" : i + " Side St"));
+        }
+        service.addAll(batch, false);
+        assertEquals(10, dictionary.size());
+        assertTrue(dictionary.refused() > 0);
+        assertEquals(10, service.findByFieldPrefix(Contact.Field.ADDRESS, "99").size());
+        assertEquals(1, service.findByField(Contact.Field.ADDRESS, "995 Side St").size());
+        assertEquals(990, service.findByField(Contact.Field.ADDRESS, "1 Main St").size());
+
+        // Only the refused address is kept as chars
+        Contact partly = service.getContact("C995");
+        assertEquals("995 Side St", partly.getAddress());
+        assertEquals("First2", partly.getFirstName());
+        assertEquals(1, service.findByField(Contact.Field.FIRST_NAME, "First2").stream()
+                .filter(c -> c.getContactId().equals("C995")).count());
+
+        ContactDictionary.Stats stats = service.getDictionaryStats();
+        assertEquals(10, stats.getEntries());
+        assertEquals(993, stats.getEncodedContacts());
+        assertEquals(7, stats.getUnencodedContacts());
+        assertTrue(stats.getUnencodedFieldBytes() > stats.getFieldBytes());
+        assertTrue(stats.getSavedBytes() > 0);
+        assertNull(new ContactService().getDictionaryStats());
+    }
+
+    /**
+     * Tests that a dictionary covering only the names keeps addresses as chars and still finds them.
+     */
+    @Test
+    public void testFieldSelection() {
+        ContactDictionary dictionary = new ContactDictionary(100, Contact.Field.FIRST_NAME, Contact.Field.LAST_NAME);
+        ContactService service = new ContactService(new SequenceIdGenerator(1), dictionary);
+        for (int i = 0; i < 20; i++) {
+            service.addAll(Collections.singletonList(contact(i)), false);
+        }
+        assertEquals(13, dictionary.size());
+        assertEquals(-1, dictionary.codeOf("1 Main St"));
+        assertEquals(5, service.findByField(Contact.Field.ADDRESS, "1 Main St").size());
+        assertEquals(20, service.findByFieldPrefix(Contact.Field.ADDRESS, "").size());
+        assertEquals(2, service.findByField(Contact.Field.FIRST_NAME, "First4").size());
+        assertEquals(20, service.getDictionaryStats().getEncodedContacts());
+        try {
+            new ContactDictionary(100, new Contact.Field[0]);
+            fail("A dictionary of no fields should be rejected.");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("at least one field"));
+        }
+    }
+}
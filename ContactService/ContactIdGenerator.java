@@ -0,0 +1,14 @@
+/**
+ * Strategy for generating the IDs of new contacts in ContactService.
+ * Generated IDs must not exceed the 10-character Contact ID limit. ContactService checks every
+ * generated ID against the stored contacts and asks for another one if it is taken, so a generator
+ * only has to make collisions rare, not impossible.
+ */
+public interface ContactIdGenerator {
+
+    /**
+     * Returns a new contact ID. Implementations must be safe to call from multiple threads.
+     * @return An ID of at most 10 characters.
+     */
+    String nextId();
+}
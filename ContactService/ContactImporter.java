@@ -0,0 +1,962 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads contacts from a CSV or JSON Lines file into a ContactService as a pipeline of four stages:
+ *   read    one thread reads the file through a FileChannel in chunks of whole rows, about 1 MB each
+ *   parse   a pool of threads turns each chunk into Contacts, validated by the Contact constructor
+ *   hand-off a bounded queue of parsed chunks, in file order; a full queue stops the reader
+ *   insert  the calling thread adds each chunk through addAll() and records the rows it rejected
+ * At most a few chunks per parser thread are held at once, so memory use does not depend on the file size.
+ * ContactService is not thread-safe, and only the calling thread touches it.
+ *
+ * CSV files start with a header naming the columns: firstName, lastName, phone and address are required,
+ * id is optional, and case, spaces and underscores in the names are ignored, as are other columns.
+ * Fields follow RFC 4180: quoted fields may hold commas, line breaks and doubled quotes. JSON Lines files
+ * hold one object per line with the same keys, whose values are strings or numbers. Rows without an id get
+ * one derived from the input file's path and the row's position in it, so the same row always gets the same ID.
+ *
+ * Rows that cannot be parsed, fail validation or have an ID already in use are skipped and, if a reject
+ * file is given, written to it as CSV with the row's line number, the reason and the row itself.
+ *
+ * If a checkpoint file is given, it is rewritten with the position reached at most once a second, between
+ * chunks and once the service has been flushed, and at the end. Flushing a file-backed service forces its
+ * whole mapping to disk, which costs too much to do for every chunk. Running the same import again with the same
+ * checkpoint resumes after the last chunk it records. The chunks after it may already be in the service, as
+ * the earlier run can have stored them before it was killed, so inserts are idempotent: a row whose contact is
+ * already stored with the same ID and fields counts as imported, and a row without an id gets the same derived
+ * ID again. Every row is therefore imported or rejected once even if the earlier run was killed. Resuming is
+ * meant for file-backed services; an in-memory service loses its contacts with the process anyway.
+ */
+public class ContactImporter {
+
+    /**
+     * Formats of the files the importer reads.
+     */
+    public enum Format {
+        /** Comma-separated values with a header row. */
+        CSV,
+        /** One JSON object per line. */
+        JSONL
+    }
+
+    // Bytes read per chunk; a chunk ends at the last row boundary in it.
+    static final int CHUNK_BYTES = 1 << 20;
+    // Least time between checkpoints.
+    static final long CHECKPOINT_MILLIS = 1000;
+    // Longest row accepted; a longer one stops the import, as it usually means an unbalanced quote.
+    static final int MAX_ROW_BYTES = 16 << 20;
+    private static final String[] FIELDS = {"id", "firstName", "lastName", "phone", "address"};
+    private static final int ID = 0;
+    private static final int FIRST_NAME = 1;
+    private static final int LAST_NAME = 2;
+    private static final int PHONE = 3;
+    private static final int ADDRESS = 4;
+    private static final String DUPLICATE = "Contact already exists.";
+
+    private final ContactService service;
+    private final Format format;
+    private final int threads;
+    private final int chunkBytes;
+    private final long checkpointMillis;
+
+    /**
+     * Creates an importer that parses with one thread per processor.
+     * @param service The service to add the contacts to.
+     * @param format The format of the files to read.
+     */
+    public ContactImporter(ContactService service, Format format) {
+        this(service, format, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates an importer that parses with the given number of threads.
+     * @param service The service to add the contacts to.
+     * @param format The format of the files to read.
+     * @param threads The number of parser threads.
+     * @throws IllegalArgumentException if the number of threads is not positive.
+     */
+    public ContactImporter(ContactService service, Format format, int threads) {
+        this(service, format, threads, CHUNK_BYTES, CHECKPOINT_MILLIS);
+    }
+
+    ContactImporter(ContactService service, Format format, int threads, int chunkBytes, long checkpointMillis) {
+        if (service == null || format == null || threads < 1 || chunkBytes < 1) {
+            throw new IllegalArgumentException("Service and format must be non-null and threads and chunk size positive");
+        }
+        this.service = service;
+        this.format = format;
+        this.threads = threads;
+        this.chunkBytes = chunkBytes;
+        this.checkpointMillis = checkpointMillis;
+    }
+
+    /**
+     * Imports a file without a reject file or checkpoint.
+     * @param input The file to read.
+     * @return The numbers of rows read, imported and rejected.
+     * @throws IOException if the file cannot be read or a row is longer than 16 MB.
+     */
+    public Report run(Path input) throws IOException {
+        return run(input, null, null);
+    }
+
+    /**
+     * Imports a file, resuming from the checkpoint if there is one.
+     * @param input The file to read.
+     * @param rejects The file to write rejected rows to, or null to only count them.
+     * @param checkpoint The file recording the progress of the import, or null to not record it.
+     * @return The numbers of rows read, imported and rejected, including those of the run resumed.
+     * @throws IOException if a file cannot be read or written, the checkpoint belongs to another import,
+     *                     or a row is longer than 16 MB.
+     */
+    public Report run(Path input, Path rejects, Path checkpoint) throws IOException {
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            Header header = null;
+            long offset = 0;
+            long line = 1;
+            if (format == Format.CSV) {
+                Chunk row = readRow(channel, 0);
+                if (row == null) {
+                    throw new IOException("CSV file has no header: " + input);
+                }
+                header = header(row, input);
+                offset = row.end;
+                line += header.lines;
+            }
+            Progress progress = new Progress(input.toAbsolutePath().toString(), offset, line);
+            if (checkpoint != null && Files.exists(checkpoint)) {
+                progress = Progress.read(checkpoint, progress.input);
+            }
+            try (RejectWriter rejected = rejects == null ? null : new RejectWriter(rejects, progress.rejectBytes)) {
+                return pipeline(channel, header, progress, rejected, checkpoint, ConsistentHashRing.hash(progress.input));
+            }
+        }
+    }
+
+    /**
+     * Runs the stages, from the position of the progress, until the end of the file.
+     */
+    private Report pipeline(FileChannel channel, Header header, Progress progress, RejectWriter rejects,
+                            Path checkpoint, long idSeed) throws IOException {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService parsers = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "contact-import-parser-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        BlockingQueue<CompletableFuture<Parsed>> handOff = new ArrayBlockingQueue<>(2 * threads);
+        Thread reader = new Thread(() -> read(channel, progress.offset, header, idSeed, parsers, handOff),
+                "contact-import-reader");
+        reader.setDaemon(true);
+        reader.start();
+        try {
+            long line = progress.line;
+            long lastCheckpoint = System.nanoTime();
+            while (true) {
+                Parsed parsed = take(handOff);
+                if (parsed == null) {
+                    break;
+                }
+                insert(parsed, line, progress, rejects, idSeed);
+                line += parsed.lines;
+                progress.offset = parsed.end;
+                progress.line = line;
+                if (checkpoint != null && System.nanoTime() - lastCheckpoint >= checkpointMillis * 1_000_000) {
+                    checkpoint(progress, rejects, checkpoint);
+                    lastCheckpoint = System.nanoTime();
+                }
+            }
+            if (checkpoint != null) {
+                checkpoint(progress, rejects, checkpoint);
+            } else if (rejects != null) {
+                rejects.flush();
+            }
+            return new Report(progress.rows, progress.imported, progress.rejected);
+        } finally {
+            reader.interrupt();
+            parsers.shutdownNow();
+        }
+    }
+
+    // Makes everything before the progress durable, then records it.
+    private void checkpoint(Progress progress, RejectWriter rejects, Path checkpoint) throws IOException {
+        service.flush();
+        if (rejects != null) {
+            progress.rejectBytes = rejects.flush();
+        }
+        progress.write(checkpoint);
+    }
+
+    /**
+     * Reader stage: cuts the file into chunks of whole rows from the given offset and queues their parsing.
+     * The queue ends with a chunk of null, or with the exception that stopped the reader.
+     */
+    private void read(FileChannel channel, long offset, Header header, long idSeed, ExecutorService parsers,
+                      BlockingQueue<CompletableFuture<Parsed>> handOff) {
+        try {
+            try {
+                Chunk chunk;
+                while ((chunk = readChunk(channel, offset)) != null) {
+                    Chunk rows = chunk;
+                    handOff.put(CompletableFuture.supplyAsync(() -> parse(rows, header, idSeed), parsers));
+                    offset = chunk.end;
+                }
+                handOff.put(CompletableFuture.completedFuture(null));
+            } catch (IOException | RuntimeException e) {
+                handOff.put(CompletableFuture.failedFuture(e));
+            }
+        } catch (InterruptedException e) {
+            // The import stopped early and no longer takes chunks
+        }
+    }
+
+    // Waits for the next parsed chunk in file order, rethrowing what stopped the reader or a parser.
+    private static Parsed take(BlockingQueue<CompletableFuture<Parsed>> handOff) throws IOException {
+        try {
+            return handOff.take().join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the rows starting at an offset, up to about a chunk of them.
+     * @return The rows, or null at the end of the file.
+     */
+    private Chunk readChunk(FileChannel channel, long offset) throws IOException {
+        return read(channel, offset, chunkBytes, false);
+    }
+
+    /**
+     * Reads the single row starting at an offset, such as the CSV header.
+     */
+    private Chunk readRow(FileChannel channel, long offset) throws IOException {
+        return read(channel, offset, 64 * 1024, true);
+    }
+
+    // Reads whole rows from an offset, growing the buffer while it holds no complete row.
+    private Chunk read(FileChannel channel, long offset, int size, boolean firstRowOnly) throws IOException {
+        byte[] bytes = new byte[size];
+        int length = 0;
+        while (true) {
+            int read = channel.read(ByteBuffer.wrap(bytes, length, bytes.length - length), offset + length);
+            if (read > 0) {
+                length += read;
+            }
+            boolean endOfFile = read < 0 || offset + length >= channel.size();
+            int rowsEnd = rowsEnd(bytes, length, firstRowOnly);
+            if (rowsEnd < 0 && endOfFile) {
+                rowsEnd = length;
+            }
+            if (rowsEnd > 0) {
+                return new Chunk(bytes, rowsEnd, offset + rowsEnd);
+            }
+            if (endOfFile) {
+                return null;
+            }
+            if (length == bytes.length) {
+                if (bytes.length >= MAX_ROW_BYTES) {
+                    throw new IOException("Row at byte " + offset + " is longer than " + MAX_ROW_BYTES + " bytes");
+                }
+                bytes = Arrays.copyOf(bytes, Math.min(MAX_ROW_BYTES, 2 * bytes.length));
+            }
+        }
+    }
+
+    // Returns the end of the last row that is complete in the bytes, or of the first if asked, or -1 for none.
+    private int rowsEnd(byte[] bytes, int length, boolean firstRowOnly) {
+        if (format == Format.JSONL && !firstRowOnly) {
+            for (int i = length - 1; i >= 0; i--) {
+                if (bytes[i] == '\n') {
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+        // Line breaks inside quoted CSV fields belong to the row
+        int end = -1;
+        boolean quoted = false;
+        for (int i = 0; i < length; i++) {
+            byte b = bytes[i];
+            if (b == '"' && format == Format.CSV) {
+                quoted = !quoted;
+            } else if (b == '\n' && !quoted) {
+                end = i + 1;
+                if (firstRowOnly) {
+                    break;
+                }
+            }
+        }
+        return end;
+    }
+
+    // Maps the header row of a CSV file to the column of each contact field.
+    private static Header header(Chunk row, Path input) throws IOException {
+        String text = new String(row.bytes, 0, row.length, StandardCharsets.UTF_8);
+        if (text.startsWith("\uFEFF")) {
+            text = text.substring(1);
+        }
+        List<String> names = new ArrayList<>();
+        int end = text.length();
+        while (end > 0 && (text.charAt(end - 1) == '\n' || text.charAt(end - 1) == '\r')) {
+            end--;
+        }
+        splitCsv(text, 0, end, names);
+        int[] columns = new int[FIELDS.length];
+        Arrays.fill(columns, -1);
+        for (int i = names.size() - 1; i >= 0; i--) {
+            String name = normalize(names.get(i));
+            for (int f = 0; f < FIELDS.length; f++) {
+                if (name.equals(normalize(FIELDS[f])) || name.equals("contactid") && f == ID || name.equals("phonenumber") && f == PHONE) {
+                    columns[f] = i;
+                }
+            }
+        }
+        for (int f = FIRST_NAME; f <= ADDRESS; f++) {
+            if (columns[f] < 0) {
+                throw new IOException("CSV header has no " + FIELDS[f] + " column: " + input);
+            }
+        }
+        int lines = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        return new Header(columns, names.size(), lines);
+    }
+
+    private static String normalize(String name) {
+        return name.replace(" ", "").replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Parser stage: turns the rows of a chunk into contacts and rejects.
+     * @param idSeed The hash of the input file's path, which the IDs derived for rows without one start from.
+     */
+    private Parsed parse(Chunk chunk, Header header, long idSeed) {
+        String text = new String(chunk.bytes, 0, chunk.length, StandardCharsets.UTF_8);
+        Parsed parsed = new Parsed(text, chunk.end);
+        List<String> values = new ArrayList<>();
+        String[] fields = new String[FIELDS.length];
+        ValidationRules.Result validation = new ValidationRules.Result();
+        int position = 0;
+        int line = 0;
+        // File offset of the row at position, counted in UTF-8 bytes from the start of the chunk
+        long rowOffset = chunk.end - chunk.length;
+        int counted = 0;
+        while (position < text.length()) {
+            rowOffset += utf8Length(text, counted, position);
+            counted = position;
+            // Find the end of the row, jumping over quoted sections and counting the line breaks inside them
+            int end = position;
+            int breaks = 0;
+            while (true) {
+                int newline = text.indexOf('\n', end);
+                if (newline < 0) {
+                    newline = text.length();
+                }
+                int quote = format == Format.CSV ? text.indexOf('"', end) : -1;
+                if (quote < 0 || quote > newline) {
+                    end = newline;
+                    break;
+                }
+                int close = text.indexOf('"', quote + 1);
+                if (close < 0) {
+                    close = text.length() - 1;
+                }
+                for (int n = newline; n < close; n = text.indexOf('\n', n + 1)) {
+                    if (n < 0) {
+                        break;
+                    }
+                    breaks++;
+                }
+                end = close + 1;
+            }
+            int rowEnd = end;
+            if (rowEnd > position && text.charAt(rowEnd - 1) == '\r') {
+                rowEnd--;
+            }
+            if (rowEnd > position) {
+                parsed.rows++;
+                // Invalid rows are rejected without an exception; only malformed JSON throws
+                String reason = null;
+                try {
+                    Arrays.fill(fields, null);
+                    if (format == Format.CSV) {
+                        values.clear();
+                        splitCsv(text, position, rowEnd, values);
+                        if (values.size() != header.count) {
+                            reason = "Expected " + header.count + " fields but found " + values.size();
+                        } else {
+                            for (int f = 0; f < FIELDS.length; f++) {
+                                fields[f] = header.columns[f] < 0 ? null : values.get(header.columns[f]);
+                            }
+                            if (fields[ID] != null && fields[ID].isEmpty()) {
+                                fields[ID] = null;
+                            }
+                        }
+                    } else {
+                        Json.parseObject(text, position, rowEnd, FIELDS, fields);
+                        for (int f = FIRST_NAME; f <= ADDRESS && reason == null; f++) {
+                            if (fields[f] == null) {
+                                reason = "Missing field " + FIELDS[f];
+                            }
+                        }
+                    }
+                    if (reason == null) {
+                        boolean generated = fields[ID] == null;
+                        String id = generated ? rowId(idSeed, rowOffset, 0) : fields[ID];
+                        Contact contact = Contact.tryCreate(id, fields[FIRST_NAME], fields[LAST_NAME], fields[PHONE], fields[ADDRESS],
+                                validation);
+                        if (contact != null) {
+                            parsed.add(contact, line, position, rowEnd, generated ? rowOffset : -1);
+                        } else {
+                            reason = validation.getMessage();
+                        }
+                    }
+                } catch (IllegalArgumentException e) {
+                    reason = e.getMessage();
+                }
+                if (reason != null) {
+                    parsed.reject(line, reason, text.substring(position, rowEnd));
+                }
+            }
+            line += breaks + 1;
+            position = end + 1;
+        }
+        parsed.lines = line;
+        return parsed;
+    }
+
+    // Returns the number of UTF-8 bytes that encode a range of chars; each char of a surrogate pair counts 2.
+    private static int utf8Length(String text, int from, int to) {
+        int length = to - from;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                length += c < 0x800 ? 1 : Character.isSurrogate(c) ? 1 : 2;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Derives the ID of a row without one from the input file and the row's offset in it. Attempts after the first
+     * give other IDs for the same row, for when the first is taken by a different contact.
+     * @return Up to 10 base-36 digits.
+     */
+    static String rowId(long idSeed, long rowOffset, int attempt) {
+        long h = idSeed + rowOffset * 0x9E3779B97F4A7C15L + attempt * 0xc2b2ae3d27d4eb4fL;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        // 51 bits take at most 10 base-36 digits
+        return Long.toString(h >>> 13, 36);
+    }
+
+    // Splits one CSV row into its fields, undoing quoting.
+    static void splitCsv(String text, int start, int end, List<String> fields) {
+        StringBuilder field = new StringBuilder();
+        int i = start;
+        while (true) {
+            field.setLength(0);
+            if (i < end && text.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i >= end) {
+                        throw new IllegalArgumentException("Unterminated quoted field");
+                    }
+                    char c = text.charAt(i++);
+                    if (c == '"') {
+                        if (i < end && text.charAt(i) == '"') {
+                            field.append('"');
+                            i++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        field.append(c);
+                    }
+                }
+                if (i < end && text.charAt(i) != ',') {
+                    throw new IllegalArgumentException("Unexpected character after quoted field");
+                }
+                fields.add(field.toString());
+            } else {
+                int fieldEnd = i;
+                for (; fieldEnd < end; fieldEnd++) {
+                    char c = text.charAt(fieldEnd);
+                    if (c == ',') {
+                        break;
+                    }
+                    if (c == '"') {
+                        throw new IllegalArgumentException("Quote inside unquoted field");
+                    }
+                }
+                fields.add(text.substring(i, fieldEnd));
+                i = fieldEnd;
+            }
+            if (i >= end) {
+                return;
+            }
+            i++; // the comma
+        }
+    }
+
+    /**
+     * Insert stage: adds the contacts of a chunk and records its rejects in line order.
+     * Contacts already stored with the same ID and fields, by this import or by a run that stopped before its
+     * checkpoint recorded them, count as imported.
+     */
+    private void insert(Parsed parsed, long firstLine, Progress progress, RejectWriter rejects, long idSeed) throws IOException {
+        List<Reject> chunkRejects = parsed.rejects;
+        if (!parsed.contacts.isEmpty()) {
+            for (BatchResult.Failure failure : service.addAll(parsed.contacts, false).getFailures()) {
+                int index = failure.getIndex();
+                Contact contact = parsed.contacts.get(index);
+                boolean duplicate = DUPLICATE.equals(failure.getReason());
+                if (duplicate && service.holds(contact)) {
+                    continue;
+                }
+                if (duplicate && parsed.offsetOf(index) >= 0) {
+                    // A derived ID taken by a different contact is replaced by the row's next one, so a replayed
+                    // row finds the contact it stored before
+                    for (int attempt = 1; ; attempt++) {
+                        Contact renamed = new Contact(rowId(idSeed, parsed.offsetOf(index), attempt), contact.getFirstName(),
+                                contact.getLastName(), contact.getPhoneDigits(), contact.getAddress());
+                        if (service.holds(renamed) || !service.addAll(List.of(renamed), false).hasFailures()) {
+                            break;
+                        }
+                    }
+                } else {
+                    chunkRejects.add(new Reject(parsed.lineOf(index), failure.getReason(), parsed.rowOf(index)));
+                }
+            }
+        }
+        chunkRejects.sort((a, b) -> Integer.compare(a.line, b.line));
+        progress.rows += parsed.rows;
+        progress.rejected += chunkRejects.size();
+        progress.imported += parsed.rows - chunkRejects.size();
+        if (rejects != null) {
+            for (Reject reject : chunkRejects) {
+                rejects.write(firstLine + reject.line, reject.reason, reject.row);
+            }
+        }
+    }
+
+    /**
+     * Totals of an import.
+     */
+    public static final class Report {
+        private final long rows;
+        private final long imported;
+        private final long rejected;
+
+        Report(long rows, long imported, long rejected) {
+            this.rows = rows;
+            this.imported = imported;
+            this.rejected = rejected;
+        }
+
+        /**
+         * Returns the number of data rows read, not counting blank lines and the CSV header.
+         */
+        public long getRows() {
+            return rows;
+        }
+
+        /**
+         * Returns the number of contacts added to the service.
+         */
+        public long getImported() {
+            return imported;
+        }
+
+        /**
+         * Returns the number of rows skipped.
+         */
+        public long getRejected() {
+            return rejected;
+        }
+
+        @Override
+        public String toString() {
+            return "Report{rows=" + rows + ", imported=" + imported + ", rejected=" + rejected + "}";
+        }
+    }
+
+    /**
+     * Column of each contact field in a CSV file, -1 for none, and the number of columns.
+     */
+    private static final class Header {
+        final int[] columns;
+        final int count;
+        final int lines;
+
+        Header(int[] columns, int count, int lines) {
+            this.columns = columns;
+            this.count = count;
+            this.lines = lines;
+        }
+    }
+
+    /**
+     * Whole rows read from the file, ending at the given file offset.
+     */
+    private static final class Chunk {
+        final byte[] bytes;
+        final int length;
+        final long end;
+
+        Chunk(byte[] bytes, int length, long end) {
+            this.bytes = bytes;
+            this.length = length;
+            this.end = end;
+        }
+    }
+
+    /**
+     * The contacts and rejects of a chunk, with lines counted from the start of the chunk.
+     * The chunk's text is kept until its contacts are inserted, so a duplicate is reported with its row.
+     */
+    private static final class Parsed {
+        final String text;
+        final long end;
+        final List<Contact> contacts = new ArrayList<>();
+        final List<Reject> rejects = new ArrayList<>();
+        // Line, start and end in the text of each contact's row.
+        private int[] rowSpans = new int[3 * 64];
+        // File offset of each contact's row if its ID was derived from it rather than read, otherwise -1.
+        private long[] offsets = new long[64];
+        int rows;
+        int lines;
+
+        Parsed(String text, long end) {
+            this.text = text;
+            this.end = end;
+        }
+
+        void add(Contact contact, int line, int start, int end, long derivedFrom) {
+            int index = contacts.size();
+            if (index == offsets.length) {
+                rowSpans = Arrays.copyOf(rowSpans, 2 * rowSpans.length);
+                offsets = Arrays.copyOf(offsets, 2 * offsets.length);
+            }
+            rowSpans[3 * index] = line;
+            rowSpans[3 * index + 1] = start;
+            rowSpans[3 * index + 2] = end;
+            offsets[index] = derivedFrom;
+            contacts.add(contact);
+        }
+
+        void reject(int line, String reason, String row) {
+            rejects.add(new Reject(line, reason, row));
+        }
+
+        int lineOf(int contact) {
+            return rowSpans[3 * contact];
+        }
+
+        long offsetOf(int contact) {
+            return offsets[contact];
+        }
+
+        String rowOf(int contact) {
+            return text.substring(rowSpans[3 * contact + 1], rowSpans[3 * contact + 2]);
+        }
+    }
+
+    private static final class Reject {
+        final int line;
+        final String reason;
+        final String row;
+
+        Reject(int line, String reason, String row) {
+            this.line = line;
+            this.reason = reason;
+            this.row = row;
+        }
+    }
+
+    /**
+     * Position and totals of an import, as recorded in its checkpoint file.
+     */
+    private static final class Progress {
+        final String input;
+        long offset;
+        long line;
+        long rows;
+        long imported;
+        long rejected;
+        long rejectBytes;
+
+        Progress(String input, long offset, long line) {
+            this.input = input;
+            this.offset = offset;
+            this.line = line;
+        }
+
+        static Progress read(Path checkpoint, String input) throws IOException {
+            Map<String, String> values = new HashMap<>();
+            for (String entry : Files.readAllLines(checkpoint, StandardCharsets.UTF_8)) {
+                int equals = entry.indexOf('=');
+                if (equals > 0) {
+                    values.put(entry.substring(0, equals), entry.substring(equals + 1));
+                }
+            }
+            if (!input.equals(values.get("input"))) {
+                throw new IOException("Checkpoint " + checkpoint + " belongs to the import of " + values.get("input"));
+            }
+            try {
+                Progress progress = new Progress(input, Long.parseLong(values.get("offset")), Long.parseLong(values.get("line")));
+                progress.rows = Long.parseLong(values.get("rows"));
+                progress.imported = Long.parseLong(values.get("imported"));
+                progress.rejected = Long.parseLong(values.get("rejected"));
+                progress.rejectBytes = Long.parseLong(values.get("rejectBytes"));
+                return progress;
+            } catch (NumberFormatException e) {
+                throw new IOException("Corrupt checkpoint: " + checkpoint, e);
+            }
+        }
+
+        // Replaces the checkpoint file in one step, so a crash leaves either the old or the new one.
+        void write(Path checkpoint) throws IOException {
+            String text = "input=" + input + "\noffset=" + offset + "\nline=" + line + "\nrows=" + rows + "\nimported="
+                    + imported + "\nrejected=" + rejected + "\nrejectBytes=" + rejectBytes + "\n";
+            Path temp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+            Files.write(temp, text.getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    /**
+     * CSV file of rejected rows: line, reason and row. A resumed import cuts it back to the length its
+     * checkpoint recorded, dropping rows the interrupted run wrote after that.
+     */
+    private static final class RejectWriter implements AutoCloseable {
+        private final FileChannel channel;
+        private final Writer writer;
+
+        RejectWriter(Path file, long length) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            channel.truncate(length);
+            channel.position(length);
+            this.writer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+            if (length == 0) {
+                writer.write("line,reason,row\n");
+            }
+        }
+
+        void write(long line, String reason, String row) throws IOException {
+            writer.write(Long.toString(line));
+            writer.write(',');
+            writer.write(quote(reason));
+            writer.write(',');
+            writer.write(quote(row));
+            writer.write('\n');
+        }
+
+        // Flushes the rows written so far and returns the length of the file.
+        long flush() throws IOException {
+            writer.flush();
+            return channel.position();
+        }
+
+        static String quote(String value) {
+            if (value == null) {
+                return "";
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    /**
+     * Just enough of a JSON parser for one flat object per line.
+     */
+    static final class Json {
+        private final String text;
+        private int position;
+        private final int end;
+
+        private Json(String text, int start, int end) {
+            this.text = text;
+            this.position = start;
+            this.end = end;
+        }
+
+        /**
+         * Parses an object, storing the values of the wanted keys; other keys are skipped.
+         * @throws IllegalArgumentException if the text is not an object of strings, numbers, booleans and nulls.
+         */
+        static void parseObject(String text, int start, int end, String[] keys, String[] values) {
+            Json json = new Json(text, start, end);
+            json.expect('{');
+            if (json.peek() == '}') {
+                json.position++;
+            } else {
+                do {
+                    String key = json.string();
+                    json.expect(':');
+                    String value = json.value();
+                    for (int k = 0; k < keys.length; k++) {
+                        if (keys[k].equals(key)) {
+                            values[k] = value;
+                        }
+                    }
+                } while (json.next(',', '}'));
+            }
+            if (json.peek() != 0) {
+                throw new IllegalArgumentException("Malformed JSON: text after the object");
+            }
+        }
+
+        // Returns the next character that is not white space, or 0 at the end.
+        private char peek() {
+            while (position < end && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+            return position < end ? text.charAt(position) : 0;
+        }
+
+        private void expect(char c) {
+            if (peek() != c) {
+                throw new IllegalArgumentException("Malformed JSON: expected '" + c + "' at column " + position);
+            }
+            position++;
+        }
+
+        // Consumes a separator or the closing character and returns whether a separator came.
+        private boolean next(char separator, char close) {
+            char c = peek();
+            position++;
+            if (c == separator) {
+                return true;
+            }
+            if (c == close) {
+                return false;
+            }
+            throw new IllegalArgumentException("Malformed JSON: expected '" + separator + "' or '" + close + "'");
+        }
+
+        private String value() {
+            char c = peek();
+            if (c == '"') {
+                return string();
+            }
+            if (c == '{' || c == '[') {
+                throw new IllegalArgumentException("Unsupported JSON value: only strings and numbers are read");
+            }
+            int start = position;
+            while (position < end && ",}] \t\r\n".indexOf(text.charAt(position)) < 0) {
+                position++;
+            }
+            String literal = text.substring(start, position);
+            if (literal.equals("null")) {
+                return null;
+            }
+            if (literal.equals("true") || literal.equals("false") || literal.matches("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?")) {
+                return literal;
+            }
+            throw new IllegalArgumentException("Malformed JSON: unexpected '" + literal + "'");
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder value = null;
+            int start = position;
+            while (true) {
+                if (position >= end) {
+                    throw new IllegalArgumentException("Malformed JSON: unterminated string");
+                }
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return value == null ? text.substring(start, position - 1) : value.toString();
+                }
+                if (c != '\\') {
+                    if (value != null) {
+                        value.append(c);
+                    }
+                    continue;
+                }
+                if (value == null) {
+                    value = new StringBuilder().append(text, start, position - 1);
+                }
+                if (position >= end) {
+                    throw new IllegalArgumentException("Malformed JSON: unterminated string");
+                }
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case '"': case '\\': case '/': value.append(escaped); break;
+                    case 'b': value.append('\b'); break;
+                    case 'f': value.append('\f'); break;
+                    case 'n': value.append('\n'); break;
+                    case 'r': value.append('\r'); break;
+                    case 't': value.append('\t'); break;
+                    case 'u':
+                        if (position + 4 > end) {
+                            throw new IllegalArgumentException("Malformed JSON: short \\u escape");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("Malformed JSON: bad \\u escape");
+                        }
+                        position += 4;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Malformed JSON: bad escape \\" + escaped);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,294 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the ContactImporter class.
+ * These tests validate CSV and JSON Lines parsing, the reject file, chunking, and resuming from a checkpoint.
+ */
+public class ContactImporterTest {
+    private Path directory; // Directory holding the files of each test
+
+    // Rows covering quoting, an extra column, CRLF line ends, a blank line and four kinds of invalid row
+    private static final String CSV = "First Name,last_name,Notes,Phone Number,ADDRESS\r\n"
+            + "Ann,Lee,,0012345678,1 Quay St\r\n"
+            + "\"Smith, Jo\",Ray,\"said \"\"hi\"\"\",1234567890,\"Flat 2\n10 Main St\"\n"
+            + "Bob,Stone,x,12345,2 High St\n"
+            + "\n"
+            + "Christopher,Wu,,5555555555,3 Low Rd\n"
+            + "Dee,Fox,,5555555556\n"
+            + "Eve,Hart,,5555555557,4 Elm Ave\n";
+
+    /**
+     * Creates an empty directory for the files of each test.
+     */
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("contact-import");
+    }
+
+    /**
+     * Removes the files after each test.
+     */
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(path -> path.toFile().delete());
+        }
+        Files.delete(directory);
+    }
+
+    private Path write(String name, String text) throws IOException {
+        Path file = directory.resolve(name);
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    // Returns the IDs of the stored contacts, sorted.
+    private static Set<String> ids(ContactService service) {
+        Set<String> ids = new TreeSet<>();
+        for (Contact contact : service.getContactList()) {
+            ids.add(contact.getContactId());
+        }
+        return ids;
+    }
+
+    // Returns "first last phone address" of every stored contact, sorted.
+    private static Set<String> contents(ContactService service) {
+        Set<String> contents = new TreeSet<>();
+        for (Contact contact : service.getContactList()) {
+            contents.add(contact.getFirstName() + " " + contact.getLastName() + " " + contact.getPhoneNumber() + " " + contact.getAddress());
+        }
+        return contents;
+    }
+
+    /**
+     * Tests that valid CSV rows are imported and invalid ones are written to the reject file with their line.
+     */
+    @Test
+    public void testCsv() throws IOException {
+        ContactService service = new ContactService();
+        Path rejects = directory.resolve("rejects.csv");
+        ContactImporter.Report report = new ContactImporter(service, ContactImporter.Format.CSV).run(write("in.csv", CSV), rejects, null);
+
+        assertEquals(6, report.getRows());
+        assertEquals(3, report.getImported());
+        assertEquals(3, report.getRejected());
+        Set<String> expected = new TreeSet<>(List.of("Ann Lee 0012345678 1 Quay St", "Smith, Jo Ray 1234567890 Flat 2\n10 Main St",
+                "Eve Hart 5555555557 4 Elm Ave"));
+        assertEquals(expected, contents(service));
+
+        List<String> lines = Files.readAllLines(rejects);
+        assertEquals("line,reason,row", lines.get(0));
+        assertTrue(lines.get(1).startsWith("5,\"Phone number must be"));
+        assertTrue(lines.get(1).endsWith(",\"Bob,Stone,x,12345,2 High St\""));
+        assertTrue(lines.get(2).startsWith("7,First name must be"));
+        assertTrue(lines.get(3).startsWith("8,Expected 5 fields but found 4"));
+        assertEquals(4, lines.size());
+    }
+
+    /**
+     * Tests that tiny chunks, which end at nearly every row, give the same result as one chunk.
+     */
+    @Test
+    public void testChunking() throws IOException {
+        StringBuilder text = new StringBuilder("firstName,lastName,phone,address\n");
+        for (int i = 0; i < 500; i++) {
+            text.append(i % 50 == 0 ? "\"Multi\nLine\"" : "F" + i).append(",L,").append(i % 7 == 0 ? "bad" : String.format("%010d", i))
+                    .append(",\"Addr, ").append(i).append("\"\n");
+        }
+        Path input = write("in.csv", text.toString());
+
+        ContactService whole = new ContactService();
+        Path wholeRejects = directory.resolve("whole.csv");
+        ContactImporter.Report expected = new ContactImporter(whole, ContactImporter.Format.CSV).run(input, wholeRejects, null);
+        ContactService chunked = new ContactService();
+        Path chunkedRejects = directory.resolve("chunked.csv");
+        ContactImporter.Report report = new ContactImporter(chunked, ContactImporter.Format.CSV, 3, 16, 0).run(input, chunkedRejects, null);
+
+        assertEquals(500, report.getRows());
+        assertEquals(expected.toString(), report.toString());
+        assertEquals(contents(whole), contents(chunked));
+        assertEquals(Files.readAllLines(wholeRejects), Files.readAllLines(chunkedRejects));
+        // Row 7 is on line 10, as row 0 spans two lines
+        assertTrue(Files.readAllLines(chunkedRejects).stream().anyMatch(line -> line.startsWith("10,\"Phone")));
+    }
+
+    /**
+     * Tests that JSON Lines rows are imported with escapes and numeric phone numbers, and bad rows are rejected.
+     */
+    @Test
+    public void testJsonLines() throws IOException {
+        String text = "{\"firstName\": \"Ann\", \"lastName\": \"Lee\", \"phone\": 1234567890, \"address\": \"1 Quay St\", \"vip\": true}\n"
+                + "{\"id\":\"J2\",\"firstName\":\"Zo\\u00eb\",\"lastName\":\"O\\\"Neil\",\"phone\":\"0000000001\",\"address\":\"A\\/B\"}\n"
+                + "{\"firstName\":\"Bob\",\"lastName\":\"Ray\",\"phone\":\"1234567890\"}\n"
+                + "{\"firstName\":{\"nested\":1},\"lastName\":\"Ray\",\"phone\":\"1234567890\",\"address\":\"x\"}\n"
+                + "{\"firstName\":\"Cy\",\n";
+        ContactService service = new ContactService();
+        Path rejects = directory.resolve("rejects.csv");
+        ContactImporter.Report report = new ContactImporter(service, ContactImporter.Format.JSONL).run(write("in.jsonl", text), rejects, null);
+
+        assertEquals(5, report.getRows());
+        assertEquals(2, report.getImported());
+        assertEquals(new TreeSet<>(List.of("Ann Lee 1234567890 1 Quay St", "Zo\u00eb O\"Neil 0000000001 A/B")), contents(service));
+        List<String> lines = Files.readAllLines(rejects);
+        assertTrue(lines.get(1).startsWith("3,Missing field address"));
+        assertTrue(lines.get(2).startsWith("4,Unsupported JSON value"));
+        assertTrue(lines.get(3).startsWith("5,\"Malformed JSON"));
+    }
+
+    /**
+     * Tests that rows with an ID in use are rejected, and rows with an empty ID get a generated one.
+     */
+    @Test
+    public void testIds() throws Exception {
+        ContactService service = new ContactService();
+        service.addAll(List.of(new Contact("C1", "Old", "One", "1111111111", "Here")), false);
+        String text = "id,firstName,lastName,phone,address\n"
+                + "C1,New,One,2222222222,There\n"
+                + "C2,Two,Two,2222222222,There\n"
+                + "C2,Dup,Two,2222222222,There\n"
+                + ",Gen,Three,3333333333,There\n";
+        Path rejects = directory.resolve("rejects.csv");
+        ContactImporter.Report report = new ContactImporter(service, ContactImporter.Format.CSV).run(write("in.csv", text), rejects, null);
+
+        assertEquals(2, report.getImported());
+        assertEquals("Old", service.getContact("C1").getFirstName());
+        assertEquals("Two", service.getContact("C2").getFirstName());
+        assertEquals(3, service.getContactList().size());
+        List<String> lines = Files.readAllLines(rejects);
+        assertEquals("2,Contact already exists.,\"C1,New,One,2222222222,There\"", lines.get(1));
+        assertEquals("4,Contact already exists.,\"C2,Dup,Two,2222222222,There\"", lines.get(2));
+    }
+
+    /**
+     * Tests that an import stopped part way resumes after its last checkpoint, importing and rejecting every
+     * row once.
+     */
+    @Test
+    public void testResume() throws IOException {
+        StringBuilder text = new StringBuilder("firstName,lastName,phone,address\n");
+        for (int i = 0; i < 300; i++) {
+            text.append("F").append(i).append(",L,").append(i % 10 == 0 ? "bad" : String.format("%010d", i)).append(",A\n");
+        }
+        Path input = write("in.csv", text.toString());
+        ContactService expected = new ContactService();
+        Path expectedRejects = directory.resolve("expected.csv");
+        new ContactImporter(expected, ContactImporter.Format.CSV, 2, 200, 0).run(input, expectedRejects, null);
+
+        // A service that fails on its fifth batch, as if the process died there
+        int[] batches = {0};
+        ContactService service = new ContactService() {
+            @Override
+            public BatchResult addAll(Collection<Contact> batch, boolean atomic) {
+                if (++batches[0] == 5) {
+                    throw new IllegalStateException("Crash");
+                }
+                return super.addAll(batch, atomic);
+            }
+        };
+        Path rejects = directory.resolve("rejects.csv");
+        Path checkpoint = directory.resolve("import.checkpoint");
+        ContactImporter importer = new ContactImporter(service, ContactImporter.Format.CSV, 2, 200, 0);
+        try {
+            importer.run(input, rejects, checkpoint);
+            fail("The import should stop at the failing batch.");
+        } catch (IllegalStateException e) {
+            assertTrue(Files.exists(checkpoint));
+        }
+        // Rejects past the checkpoint are dropped on resume, so they are not reported twice
+        Files.write(rejects, "999,Written after the checkpoint,x\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        ContactImporter.Report report = importer.run(input, rejects, checkpoint);
+
+        assertEquals(300, report.getRows());
+        assertEquals(270, report.getImported());
+        assertEquals(30, report.getRejected());
+        assertEquals(contents(expected), contents(service));
+        assertEquals(Files.readAllLines(expectedRejects), Files.readAllLines(rejects));
+
+        // A finished import has nothing left to do
+        assertEquals(report.toString(), importer.run(input, rejects, checkpoint).toString());
+        assertEquals(270, service.getContactList().size());
+    }
+
+    /**
+     * Tests that a resumed import stores and counts every row once when the earlier run died after storing a chunk
+     * but before its checkpoint, with the rows with and without an id in the file.
+     */
+    @Test
+    public void testResumeAfterUncheckpointedChunk() throws IOException {
+        StringBuilder text = new StringBuilder("id,firstName,lastName,phone,address\n");
+        for (int i = 0; i < 300; i++) {
+            text.append(i % 3 == 0 ? "X" + i : "").append(",F").append(i).append(",L,")
+                    .append(i % 10 == 0 ? "bad" : String.format("%010d", i)).append(",A\n");
+        }
+        Path input = write("in.csv", text.toString());
+        ContactService expected = new ContactService();
+        Path expectedRejects = directory.resolve("expected.csv");
+        ContactImporter.Report expectedReport = new ContactImporter(expected, ContactImporter.Format.CSV, 2, 200, 0)
+                .run(input, expectedRejects, null);
+
+        // A service that dies right after storing its fifth batch, before the importer can checkpoint it
+        int[] batches = {0};
+        ContactService service = new ContactService() {
+            @Override
+            public BatchResult addAll(Collection<Contact> batch, boolean atomic) {
+                BatchResult result = super.addAll(batch, atomic);
+                if (++batches[0] == 5) {
+                    throw new IllegalStateException("Crash");
+                }
+                return result;
+            }
+        };
+        Path rejects = directory.resolve("rejects.csv");
+        Path checkpoint = directory.resolve("import.checkpoint");
+        ContactImporter importer = new ContactImporter(service, ContactImporter.Format.CSV, 2, 200, 0);
+        try {
+            importer.run(input, rejects, checkpoint);
+            fail("The import should stop at the failing batch.");
+        } catch (IllegalStateException e) {
+            assertTrue(Files.exists(checkpoint));
+        }
+        ContactImporter.Report report = importer.run(input, rejects, checkpoint);
+
+        assertEquals(expectedReport.toString(), report.toString());
+        assertEquals(contents(expected), contents(service));
+        assertEquals(ids(expected), ids(service));
+        assertEquals(Files.readAllLines(expectedRejects), Files.readAllLines(rejects));
+    }
+
+    /**
+     * Tests that a CSV file without a required column, or a checkpoint of another file, is refused.
+     */
+    @Test
+    public void testRefusedFiles() throws IOException {
+        ContactService service = new ContactService();
+        ContactImporter importer = new ContactImporter(service, ContactImporter.Format.CSV);
+        try {
+            importer.run(write("in.csv", "firstName,lastName,address\nA,B,C\n"));
+            fail("A header without a phone column should be refused.");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("phone"));
+        }
+
+        Path checkpoint = directory.resolve("import.checkpoint");
+        importer.run(write("a.csv", CSV), null, checkpoint);
+        try {
+            importer.run(write("b.csv", CSV), null, checkpoint);
+            fail("A checkpoint of another file should be refused.");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("a.csv"));
+        }
+    }
+}
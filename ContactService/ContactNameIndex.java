@@ -0,0 +1,306 @@
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Sorted prefix index over contact names, for autocompletion.
+ *
+ * Each contact is indexed under its first name, its last name and "first last", lowercased, so typing
+ * either name or the start of the full name finds it. Keys are "name\0id" strings in a sorted set,
+ * so a prefix query is a ceiling lookup followed by a scan of the matching range: O(log n + k).
+ *
+ * Typo-tolerant queries also match names whose prefix is one edit away from the query: one char
+ * deleted, inserted, substituted, or two adjacent chars swapped. Each variant of the query is looked
+ * up like an exact prefix, with substituted and inserted chars drawn from the chars that occur in
+ * indexed names. Exact matches are returned first.
+ *
+ * Not thread-safe, like the ContactService that owns it.
+ */
+final class ContactNameIndex {
+    // Separates the name from the contact ID in a key; sorts before every char a name can contain.
+    private static final char SEPARATOR = '\0';
+
+    // Not final: the first bulk load replaces it with a set built from sorted keys.
+    private NavigableSet<String> keys = new TreeSet<>();
+    // Chars occurring in indexed names, used to build substitution and insertion variants.
+    private final BitSet seen = new BitSet();
+    private char[] alphabet = new char[0];
+
+    /**
+     * Indexes a contact under its names.
+     */
+    void add(String id, String firstName, String lastName) {
+        for (String name : names(firstName, lastName)) {
+            keys.add(name + SEPARATOR + id);
+            for (int i = 0; i < name.length(); i++) {
+                if (!seen.get(name.charAt(i))) {
+                    seen.set(name.charAt(i));
+                    alphabet = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Indexes many contacts at once. Into an empty index the keys are sorted first and the tree is built
+     * from them in linear time, which is several times faster than adding them one at a time. Into a filled
+     * index the sorted keys are inserted in order, so consecutive inserts walk the same path down the tree.
+     */
+    void addAll(Collection<Contact> contacts) {
+        String[] sorted = new String[3 * contacts.size()];
+        int count = 0;
+        for (Contact contact : contacts) {
+            String id = contact.getContactId();
+            for (String name : names(contact.getFirstName(), contact.getLastName())) {
+                sorted[count++] = name + SEPARATOR + id;
+                for (int i = 0; i < name.length(); i++) {
+                    seen.set(name.charAt(i));
+                }
+            }
+        }
+        Arrays.sort(sorted, 0, count);
+        if (!keys.isEmpty()) {
+            keys.addAll(Arrays.asList(sorted).subList(0, count));
+            alphabet = null;
+            return;
+        }
+        // A contact whose first and last names are equal produces the same key twice
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || !sorted[i].equals(sorted[unique - 1])) {
+                sorted[unique++] = sorted[i];
+            }
+        }
+        keys = new TreeSet<>(new SortedKeys(sorted, unique));
+        alphabet = null;
+    }
+
+    /**
+     * Removes a contact indexed under the given names.
+     */
+    void remove(String id, String firstName, String lastName) {
+        for (String name : names(firstName, lastName)) {
+            keys.remove(name + SEPARATOR + id);
+        }
+    }
+
+    /**
+     * Returns the IDs of the contacts whose first name, last name or full name starts with the query,
+     * in name order, each ID at most once.
+     *
+     * @param query The typed prefix; case is ignored.
+     * @param limit The maximum number of IDs to return.
+     * @param typoTolerant If true, names one edit away from the query are matched after the exact ones.
+     * @return The matching contact IDs.
+     */
+    List<String> search(String query, int limit, boolean typoTolerant) {
+        String prefix = normalize(query);
+        Set<String> ids = new LinkedHashSet<>();
+        collect(prefix, limit, ids);
+        if (typoTolerant && ids.size() < limit && !prefix.isEmpty()) {
+            for (String variant : variants(prefix)) {
+                collect(variant, limit, ids);
+                if (ids.size() >= limit) {
+                    break;
+                }
+            }
+        }
+        return new ArrayList<>(ids);
+    }
+
+    /**
+     * Returns the number of index keys, three per indexed contact.
+     */
+    int size() {
+        return keys.size();
+    }
+
+    // Adds the IDs of keys starting with the prefix until the limit is reached.
+    private void collect(String prefix, int limit, Set<String> ids) {
+        for (String key : keys.tailSet(prefix, true)) {
+            if (ids.size() >= limit || !key.startsWith(prefix)) {
+                return;
+            }
+            int separator = key.lastIndexOf(SEPARATOR);
+            // A prefix ending inside the ID part would match a longer name only by accident
+            if (separator >= prefix.length()) {
+                ids.add(key.substring(separator + 1));
+            }
+        }
+    }
+
+    // All distinct strings one edit away from the prefix, excluding the prefix itself.
+    // Inserting after the last char is left out, as it only narrows the exact match.
+    private Set<String> variants(String prefix) {
+        char[] chars = alphabet();
+        Set<String> variants = new LinkedHashSet<>();
+        StringBuilder builder = new StringBuilder(prefix.length() + 1);
+        int length = prefix.length();
+        for (int i = 0; i < length - 1; i++) {
+            builder.setLength(0);
+            builder.append(prefix, 0, i).append(prefix.charAt(i + 1)).append(prefix.charAt(i)).append(prefix, i + 2, length);
+            variants.add(builder.toString());
+        }
+        for (int i = 0; i < length; i++) {
+            builder.setLength(0);
+            builder.append(prefix, 0, i).append(prefix, i + 1, length);
+            if (builder.length() > 0) {
+                variants.add(builder.toString());
+            }
+        }
+        for (int i = 0; i < length; i++) {
+            for (char c : chars) {
+                builder.setLength(0);
+                builder.append(prefix, 0, i).append(c).append(prefix, i + 1, length);
+                variants.add(builder.toString());
+                builder.setLength(0);
+                builder.append(prefix, 0, i).append(c).append(prefix, i, length);
+                variants.add(builder.toString());
+            }
+        }
+        variants.remove(prefix);
+        return variants;
+    }
+
+    private char[] alphabet() {
+        if (alphabet == null) {
+            alphabet = new char[seen.cardinality()];
+            int i = 0;
+            for (int c = seen.nextSetBit(0); c >= 0; c = seen.nextSetBit(c + 1)) {
+                alphabet[i++] = (char) c;
+            }
+        }
+        return alphabet;
+    }
+
+    /**
+     * Returns the smallest index key of a contact that starts with the query, or null if none does.
+     * Exact matches are returned in the order of these keys, so results from several indexes can be merged by them.
+     */
+    static String matchKey(Contact contact, String query) {
+        String prefix = normalize(query);
+        String best = null;
+        for (String name : names(contact.getFirstName(), contact.getLastName())) {
+            String key = name + SEPARATOR + contact.getContactId();
+            if (name.startsWith(prefix) && (best == null || key.compareTo(best) < 0)) {
+                best = key;
+            }
+        }
+        return best;
+    }
+
+    // The normalized names a contact is indexed under.
+    private static String[] names(String firstName, String lastName) {
+        String first = normalize(firstName);
+        String last = normalize(lastName);
+        return new String[] {first, last, first + " " + last};
+    }
+
+    private static String normalize(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Read-only SortedSet view of a range of a sorted, duplicate-free array.
+     * TreeSet builds its tree in linear time from a SortedSet, but would insert other collections one key at a time.
+     * Subsets are views of narrower ranges, with their bounds found by binary search.
+     */
+    private static final class SortedKeys extends AbstractSet<String> implements SortedSet<String> {
+        private final String[] keys;
+        // The view holds keys[from] to keys[to - 1].
+        private final int from;
+        private final int to;
+
+        SortedKeys(String[] keys, int size) {
+            this(keys, 0, size);
+        }
+
+        private SortedKeys(String[] keys, int from, int to) {
+            this.keys = keys;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return Collections.unmodifiableList(Arrays.asList(keys).subList(from, to)).iterator();
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof String && Arrays.binarySearch(keys, from, to, o) >= 0;
+        }
+
+        @Override
+        public Comparator<? super String> comparator() {
+            return null;
+        }
+
+        @Override
+        public String first() {
+            if (from == to) {
+                throw new NoSuchElementException();
+            }
+            return keys[from];
+        }
+
+        @Override
+        public String last() {
+            if (from == to) {
+                throw new NoSuchElementException();
+            }
+            return keys[to - 1];
+        }
+
+        @Override
+        public SortedSet<String> subSet(String fromElement, String toElement) {
+            if (fromElement.compareTo(toElement) > 0) {
+                throw new IllegalArgumentException("fromElement > toElement");
+            }
+            return new SortedKeys(keys, indexOf(fromElement), indexOf(toElement));
+        }
+
+        @Override
+        public SortedSet<String> headSet(String toElement) {
+            return new SortedKeys(keys, from, indexOf(toElement));
+        }
+
+        @Override
+        public SortedSet<String> tailSet(String fromElement) {
+            return new SortedKeys(keys, indexOf(fromElement), to);
+        }
+
+        // Index of the first key in the view not less than the given one, or the end of the view.
+        private int indexOf(String key) {
+            int low = from;
+            int high = to;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid].compareTo(key) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+import org.junit.Before;
+import org.junit.Test;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the ContactNameIndex class and the ContactService name search built on it.
+ * These tests validate prefix and typo-tolerant matching, and that the index follows changes to contacts
+ * and covers the contacts of a reopened file.
+ */
+public class ContactNameIndexTest {
+    private ContactNameIndex index; // Index under test
+
+    /**
+     * Fills a fresh index with a few contacts before each test.
+     */
+    @Before
+    public void setUp() {
+        index = new ContactNameIndex();
+        index.add("1", "John", "Smith");
+        index.add("2", "Johanna", "Doe");
+        index.add("3", "Mary", "Johnson");
+        index.add("4", "Jon", "Smythe");
+    }
+
+    /**
+     * Tests that a prefix matches first, last and full names, ignoring case, in name order and without duplicates.
+     */
+    @Test
+    public void testPrefixSearch() {
+        assertEquals(Arrays.asList("2", "1", "3"), index.search("joh", 10, false));
+        assertEquals(Arrays.asList("1", "4"), index.search("SM", 10, false));
+        assertEquals(Arrays.asList("1"), index.search("john s", 10, false));
+        assertEquals(Arrays.asList("2", "1"), index.search("joh", 2, false));
+        assertTrue(index.search("xyz", 10, false).isEmpty());
+    }
+
+    /**
+     * Tests that typo-tolerant search finds names one edit away, after the exact matches.
+     */
+    @Test
+    public void testTypoTolerantSearch() {
+        assertTrue(index.search("jhon", 10, false).isEmpty());
+        assertEquals(Arrays.asList("1", "3", "4"), index.search("jhon", 10, true)); // swapped, then deleted char
+        assertEquals(Arrays.asList("3"), index.search("marx", 10, true));        // substituted char
+        assertEquals(Arrays.asList("4", "1"), index.search("smyth", 10, true));  // exact first
+        assertTrue(index.search("qqqq", 10, true).isEmpty());
+    }
+
+    /**
+     * Tests that removed contacts are no longer found.
+     */
+    @Test
+    public void testRemove() {
+        index.remove("1", "John", "Smith");
+        assertEquals(Arrays.asList("2", "3"), index.search("joh", 10, false));
+        assertEquals(9, index.size());
+    }
+
+    /**
+     * Tests that a bulk load into an empty index gives the same results as adding contacts one at a time.
+     */
+    @Test
+    public void testBulkLoad() {
+        ContactNameIndex bulk = new ContactNameIndex();
+        bulk.addAll(Arrays.asList(new Contact("1", "John", "Smith"), new Contact("2", "Johanna", "Doe"),
+                new Contact("3", "Mary", "Johnson"), new Contact("4", "Jon", "Smythe"), new Contact("5", "Lee", "Lee")));
+        index.add("5", "Lee", "Lee");
+        assertEquals(index.size(), bulk.size());
+        for (String query : new String[] {"j", "joh", "sm", "lee", "mary j"}) {
+            assertEquals(index.search(query, 10, false), bulk.search(query, 10, false));
+            assertEquals(index.search(query, 10, true), bulk.search(query, 10, true));
+        }
+    }
+
+    /**
+     * Tests that the service search follows adds, updates and deletes made after the index was built.
+     */
+    @Test
+    public void testServiceKeepsIndexInSync() throws Exception {
+        ContactService service = new ContactService();
+        service.newContact("Alice", "Walker");
+        assertEquals(1, service.searchByName("ali", 10).size());
+
+        service.newContact("Alina", "Baker");
+        List<String> ids = new ArrayList<>();
+        for (Contact contact : service.searchByName("ali", 10)) {
+            ids.add(contact.getContactId());
+        }
+        assertEquals(2, ids.size());
+
+        service.updateFirstName(ids.get(0), "Zoe");
+        assertEquals(1, service.searchByName("ali", 10).size());
+        assertEquals(1, service.searchByName("zoe", 10).size());
+
+        service.deleteContact(ids.get(1));
+        assertTrue(service.searchByName("ali", 10).isEmpty());
+
+        service.addAll(Arrays.asList(new Contact("B1", "Alison", "Moyet")), false);
+        assertEquals("Alison", service.searchByName("ali", 10).get(0).getFirstName());
+        service.updateAll(Arrays.asList(new Contact("B1", "Mo", "Moyet")), false);
+        assertTrue(service.searchByName("ali", 10).isEmpty());
+        service.deleteAll(Arrays.asList("B1"), false);
+        assertTrue(service.searchByName("moy", 10).isEmpty());
+    }
+
+    /**
+     * Tests that a reopened file-backed service finds the contacts already in its file.
+     */
+    @Test
+    public void testReopenedServiceIsIndexed() throws Exception {
+        Path directory = Files.createTempDirectory("contact-index");
+        Path file = directory.resolve("contacts.dat");
+        try {
+            try (ContactService service = ContactService.open(file)) {
+                service.addAll(Arrays.asList(new Contact("1", "John", "Smith"), new Contact("2", "Mary", "Johnson")), false);
+            }
+            try (ContactService reopened = ContactService.open(file)) {
+                assertEquals(2, reopened.searchByName("joh", 10).size());
+                reopened.newContact("Johan", "Berg");
+                assertEquals(3, reopened.searchByName("joh", 10).size());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+            Files.delete(directory);
+        }
+    }
+}
@@ -0,0 +1,456 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Off-heap contact store backed by a memory-mapped file of fixed-width records.
+ *
+ * Every Contact field has a hard maximum length, so a contact fits in one 136-byte record. The file is an
+ * open-addressing hash table of such records: the slot of a contact is found by hashing its ID and probing
+ * linearly, comparing the ID in place. Records live in the page cache instead of the Java heap, and a
+ * reopened file is usable immediately, as there is nothing to deserialize or index.
+ *
+ * Contacts returned by get() are copies; changes to them are only stored by putting them back.
+ * Single fields can be read without materializing a Contact through slotOf() and the field readers,
+ * which return views over the mapped memory.
+ *
+ * File layout:
+ *   header   64 bytes: magic, record size, capacity (a power of two), number of contacts
+ *   records  capacity x 136 bytes:
+ *     0   occupied flag           1 byte
+ *     1   ID, first name, last name and address lengths, 1 byte each
+ *     8   phone number digits     long
+ *     16  ID                      10 chars
+ *     36  first name              10 chars
+ *     56  last name               10 chars
+ *     76  address                 30 chars
+ *
+ * Not thread-safe, like the ContactService that owns it. Writes reach the file when the operating system
+ * writes back the mapped pages, which survives a process crash; call flush() to survive a power failure.
+ */
+final class ContactRecordStore extends AbstractMap<String, Contact> implements Closeable {
+    // Record layout.
+    static final int RECORD_BYTES = 136;
+    private static final int OCCUPIED = 0;
+    private static final int ID_LENGTH = 1;
+    private static final int FIRST_NAME_LENGTH = 2;
+    private static final int LAST_NAME_LENGTH = 3;
+    private static final int ADDRESS_LENGTH = 4;
+    private static final int PHONE = 8;
+    private static final int ID = 16;
+    private static final int FIRST_NAME = 36;
+    private static final int LAST_NAME = 56;
+    private static final int ADDRESS = 76;
+
+    // Header layout.
+    private static final int HEADER_BYTES = 64;
+    private static final int MAGIC = 0x43525331; // "CRS1"
+    private static final int HEADER_CAPACITY = 8;
+    private static final int HEADER_SIZE = 16;
+
+    // A single mapping is limited to 2 GB, so the records are mapped in chunks of 2^20 records (136 MB).
+    private static final int CHUNK_SHIFT = 20;
+    private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+    private static final int MIN_CAPACITY = 1024;
+
+    private final Path file;
+    private FileChannel channel;
+    private MappedByteBuffer header;
+    private MappedByteBuffer[] chunks;
+    private long capacity;
+    private long mask;
+    private long size;
+    // Scratch space for moving a record during deletion.
+    private final byte[] record = new byte[RECORD_BYTES];
+
+    private ContactRecordStore(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Opens the store in a file, creating it if it does not exist.
+     *
+     * @param file The file holding the records.
+     * @param expectedContacts The number of contacts to make room for when the file is created, so it does not
+     *                         have to grow while filling up. Ignored for an existing file.
+     * @return The open store.
+     * @throws IOException If the file cannot be created or mapped, or is not a contact store.
+     */
+    static ContactRecordStore open(Path file, long expectedContacts) throws IOException {
+        ContactRecordStore store = new ContactRecordStore(file);
+        if (Files.exists(file)) {
+            store.map();
+        } else {
+            Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            create(temporary, capacityFor(expectedContacts)).close();
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+            store.map();
+        }
+        return store;
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean containsKey(Object id) {
+        return id instanceof String && find((String) id) >= 0;
+    }
+
+    @Override
+    public Contact get(Object id) {
+        long slot = id instanceof String ? find((String) id) : -1;
+        return slot < 0 ? null : read(slot);
+    }
+
+    @Override
+    public Contact put(String id, Contact contact) {
+        if (!id.equals(contact.getContactId())) {
+            throw new IllegalArgumentException("Contact must be stored under its own ID");
+        }
+        long slot = find(id);
+        Contact previous = slot < 0 ? null : read(slot);
+        write(contact);
+        return previous;
+    }
+
+    @Override
+    public Contact putIfAbsent(String id, Contact contact) {
+        long slot = find(id);
+        if (slot >= 0) {
+            return read(slot);
+        }
+        put(id, contact);
+        return null;
+    }
+
+    @Override
+    public Contact remove(Object id) {
+        long slot = id instanceof String ? find((String) id) : -1;
+        if (slot < 0) {
+            return null;
+        }
+        Contact removed = read(slot);
+        delete(slot);
+        return removed;
+    }
+
+    @Override
+    public Set<Map.Entry<String, Contact>> entrySet() {
+        return new AbstractSet<Map.Entry<String, Contact>>() {
+            @Override
+            public int size() {
+                return ContactRecordStore.this.size();
+            }
+
+            @Override
+            public Iterator<Map.Entry<String, Contact>> iterator() {
+                return new Iterator<Map.Entry<String, Contact>>() {
+                    private long next = advance(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < capacity;
+                    }
+
+                    @Override
+                    public Map.Entry<String, Contact> next() {
+                        if (next >= capacity) {
+                            throw new NoSuchElementException();
+                        }
+                        Contact contact = read(next);
+                        next = advance(next + 1);
+                        return new SimpleImmutableEntry<>(contact.getContactId(), contact);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Stores a contact under its ID, replacing the stored record if there is one.
+     * Unlike put(), the previous value is not read back.
+     *
+     * @param contact The contact to store.
+     */
+    void write(Contact contact) {
+        String id = contact.getContactId();
+        long slot = find(id);
+        boolean added = slot < 0;
+        if (added) {
+            if (size + 1 > capacity - (capacity >>> 2)) {
+                resize(capacity << 1);
+                slot = find(id);
+            }
+            slot = ~slot;
+        }
+        ByteBuffer chunk = chunk(slot);
+        int base = offset(slot);
+        putChars(chunk, base, ID, ID_LENGTH, id);
+        putChars(chunk, base, FIRST_NAME, FIRST_NAME_LENGTH, contact.getFirstName());
+        putChars(chunk, base, LAST_NAME, LAST_NAME_LENGTH, contact.getLastName());
+        putChars(chunk, base, ADDRESS, ADDRESS_LENGTH, contact.getAddress());
+        chunk.putLong(base + PHONE, contact.getPhoneDigits());
+        // Marked occupied last, so a crash part-way through a new record leaves an empty slot
+        chunk.put(base + OCCUPIED, (byte) 1);
+        // Counted only once the record is complete, so a crash in between never counts a slot that is still empty
+        if (added) {
+            size++;
+            header.putLong(HEADER_SIZE, size);
+        }
+    }
+
+    /**
+     * Returns the slot holding a contact, for use with the field readers.
+     *
+     * @param id The unique ID of the contact.
+     * @return The slot, or -1 if no contact is stored under the ID.
+     */
+    long slotOf(String id) {
+        long slot = find(id);
+        return slot < 0 ? -1 : slot;
+    }
+
+    /**
+     * Returns the first name stored in a slot as a view over the mapped record, without copying it.
+     * The view is only valid until the store is next changed.
+     */
+    CharSequence firstName(long slot) {
+        return chars(slot, FIRST_NAME, FIRST_NAME_LENGTH);
+    }
+
+    /**
+     * Returns the last name stored in a slot as a view over the mapped record, without copying it.
+     * The view is only valid until the store is next changed.
+     */
+    CharSequence lastName(long slot) {
+        return chars(slot, LAST_NAME, LAST_NAME_LENGTH);
+    }
+
+    /**
+     * Returns the address stored in a slot as a view over the mapped record, without copying it.
+     * The view is only valid until the store is next changed.
+     */
+    CharSequence address(long slot) {
+        return chars(slot, ADDRESS, ADDRESS_LENGTH);
+    }
+
+    /**
+     * Returns the digits of the phone number stored in a slot as a number.
+     */
+    long phoneNumber(long slot) {
+        return chunk(slot).getLong(offset(slot) + PHONE);
+    }
+
+    /**
+     * Forces every change to the storage device.
+     * @throws IOException If the file cannot be synced.
+     */
+    void flush() throws IOException {
+        channel.force(true);
+    }
+
+    /**
+     * Closes the file. The mappings are released when they are garbage collected.
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        header = null;
+        chunks = null;
+    }
+
+    // Looks up an ID: returns its slot if stored, otherwise the complement of the empty slot where it would go.
+    private long find(String id) {
+        long slot = home(id.hashCode());
+        while (true) {
+            ByteBuffer chunk = chunk(slot);
+            int base = offset(slot);
+            if (chunk.get(base + OCCUPIED) == 0) {
+                return ~slot;
+            }
+            if (idEquals(chunk, base, id)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    // Compares the ID stored in a record with the given one in place.
+    private static boolean idEquals(ByteBuffer chunk, int base, String id) {
+        int length = chunk.get(base + ID_LENGTH);
+        if (length != id.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (chunk.getChar(base + ID + 2 * i) != id.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Slot an ID hash maps to. String.hashCode is specified, so the layout stays valid across JVMs.
+    private long home(int hash) {
+        long h = hash * 0x9E3779B97F4A7C15L;
+        return (h ^ (h >>> 29)) & mask;
+    }
+
+    // Computes String.hashCode of the ID stored in a slot without building the string.
+    private int idHash(long slot) {
+        ByteBuffer chunk = chunk(slot);
+        int base = offset(slot);
+        int length = chunk.get(base + ID_LENGTH);
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + chunk.getChar(base + ID + 2 * i);
+        }
+        return hash;
+    }
+
+    // Empties a slot, then shifts later records of the same probe run back so lookups never meet a gap.
+    private void delete(long slot) {
+        long hole = slot;
+        long next = (slot + 1) & mask;
+        while (chunk(next).get(offset(next) + OCCUPIED) != 0) {
+            long want = home(idHash(next));
+            // The record can fill the hole unless its home lies cyclically after the hole, up to its own slot
+            boolean between = hole <= next ? hole < want && want <= next : hole < want || want <= next;
+            if (!between) {
+                chunk(next).get(offset(next), record);
+                chunk(hole).put(offset(hole), record);
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        chunk(hole).put(offset(hole) + OCCUPIED, (byte) 0);
+        size--;
+        header.putLong(HEADER_SIZE, size);
+    }
+
+    // Builds a Contact from the record in a slot.
+    private Contact read(long slot) {
+        return new Contact(string(slot, ID, ID_LENGTH), string(slot, FIRST_NAME, FIRST_NAME_LENGTH),
+                string(slot, LAST_NAME, LAST_NAME_LENGTH), phoneNumber(slot), string(slot, ADDRESS, ADDRESS_LENGTH));
+    }
+
+    private String string(long slot, int field, int lengthField) {
+        return chars(slot, field, lengthField).toString();
+    }
+
+    private CharSequence chars(long slot, int field, int lengthField) {
+        ByteBuffer chunk = chunk(slot);
+        int base = offset(slot);
+        int length = chunk.get(base + lengthField);
+        return chunk.slice(base + field, 2 * length).asCharBuffer();
+    }
+
+    private static void putChars(ByteBuffer chunk, int base, int field, int lengthField, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            chunk.putChar(base + field + 2 * i, value.charAt(i));
+        }
+        chunk.put(base + lengthField, (byte) value.length());
+    }
+
+    // Returns the first occupied slot at or after the given one, or the capacity if there is none.
+    private long advance(long slot) {
+        while (slot < capacity && chunk(slot).get(offset(slot) + OCCUPIED) == 0) {
+            slot++;
+        }
+        return slot;
+    }
+
+    private ByteBuffer chunk(long slot) {
+        return chunks[(int) (slot >>> CHUNK_SHIFT)];
+    }
+
+    private static int offset(long slot) {
+        return (int) (slot & CHUNK_MASK) * RECORD_BYTES;
+    }
+
+    // Rewrites every record into a new file with the given capacity, then replaces the current file with it.
+    private void resize(long newCapacity) {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            ContactRecordStore grown = create(temporary, newCapacity);
+            for (long slot = advance(0); slot < capacity; slot = advance(slot + 1)) {
+                // IDs are unique, so each record goes to the first empty slot of its probe run
+                long target = grown.home(idHash(slot));
+                while (grown.chunk(target).get(offset(target) + OCCUPIED) != 0) {
+                    target = (target + 1) & grown.mask;
+                }
+                chunk(slot).get(offset(slot), record);
+                grown.chunk(target).put(offset(target), record);
+            }
+            grown.header.putLong(HEADER_SIZE, size);
+            grown.close();
+            channel.close();
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            map();
+        } catch (IOException e) {
+            throw new IllegalStateException("Contact store could not grow", e);
+        }
+    }
+
+    // Creates and maps an empty store file with the given capacity.
+    private static ContactRecordStore create(Path file, long capacity) throws IOException {
+        // A temporary file left behind by a crash is incomplete
+        Files.deleteIfExists(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(0, MAGIC);
+            header.putInt(4, RECORD_BYTES);
+            header.putLong(HEADER_CAPACITY, capacity);
+            header.putLong(HEADER_SIZE, 0);
+            channel.write(header, 0);
+            // Extending the file leaves the records zeroed, which marks every slot empty
+            channel.write(ByteBuffer.allocate(1), HEADER_BYTES + capacity * RECORD_BYTES - 1);
+        }
+        ContactRecordStore store = new ContactRecordStore(file);
+        store.map();
+        return store;
+    }
+
+    // Maps the header and every chunk of records of the file.
+    private void map() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != RECORD_BYTES) {
+            channel.close();
+            throw new IOException("Not a contact store: " + file);
+        }
+        capacity = header.getLong(HEADER_CAPACITY);
+        mask = capacity - 1;
+        size = header.getLong(HEADER_SIZE);
+        long chunkCount = (capacity + CHUNK_MASK) >>> CHUNK_SHIFT;
+        chunks = new MappedByteBuffer[(int) chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            long first = (long) i << CHUNK_SHIFT;
+            long records = Math.min(capacity - first, 1L << CHUNK_SHIFT);
+            chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + first * RECORD_BYTES,
+                    records * RECORD_BYTES);
+        }
+    }
+
+    // Smallest power-of-two capacity that keeps the table at most three quarters full.
+    private static long capacityFor(long expected) {
+        long needed = Math.max(MIN_CAPACITY, expected + expected / 3 + 1);
+        return Long.highestOneBit(needed - 1) << 1;
+    }
+}
@@ -0,0 +1,146 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the ContactRecordStore class.
+ * These tests validate storing, replacing and deleting records, growing the file, and reopening it.
+ */
+public class ContactRecordStoreTest {
+    private Path directory; // Directory holding the record file of each test
+    private Path file; // Record file of each test
+
+    /**
+     * Creates an empty directory for the record file before each test.
+     */
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("contact-store");
+        file = directory.resolve("contacts.dat");
+    }
+
+    /**
+     * Removes the record file after each test.
+     */
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(path -> path.toFile().delete());
+        }
+        Files.delete(directory);
+    }
+
+    /**
+     * Tests that every field survives a round trip through a record, including a phone number with leading zeros.
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        try (ContactRecordStore store = ContactRecordStore.open(file, 0)) {
+            store.put("1", new Contact("1", "\u00c9mile", "O'Brien", "0012345678", "12 Rue de la Paix, Paris"));
+            Contact stored = store.get("1");
+            assertEquals("1", stored.getContactId());
+            assertEquals("\u00c9mile", stored.getFirstName());
+            assertEquals("O'Brien", stored.getLastName());
+            assertEquals("0012345678", stored.getPhoneNumber());
+            assertEquals("12 Rue de la Paix, Paris", stored.getAddress());
+            assertNull(store.get("2"));
+        }
+    }
+
+    /**
+     * Tests that single fields can be read in place without building a Contact.
+     */
+    @Test
+    public void testFieldViews() throws IOException {
+        try (ContactRecordStore store = ContactRecordStore.open(file, 0)) {
+            store.put("ID1", new Contact("ID1", "John", "Doe", "1234567890", "123 Main St"));
+            long slot = store.slotOf("ID1");
+            assertTrue(slot >= 0);
+            assertEquals("John", store.firstName(slot).toString());
+            assertEquals("Doe", store.lastName(slot).toString());
+            assertEquals("123 Main St", store.address(slot).toString());
+            assertEquals(1234567890L, store.phoneNumber(slot));
+            assertEquals(-1, store.slotOf("missing"));
+        }
+    }
+
+    /**
+     * Tests that the store stays consistent with a HashMap over random puts, replacements and removals,
+     * while it grows well past its initial capacity.
+     */
+    @Test
+    public void testMatchesHashMapWhileGrowing() throws IOException {
+        Map<String, Contact> expected = new HashMap<>();
+        Random random = new Random(42);
+        try (ContactRecordStore store = ContactRecordStore.open(file, 0)) {
+            for (int i = 0; i < 20_000; i++) {
+                String id = "C" + random.nextInt(5_000);
+                if (random.nextInt(3) == 0) {
+                    assertEquals(expected.remove(id) != null, store.remove(id) != null);
+                } else {
+                    Contact contact = new Contact(id, "F" + i % 1000, "L" + i % 777, "5550000000", "Street " + i);
+                    expected.put(id, contact);
+                    store.put(id, contact);
+                }
+            }
+            assertEquals(expected.size(), store.size());
+            for (Contact contact : expected.values()) {
+                assertEquals(contact.getFirstName(), store.get(contact.getContactId()).getFirstName());
+                assertEquals(contact.getAddress(), store.get(contact.getContactId()).getAddress());
+            }
+            int iterated = 0;
+            for (Contact contact : store.values()) {
+                assertTrue(expected.containsKey(contact.getContactId()));
+                iterated++;
+            }
+            assertEquals(expected.size(), iterated);
+        }
+    }
+
+    /**
+     * Tests that the contacts are available again after the file is closed and reopened.
+     */
+    @Test
+    public void testReopen() throws Exception {
+        List<String> ids = new ArrayList<>();
+        try (ContactService service = ContactService.open(file)) {
+            for (int i = 0; i < 3_000; i++) {
+                service.newContact("First" + i, "Last", "1234567890", "Address");
+            }
+            for (Contact contact : service.getContactList()) {
+                ids.add(contact.getContactId());
+            }
+            service.updateFirstName(ids.get(0), "Updated");
+            service.deleteContact(ids.get(1));
+            service.flush();
+        }
+
+        try (ContactService reopened = ContactService.open(file)) {
+            assertEquals(2_999, reopened.getContactList().size());
+            assertEquals("Updated", reopened.getContact(ids.get(0)).getFirstName());
+            for (Contact contact : reopened.getContactList()) {
+                assertNotEquals("Deleted contact should stay deleted.", ids.get(1), contact.getContactId());
+            }
+            assertEquals("Last", reopened.getContact(ids.get(2)).getLastName());
+        }
+    }
+
+    /**
+     * Tests that a file that is not a contact store is rejected.
+     */
+    @Test(expected = IOException.class)
+    public void testRejectsForeignFile() throws IOException {
+        Files.write(file, new byte[128]);
+        ContactRecordStore.open(file, 0);
+    }
+}
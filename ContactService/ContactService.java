@@ -1,28 +1,227 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 /**
- * The ContactService class manages a list of Contact objects. It supports adding new contacts,
+ * The ContactService class manages a collection of Contact objects. It supports adding new contacts,
  * deleting contacts, and updating contact information.
+ * Contacts are indexed by their unique ID, so lookups, updates and deletes run in constant time.
+ *
+ * A service created with open(Path) keeps its contacts off the Java heap in a ContactRecordStore file,
+ * and they are available again as soon as the file is reopened. Contacts returned by such a service
+ * are copies; use the update methods to change a stored contact. A file-backed service opened with a cache
+ * size keeps that many of its most used contacts on the heap in a ContactCache, writing changes through to
+ * the file or, in write-behind mode, when they are evicted, flushed or closed; getCacheStats() reports hits,
+ * misses and evictions.
+ *
+ * searchByName() finds contacts by the start of their first, last or full name. The ContactNameIndex
+ * behind it is built when the service is created or opened and kept up to date by every change, so no
+ * search has to wait for it; a batch added to an empty service is indexed in one sorted pass.
+ *
+ * An in-memory service created with a ContactDictionary stores its contacts dictionary-encoded: values of the
+ * fields the dictionary covers are held once however many contacts repeat them, and contacts keep int codes.
+ * The service keeps the dictionary, so it stores encoded copies of the contacts it is given and hands out
+ * decoded copies, as a file-backed service does; use the update methods to change a stored contact.
+ * findByField() and findByFieldPrefix() then compare codes instead of chars; getDictionaryStats() reports
+ * the memory saved. Both lookups scan every contact, and work on any service.
+ *
+ * ContactImporter loads large CSV and JSON Lines files into a service in parallel, in batches through addAll().
+ *
+ * exportTo() and importFrom() move all contacts to and from a compact RecordFile, for backups and bulk loads.
+ *
+ * Every add, update and delete is published as a ChangeEvent through getChangePublisher().
+ * Calls, failures by error type, latencies and the contact count are recorded in getMetrics().
  */
-public class ContactService {
+public class ContactService implements Closeable {
+    // Operations recorded in the metrics, by their index in OPERATIONS.
+    private static final String[] OPERATIONS = {"newContact", "getContact", "getContactList", "deleteContact",
+            "updateFirstName", "searchByName", "addAll", "deleteAll", "updateAll", "findByField", "findByFieldPrefix"};
+    private static final int NEW_CONTACT = 0;
+    private static final int GET_CONTACT = 1;
+    private static final int GET_CONTACT_LIST = 2;
+    private static final int DELETE_CONTACT = 3;
+    private static final int UPDATE_FIRST_NAME = 4;
+    private static final int SEARCH_BY_NAME = 5;
+    private static final int ADD_ALL = 6;
+    private static final int DELETE_ALL = 7;
+    private static final int UPDATE_ALL = 8;
+    private static final int FIND_BY_FIELD = 9;
+    private static final int FIND_BY_FIELD_PREFIX = 10;
 
-    private List<Contact> contactList = new ArrayList<>();
+    // Map to store contacts, using the contact ID as the key and the Contact object as the value.
+    // Not final: large batches replace an in-memory map with a presized copy to avoid repeated rehashing.
+    private Map<String, Contact> contacts;
+    // Memory-mapped record file holding the contacts, or null for an in-memory service.
+    private final ContactRecordStore store;
+    // Bounded cache in front of the store, or null if reads go straight to the store.
+    private final ContactCache cache;
+    // Dictionary the contacts are encoded in, or null if they are stored unencoded.
+    private final ContactDictionary dictionary;
+    // Source of the IDs of new contacts.
+    private final ContactIdGenerator idGenerator;
+    // Name prefix index of every stored contact.
+    private final ContactNameIndex nameIndex = new ContactNameIndex();
+    // Stream of changes for downstream consumers; idle until someone subscribes.
+    private final ChangePublisher<Contact> changes = new ChangePublisher<>(Contact::new);
+    // Call counts, failures and latencies of the public operations.
+    private final OperationMetrics metrics = new OperationMetrics("ContactService", () -> contacts.size(), OPERATIONS);
+
+    /**
+     * Creates an empty, in-memory contact service that uses the shared SequenceIdGenerator.
+     */
+    public ContactService() {
+        this(SequenceIdGenerator.shared());
+    }
+
+    /**
+     * Creates an empty, in-memory contact service that takes the IDs of new contacts from the given generator.
+     * @param idGenerator The generator for new contact IDs.
+     */
+    public ContactService(ContactIdGenerator idGenerator) {
+        this(idGenerator, null);
+    }
+
+    /**
+     * Creates an empty, in-memory contact service that stores its contacts encoded in a dictionary, so repeated
+     * values of the fields it covers are held once. The dictionary may be shared with other services.
+     * @param idGenerator The generator for new contact IDs.
+     * @param dictionary The dictionary to encode contacts in, or null to store them unencoded.
+     */
+    public ContactService(ContactIdGenerator idGenerator, ContactDictionary dictionary) {
+        this.contacts = new HashMap<>();
+        this.store = null;
+        this.cache = null;
+        this.dictionary = dictionary;
+        this.idGenerator = idGenerator;
+    }
+
+    private ContactService(ContactRecordStore store, ContactCache cache) {
+        this.contacts = cache != null ? cache : store;
+        this.store = store;
+        this.cache = cache;
+        this.dictionary = null;
+        this.idGenerator = SequenceIdGenerator.shared();
+        nameIndex.addAll(contacts.values());
+    }
+
+    /**
+     * Opens a contact service stored in a memory-mapped record file, creating the file if it does not exist.
+     * @param file The record file.
+     * @return The file-backed service.
+     * @throws IOException if the file cannot be created or mapped.
+     */
+    public static ContactService open(Path file) throws IOException {
+        return open(file, 0);
+    }
+
+    /**
+     * Opens a contact service stored in a memory-mapped record file, sized for the expected number of contacts
+     * when the file is created, so it does not have to grow while filling up.
+     * @param file The record file.
+     * @param expectedContacts The number of contacts to make room for in a new file.
+     * @return The file-backed service.
+     * @throws IOException if the file cannot be created or mapped.
+     */
+    public static ContactService open(Path file, long expectedContacts) throws IOException {
+        return new ContactService(ContactRecordStore.open(file, expectedContacts), null);
+    }
+
+    /**
+     * Opens a contact service stored in a memory-mapped record file, with a bounded cache of its most used
+     * contacts on the heap, so reads of a hot set run at nearly in-memory speed whatever the size of the file.
+     * @param file The record file.
+     * @param expectedContacts The number of contacts to make room for in a new file.
+     * @param cacheContacts The maximum number of contacts held on the heap, at least 1.
+     * @param writeBehind If true, added and changed contacts are written to the file when they leave the cache
+     *                    or on flush() and close(), instead of at once; changes since are lost if the process dies.
+     * @return The file-backed service.
+     * @throws IOException if the file cannot be created or mapped.
+     * @throws IllegalArgumentException if the cache size is less than 1.
+     */
+    public static ContactService open(Path file, long expectedContacts, int cacheContacts, boolean writeBehind) throws IOException {
+        if (cacheContacts < 1) {
+            throw new IllegalArgumentException("Cache capacity must be at least 1");
+        }
+        ContactRecordStore store = ContactRecordStore.open(file, expectedContacts);
+        return new ContactService(store, new ContactCache(store, cacheContacts, writeBehind));
+    }
 
     /**
      * Generates a unique identifier for a new contact.
+     * IDs already present in the service are regenerated, so the generator only has to make collisions rare.
      * @return A unique ID string limited to 10 characters.
      */
-    private String newUniqueId() {
-        return UUID.randomUUID().toString().substring(0, 10);
+    String newUniqueId() {
+        String id;
+        do {
+            id = idGenerator.nextId();
+        } while (contacts.containsKey(id));
+        return id;
+    }
+
+    /**
+     * Returns whether a contact with the same ID and field values is stored, so ContactImporter can tell a row
+     * it stored before from a different contact under the same ID.
+     * @param contact The contact to look for.
+     * @return True if the stored contact with its ID has the same names, phone number and address.
+     */
+    boolean holds(Contact contact) {
+        Contact stored = decoded(contacts.get(contact.getContactId()));
+        return stored != null && stored.getPhoneDigits() == contact.getPhoneDigits()
+                && stored.getFirstName().equals(contact.getFirstName()) && stored.getLastName().equals(contact.getLastName())
+                && stored.getAddress().equals(contact.getAddress());
+    }
+
+    /**
+     * Creates a contact under a new unique ID and stores it, recording the call as a newContact operation.
+     * @param create Builds the contact from its ID; throws if a field is invalid.
+     */
+    private void addContact(Function<String, Contact> create) {
+        long start = metrics.start(NEW_CONTACT);
+        try {
+            Contact contact = create.apply(newUniqueId());
+            contacts.put(contact.getContactId(), encoded(contact));
+            indexNames(contact);
+            changes.publish(ChangeEvent.Type.ADDED, contact.getContactId(), contact);
+        } catch (RuntimeException e) {
+            throw metrics.failed(NEW_CONTACT, start, e);
+        }
+        metrics.succeeded(NEW_CONTACT, start);
+    }
+
+    /**
+     * Returns a copy of the contacts currently held by the service.
+     * @return A new list containing every stored contact.
+     */
+    public List<Contact> getContactList() {
+        long start = metrics.start(GET_CONTACT_LIST);
+        List<Contact> list;
+        if (dictionary == null) {
+            list = new ArrayList<>(contacts.values());
+        } else {
+            list = new ArrayList<>(contacts.size());
+            for (Contact contact : contacts.values()) {
+                list.add(contact.decodedFrom(dictionary));
+            }
+        }
+        metrics.succeeded(GET_CONTACT_LIST, start);
+        return list;
     }
 
     /**
      * Adds a new contact with a unique ID to the contact list.
      */
     public void newContact() {
-        contactList.add(new Contact(newUniqueId()));
+        addContact(id -> new Contact(id));
     }
 
     /**
@@ -30,7 +229,7 @@ public class ContactService {
      * @param firstname The first name of the new contact.
      */
     public void newContact(String firstname) {
-        contactList.add(new Contact(newUniqueId(), firstname));
+        addContact(id -> new Contact(id, firstname));
     }
 
     /**
@@ -39,7 +238,7 @@ public class ContactService {
      * @param lastname The last name of the new contact.
      */
     public void newContact(String firstname, String lastname) {
-        contactList.add(new Contact(newUniqueId(), firstname, lastname));
+        addContact(id -> new Contact(id, firstname, lastname));
     }
 
     /**
@@ -49,7 +248,7 @@ public class ContactService {
      * @param phonenumber The phone number of the new contact.
      */
     public void newContact(String firstname, String lastname, String phonenumber) {
-        contactList.add(new Contact(newUniqueId(), firstname, lastname, phonenumber));
+        addContact(id -> new Contact(id, firstname, lastname, phonenumber));
     }
 
     /**
@@ -60,7 +259,25 @@ public class ContactService {
      * @param address The address of the new contact.
      */
     public void newContact(String firstname, String lastname, String phonenumber, String address) {
-        contactList.add(new Contact(newUniqueId(), firstname, lastname, phonenumber, address));
+        addContact(id -> new Contact(id, firstname, lastname, phonenumber, address));
+    }
+
+    /**
+     * Returns the contact identified by the unique ID.
+     * @param id The unique ID of the contact.
+     * @return The stored contact.
+     * @throws Exception if the contact cannot be found.
+     */
+    public Contact getContact(String id) throws Exception {
+        long start = metrics.start(GET_CONTACT);
+        Contact contact;
+        try {
+            contact = decoded(searchForContact(id));
+        } catch (Exception e) {
+            throw metrics.failed(GET_CONTACT, start, e);
+        }
+        metrics.succeeded(GET_CONTACT, start);
+        return contact;
     }
 
     /**
@@ -69,12 +286,14 @@ public class ContactService {
      * @throws Exception if the contact cannot be found.
      */
     public void deleteContact(String id) throws Exception {
-        Contact toRemove = searchForContact(id);
-        if (toRemove != null) {
-            contactList.remove(toRemove);
-        } else {
-            throw new Exception("Contact not found.");
+        long start = metrics.start(DELETE_CONTACT);
+        Contact removed = decoded(contacts.remove(id));
+        if (removed == null) {
+            throw metrics.failed(DELETE_CONTACT, start, new Exception("Contact not found."));
         }
+        unindexNames(removed);
+        changes.publish(ChangeEvent.Type.DELETED, id, removed);
+        metrics.succeeded(DELETE_CONTACT, start);
     }
 
     /**
@@ -84,11 +303,267 @@ public class ContactService {
      * @throws Exception if the contact cannot be found.
      */
     public void updateFirstName(String id, String firstName) throws Exception {
-        searchForContact(id).updateFirstName(firstName);
+        long start = metrics.start(UPDATE_FIRST_NAME);
+        try {
+            Contact contact = decoded(searchForContact(id));
+            String oldFirstName = contact.getFirstName();
+            contact.updateFirstName(firstName);
+            writeBack(contact);
+            nameIndex.remove(id, oldFirstName, contact.getLastName());
+            indexNames(contact);
+            changes.publish(ChangeEvent.Type.UPDATED, id, contact);
+        } catch (Exception e) {
+            throw metrics.failed(UPDATE_FIRST_NAME, start, e);
+        }
+        metrics.succeeded(UPDATE_FIRST_NAME, start);
     }
 
     // Similar update methods for lastName, phoneNumber, and address...
 
+    /**
+     * Finds contacts whose first name, last name or "first last" full name starts with the given text.
+     * @param prefix The typed text; case is ignored.
+     * @param limit The maximum number of contacts to return.
+     * @return The matching contacts in name order.
+     */
+    public List<Contact> searchByName(String prefix, int limit) {
+        return searchByName(prefix, limit, false);
+    }
+
+    /**
+     * Finds contacts whose first name, last name or "first last" full name starts with the given text,
+     * optionally also matching names that start one typo away from it.
+     * @param prefix The typed text; case is ignored.
+     * @param limit The maximum number of contacts to return.
+     * @param typoTolerant If true, names one deleted, inserted, substituted or swapped char away are matched
+     *                     after the exact matches.
+     * @return The matching contacts, exact matches first.
+     */
+    public List<Contact> searchByName(String prefix, int limit, boolean typoTolerant) {
+        long start = metrics.start(SEARCH_BY_NAME);
+        List<Contact> found = new ArrayList<>();
+        try {
+            for (String id : nameIndex.search(prefix, limit, typoTolerant)) {
+                found.add(decoded(contacts.get(id)));
+            }
+        } catch (RuntimeException e) {
+            throw metrics.failed(SEARCH_BY_NAME, start, e);
+        }
+        metrics.succeeded(SEARCH_BY_NAME, start);
+        return found;
+    }
+
+    /**
+     * Finds the contacts whose field equals a value. In a dictionary-encoded service the value is looked up in
+     * the dictionary once and each encoded contact is matched by comparing codes.
+     * @param field The field to compare.
+     * @param value The value; case matters.
+     * @return The matching contacts, in no particular order.
+     * @throws IllegalArgumentException if the field or value is null.
+     */
+    public List<Contact> findByField(Contact.Field field, String value) {
+        long start = metrics.start(FIND_BY_FIELD);
+        List<Contact> found = new ArrayList<>();
+        try {
+            checkFieldQuery(field, value);
+            int code = dictionary == null ? -1 : dictionary.codeOf(value);
+            for (Contact contact : contacts.values()) {
+                if (contact.fieldEquals(field, code, value)) {
+                    found.add(decoded(contact));
+                }
+            }
+        } catch (RuntimeException e) {
+            throw metrics.failed(FIND_BY_FIELD, start, e);
+        }
+        metrics.succeeded(FIND_BY_FIELD, start);
+        return found;
+    }
+
+    /**
+     * Finds the contacts whose field starts with a prefix. In a dictionary-encoded service the prefix is matched
+     * against the dictionary's values once and each encoded contact is matched by testing its code.
+     * @param field The field to compare.
+     * @param prefix The prefix; case matters.
+     * @return The matching contacts, in no particular order.
+     * @throws IllegalArgumentException if the field or prefix is null.
+     */
+    public List<Contact> findByFieldPrefix(Contact.Field field, String prefix) {
+        long start = metrics.start(FIND_BY_FIELD_PREFIX);
+        List<Contact> found = new ArrayList<>();
+        try {
+            checkFieldQuery(field, prefix);
+            BitSet codes = dictionary == null ? null : dictionary.codesStartingWith(prefix);
+            for (Contact contact : contacts.values()) {
+                if (contact.fieldStartsWith(field, codes, prefix)) {
+                    found.add(decoded(contact));
+                }
+            }
+        } catch (RuntimeException e) {
+            throw metrics.failed(FIND_BY_FIELD_PREFIX, start, e);
+        }
+        metrics.succeeded(FIND_BY_FIELD_PREFIX, start);
+        return found;
+    }
+
+    /**
+     * Returns how much memory the dictionary encoding saves, walking every contact to measure it.
+     * @return The dictionary's size and the field bytes with and without encoding, or null if the service
+     *         does not encode its contacts.
+     */
+    public ContactDictionary.Stats getDictionaryStats() {
+        if (dictionary == null) {
+            return null;
+        }
+        long encoded = 0;
+        long fieldBytes = 0;
+        long unencodedFieldBytes = 0;
+        for (Contact contact : contacts.values()) {
+            if (contact.isEncodedIn(dictionary)) {
+                encoded++;
+            }
+            fieldBytes += ContactDictionary.arrayBytes(contact.fieldBytes());
+            unencodedFieldBytes += ContactDictionary.arrayBytes(contact.unencodedFieldBytes(dictionary));
+        }
+        return new ContactDictionary.Stats(dictionary, encoded, contacts.size() - encoded, fieldBytes, unencodedFieldBytes);
+    }
+
+    /**
+     * Returns the metrics of this service's public operations.
+     * @return The metrics, which can be read with snapshot() or published with registerMBean().
+     */
+    public OperationMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the publisher of this service's changes.
+     * Subscribers receive every add, update and delete in batches, and can resume from a sequence number.
+     * @return The change publisher.
+     */
+    public ChangePublisher<Contact> getChangePublisher() {
+        return changes;
+    }
+
+    /**
+     * Returns the hit, miss and eviction counts of the cache of a service opened with one.
+     * @return The counts as of now, or null if the service has no cache.
+     */
+    public ContactCache.Stats getCacheStats() {
+        return cache == null ? null : cache.stats();
+    }
+
+    /**
+     * Writes all contacts to a RecordFile, replacing the file only once it is complete.
+     * @param file The file to write.
+     * @param compress Whether to deflate the blocks of the file.
+     * @return The number of contacts written.
+     * @throws IOException if the file cannot be written.
+     */
+    public long exportTo(Path file, boolean compress) throws IOException {
+        Iterable<Contact> stored = dictionary == null ? contacts.values()
+                : () -> contacts.values().stream().map(this::decoded).iterator();
+        return RecordFile.write(file, ContactCodec.INSTANCE, stored, compress);
+    }
+
+    /**
+     * Adds the contacts of a file written by exportTo(), one block at a time through addAll().
+     * Contacts that are invalid or whose IDs are already in use are reported rather than added.
+     * @param file The file to read.
+     * @return The outcome of every contact in the file, indexed by its position in the file.
+     * @throws IOException if the file cannot be read, is damaged or does not hold contacts.
+     */
+    public BatchResult importFrom(Path file) throws IOException {
+        return RecordFile.read(file, ContactCodec.INSTANCE, batch -> addAll(batch, false));
+    }
+
+    /**
+     * Forces the contacts of a file-backed service to the storage device, writing back the changes a
+     * write-behind cache holds first. Does nothing for an in-memory service.
+     * @throws IOException if the file cannot be synced.
+     */
+    public void flush() throws IOException {
+        if (cache != null) {
+            cache.writeBack();
+        }
+        if (store != null) {
+            store.flush();
+        }
+    }
+
+    /**
+     * Closes the record file of a file-backed service, writing back the changes a write-behind cache holds
+     * first. Does nothing for an in-memory service.
+     * @throws IOException if the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (cache != null) {
+            cache.writeBack();
+        }
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    /**
+     * Returns the form in which the service stores a contact: an encoded copy if it has a dictionary.
+     * @param contact The plain contact to store.
+     * @return The contact itself, or its copy encoded in the service's dictionary.
+     */
+    private Contact encoded(Contact contact) {
+        return dictionary == null ? contact : contact.encodedIn(dictionary);
+    }
+
+    /**
+     * Returns a stored contact in the form callers and the name index read: a decoded copy if the service has
+     * a dictionary.
+     * @param stored The stored contact, or null.
+     * @return The contact itself, its plain copy, or null.
+     */
+    private Contact decoded(Contact stored) {
+        return dictionary == null || stored == null ? stored : stored.decodedFrom(dictionary);
+    }
+
+    /**
+     * Rejects a field lookup without a field or value, as the contacts cannot hold a null value.
+     */
+    private static void checkFieldQuery(Contact.Field field, String value) {
+        if (field == null || value == null) {
+            throw new IllegalArgumentException("Field and value must be non-null");
+        }
+    }
+
+    /**
+     * Adds a contact to the name index.
+     * @param contact The contact to index.
+     */
+    private void indexNames(Contact contact) {
+        nameIndex.add(contact.getContactId(), contact.getFirstName(), contact.getLastName());
+    }
+
+    /**
+     * Removes a contact from the name index.
+     * @param contact The contact as it was indexed.
+     */
+    private void unindexNames(Contact contact) {
+        nameIndex.remove(contact.getContactId(), contact.getFirstName(), contact.getLastName());
+    }
+
+    /**
+     * Stores a changed contact. An in-memory service without a dictionary holds the changed object itself, so
+     * there is nothing to do; one with a dictionary replaces its encoded copy.
+     * @param contact The contact that was changed.
+     */
+    private void writeBack(Contact contact) {
+        if (cache != null) {
+            cache.write(contact);
+        } else if (store != null) {
+            store.write(contact);
+        } else if (dictionary != null) {
+            contacts.put(contact.getContactId(), contact.encodedIn(dictionary));
+        }
+    }
+
     /**
      * Searches for a contact by ID.
      * @param id The unique ID of the contact.
@@ -96,12 +571,199 @@ public class ContactService {
      * @throws Exception if the contact cannot be found.
      */
     private Contact searchForContact(String id) throws Exception {
-        for (Contact contact : contactList) {
-            if (contact.getContactId().equals(id)) {
-                return contact;
+        Contact contact = contacts.get(id);
+        if (contact == null) {
+            throw new Exception("Contact not found.");
+        }
+        return contact;
+    }
+
+    /**
+     * Adds a batch of already constructed contacts, keeping their IDs.
+     * Every rejected contact is reported instead of aborting the batch on the first failure.
+     * An all-or-nothing batch is validated in one pass before anything is stored.
+     * @param batch The contacts to be added.
+     * @param atomic If true, nothing is added unless every contact in the batch is valid.
+     * @return A report listing the rejected contacts.
+     */
+    public BatchResult addAll(Collection<Contact> batch, boolean atomic) {
+        long start = metrics.start(ADD_ALL);
+        BatchResult result;
+        try {
+            result = applyAddAll(batch, atomic);
+        } catch (RuntimeException e) {
+            throw metrics.failed(ADD_ALL, start, e);
+        }
+        metrics.succeeded(ADD_ALL, start);
+        return result;
+    }
+
+    /**
+     * Applies a batch for addAll(), which records it in the metrics.
+     */
+    private BatchResult applyAddAll(Collection<Contact> batch, boolean atomic) {
+        BatchResult result = new BatchResult(batch.size());
+        if (atomic && !validateAtomicBatch(batch, contact -> contact.getContactId(), false, "Contact is null", result)) {
+            return result;
+        }
+
+        ensureCapacity(batch.size());
+        // Added contacts are indexed together, so a batch into an empty index is sorted once instead of inserted
+        List<Contact> added = new ArrayList<>(batch.size());
+        int index = 0;
+        for (Contact contact : batch) {
+            if (contact == null) {
+                result.reject(index, null, "Contact is null");
+            } else if (contacts.putIfAbsent(contact.getContactId(), encoded(contact)) != null) {
+                result.reject(index, contact.getContactId(), "Contact already exists.");
+            } else {
+                added.add(contact);
+                changes.publish(ChangeEvent.Type.ADDED, contact.getContactId(), contact);
+            }
+            index++;
+        }
+        nameIndex.addAll(added);
+        return result;
+    }
+
+    /**
+     * Deletes a batch of contacts by ID.
+     * Every ID that does not match a stored contact is reported instead of aborting the batch.
+     * @param ids The unique IDs of the contacts to be deleted.
+     * @param atomic If true, nothing is deleted unless every ID matches a stored contact.
+     * @return A report listing the rejected IDs.
+     */
+    public BatchResult deleteAll(Collection<String> ids, boolean atomic) {
+        long start = metrics.start(DELETE_ALL);
+        BatchResult result;
+        try {
+            result = applyDeleteAll(ids, atomic);
+        } catch (RuntimeException e) {
+            throw metrics.failed(DELETE_ALL, start, e);
+        }
+        metrics.succeeded(DELETE_ALL, start);
+        return result;
+    }
+
+    /**
+     * Applies a batch for deleteAll(), which records it in the metrics.
+     */
+    private BatchResult applyDeleteAll(Collection<String> ids, boolean atomic) {
+        BatchResult result = new BatchResult(ids.size());
+        if (atomic && !validateAtomicBatch(ids, id -> id, true, "Contact not found.", result)) {
+            return result;
+        }
+
+        int index = 0;
+        for (String id : ids) {
+            Contact removed = decoded(contacts.remove(id));
+            if (removed == null) {
+                result.reject(index, id, "Contact not found.");
+            } else {
+                unindexNames(removed);
+                changes.publish(ChangeEvent.Type.DELETED, id, removed);
+            }
+            index++;
+        }
+        return result;
+    }
+
+    /**
+     * Updates a batch of existing contacts.
+     * Each contact in the batch carries the ID of a stored contact and the field values to copy onto it.
+     * @param updates The new contact values, matched to stored contacts by ID.
+     * @param atomic If true, nothing is updated unless every contact in the batch matches a stored contact.
+     * @return A report listing the rejected updates.
+     */
+    public BatchResult updateAll(Collection<Contact> updates, boolean atomic) {
+        long start = metrics.start(UPDATE_ALL);
+        BatchResult result;
+        try {
+            result = applyUpdateAll(updates, atomic);
+        } catch (RuntimeException e) {
+            throw metrics.failed(UPDATE_ALL, start, e);
+        }
+        metrics.succeeded(UPDATE_ALL, start);
+        return result;
+    }
+
+    /**
+     * Applies a batch for updateAll(), which records it in the metrics.
+     */
+    private BatchResult applyUpdateAll(Collection<Contact> updates, boolean atomic) {
+        BatchResult result = new BatchResult(updates.size());
+        if (atomic && !validateAtomicBatch(updates, contact -> contact.getContactId(), true, "Contact is null", result)) {
+            return result;
+        }
+
+        int index = 0;
+        for (Contact update : updates) {
+            Contact stored = update == null ? null : decoded(contacts.get(update.getContactId()));
+            if (stored == null) {
+                result.reject(index, update == null ? null : update.getContactId(), update == null ? "Contact is null" : "Contact not found.");
+            } else {
+                unindexNames(stored);
+                // Values were validated when the update contact was constructed, so these setters cannot fail
+                stored.updateFirstName(update.getFirstName());
+                stored.updateLastName(update.getLastName());
+                stored.updatePhoneNumber(update.getPhoneNumber());
+                stored.updateAddress(update.getAddress());
+                writeBack(stored);
+                indexNames(stored);
+                changes.publish(ChangeEvent.Type.UPDATED, stored.getContactId(), stored);
+            }
+            index++;
+        }
+        return result;
+    }
+
+    /**
+     * Validates an all-or-nothing batch in one pass: no null items, no ID repeated within the batch,
+     * and every ID either absent from the service (adds) or present in it (updates and deletes).
+     * Every failure is recorded, and the batch is marked as rolled back if there is any.
+     * @return True if the whole batch may be applied.
+     */
+    private <T> boolean validateAtomicBatch(Collection<T> batch, Function<T, String> idOf, boolean mustExist,
+            String nullReason, BatchResult result) {
+        Set<String> seen = new HashSet<>(capacityFor(batch.size()));
+        int index = 0;
+        for (T item : batch) {
+            String id = item == null ? null : idOf.apply(item);
+            if (id == null) {
+                result.reject(index, null, nullReason);
+            } else if (!seen.add(id)) {
+                result.reject(index, id, "Duplicate contact ID in batch");
+            } else if (contacts.containsKey(id) != mustExist) {
+                result.reject(index, id, mustExist ? "Contact not found." : "Contact already exists.");
             }
+            index++;
+        }
+        if (result.hasFailures()) {
+            result.rollBack();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Grows the contact map once ahead of a large batch, instead of letting it double repeatedly while inserting.
+     * @param additional The number of contacts about to be added.
+     */
+    private void ensureCapacity(int additional) {
+        // Rehashing costs O(size), so it only pays off when the batch is at least as large as the map.
+        // A record store grows its own file.
+        if (store == null && additional > contacts.size()) {
+            Map<String, Contact> presized = new HashMap<>(capacityFor(contacts.size() + additional));
+            presized.putAll(contacts);
+            contacts = presized;
         }
-        throw new Exception("Contact not found.");
+    }
+
+    /**
+     * Returns the initial capacity a hash-based collection needs to hold the given number of entries without resizing.
+     */
+    private static int capacityFor(int expected) {
+        return Math.max(16, (int) (expected / 0.75f) + 1);
     }
 
 }
@@ -1,5 +1,13 @@
 import org.junit.Before;
 import org.junit.Test;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import static org.junit.Assert.*;
 
 /**
@@ -70,8 +78,24 @@ public class ContactServiceTest {
         service.updateFirstName("nonexistent", "NewName");
     }
 
+    /**
+     * Test to verify that deleting and updating by ID only affects the targeted contact when many are stored.
+     */
+    @Test
+    public void testDeleteAndUpdateAmongManyContacts() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            service.newContact("First" + (i % 10), lastName, phoneNumber, address);
+        }
+        service.updateFirstName(testContactId, "Jane");
+        assertEquals("Updated contact should be found by ID.", "Jane", getContactById(testContactId).getFirstName());
+
+        service.deleteContact(testContactId);
+        assertNull("Deleted contact should no longer be found.", getContactById(testContactId));
+        assertEquals("Only the targeted contact should be removed.", 1000, service.getContactList().size());
+    }
+
     // Similar tests for lastName, phoneNumber, and address updates...
-    
+
     /**
      * Utility method for tests (if needed) to retrieve a contact by its ID for verification purposes.
      * Note: This method assumes a specific implementation. Adjust according to your actual ContactService class.
@@ -85,4 +109,155 @@ public class ContactServiceTest {
                 .findFirst()
                 .orElse(null);
     }
+
+    /**
+     * Test to verify batch add, update and delete, including per-item failure reporting and atomic rollback.
+     */
+    @Test
+    public void testBatchOperations() {
+        List<Contact> batch = Arrays.asList(
+                new Contact("B1", "Ann", "Lee", phoneNumber, address),
+                new Contact(testContactId, "Dup", "Dup", phoneNumber, address),
+                new Contact("B2", "Bob", "Ray", phoneNumber, address));
+        BatchResult added = service.addAll(batch, false);
+        assertEquals("Only the existing ID should be rejected.", 1, added.getFailures().size());
+        assertEquals(testContactId, added.getFailures().get(0).getId());
+        assertEquals("Two contacts should be added.", 3, service.getContactList().size());
+
+        BatchResult updated = service.updateAll(Arrays.asList(new Contact("B1", "Anna"), new Contact("missing")), true);
+        assertFalse("Atomic update with a missing ID should be rolled back.", updated.isApplied());
+        assertEquals("Ann", getContactById("B1").getFirstName());
+
+        updated = service.updateAll(Arrays.asList(new Contact("B1", "Anna")), true);
+        assertTrue(updated.isApplied());
+        assertEquals("Anna", getContactById("B1").getFirstName());
+
+        BatchResult deleted = service.deleteAll(Arrays.asList("B1", "B2", "missing"), false);
+        assertEquals(2, deleted.succeeded());
+        assertEquals("Only the original contact should remain.", 1, service.getContactList().size());
+    }
+
+    /**
+     * Tests that an ID already in use is regenerated, so a colliding generator cannot overwrite a contact.
+     */
+    @Test
+    public void testCollidingIdIsRegenerated() throws Exception {
+        String[] ids = {"SAME", "SAME", "SAME", "OTHER"};
+        int[] next = {0};
+        ContactService service = new ContactService(() -> ids[next[0]++]);
+        service.newContact("First");
+        service.newContact("Second");
+        assertEquals(2, service.getContactList().size());
+        assertEquals("First", service.getContact("SAME").getFirstName());
+        assertEquals("Second", service.getContact("OTHER").getFirstName());
+    }
+
+    /**
+     * Tests that adds, updates and deletes are published in order.
+     */
+    @Test
+    public void testChangeEvents() throws Exception {
+        BlockingQueue<ChangeEvent<Contact>> events = record(service.getChangePublisher());
+        service.updateFirstName(testContactId, "Jane");
+        service.addAll(Arrays.asList(new Contact("C1")), false);
+        service.deleteContact(testContactId);
+
+        expectEvent(events, ChangeEvent.Type.UPDATED, testContactId);
+        expectEvent(events, ChangeEvent.Type.ADDED, "C1");
+        expectEvent(events, ChangeEvent.Type.DELETED, testContactId);
+    }
+
+    /**
+     * Test that calls and failures are counted per operation, with failures grouped by error type.
+     */
+    @Test
+    public void testMetrics() throws Exception {
+        service.getContact(testContactId);
+        try {
+            service.newContact("A first name that is far too long");
+            fail("Invalid contact should be rejected.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            service.deleteContact("missing");
+            fail("Unknown contact should be rejected.");
+        } catch (Exception e) {
+            // expected
+        }
+
+        OperationMetrics.Snapshot snapshot = service.getMetrics().snapshot();
+        assertEquals(1, snapshot.getEntityCount());
+        assertEquals(2, snapshot.getOperation("newContact").getCalls());
+        assertEquals(1, snapshot.getOperation("newContact").getFailures());
+        assertEquals(1, snapshot.getOperation("getContact").getSuccesses());
+        assertEquals(Long.valueOf(1), snapshot.getOperation("deleteContact").getFailuresByType().get("Exception: Contact not found."));
+    }
+
+    /**
+     * Tests that exported contacts are imported into another service unchanged, phone numbers with leading
+     * zeros included, and that IDs already in use are reported.
+     */
+    @Test
+    public void testExportImport() throws Exception {
+        service.addAll(Arrays.asList(new Contact("X1", "Ann", "Lee", "0012345678", "1 Quay St"),
+                new Contact("X2", "\u00c9mile", "Zola", "9876543210", "2 Rue Royale")), false);
+        Path file = Files.createTempFile("contacts", ".msrf");
+        try {
+            assertEquals(3, service.exportTo(file, false));
+
+            ContactService copy = new ContactService();
+            copy.addAll(Arrays.asList(new Contact("X2", "Other", "Person", "5555555555", "Elsewhere")), false);
+            BatchResult result = copy.importFrom(file);
+            assertEquals(3, result.size());
+            assertEquals(1, result.getFailures().size());
+            assertEquals("X2", result.getFailures().get(0).getId());
+            assertEquals(3, copy.getContactList().size());
+            Contact imported = copy.getContact("X1");
+            assertEquals("Ann", imported.getFirstName());
+            assertEquals("0012345678", imported.getPhoneNumber());
+            assertEquals("1 Quay St", imported.getAddress());
+            assertEquals(firstName, copy.getContact(testContactId).getFirstName());
+            assertEquals("Other", copy.getContact("X2").getFirstName());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Subscribes to a change publisher with unbounded demand and returns the queue its events arrive in.
+     */
+    private static <T> BlockingQueue<ChangeEvent<T>> record(ChangePublisher<T> publisher) {
+        BlockingQueue<ChangeEvent<T>> events = new LinkedBlockingQueue<>();
+        publisher.subscribe(new Flow.Subscriber<List<ChangeEvent<T>>>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(List<ChangeEvent<T>> batch) {
+                events.addAll(batch);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        return events;
+    }
+
+    /**
+     * Takes the next event from the queue and checks its kind and ID.
+     */
+    private static <T> void expectEvent(BlockingQueue<ChangeEvent<T>> events, ChangeEvent.Type type, String id) throws InterruptedException {
+        ChangeEvent<T> event = events.poll(5, TimeUnit.SECONDS);
+        assertNotNull("Change event should arrive.", event);
+        assertEquals(type, event.getType());
+        assertEquals(id, event.getId());
+    }
 }
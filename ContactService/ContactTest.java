@@ -124,4 +124,71 @@ public class ContactTest {
     public void testNullAddress() {
         new Contact(validContactId, validFirstName, validLastName, validPhone, null);
     }
+
+    /**
+     * Tests that updating one field of the compact representation leaves the others intact,
+     * including when a name outside Latin-1 widens every field.
+     */
+    @Test
+    public void testUpdatesKeepOtherFields() {
+        contact.updateFirstName("Jo");
+        contact.updateAddress("742 Evergreen Terrace");
+        assertEquals("Jo", contact.getFirstName());
+        assertEquals(validLastName, contact.getLastName());
+        assertEquals("742 Evergreen Terrace", contact.getAddress());
+
+        contact.updateLastName("\u0141uczak");
+        assertEquals("Jo", contact.getFirstName());
+        assertEquals("\u0141uczak", contact.getLastName());
+        assertEquals("742 Evergreen Terrace", contact.getAddress());
+
+        contact.updateFirstName("Jos\u00e9");
+        assertEquals("Jos\u00e9", contact.getFirstName());
+        assertEquals("\u0141uczak", contact.getLastName());
+    }
+
+    /**
+     * Tests that a phone number with leading zeros is returned unchanged,
+     * and that a rejected phone number leaves the stored one in place.
+     */
+    @Test
+    public void testPhoneNumberLeadingZeros() {
+        contact.updatePhoneNumber("0000000042");
+        assertEquals("0000000042", contact.getPhoneNumber());
+        try {
+            contact.updatePhoneNumber("12345-6789");
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            assertEquals("0000000042", contact.getPhoneNumber());
+        }
+    }
+
+    /**
+     * Tests that validate() reports the first invalid field by its code, without throwing, and that the
+     * constructor throws the message of the same rule.
+     */
+    @Test
+    public void testValidate() {
+        assertEquals(ValidationRules.VALID, Contact.validate("1", "John", "Doe", "0123456789", "1 Main St"));
+        assertEquals(Contact.INVALID_ID, Contact.validate(null, null, null, null, null));
+        assertEquals(Contact.INVALID_FIRST_NAME, Contact.validate("1", "Christopher", "Doe", "bad", "1 Main St"));
+        assertEquals(Contact.INVALID_LAST_NAME, Contact.validate("1", "John", null, "0123456789", "1 Main St"));
+        assertEquals(Contact.INVALID_PHONE_NUMBER, Contact.validate("1", "John", "Doe", "012345678x", "1 Main St"));
+        assertEquals(Contact.INVALID_PHONE_NUMBER, Contact.validate("1", "John", "Doe", "012345678", "1 Main St"));
+        assertEquals(Contact.INVALID_ADDRESS, Contact.validate("1", "John", "Doe", "0123456789", null));
+        ValidationRules.Result result = new ValidationRules.Result();
+        assertNull(Contact.tryCreate("1", "John", "Doe", "012345678x", "1 Main St", result));
+        assertEquals("phoneNumber", result.getField());
+        Contact created = Contact.tryCreate("1", "John", "Doe", "0123456789", "1 Main St", result);
+        assertTrue(result.isValid());
+        assertEquals("0123456789", created.getPhoneNumber());
+        assertEquals("1 Main St", created.getAddress());
+        try {
+            new Contact("1", "John", "Doe", "012345678x", "1 Main St");
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            assertEquals("Phone number must be non-null, exactly 10 digits long, and numeric", expected.getMessage());
+            assertEquals(Contact.RULES.message(Contact.INVALID_PHONE_NUMBER), expected.getMessage());
+        }
+    }
 }
@@ -0,0 +1,65 @@
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contact ID generator that hands out consecutive numbers as fixed-width, 10-character base-36 IDs.
+ *
+ * Threads reserve blocks of numbers from a shared counter and then number their IDs from the block
+ * without any synchronization, so the shared counter is only touched once per block.
+ * The counter starts at the current time in milliseconds times the block size. A process started later
+ * therefore continues past the IDs handed out by earlier ones, unless they generated more than a block
+ * of IDs per millisecond on average. ContactService still checks every ID against the stored contacts.
+ */
+public final class SequenceIdGenerator implements ContactIdGenerator {
+    // Number of IDs a thread reserves at a time.
+    static final int BLOCK_SIZE = 1024;
+    // Ten base-36 digits.
+    private static final int ID_LENGTH = 10;
+    private static final long ID_LIMIT = 3_656_158_440_062_976L; // 36^10
+    private static final byte[] DIGITS = "0123456789abcdefghijklmnopqrstuvwxyz".getBytes(StandardCharsets.ISO_8859_1);
+
+    // Generator shared by every ContactService that is not given its own.
+    private static final SequenceIdGenerator SHARED = new SequenceIdGenerator(System.currentTimeMillis() * BLOCK_SIZE);
+
+    // Next block to hand out, counted in blocks.
+    private final AtomicLong nextBlock;
+    // Per-thread position within the reserved block: {next number, end of the block}.
+    private final ThreadLocal<long[]> block = ThreadLocal.withInitial(() -> new long[2]);
+
+    /**
+     * Creates a generator whose first ID encodes the given number.
+     * @param start The first number to hand out; rounded up to a whole block.
+     */
+    SequenceIdGenerator(long start) {
+        this.nextBlock = new AtomicLong((start + BLOCK_SIZE - 1) / BLOCK_SIZE);
+    }
+
+    /**
+     * Returns the generator shared by default across the process.
+     * @return The shared generator.
+     */
+    public static SequenceIdGenerator shared() {
+        return SHARED;
+    }
+
+    @Override
+    public String nextId() {
+        long[] range = block.get();
+        if (range[0] == range[1]) {
+            long first = nextBlock.getAndIncrement() * BLOCK_SIZE;
+            range[0] = first;
+            range[1] = first + BLOCK_SIZE;
+        }
+        return encode(range[0]++ % ID_LIMIT);
+    }
+
+    // Writes a number as exactly ten base-36 digits.
+    static String encode(long number) {
+        byte[] id = new byte[ID_LENGTH];
+        for (int i = ID_LENGTH - 1; i >= 0; i--) {
+            id[i] = DIGITS[(int) (number % 36)];
+            number /= 36;
+        }
+        return new String(id, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,68 @@
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the SequenceIdGenerator class.
+ * These tests validate the ID format and that IDs stay unique across threads and blocks.
+ */
+public class SequenceIdGeneratorTest {
+
+    /**
+     * Tests that numbers are encoded as exactly ten base-36 digits.
+     */
+    @Test
+    public void testEncoding() {
+        assertEquals("0000000000", SequenceIdGenerator.encode(0));
+        assertEquals("000000000z", SequenceIdGenerator.encode(35));
+        assertEquals("0000000010", SequenceIdGenerator.encode(36));
+        assertEquals("zzzzzzzzzz", SequenceIdGenerator.encode(3_656_158_440_062_975L));
+    }
+
+    /**
+     * Tests that one thread gets consecutive IDs across block boundaries.
+     */
+    @Test
+    public void testSequentialWithinThread() {
+        SequenceIdGenerator generator = new SequenceIdGenerator(0);
+        for (int i = 0; i < 3 * SequenceIdGenerator.BLOCK_SIZE; i++) {
+            assertEquals(SequenceIdGenerator.encode(i), generator.nextId());
+        }
+    }
+
+    /**
+     * Tests that threads sharing a generator never receive the same ID.
+     */
+    @Test
+    public void testUniqueAcrossThreads() throws Exception {
+        SequenceIdGenerator generator = new SequenceIdGenerator(System.currentTimeMillis() * SequenceIdGenerator.BLOCK_SIZE);
+        int threads = 8;
+        int perThread = 50_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<List<String>>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                List<String> ids = new ArrayList<>(perThread);
+                for (int i = 0; i < perThread; i++) {
+                    ids.add(generator.nextId());
+                }
+                return ids;
+            }));
+        }
+        Set<String> all = new HashSet<>();
+        for (Future<List<String>> future : futures) {
+            for (String id : future.get()) {
+                assertEquals(10, id.length());
+                assertTrue("Duplicate ID " + id, all.add(id));
+            }
+        }
+        pool.shutdown();
+        assertEquals(threads * perThread, all.size());
+    }
+}
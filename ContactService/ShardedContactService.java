@@ -0,0 +1,234 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Contact service whose contacts are partitioned across several ContactService shards by consistent hashing
+ * of the contact ID.
+ *
+ * New contact IDs are generated here and the contact is stored on the shard that owns the ID; lookups,
+ * updates and deletes go to that one shard. getContactList() and searchByName() scatter the request to every
+ * shard in parallel and gather the results; name search merges the shards' matches back into name order.
+ * Adding a shard moves to it only the contacts whose IDs it now owns, and removing one moves only its own.
+ *
+ * Not thread-safe, like ContactService: only the per-shard calls of one scan run concurrently, each on its own shard.
+ */
+public class ShardedContactService {
+    private final ConsistentHashRing<ContactService> ring = new ConsistentHashRing<>();
+    // Source of the IDs of new contacts.
+    private final ContactIdGenerator idGenerator;
+    // Runs the per-shard calls of a scatter-gather.
+    private final Executor executor;
+
+    /**
+     * Creates a service with the given number of in-memory shards, named "shard-0", "shard-1" and so on,
+     * that uses the shared SequenceIdGenerator.
+     * @param shards The number of shards.
+     */
+    public ShardedContactService(int shards) {
+        this(SequenceIdGenerator.shared(), shards, KeyedExecutor.sharedExecutor());
+    }
+
+    /**
+     * Creates a service with the given number of in-memory shards, named "shard-0", "shard-1" and so on.
+     * @param idGenerator The generator for new contact IDs.
+     * @param shards The number of shards.
+     * @param executor Runs the per-shard calls of a scan.
+     * @throws IllegalArgumentException if the generator or executor is null.
+     */
+    public ShardedContactService(ContactIdGenerator idGenerator, int shards, Executor executor) {
+        if (idGenerator == null || executor == null) {
+            throw new IllegalArgumentException("ID generator and executor must be non-null");
+        }
+        this.idGenerator = idGenerator;
+        this.executor = executor;
+        for (int i = 0; i < shards; i++) {
+            addShard("shard-" + i, new ContactService(idGenerator));
+        }
+    }
+
+    /**
+     * Adds a shard and moves to it the contacts whose IDs it now owns.
+     * @param name The shard's name, which decides the IDs it owns; must be unique.
+     * @param shard The shard, which should be empty.
+     * @return The number of contacts moved to the new shard.
+     * @throws IllegalArgumentException if the name or shard is null, or the name is already taken.
+     */
+    public int addShard(String name, ContactService shard) {
+        ring.addShard(name, shard);
+        int moved = 0;
+        for (Map.Entry<String, ContactService> other : ring.getShards().entrySet()) {
+            if (other.getKey().equals(name)) {
+                continue;
+            }
+            List<Contact> leaving = new ArrayList<>();
+            for (Contact contact : other.getValue().getContactList()) {
+                if (ring.shardNameFor(contact.getContactId()).equals(name)) {
+                    leaving.add(contact);
+                }
+            }
+            move(leaving, other.getValue(), shard);
+            moved += leaving.size();
+        }
+        return moved;
+    }
+
+    /**
+     * Removes a shard and moves its contacts to the shards that now own their IDs.
+     * @param name The shard's name.
+     * @return The removed shard, now empty.
+     * @throws IllegalArgumentException if there is no shard with that name.
+     * @throws IllegalStateException if it is the last shard.
+     */
+    public ContactService removeShard(String name) {
+        if (ring.size() == 1 && ring.getShards().containsKey(name)) {
+            throw new IllegalStateException("Cannot remove the last shard");
+        }
+        ContactService removed = ring.removeShard(name);
+        for (Contact contact : removed.getContactList()) {
+            move(Collections.singletonList(contact), removed, ring.shardFor(contact.getContactId()));
+        }
+        return removed;
+    }
+
+    /**
+     * Returns the name of the shard that owns a contact ID.
+     * @param id The unique ID of a contact.
+     * @return The owning shard's name.
+     */
+    public String shardFor(String id) {
+        return ring.shardNameFor(id);
+    }
+
+    /**
+     * Adds a new contact with a unique ID to the shard that owns the ID.
+     * @param firstname The first name of the new contact.
+     * @param lastname The last name of the new contact.
+     * @param phonenumber The phone number of the new contact.
+     * @param address The address of the new contact.
+     * @return The ID of the new contact.
+     * @throws IllegalArgumentException if a field is invalid.
+     */
+    public String newContact(String firstname, String lastname, String phonenumber, String address) {
+        while (true) {
+            String id = idGenerator.nextId();
+            Contact contact = new Contact(id, firstname, lastname, phonenumber, address);
+            // A taken ID is reported by the batch instead of overwriting the stored contact
+            if (!ring.shardFor(id).addAll(Collections.singletonList(contact), false).hasFailures()) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Returns the contact identified by the unique ID.
+     * @param id The unique ID of the contact.
+     * @return The stored contact.
+     * @throws Exception if the contact cannot be found.
+     */
+    public Contact getContact(String id) throws Exception {
+        return owner(id).getContact(id);
+    }
+
+    /**
+     * Deletes a contact identified by the unique ID.
+     * @param id The unique ID of the contact to be deleted.
+     * @throws Exception if the contact cannot be found.
+     */
+    public void deleteContact(String id) throws Exception {
+        owner(id).deleteContact(id);
+    }
+
+    /**
+     * Updates the first name of the contact identified by the unique ID.
+     * @param id The unique ID of the contact.
+     * @param firstName The new first name to update.
+     * @throws Exception if the contact cannot be found.
+     */
+    public void updateFirstName(String id, String firstName) throws Exception {
+        owner(id).updateFirstName(id, firstName);
+    }
+
+    /**
+     * Returns the contacts of all shards, asking every shard in parallel.
+     * @return A new list containing every stored contact, grouped by shard.
+     */
+    public List<Contact> getContactList() {
+        List<Contact> all = new ArrayList<>();
+        for (List<Contact> part : scatter(ContactService::getContactList)) {
+            all.addAll(part);
+        }
+        return all;
+    }
+
+    /**
+     * Finds contacts whose first name, last name or "first last" full name starts with the given text,
+     * asking every shard in parallel; see ContactService.searchByName.
+     * @param prefix The typed text; case is ignored.
+     * @param limit The maximum number of contacts to return.
+     * @param typoTolerant If true, names one edit away are matched after the exact matches.
+     * @return The matching contacts, exact matches first and in name order.
+     */
+    public List<Contact> searchByName(String prefix, int limit, boolean typoTolerant) {
+        // Each shard returns its own best matches; the overall best are among them
+        List<Contact> exact = new ArrayList<>();
+        List<Contact> near = new ArrayList<>();
+        for (List<Contact> part : scatter(shard -> shard.searchByName(prefix, limit, typoTolerant))) {
+            for (Contact contact : part) {
+                (ContactNameIndex.matchKey(contact, prefix) != null ? exact : near).add(contact);
+            }
+        }
+        exact.sort(Comparator.comparing(contact -> ContactNameIndex.matchKey(contact, prefix)));
+        List<Contact> found = new ArrayList<>(exact);
+        found.addAll(near);
+        return found.size() > limit ? new ArrayList<>(found.subList(0, limit)) : found;
+    }
+
+    // Returns the shard that owns an ID, failing as the services do for an ID that cannot exist.
+    private ContactService owner(String id) throws Exception {
+        if (id == null) {
+            throw new Exception("Contact not found.");
+        }
+        return ring.shardFor(id);
+    }
+
+    // Runs a call on every shard in parallel and returns the results in shard order.
+    private <T> List<T> scatter(Function<ContactService, T> call) {
+        List<CompletableFuture<T>> parts = new ArrayList<>(ring.size());
+        for (ContactService shard : ring.getShards().values()) {
+            parts.add(CompletableFuture.supplyAsync(() -> call.apply(shard), executor));
+        }
+        List<T> results = new ArrayList<>(parts.size());
+        for (CompletableFuture<T> part : parts) {
+            try {
+                results.add(part.join());
+            } catch (CompletionException e) {
+                // Rethrow what the shard threw, as a direct call would
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        return results;
+    }
+
+    // Adds contacts to their new shard, then deletes them from the old one, so none is lost in between.
+    private static void move(List<Contact> contacts, ContactService from, ContactService to) {
+        if (contacts.isEmpty()) {
+            return;
+        }
+        List<String> ids = new ArrayList<>(contacts.size());
+        for (Contact contact : contacts) {
+            ids.add(contact.getContactId());
+        }
+        to.addAll(contacts, false);
+        from.deleteAll(ids, false);
+    }
+}
@@ -0,0 +1,95 @@
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the ShardedContactService class.
+ * These tests ensure that contacts are routed to one shard, that scans gather every shard,
+ * and that rebalancing keeps every contact reachable.
+ */
+public class ShardedContactServiceTest {
+
+    /**
+     * Test that new contacts land on the shard owning their ID and that point operations reach them.
+     */
+    @Test
+    public void testPointOperationsRouteToOwner() throws Exception {
+        ShardedContactService service = new ShardedContactService(3);
+        String id = null;
+        for (int i = 0; i < 90; i++) {
+            id = service.newContact("First" + i, "Last", "1234567890", "1 Main St");
+        }
+        assertEquals(90, service.getContactList().size());
+        assertEquals("First89", service.getContact(id).getFirstName());
+        service.updateFirstName(id, "Changed");
+        assertEquals("Changed", service.getContact(id).getFirstName());
+        service.deleteContact(id);
+        try {
+            service.getContact(id);
+            fail("Deleted contact should be gone.");
+        } catch (Exception expected) {
+            assertEquals("Contact not found.", expected.getMessage());
+        }
+        assertEquals(89, service.getContactList().size());
+    }
+
+    /**
+     * Test that name search merges the shards' matches into name order and honours the limit.
+     */
+    @Test
+    public void testSearchMergesShards() {
+        ShardedContactService service = new ShardedContactService(4);
+        String[] names = {"Dana", "Abel", "Carla", "Alma", "Bea", "Alex", "Anna", "Adam"};
+        for (String name : names) {
+            service.newContact(name, "Smith", "1234567890", "1 Main St");
+        }
+        List<Contact> found = service.searchByName("a", 10, false);
+        assertEquals(5, found.size());
+        String previous = "";
+        for (Contact contact : found) {
+            assertTrue("Results should be in name order.", contact.getFirstName().compareTo(previous) >= 0);
+            previous = contact.getFirstName();
+        }
+        assertEquals("Abel", found.get(0).getFirstName());
+        assertEquals(2, service.searchByName("a", 2, false).size());
+        assertEquals(8, service.searchByName("smith", 20, false).size());
+
+        // "bae" is one swap away from both "abe" and "bea"; their order depends on the shards they landed on
+        List<String> typo = new ArrayList<>();
+        for (Contact contact : service.searchByName("bae", 5, true)) {
+            typo.add(contact.getFirstName());
+        }
+        assertTrue("One swap away from Bea.", typo.contains("Bea"));
+        assertTrue("One swap away from Abel.", typo.contains("Abel"));
+    }
+
+    /**
+     * Test that adding and removing a shard moves only the contacts it owns and loses none.
+     */
+    @Test
+    public void testRebalancing() throws Exception {
+        ShardedContactService service = new ShardedContactService(2);
+        for (int i = 0; i < 1_000; i++) {
+            service.newContact("First", "Last", "1234567890", "1 Main St");
+        }
+        ContactService added = new ContactService();
+        int moved = service.addShard("shard-2", added);
+        assertEquals(moved, added.getContactList().size());
+        assertTrue("About a third should move: " + moved, moved > 200 && moved < 500);
+        for (Contact contact : added.getContactList()) {
+            assertEquals("shard-2", service.shardFor(contact.getContactId()));
+        }
+
+        assertSame(added, service.removeShard("shard-2"));
+        assertTrue(added.getContactList().isEmpty());
+        Set<String> ids = new HashSet<>();
+        for (Contact contact : service.getContactList()) {
+            assertTrue("No contact should be duplicated.", ids.add(contact.getContactId()));
+            assertNotNull(service.getContact(contact.getContactId()));
+        }
+        assertEquals(1_000, ids.size());
+    }
+}
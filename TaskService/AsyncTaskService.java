@@ -0,0 +1,117 @@
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Asynchronous facade over a TaskService.
+ * Every method returns at once with a CompletableFuture, and the call runs on the facade's executor,
+ * virtual threads by default. Calls on the same task ID run one at a time in the order they were made, and a
+ * batch is ordered the same way with the calls on each task it names; calls on different tasks run
+ * concurrently, which TaskService supports.
+ * A rejected call completes its future exceptionally with the exception the service threw.
+ */
+public class AsyncTaskService {
+    private final TaskService service;
+    private final KeyedExecutor executor;
+
+    /**
+     * Creates a facade that runs on the executor shared by the async facades.
+     * @param service The service to call.
+     */
+    public AsyncTaskService(TaskService service) {
+        this(service, KeyedExecutor.sharedExecutor());
+    }
+
+    /**
+     * Creates a facade that runs on the given executor.
+     * @param service The service to call.
+     * @param executor The executor that runs the calls.
+     */
+    public AsyncTaskService(TaskService service, Executor executor) {
+        this.service = service;
+        this.executor = new KeyedExecutor(executor);
+    }
+
+    /**
+     * Adds a task; see TaskService.addTask.
+     * @param task The task to be added.
+     * @return A future completed once the task is stored.
+     */
+    public CompletableFuture<Void> addTask(Task task) {
+        return executor.submit(task == null ? null : task.getTaskId(), () -> {
+            service.addTask(task);
+            return null;
+        });
+    }
+
+    /**
+     * Looks up a task; see TaskService.getTask.
+     * @param taskId The unique ID of the task.
+     * @return A future completed with the stored task.
+     */
+    public CompletableFuture<Task> getTask(String taskId) {
+        return executor.submit(taskId, () -> service.getTask(taskId));
+    }
+
+    /**
+     * Deletes a task; see TaskService.deleteTask.
+     * @param taskId The unique ID of the task.
+     * @return A future completed once the task is deleted.
+     */
+    public CompletableFuture<Void> deleteTask(String taskId) {
+        return executor.submit(taskId, () -> {
+            service.deleteTask(taskId);
+            return null;
+        });
+    }
+
+    /**
+     * Renames a task; see TaskService.updateTaskName.
+     * @param taskId The unique ID of the task.
+     * @param name The new name.
+     * @return A future completed once the task is updated.
+     */
+    public CompletableFuture<Void> updateTaskName(String taskId, String name) {
+        return executor.submit(taskId, () -> {
+            service.updateTaskName(taskId, name);
+            return null;
+        });
+    }
+
+    /**
+     * Changes a task's description; see TaskService.updateTaskDescription.
+     * @param taskId The unique ID of the task.
+     * @param description The new description.
+     * @return A future completed once the task is updated.
+     */
+    public CompletableFuture<Void> updateTaskDescription(String taskId, String description) {
+        return executor.submit(taskId, () -> {
+            service.updateTaskDescription(taskId, description);
+            return null;
+        });
+    }
+
+    /**
+     * Adds a batch of tasks; see TaskService.addAll.
+     * @return A future completed with the batch report.
+     */
+    public CompletableFuture<BatchResult> addAll(Collection<Task> batch, boolean atomic) {
+        return executor.submitAll(KeyedExecutor.keysOf(batch, Task::getTaskId), () -> service.addAll(batch, atomic));
+    }
+
+    /**
+     * Deletes a batch of tasks; see TaskService.deleteAll.
+     * @return A future completed with the batch report.
+     */
+    public CompletableFuture<BatchResult> deleteAll(Collection<String> taskIds, boolean atomic) {
+        return executor.submitAll(taskIds, () -> service.deleteAll(taskIds, atomic));
+    }
+
+    /**
+     * Updates a batch of tasks; see TaskService.updateAll.
+     * @return A future completed with the batch report.
+     */
+    public CompletableFuture<BatchResult> updateAll(Collection<Task> updates, boolean atomic) {
+        return executor.submitAll(KeyedExecutor.keysOf(updates, Task::getTaskId), () -> service.updateAll(updates, atomic));
+    }
+}
@@ -0,0 +1,43 @@
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the AsyncTaskService class.
+ */
+public class AsyncTaskServiceTest {
+    private final TaskService service = new TaskService();
+    private final AsyncTaskService async = new AsyncTaskService(service);
+
+    /**
+     * Tests that updates to one task are applied in the order they were made.
+     */
+    @Test
+    public void testUpdatesToOneTaskAreOrdered() throws Exception {
+        async.addTask(new Task("T1", "Name", "Description"));
+        List<CompletableFuture<Void>> updates = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            updates.add(async.updateTaskName("T1", "Name" + i));
+            async.addTask(new Task("U" + i, "Name", "Description"));
+        }
+        CompletableFuture.allOf(updates.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+        assertEquals("Name99", async.getTask("T1").get(10, TimeUnit.SECONDS).getName());
+    }
+
+    /**
+     * Tests that a rejected call fails its future with the service's exception.
+     */
+    @Test
+    public void testRejectedCallFailsFuture() throws Exception {
+        try {
+            async.deleteTask("Missing").get(10, TimeUnit.SECONDS);
+            fail("Deleting a missing task should fail.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+    }
+}
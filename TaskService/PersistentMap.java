@@ -0,0 +1,321 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable hash map in which every change returns a new map sharing most of its structure with the old one.
+ *
+ * The map is a hash array mapped trie: each level consumes five bits of the key's hash and holds a 32-bit
+ * bitmap of its occupied slots, followed by a packed array of only those slots. A slot holds a key and its
+ * value, or a subtree for keys that share the slot. Keys with equal hashes share a collision node at the
+ * bottom. A put or remove copies the O(log32 n) nodes on the path to the key and nothing else, so old
+ * versions stay valid and can be read from any thread without locking.
+ *
+ * @param <K> The key type.
+ * @param <V> The value type.
+ */
+final class PersistentMap<K, V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(null, 0);
+
+    /**
+     * Trie node. Its array holds key/value pairs; in a bitmap node a null key marks a slot whose value is a subtree.
+     */
+    private abstract static class Node {
+        final Object[] array;
+
+        Node(Object[] array) {
+            this.array = array;
+        }
+
+        abstract Object get(int shift, int hash, Object key);
+
+        abstract Node put(int shift, int hash, Object key, Object value, boolean[] added);
+
+        // Returns the node without the key, null if that leaves it empty, or this node if the key is absent.
+        abstract Node remove(int shift, int hash, Object key);
+    }
+
+    private static final class BitmapNode extends Node {
+        private final int bitmap;
+
+        BitmapNode(int bitmap, Object[] array) {
+            super(array);
+            this.bitmap = bitmap;
+        }
+
+        @Override
+        Object get(int shift, int hash, Object key) {
+            int bit = bitFor(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            int index = 2 * Integer.bitCount(bitmap & (bit - 1));
+            Object slotKey = array[index];
+            if (slotKey == null) {
+                return ((Node) array[index + 1]).get(shift + BITS, hash, key);
+            }
+            return key.equals(slotKey) ? array[index + 1] : null;
+        }
+
+        @Override
+        Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+            int bit = bitFor(hash, shift);
+            int index = 2 * Integer.bitCount(bitmap & (bit - 1));
+            if ((bitmap & bit) == 0) {
+                Object[] grown = new Object[array.length + 2];
+                System.arraycopy(array, 0, grown, 0, index);
+                grown[index] = key;
+                grown[index + 1] = value;
+                System.arraycopy(array, index, grown, index + 2, array.length - index);
+                added[0] = true;
+                return new BitmapNode(bitmap | bit, grown);
+            }
+            Object slotKey = array[index];
+            Object slotValue = array[index + 1];
+            if (slotKey == null) {
+                Node child = ((Node) slotValue).put(shift + BITS, hash, key, value, added);
+                return child == slotValue ? this : with(index, null, child);
+            }
+            if (key.equals(slotKey)) {
+                return slotValue == value ? this : with(index, slotKey, value);
+            }
+            // Two keys in one slot: push both down a level
+            added[0] = true;
+            return with(index, null, pair(shift + BITS, slotKey, slotValue, hash, key, value));
+        }
+
+        @Override
+        Node remove(int shift, int hash, Object key) {
+            int bit = bitFor(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int index = 2 * Integer.bitCount(bitmap & (bit - 1));
+            Object slotKey = array[index];
+            if (slotKey == null) {
+                Node child = (Node) array[index + 1];
+                Node removed = child.remove(shift + BITS, hash, key);
+                if (removed == child) {
+                    return this;
+                }
+                if (removed != null) {
+                    return with(index, null, removed);
+                }
+            } else if (!key.equals(slotKey)) {
+                return this;
+            }
+            if (bitmap == bit) {
+                return null;
+            }
+            Object[] shrunk = new Object[array.length - 2];
+            System.arraycopy(array, 0, shrunk, 0, index);
+            System.arraycopy(array, index + 2, shrunk, index, array.length - index - 2);
+            return new BitmapNode(bitmap & ~bit, shrunk);
+        }
+
+        private BitmapNode with(int index, Object key, Object value) {
+            Object[] copy = array.clone();
+            copy[index] = key;
+            copy[index + 1] = value;
+            return new BitmapNode(bitmap, copy);
+        }
+    }
+
+    private static final class CollisionNode extends Node {
+        private final int hash;
+
+        CollisionNode(int hash, Object[] array) {
+            super(array);
+            this.hash = hash;
+        }
+
+        @Override
+        Object get(int shift, int hash, Object key) {
+            int index = indexOf(key);
+            return index < 0 ? null : array[index + 1];
+        }
+
+        @Override
+        Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+            if (hash != this.hash) {
+                // Nest this node in a bitmap node, where the new key gets a slot of its own
+                Node nested = new BitmapNode(bitFor(this.hash, shift), new Object[] {null, this});
+                return nested.put(shift, hash, key, value, added);
+            }
+            int index = indexOf(key);
+            if (index >= 0) {
+                if (array[index + 1] == value) {
+                    return this;
+                }
+                Object[] copy = array.clone();
+                copy[index + 1] = value;
+                return new CollisionNode(hash, copy);
+            }
+            Object[] grown = new Object[array.length + 2];
+            System.arraycopy(array, 0, grown, 0, array.length);
+            grown[array.length] = key;
+            grown[array.length + 1] = value;
+            added[0] = true;
+            return new CollisionNode(hash, grown);
+        }
+
+        @Override
+        Node remove(int shift, int hash, Object key) {
+            int index = indexOf(key);
+            if (index < 0) {
+                return this;
+            }
+            if (array.length == 2) {
+                return null;
+            }
+            Object[] shrunk = new Object[array.length - 2];
+            System.arraycopy(array, 0, shrunk, 0, index);
+            System.arraycopy(array, index + 2, shrunk, index, array.length - index - 2);
+            return new CollisionNode(hash, shrunk);
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private final Node root;
+    private final int size;
+
+    private PersistentMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Returns the empty map.
+     */
+    @SuppressWarnings("unchecked")
+    static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Returns the value stored under a key, or null if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    V get(K key) {
+        return root == null ? null : (V) root.get(0, hash(key), key);
+    }
+
+    /**
+     * Returns a map that also holds the key with the given value; this map is unchanged.
+     */
+    PersistentMap<K, V> plus(K key, V value) {
+        boolean[] added = new boolean[1];
+        Node node = root == null ? new BitmapNode(0, new Object[0]) : root;
+        Node updated = node.put(0, hash(key), key, value, added);
+        return updated == root ? this : new PersistentMap<>(updated, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * Returns a map without the key; this map is unchanged.
+     */
+    PersistentMap<K, V> minus(K key) {
+        if (root == null) {
+            return this;
+        }
+        Node updated = root.remove(0, hash(key), key);
+        if (updated == root) {
+            return this;
+        }
+        return updated == null ? empty() : new PersistentMap<>(updated, size - 1);
+    }
+
+    /**
+     * Returns the number of keys.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns an iterator over the values, in no particular order.
+     */
+    Iterator<V> values() {
+        return new Iterator<V>() {
+            // Arrays being walked, with the position of the next pair in each
+            private final Deque<Object[]> arrays = new ArrayDeque<>();
+            private final Deque<Integer> positions = new ArrayDeque<>();
+            private Object next;
+
+            {
+                if (root != null) {
+                    arrays.push(root.array);
+                    positions.push(0);
+                }
+                advance();
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public V next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Object value = next;
+                advance();
+                return (V) value;
+            }
+
+            // Moves to the next key/value pair, descending into subtrees as they come.
+            private void advance() {
+                next = null;
+                while (!arrays.isEmpty()) {
+                    Object[] array = arrays.peek();
+                    int position = positions.pop();
+                    if (position >= array.length) {
+                        arrays.pop();
+                        continue;
+                    }
+                    positions.push(position + 2);
+                    if (array[position] == null) {
+                        arrays.push(((Node) array[position + 1]).array);
+                        positions.push(0);
+                    } else {
+                        next = array[position + 1];
+                        return;
+                    }
+                }
+            }
+        };
+    }
+
+    // Builds the subtree holding two keys that met in one slot.
+    private static Node pair(int shift, Object key1, Object value1, int hash2, Object key2, Object value2) {
+        int hash1 = hash(key1);
+        if (hash1 == hash2) {
+            return new CollisionNode(hash1, new Object[] {key1, value1, key2, value2});
+        }
+        boolean[] added = new boolean[1];
+        return new BitmapNode(0, new Object[0]).put(shift, hash1, key1, value1, added).put(shift, hash2, key2, value2, added);
+    }
+
+    private static int bitFor(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    // Spreads the high bits down, as HashMap does, so keys differing only there still branch early.
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+}
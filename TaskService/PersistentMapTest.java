@@ -0,0 +1,92 @@
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the PersistentMap class.
+ * These tests compare the map against a HashMap under random changes and check that old versions never change.
+ */
+public class PersistentMapTest {
+
+    /**
+     * Tests random puts and removes against a HashMap, including keys whose hashes collide.
+     */
+    @Test
+    public void testMatchesHashMap() {
+        Random random = new Random(42);
+        Map<String, Integer> expected = new HashMap<>();
+        PersistentMap<String, Integer> map = PersistentMap.empty();
+        for (int i = 0; i < 20_000; i++) {
+            String key = key(random.nextInt(2_000));
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.minus(key);
+            } else {
+                expected.put(key, i);
+                map = map.plus(key, i);
+            }
+            assertEquals("Size should match after step " + i, expected.size(), map.size());
+        }
+        for (int k = 0; k < 2_000; k++) {
+            assertEquals(expected.get(key(k)), map.get(key(k)));
+        }
+        Map<Integer, Integer> iterated = new HashMap<>();
+        for (Iterator<Integer> values = map.values(); values.hasNext();) {
+            iterated.merge(values.next(), 1, Integer::sum);
+        }
+        Map<Integer, Integer> values = new HashMap<>();
+        for (Integer value : expected.values()) {
+            values.merge(value, 1, Integer::sum);
+        }
+        assertEquals("Iteration should visit every value once.", values, iterated);
+    }
+
+    /**
+     * Tests that changes leave earlier versions of the map as they were.
+     */
+    @Test
+    public void testOldVersionsAreUnchanged() {
+        List<PersistentMap<String, Integer>> history = new ArrayList<>();
+        PersistentMap<String, Integer> map = PersistentMap.empty();
+        for (int i = 0; i < 1_000; i++) {
+            history.add(map);
+            map = map.plus(key(i), i);
+        }
+        for (int i = 0; i < 1_000; i += 2) {
+            map = map.minus(key(i));
+        }
+        for (int version = 0; version < history.size(); version += 97) {
+            PersistentMap<String, Integer> old = history.get(version);
+            assertEquals(version, old.size());
+            for (int i = 0; i < 1_000; i++) {
+                assertEquals(i < version ? Integer.valueOf(i) : null, old.get(key(i)));
+            }
+        }
+        assertEquals(500, map.size());
+        assertNull(map.get(key(0)));
+        assertEquals(Integer.valueOf(1), map.get(key(1)));
+    }
+
+    /**
+     * Tests that removing an absent key or storing the same value again returns the same map.
+     */
+    @Test
+    public void testNoOpChangesShareTheMap() {
+        Integer value = 7;
+        PersistentMap<String, Integer> map = PersistentMap.<String, Integer>empty().plus("a", value);
+        assertSame(map, map.minus("b"));
+        assertSame(map, map.plus("a", value));
+        assertEquals(0, map.minus("a").size());
+        assertFalse(map.minus("a").values().hasNext());
+    }
+
+    // Keys built from "Aa" and "BB", which have equal hash codes, so every fourth key collides with others.
+    private static String key(int i) {
+        return i % 4 == 0 ? (i % 8 == 0 ? "Aa" : "BB") + (i / 8) : "K" + i;
+    }
+}
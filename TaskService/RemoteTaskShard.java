@@ -0,0 +1,136 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A task shard held by a TaskShardServer in another JVM on the same machine, reached over a loopback socket.
+ *
+ * Requests on one RemoteTaskShard are sent one at a time over a single connection. A request the remote
+ * service rejects throws IllegalArgumentException with the service's message, as it would in-process; a
+ * broken connection throws UncheckedIOException. Tasks returned are copies of the remote tasks.
+ */
+public final class RemoteTaskShard implements TaskShard, Closeable {
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    private RemoteTaskShard(Socket socket) throws IOException {
+        this.socket = socket;
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    /**
+     * Connects to a shard server on this machine.
+     *
+     * @param port The port the server listens on.
+     * @return The connected shard.
+     * @throws IOException If the connection cannot be made.
+     */
+    public static RemoteTaskShard connect(int port) throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        socket.setTcpNoDelay(true);
+        return new RemoteTaskShard(socket);
+    }
+
+    @Override
+    public synchronized void addTask(Task task) {
+        if (task == null) {
+            throw new IllegalArgumentException("Task already exists or is null");
+        }
+        try {
+            send(TaskShardServer.ADD, task.getTaskId(), task.getName(), task.getDescription());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Task shard is unreachable", e);
+        }
+    }
+
+    @Override
+    public synchronized Task getTask(String taskId) {
+        try {
+            send(TaskShardServer.GET, taskId);
+            return TaskShardServer.readTask(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Task shard is unreachable", e);
+        }
+    }
+
+    @Override
+    public synchronized void deleteTask(String taskId) {
+        try {
+            send(TaskShardServer.DELETE, taskId);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Task shard is unreachable", e);
+        }
+    }
+
+    @Override
+    public synchronized void updateTaskName(String taskId, String name) {
+        try {
+            send(TaskShardServer.UPDATE_NAME, taskId, name);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Task shard is unreachable", e);
+        }
+    }
+
+    @Override
+    public synchronized void updateTaskDescription(String taskId, String description) {
+        try {
+            send(TaskShardServer.UPDATE_DESCRIPTION, taskId, description);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Task shard is unreachable", e);
+        }
+    }
+
+    @Override
+    public synchronized List<Task> getTaskList() {
+        try {
+            send(TaskShardServer.LIST, (String) null);
+            int count = in.readInt();
+            List<Task> tasks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                tasks.add(TaskShardServer.readTask(in));
+            }
+            return tasks;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Task shard is unreachable", e);
+        }
+    }
+
+    /**
+     * Closes the connection. The remote shard keeps its tasks.
+     *
+     * @throws IOException If the socket cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        socket.close();
+    }
+
+    /**
+     * Sends a request and reads the reply status, leaving any result in the input stream.
+     * @throws IllegalArgumentException If the remote service rejected the request.
+     */
+    private void send(byte op, String... arguments) throws IOException {
+        out.writeByte(op);
+        for (String argument : arguments) {
+            TaskShardServer.writeString(out, argument);
+        }
+        out.flush();
+        byte status = in.readByte();
+        if (status == TaskShardServer.REJECTED) {
+            throw new IllegalArgumentException(in.readUTF());
+        }
+        if (status != TaskShardServer.OK) {
+            throw new IllegalStateException("Task shard failed: " + in.readUTF());
+        }
+    }
+}
@@ -0,0 +1,275 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Task service whose tasks are partitioned across several TaskShards by consistent hashing of the task ID.
+ *
+ * Operations on one task are routed to the single shard that owns its ID. getTaskList() scatters the
+ * request to every shard in parallel and gathers the results. Shards can be in-process TaskServices or
+ * RemoteTaskShards served by other JVMs, and can be mixed.
+ *
+ * Adding a shard moves to it only the tasks whose IDs it now owns, about 1/N of them, and removing one moves
+ * only its own tasks to the shards that inherit its IDs. Rebalancing waits for running operations to finish
+ * and holds new ones back until it is done. If a shard fails mid-rebalance the tasks moved so far stay moved
+ * and the ring already includes the change; the failure is thrown to the caller.
+ *
+ * Safe to call from multiple threads when the shards are; TaskService and RemoteTaskShard both are.
+ */
+public class ShardedTaskService {
+    private final ConsistentHashRing<TaskShard> ring = new ConsistentHashRing<>();
+    // Operations hold the read side; adding and removing shards hold the write side.
+    private final ReadWriteLock rebalance = new ReentrantReadWriteLock();
+    // Runs the per-shard calls of a scatter-gather.
+    private final Executor executor;
+
+    /**
+     * Creates a service without shards that scatters scans on the executor shared by the async facades.
+     */
+    public ShardedTaskService() {
+        this(KeyedExecutor.sharedExecutor());
+    }
+
+    /**
+     * Creates a service without shards.
+     * @param executor Runs the per-shard calls of a scan.
+     * @throws IllegalArgumentException If the executor is null.
+     */
+    public ShardedTaskService(Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor must be non-null");
+        }
+        this.executor = executor;
+    }
+
+    /**
+     * Creates a service with the given number of in-memory TaskService shards in this process,
+     * named "shard-0", "shard-1" and so on.
+     *
+     * @param shards The number of shards.
+     * @return The sharded service.
+     */
+    public static ShardedTaskService inProcess(int shards) {
+        ShardedTaskService service = new ShardedTaskService();
+        for (int i = 0; i < shards; i++) {
+            service.addShard("shard-" + i, new TaskService());
+        }
+        return service;
+    }
+
+    /**
+     * Adds a shard and moves to it the tasks whose IDs it now owns.
+     *
+     * @param name The shard's name, which decides the IDs it owns; must be unique.
+     * @param shard The shard, which should be empty.
+     * @return The number of tasks moved to the new shard.
+     * @throws IllegalArgumentException If the name or shard is null, or the name is already taken.
+     */
+    public int addShard(String name, TaskShard shard) {
+        rebalance.writeLock().lock();
+        try {
+            ring.addShard(name, shard);
+            int moved = 0;
+            for (Map.Entry<String, TaskShard> other : ring.getShards().entrySet()) {
+                if (other.getKey().equals(name)) {
+                    continue;
+                }
+                for (Task task : other.getValue().getTaskList()) {
+                    if (ring.shardNameFor(task.getTaskId()).equals(name)) {
+                        move(task, other.getValue(), shard);
+                        moved++;
+                    }
+                }
+            }
+            return moved;
+        } finally {
+            rebalance.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a shard and moves its tasks to the shards that now own their IDs.
+     *
+     * @param name The shard's name.
+     * @return The removed shard, now empty.
+     * @throws IllegalArgumentException If there is no shard with that name.
+     * @throws IllegalStateException If it is the last shard.
+     */
+    public TaskShard removeShard(String name) {
+        rebalance.writeLock().lock();
+        try {
+            if (ring.size() == 1 && ring.getShards().containsKey(name)) {
+                throw new IllegalStateException("Cannot remove the last shard");
+            }
+            TaskShard removed = ring.removeShard(name);
+            for (Task task : removed.getTaskList()) {
+                move(task, removed, ring.shardFor(task.getTaskId()));
+            }
+            return removed;
+        } finally {
+            rebalance.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the name of the shard that owns a task ID.
+     *
+     * @param taskId The unique ID of a task.
+     * @return The owning shard's name.
+     * @throws IllegalStateException If the service has no shards.
+     */
+    public String shardFor(String taskId) {
+        rebalance.readLock().lock();
+        try {
+            return ring.shardNameFor(taskId);
+        } finally {
+            rebalance.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of shards.
+     */
+    public int getShardCount() {
+        rebalance.readLock().lock();
+        try {
+            return ring.size();
+        } finally {
+            rebalance.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a new task to the shard that owns its ID.
+     *
+     * @param task The task to be added.
+     * @throws IllegalArgumentException If the task is null or already exists.
+     */
+    public void addTask(Task task) {
+        if (task == null) {
+            throw new IllegalArgumentException("Task already exists or is null");
+        }
+        rebalance.readLock().lock();
+        try {
+            ring.shardFor(task.getTaskId()).addTask(task);
+        } finally {
+            rebalance.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the task identified by the task ID.
+     *
+     * @param taskId The unique ID of the task to look up.
+     * @return The stored task; a copy if its shard is remote.
+     * @throws IllegalArgumentException If the task does not exist.
+     */
+    public Task getTask(String taskId) {
+        if (taskId == null) {
+            throw new IllegalArgumentException("Task does not exist");
+        }
+        rebalance.readLock().lock();
+        try {
+            return ring.shardFor(taskId).getTask(taskId);
+        } finally {
+            rebalance.readLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes the task identified by the task ID.
+     *
+     * @param taskId The unique ID of the task to be deleted.
+     * @throws IllegalArgumentException If the task does not exist.
+     */
+    public void deleteTask(String taskId) {
+        if (taskId == null) {
+            throw new IllegalArgumentException("Task does not exist");
+        }
+        rebalance.readLock().lock();
+        try {
+            ring.shardFor(taskId).deleteTask(taskId);
+        } finally {
+            rebalance.readLock().unlock();
+        }
+    }
+
+    /**
+     * Updates the name of an existing task.
+     *
+     * @param taskId The unique ID of the task to update.
+     * @param name The new name to set for the task.
+     * @throws IllegalArgumentException If the task does not exist or the name is invalid.
+     */
+    public void updateTaskName(String taskId, String name) {
+        if (taskId == null) {
+            throw new IllegalArgumentException("Task does not exist");
+        }
+        rebalance.readLock().lock();
+        try {
+            ring.shardFor(taskId).updateTaskName(taskId, name);
+        } finally {
+            rebalance.readLock().unlock();
+        }
+    }
+
+    /**
+     * Updates the description of an existing task.
+     *
+     * @param taskId The unique ID of the task to update.
+     * @param description The new description to set for the task.
+     * @throws IllegalArgumentException If the task does not exist or the description is invalid.
+     */
+    public void updateTaskDescription(String taskId, String description) {
+        if (taskId == null) {
+            throw new IllegalArgumentException("Task does not exist");
+        }
+        rebalance.readLock().lock();
+        try {
+            ring.shardFor(taskId).updateTaskDescription(taskId, description);
+        } finally {
+            rebalance.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the tasks of all shards, asking every shard in parallel.
+     *
+     * @return A new list containing every stored task, grouped by shard.
+     */
+    public List<Task> getTaskList() {
+        rebalance.readLock().lock();
+        try {
+            List<CompletableFuture<List<Task>>> parts = new ArrayList<>(ring.size());
+            for (TaskShard shard : ring.getShards().values()) {
+                parts.add(CompletableFuture.supplyAsync(shard::getTaskList, executor));
+            }
+            List<Task> all = new ArrayList<>();
+            for (CompletableFuture<List<Task>> part : parts) {
+                try {
+                    all.addAll(part.join());
+                } catch (CompletionException e) {
+                    // Rethrow what the shard threw, as a direct call would
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    throw e;
+                }
+            }
+            return all;
+        } finally {
+            rebalance.readLock().unlock();
+        }
+    }
+
+    // Copies a task to its new shard, then deletes it from the old one, so it is never lost in between.
+    private static void move(Task task, TaskShard from, TaskShard to) {
+        to.addTask(new Task(task.getTaskId(), task.getName(), task.getDescription()));
+        from.deleteTask(task.getTaskId());
+    }
+}
@@ -0,0 +1,174 @@
+import org.junit.Test;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the ShardedTaskService class.
+ * These tests validate routing, scatter-gather scans, and that rebalancing moves only the tasks it must.
+ */
+public class ShardedTaskServiceTest {
+
+    /**
+     * Tests that each task is stored only on the shard that owns its ID, and that point operations find it there.
+     */
+    @Test
+    public void testPointOperationsRouteToOwner() {
+        TaskService[] shards = {new TaskService(), new TaskService(), new TaskService()};
+        ShardedTaskService service = new ShardedTaskService();
+        for (int i = 0; i < shards.length; i++) {
+            service.addShard("shard-" + i, shards[i]);
+        }
+        for (int i = 0; i < 300; i++) {
+            service.addTask(new Task("T" + i, "Name", "Description"));
+        }
+        for (int i = 0; i < 300; i++) {
+            String id = "T" + i;
+            int owner = Integer.parseInt(service.shardFor(id).substring("shard-".length()));
+            for (int s = 0; s < shards.length; s++) {
+                assertEquals("Task should be on its owner only.", s == owner, shards[s].tasks.containsKey(id));
+            }
+        }
+        for (TaskService shard : shards) {
+            assertFalse("Every shard should receive tasks.", shard.tasks.isEmpty());
+        }
+
+        service.updateTaskName("T7", "Renamed");
+        service.updateTaskDescription("T7", "Changed");
+        assertEquals("Renamed", service.getTask("T7").getName());
+        assertEquals("Changed", service.getTask("T7").getDescription());
+        service.deleteTask("T7");
+        try {
+            service.getTask("T7");
+            fail("Deleted task should be gone.");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+        try {
+            service.addTask(new Task("T8", "Dup", "Dup"));
+            fail("Duplicate should be rejected by its shard.");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+        assertEquals(299, service.getTaskList().size());
+    }
+
+    /**
+     * Tests that adding a shard moves only the tasks it now owns, and removing it moves them back.
+     */
+    @Test
+    public void testRebalancingMovesMinimalTasks() {
+        ShardedTaskService service = ShardedTaskService.inProcess(4);
+        int count = 4_000;
+        for (int i = 0; i < count; i++) {
+            service.addTask(new Task("T" + i, "Name" + i, "Description"));
+        }
+        String[] before = new String[count];
+        for (int i = 0; i < count; i++) {
+            before[i] = service.shardFor("T" + i);
+        }
+
+        TaskService added = new TaskService();
+        int moved = service.addShard("shard-4", added);
+        assertEquals("Moved tasks should be exactly those the new shard holds.", added.tasks.size(), moved);
+        assertTrue("About a fifth of the tasks should move: " + moved, moved > count / 7 && moved < count / 4);
+        for (int i = 0; i < count; i++) {
+            String owner = service.shardFor("T" + i);
+            assertTrue("Tasks may only move to the new shard.", owner.equals(before[i]) || owner.equals("shard-4"));
+            assertEquals("Name" + i, service.getTask("T" + i).getName());
+        }
+
+        assertSame(added, service.removeShard("shard-4"));
+        assertTrue("Removed shard should be drained.", added.tasks.isEmpty());
+        for (int i = 0; i < count; i++) {
+            assertEquals(before[i], service.shardFor("T" + i));
+        }
+        Set<String> ids = new HashSet<>();
+        for (Task task : service.getTaskList()) {
+            assertTrue("No task should be duplicated.", ids.add(task.getTaskId()));
+        }
+        assertEquals(count, ids.size());
+    }
+
+    /**
+     * Tests that the last shard cannot be removed.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testLastShardStays() {
+        ShardedTaskService service = ShardedTaskService.inProcess(1);
+        service.removeShard("shard-0");
+    }
+
+    /**
+     * Tests a mix of an in-process shard and a shard served over the loopback interface,
+     * including rebalancing onto the remote shard.
+     */
+    @Test
+    public void testRemoteShard() throws Exception {
+        TaskService remoteTasks = new TaskService();
+        try (TaskShardServer server = TaskShardServer.start(remoteTasks, 0);
+                RemoteTaskShard remote = RemoteTaskShard.connect(server.getPort())) {
+            ShardedTaskService service = ShardedTaskService.inProcess(2);
+            for (int i = 0; i < 500; i++) {
+                service.addTask(new Task("T" + i, "Name", "Description"));
+            }
+            int moved = service.addShard("remote", remote);
+            assertEquals(moved, remoteTasks.tasks.size());
+            assertTrue(moved > 0);
+
+            String remoteId = null;
+            for (int i = 0; remoteId == null; i++) {
+                if (service.shardFor("T" + i).equals("remote")) {
+                    remoteId = "T" + i;
+                }
+            }
+            service.updateTaskName(remoteId, "Remote");
+            assertEquals("Remote", remoteTasks.getTask(remoteId).getName());
+            assertEquals("Remote", service.getTask(remoteId).getName());
+            try {
+                service.updateTaskName(remoteId, "A name that is much too long");
+                fail("Remote shard should reject an invalid name.");
+            } catch (IllegalArgumentException expected) {
+                assertEquals("Invalid name", expected.getMessage());
+            }
+            assertEquals(500, service.getTaskList().size());
+        }
+    }
+
+    /**
+     * Tests a shard hosted by a separate JVM started from this one.
+     */
+    @Test
+    public void testShardInSeparateJvm() throws Exception {
+        String java = System.getProperty("java.home") + "/bin/java";
+        Process child = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), "TaskShardServer")
+                .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        try {
+            BufferedReader output = new BufferedReader(new InputStreamReader(child.getInputStream()));
+            int port = Integer.parseInt(output.readLine().trim());
+            try (RemoteTaskShard remote = RemoteTaskShard.connect(port)) {
+                ShardedTaskService service = new ShardedTaskService();
+                service.addShard("local", new TaskService());
+                service.addShard("child", remote);
+                for (int i = 0; i < 200; i++) {
+                    service.addTask(new Task("T" + i, "Name", "Description"));
+                }
+                List<Task> onChild = remote.getTaskList();
+                assertFalse("The child JVM should hold some tasks.", onChild.isEmpty());
+                for (Task task : onChild) {
+                    assertEquals("child", service.shardFor(task.getTaskId()));
+                }
+                assertEquals(200, service.getTaskList().size());
+            }
+        } finally {
+            child.getOutputStream().close();
+            if (!child.waitFor(10, TimeUnit.SECONDS)) {
+                child.destroyForcibly();
+            }
+        }
+    }
+}
@@ -1,14 +1,27 @@
 /**
  * Represents a task in the task management system.
  * Each task has a unique ID, a name, and a description.
+ * The field rules are defined once in RULES; validate() checks fields against them and tryCreate() creates
+ * a task from them, neither throwing.
  */
 public class Task {
+    // Validation rules, defined once with their messages.
+    private static final ValidationRules.Builder DEFINITIONS = ValidationRules.builder("Task");
+    public static final int INVALID_ID = DEFINITIONS.define("taskId", "Invalid task ID");
+    public static final int INVALID_NAME = DEFINITIONS.define("name", "Invalid name");
+    public static final int INVALID_DESCRIPTION = DEFINITIONS.define("description", "Invalid description");
+    public static final ValidationRules RULES = DEFINITIONS.build();
+    // Maximum field lengths.
+    private static final int ID_LENGTH = 10;
+    private static final int NAME_LENGTH = 20;
+    private static final int DESCRIPTION_LENGTH = 50;
+
     // Unique identifier for the task; it's immutable after task creation.
     private final String taskId;
-    // Name of the task, subject to validation.
-    private String name;
-    // Detailed description of the task, subject to validation.
-    private String description;
+    // Name of the task, subject to validation. Volatile so readers on other threads see updates immediately.
+    private volatile String name;
+    // Detailed description of the task, subject to validation. Volatile for the same reason as name.
+    private volatile String description;
 
     /**
      * Constructs a new Task instance with specified ID, name, and description.
@@ -20,23 +33,43 @@ public class Task {
      * @throws IllegalArgumentException If any parameter is invalid.
      */
     public Task(String taskId, String name, String description) {
-        // Validate and initialize task ID.
-        if (taskId == null || taskId.length() > 10) {
-            throw new IllegalArgumentException("Invalid task ID");
-        }
-        // Validate and initialize name.
-        if (name == null || name.length() > 20) {
-            throw new IllegalArgumentException("Invalid name");
-        }
-        // Validate and initialize description.
-        if (description == null || description.length() > 50) {
-            throw new IllegalArgumentException("Invalid description");
-        }
+        RULES.check(validate(taskId, name, description));
         this.taskId = taskId;
         this.name = name;
         this.description = description;
     }
 
+    /**
+     * Checks the fields of a task against RULES without creating it or throwing.
+     * @param taskId The task ID to check.
+     * @param name The name to check.
+     * @param description The description to check.
+     * @return ValidationRules.VALID, or the code of the first invalid field: ID, name, then description.
+     */
+    public static int validate(String taskId, String name, String description) {
+        int code;
+        if ((code = ValidationRules.required(taskId, ID_LENGTH, INVALID_ID)) != ValidationRules.VALID
+                || (code = ValidationRules.required(name, NAME_LENGTH, INVALID_NAME)) != ValidationRules.VALID) {
+            return code;
+        }
+        return ValidationRules.required(description, DESCRIPTION_LENGTH, INVALID_DESCRIPTION);
+    }
+
+    /**
+     * Creates a task if its fields are valid, without throwing.
+     * @param taskId The task ID.
+     * @param name The name.
+     * @param description The description.
+     * @param result Receives ValidationRules.VALID or the code of the first invalid field.
+     * @return The new task, or null if a field is invalid.
+     */
+    public static Task tryCreate(String taskId, String name, String description, ValidationRules.Result result) {
+        int code = validate(taskId, name, description);
+        result.set(RULES, code);
+        // The constructor checks the three lengths again, which costs less than a second constructor
+        return code == ValidationRules.VALID ? new Task(taskId, name, description) : null;
+    }
+
     /**
      * Returns the task's unique ID.
      * @return The task's ID.
@@ -59,9 +92,7 @@ public class Task {
      * @throws IllegalArgumentException If the new name is invalid.
      */
     public void setName(String name) {
-        if (name == null || name.length() > 20) {
-            throw new IllegalArgumentException("Invalid name");
-        }
+        RULES.check(ValidationRules.required(name, NAME_LENGTH, INVALID_NAME));
         this.name = name;
     }
 
@@ -79,9 +110,7 @@ public class Task {
      * @throws IllegalArgumentException If the new description is invalid.
      */
     public void setDescription(String description) {
-        if (description == null || description.length() > 50) {
-            throw new IllegalArgumentException("Invalid description");
-        }
+        RULES.check(ValidationRules.required(description, DESCRIPTION_LENGTH, INVALID_DESCRIPTION));
         this.description = description;
     }
 }
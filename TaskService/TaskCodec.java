@@ -0,0 +1,27 @@
+/**
+ * Writes tasks to RecordFile records and reads them back: ID, name and description.
+ * Tasks read back are validated by the Task constructor.
+ */
+final class TaskCodec implements RecordCodec<Task> {
+    static final TaskCodec INSTANCE = new TaskCodec();
+
+    private TaskCodec() {
+    }
+
+    @Override
+    public String type() {
+        return "Task";
+    }
+
+    @Override
+    public void write(Task task, RecordFile.Output out) {
+        out.writeString(task.getTaskId());
+        out.writeString(task.getName());
+        out.writeString(task.getDescription());
+    }
+
+    @Override
+    public Task read(RecordFile.Input in) {
+        return new Task(in.readString(), in.readString(), in.readString());
+    }
+}
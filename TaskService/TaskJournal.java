@@ -0,0 +1,478 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Write-ahead log and snapshot store that makes a TaskService durable.
+ *
+ * Every change is appended to the current log segment as a PUT (full task state) or DELETE record.
+ * Callers then wait in sync() until their record is on disk; concurrent callers share one fsync
+ * (group commit), so throughput grows with the number of writers instead of being capped by disk latency.
+ *
+ * A checkpoint starts a new segment and writes every task to a snapshot file. On startup the latest
+ * snapshot is loaded and only the segments written after it are replayed, which bounds restart time.
+ * Both record types carry the full resulting state of a task, so replaying a record whose effect is
+ * already contained in the snapshot is harmless.
+ *
+ * A failed write or fsync fails the journal for good: every caller waiting for a record that is not known to be
+ * on disk gets the IOException, and later appends are refused, until the directory is opened again. The segment
+ * is cut back to its last synced size if possible; otherwise replay stops at the torn bytes, which are at its end
+ * because nothing is written after them.
+ *
+ * Files in the directory:
+ *   snapshot-N.dat  all tasks as of the start of segment N
+ *   log-N.dat       changes made while segment N was current
+ */
+final class TaskJournal implements Closeable {
+    // Record types.
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    // Identifies snapshot files and their format version.
+    private static final int SNAPSHOT_MAGIC = 0x54534e31; // "TSN1"
+    // File name parts.
+    private static final String LOG_PREFIX = "log-";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SUFFIX = ".dat";
+
+    private final Path directory;
+    // Guards the pending buffer, the segment channel and the sequence counters.
+    private final Object lock = new Object();
+    // Records appended but not yet written, encoded as [length][crc][body].
+    private Buffer pending = new Buffer(64 * 1024);
+    private Buffer spare = new Buffer(64 * 1024);
+    // Reused encoder for a single record body.
+    private final Buffer body = new Buffer(256);
+    private final DataOutputStream bodyOut = new DataOutputStream(body);
+    private final CRC32 crc = new CRC32();
+
+    private FileChannel segment;
+    private long segmentNumber;
+    // Bytes appended to the current segment, including pending ones, and bytes known to be on disk.
+    private long segmentBytes;
+    private long durableBytes;
+    // Sequence number of the last appended record, and of the last record known to be on disk.
+    private long appendedSeq;
+    private long durableSeq;
+    // True while one caller is writing and syncing pending records on behalf of all waiting callers.
+    private boolean flushing;
+    private boolean closed;
+    // The error that failed the journal, or null while it works.
+    private IOException failure;
+
+    private TaskJournal(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Opens the journal in a directory, restoring the stored tasks into the given map first.
+     * Creates the directory if it does not exist.
+     *
+     * @param directory The directory holding the snapshot and log files.
+     * @param tasks The map to fill with the recovered tasks; expected to be empty.
+     * @return The journal, ready to append to a new log segment.
+     * @throws IOException If the files cannot be read or written.
+     */
+    static TaskJournal open(Path directory, Map<String, Task> tasks) throws IOException {
+        Files.createDirectories(directory);
+        TaskJournal journal = new TaskJournal(directory);
+        long snapshot = latest(directory, SNAPSHOT_PREFIX);
+        if (snapshot >= 0) {
+            readSnapshot(directory.resolve(SNAPSHOT_PREFIX + snapshot + SUFFIX), tasks);
+        }
+        long lastSegment = Math.max(snapshot, 0);
+        for (long number : numbers(directory, LOG_PREFIX)) {
+            if (number >= snapshot) {
+                replay(directory.resolve(LOG_PREFIX + number + SUFFIX), tasks);
+                lastSegment = Math.max(lastSegment, number);
+            }
+        }
+        // Always append to a fresh segment, so a torn tail of the previous one is never extended
+        journal.startSegment(lastSegment + 1);
+        return journal;
+    }
+
+    /**
+     * Appends a record holding the full current state of a task.
+     * @param task The task that was added or updated.
+     */
+    void logPut(Task task) {
+        synchronized (lock) {
+            try {
+                body.reset();
+                bodyOut.writeByte(PUT);
+                bodyOut.writeUTF(task.getTaskId());
+                bodyOut.writeUTF(task.getName());
+                bodyOut.writeUTF(task.getDescription());
+            } catch (IOException e) {
+                throw new AssertionError("In-memory write cannot fail", e);
+            }
+            appendBody();
+        }
+    }
+
+    /**
+     * Appends a record for a deleted task.
+     * @param taskId The ID of the task that was deleted.
+     */
+    void logDelete(String taskId) {
+        synchronized (lock) {
+            try {
+                body.reset();
+                bodyOut.writeByte(DELETE);
+                bodyOut.writeUTF(taskId);
+            } catch (IOException e) {
+                throw new AssertionError("In-memory write cannot fail", e);
+            }
+            appendBody();
+        }
+    }
+
+    // Frames the encoded body as [length][crc][body] in the pending buffer. Caller holds the lock.
+    private void appendBody() {
+        if (closed) {
+            throw new IllegalStateException("Task journal is closed");
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Task journal failed and accepts no more changes", failure);
+        }
+        crc.reset();
+        crc.update(body.array(), 0, body.size());
+        int length = body.size();
+        int checksum = (int) crc.getValue();
+        pending.write(length >>> 24);
+        pending.write(length >>> 16);
+        pending.write(length >>> 8);
+        pending.write(length);
+        pending.write(checksum >>> 24);
+        pending.write(checksum >>> 16);
+        pending.write(checksum >>> 8);
+        pending.write(checksum);
+        pending.write(body.array(), 0, length);
+        segmentBytes += 8 + length;
+        appendedSeq++;
+    }
+
+    /**
+     * Blocks until every record appended so far, including the caller's own, is on disk.
+     * The first caller to arrive writes and syncs the records of everyone waiting;
+     * the others wait for it and return together.
+     *
+     * @throws IOException If the records cannot be written or synced, now or in an earlier group commit.
+     */
+    void sync() throws IOException {
+        long target;
+        synchronized (lock) {
+            target = appendedSeq;
+        }
+        while (true) {
+            Buffer batch;
+            FileChannel channel;
+            long upTo;
+            synchronized (lock) {
+                while (durableSeq < target && flushing && failure == null) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted while waiting for the task journal", e);
+                    }
+                }
+                if (durableSeq >= target) {
+                    return;
+                }
+                if (failure != null) {
+                    throw new IOException("Task journal failed; the change was not written", failure);
+                }
+                // Become the leader for everything appended so far
+                flushing = true;
+                batch = pending;
+                pending = spare;
+                spare = batch;
+                channel = segment;
+                upTo = appendedSeq;
+            }
+            Throwable error = null;
+            try {
+                writeFully(channel, ByteBuffer.wrap(batch.array(), 0, batch.size()));
+                channel.force(false);
+            } catch (Throwable e) {
+                error = e;
+                throw e;
+            } finally {
+                synchronized (lock) {
+                    if (error == null) {
+                        durableSeq = upTo;
+                        durableBytes += batch.size();
+                    } else {
+                        fail(error);
+                    }
+                    batch.reset();
+                    flushing = false;
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of bytes appended to the current log segment.
+     * @return The size of the current segment including records not yet synced.
+     */
+    long segmentBytes() {
+        synchronized (lock) {
+            return segmentBytes;
+        }
+    }
+
+    /**
+     * Starts the next log segment, after writing out whatever is still pending in the current one.
+     * The first step of a checkpoint: changes made from now on are kept in the new segment and replayed
+     * on top of the snapshot after a restart. The caller must make sure that every change already logged
+     * is visible in the map before the snapshot is taken, and that checkpoints do not overlap.
+     *
+     * @return The number of the new segment, which is also the number of the snapshot to write.
+     * @throws IOException If the pending records cannot be written.
+     */
+    long rollSegment() throws IOException {
+        synchronized (lock) {
+            // Wait for a running group commit, then finish the old segment with whatever is still pending
+            while (flushing) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the task journal", e);
+                }
+            }
+            if (failure != null) {
+                throw new IOException("Task journal failed", failure);
+            }
+            try {
+                writeFully(segment, ByteBuffer.wrap(pending.array(), 0, pending.size()));
+                segment.force(false);
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+                lock.notifyAll();
+                throw e;
+            }
+            pending.reset();
+            durableSeq = appendedSeq;
+            segment.close();
+            startSegment(segmentNumber + 1);
+            lock.notifyAll();
+            return segmentNumber;
+        }
+    }
+
+    /**
+     * Writes snapshot N and removes the snapshots and segments it supersedes.
+     * The second step of a checkpoint; appends carry on while the snapshot is written.
+     *
+     * @param number The segment number returned by rollSegment().
+     * @param tasks A live view of the stored tasks.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    void writeCheckpoint(long number, Collection<Task> tasks) throws IOException {
+        Path temporary = directory.resolve(SNAPSHOT_PREFIX + number + SUFFIX + ".tmp");
+        writeSnapshot(temporary, tasks);
+        Files.move(temporary, directory.resolve(SNAPSHOT_PREFIX + number + SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+
+        // Older snapshots and segments are fully contained in the new snapshot
+        for (long old : numbers(directory, SNAPSHOT_PREFIX)) {
+            if (old < number) {
+                Files.deleteIfExists(directory.resolve(SNAPSHOT_PREFIX + old + SUFFIX));
+            }
+        }
+        for (long old : numbers(directory, LOG_PREFIX)) {
+            if (old < number) {
+                Files.deleteIfExists(directory.resolve(LOG_PREFIX + old + SUFFIX));
+            }
+        }
+    }
+
+    /**
+     * Syncs any remaining records and closes the current segment.
+     * @throws IOException If the remaining records cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            synchronized (lock) {
+                closed = true;
+                segment.close();
+            }
+        }
+    }
+
+    /**
+     * Fails the journal after a write or sync error and cuts the segment back to its synced size, so the torn
+     * bytes of the failed write are not left in it. Caller holds the lock and notifies the waiting callers.
+     */
+    private void fail(Throwable error) {
+        failure = error instanceof IOException ? (IOException) error : new IOException("Task journal write failed", error);
+        pending.reset();
+        try {
+            segment.truncate(durableBytes);
+            segment.force(false);
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    // Opens a new, empty log segment for appending. Caller holds the lock or has exclusive access.
+    private void startSegment(long number) throws IOException {
+        segment = FileChannel.open(directory.resolve(LOG_PREFIX + number + SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        segmentNumber = number;
+        segmentBytes = 0;
+        durableBytes = 0;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Applies the records of one log segment to the map, in order.
+     * Replay stops at the first incomplete or corrupt record, which can only be the torn tail of a crash.
+     */
+    private static void replay(Path file, Map<String, Task> tasks) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            CRC32 check = new CRC32();
+            byte[] buffer = new byte[256];
+            while (true) {
+                int length;
+                int checksum;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length < 0 || length > 1 << 20) {
+                        return;
+                    }
+                    if (buffer.length < length) {
+                        buffer = new byte[length];
+                    }
+                    in.readFully(buffer, 0, length);
+                } catch (EOFException tornTail) {
+                    return;
+                }
+                check.reset();
+                check.update(buffer, 0, length);
+                if ((int) check.getValue() != checksum) {
+                    return;
+                }
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(buffer, 0, length));
+                byte type = record.readByte();
+                String taskId = record.readUTF();
+                if (type == PUT) {
+                    tasks.put(taskId, new Task(taskId, record.readUTF(), record.readUTF()));
+                } else if (type == DELETE) {
+                    tasks.remove(taskId);
+                } else {
+                    throw new IOException("Unknown record type " + type + " in " + file);
+                }
+            }
+        }
+    }
+
+    private static void writeSnapshot(Path file, Collection<Task> tasks) throws IOException {
+        CRC32 check = new CRC32();
+        try (DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file), 1 << 16), check))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            // The live view may change while it is written, so the record count goes after the records
+            int count = 0;
+            for (Task task : tasks) {
+                out.writeBoolean(true);
+                out.writeUTF(task.getTaskId());
+                out.writeUTF(task.getName());
+                out.writeUTF(task.getDescription());
+                count++;
+            }
+            out.writeBoolean(false);
+            out.writeInt(count);
+            out.writeLong(check.getValue());
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    private static void readSnapshot(Path file, Map<String, Task> tasks) throws IOException {
+        CRC32 check = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(file), 1 << 16), check))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a task snapshot: " + file);
+            }
+            int count = 0;
+            while (in.readBoolean()) {
+                String taskId = in.readUTF();
+                tasks.put(taskId, new Task(taskId, in.readUTF(), in.readUTF()));
+                count++;
+            }
+            int expected = in.readInt();
+            long computed = check.getValue();
+            if (expected != count || in.readLong() != computed) {
+                throw new IOException("Corrupt task snapshot: " + file);
+            }
+        }
+    }
+
+    // Highest number among the files with the given prefix, or -1 if there are none.
+    private static long latest(Path directory, String prefix) throws IOException {
+        List<Long> numbers = numbers(directory, prefix);
+        return numbers.isEmpty() ? -1 : numbers.get(numbers.size() - 1);
+    }
+
+    // Sorted numbers of the complete files with the given prefix.
+    private static List<Long> numbers(Path directory, String prefix) throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                numbers.add(Long.parseLong(name.substring(prefix.length(), name.length() - SUFFIX.length())));
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    /**
+     * Byte buffer that exposes its backing array, so records can be checksummed and written without copying.
+     */
+    private static final class Buffer extends ByteArrayOutputStream {
+        Buffer(int size) {
+            super(size);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
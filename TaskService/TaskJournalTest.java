@@ -0,0 +1,221 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the TaskJournal class, exercised through a durable TaskService.
+ * These tests validate that tasks survive a restart, with and without a checkpoint, after a torn write
+ * and after a failed write.
+ */
+public class TaskJournalTest {
+    private Path directory; // Directory holding the journal files of each test
+
+    /**
+     * Creates an empty journal directory before each test.
+     */
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("task-journal");
+    }
+
+    /**
+     * Removes the journal directory after each test.
+     */
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * Tests that adds, updates and deletes are restored by replaying the log after a restart.
+     */
+    @Test
+    public void testRestartReplaysLog() throws IOException {
+        try (TaskService service = TaskService.open(directory)) {
+            service.addTask(new Task("1", "Task1", "Description1"));
+            service.addTask(new Task("2", "Task2", "Description2"));
+            service.addTask(new Task("3", "Task3", "Description3"));
+            service.updateTaskName("1", "Renamed");
+            service.updateTaskDescription("2", "Changed");
+            service.deleteTask("3");
+        }
+
+        try (TaskService restored = TaskService.open(directory)) {
+            assertEquals("Should restore 2 tasks.", 2, restored.tasks.size());
+            assertEquals("Renamed", restored.getTask("1").getName());
+            assertEquals("Changed", restored.getTask("2").getDescription());
+            assertFalse("Deleted task should stay deleted.", restored.tasks.containsKey("3"));
+        }
+    }
+
+    /**
+     * Tests that a restart loads the snapshot and replays only the changes made after it,
+     * and that the files the snapshot supersedes are removed.
+     */
+    @Test
+    public void testRestartAfterCheckpoint() throws IOException {
+        try (TaskService service = TaskService.open(directory)) {
+            for (int i = 0; i < 100; i++) {
+                service.addTask(new Task("T" + i, "Name", "Description"));
+            }
+            service.checkpoint();
+            service.deleteTask("T0");
+            service.updateTaskName("T1", "After");
+            service.addTask(new Task("New", "Name", "Description"));
+        }
+        assertEquals("Should keep one snapshot and the segments after it.",
+                Arrays.asList("log-2.dat", "snapshot-2.dat"), files());
+
+        try (TaskService restored = TaskService.open(directory)) {
+            assertEquals("Should restore 100 tasks.", 100, restored.tasks.size());
+            assertFalse(restored.tasks.containsKey("T0"));
+            assertEquals("After", restored.getTask("T1").getName());
+            assertEquals("Name", restored.getTask("New").getName());
+        }
+    }
+
+    /**
+     * Tests that a record cut short by a crash is ignored and the records before it are kept.
+     */
+    @Test
+    public void testTornTailIsIgnored() throws IOException {
+        try (TaskService service = TaskService.open(directory)) {
+            service.addTask(new Task("1", "Task1", "Description1"));
+            service.addTask(new Task("2", "Task2", "Description2"));
+        }
+        // Simulate a crash in the middle of appending a record
+        try (OutputStream out = Files.newOutputStream(directory.resolve("log-1.dat"), StandardOpenOption.APPEND)) {
+            out.write(new byte[] {0, 0, 0, 40, 1, 2, 3, 4, 1, 0});
+        }
+
+        try (TaskService restored = TaskService.open(directory)) {
+            assertEquals("Should restore the 2 complete records.", 2, restored.tasks.size());
+            restored.addTask(new Task("3", "Task3", "Description3"));
+        }
+        try (TaskService restored = TaskService.open(directory)) {
+            assertEquals("Changes after the torn record should survive the next restart.", 3, restored.tasks.size());
+        }
+    }
+
+    /**
+     * Tests that a failed group commit fails its caller and stops the journal: later changes are refused before
+     * they are applied, and a restart restores only what was synced.
+     */
+    @Test
+    public void testFailedSyncStopsJournal() throws Exception {
+        TaskService service = TaskService.open(directory);
+        service.addTask(new Task("1", "Task1", "Description1"));
+        // Make the next write fail by closing the journal's segment under it
+        Field journalField = TaskService.class.getDeclaredField("journal");
+        journalField.setAccessible(true);
+        Object journal = journalField.get(service);
+        Field segmentField = TaskJournal.class.getDeclaredField("segment");
+        segmentField.setAccessible(true);
+        ((FileChannel) segmentField.get(journal)).close();
+
+        try {
+            service.addTask(new Task("2", "Task2", "Description2"));
+            fail("A change that was not synced should fail.");
+        } catch (UncheckedIOException e) {
+            assertTrue(e.getMessage().contains("durable"));
+        }
+        try {
+            service.updateTaskName("1", "Renamed");
+            fail("A failed journal should refuse further changes.");
+        } catch (IllegalStateException e) {
+            assertEquals("A refused update should leave the task untouched.", "Task1", service.getTask("1").getName());
+        }
+        try {
+            service.close();
+            fail("Closing a failed journal should report the failure.");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("failed"));
+        }
+
+        try (TaskService restored = TaskService.open(directory)) {
+            assertEquals("Should restore only the synced task.", 1, restored.tasks.size());
+            assertEquals("Task1", restored.getTask("1").getName());
+            restored.addTask(new Task("3", "Task3", "Description3"));
+        }
+        try (TaskService restored = TaskService.open(directory)) {
+            assertEquals(2, restored.tasks.size());
+        }
+    }
+
+    /**
+     * Tests that an all-or-nothing batch that is rolled back leaves nothing behind after a restart.
+     */
+    @Test
+    public void testRolledBackBatchIsNotRestored() throws IOException {
+        try (TaskService service = TaskService.open(directory)) {
+            service.addTask(new Task("1", "Task1", "Description1"));
+            List<Task> batch = new ArrayList<>();
+            batch.add(new Task("2", "Task2", "Description2"));
+            batch.add(new Task("1", "Task1", "Description1"));
+            assertFalse(service.addAll(batch, true).isApplied());
+        }
+
+        try (TaskService restored = TaskService.open(directory)) {
+            assertEquals("Should restore only the task added before the batch.", 1, restored.tasks.size());
+        }
+    }
+
+    /**
+     * Tests that an in-memory service accepts checkpoint and close without touching the disk.
+     */
+    @Test
+    public void testInMemoryServiceIgnoresCheckpoint() throws IOException {
+        TaskService service = new TaskService();
+        service.addTask(new Task("1", "Task1", "Description1"));
+        service.checkpoint();
+        service.close();
+        assertTrue("Nothing should be written.", files().isEmpty());
+    }
+
+    /**
+     * Tests that a durable service with snapshots enabled includes the restored tasks in its first snapshot.
+     */
+    @Test
+    public void testSnapshotIncludesRestoredTasks() throws IOException {
+        try (TaskService service = TaskService.open(directory)) {
+            service.addTask(new Task("1", "Task1", "Description1"));
+            service.addTask(new Task("2", "Task2", "Description2"));
+        }
+        try (TaskService restored = TaskService.open(directory, true)) {
+            TaskSnapshot snapshot = restored.snapshot();
+            restored.deleteTask("1");
+            assertEquals(2, snapshot.size());
+            assertEquals("Task1", snapshot.getTask("1").getName());
+            assertFalse(restored.snapshot().contains("1"));
+        }
+    }
+
+    // Lists the names of the files in the journal directory in sorted order.
+    private List<String> files() throws IOException {
+        List<String> names = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                names.add(file.getFileName().toString());
+            }
+        }
+        names.sort(null);
+        return names;
+    }
+}
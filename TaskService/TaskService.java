@@ -1,13 +1,151 @@
-import java.util.HashMap;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * TaskService class manages a collection of Task objects.
  * It provides methods to add, delete, and update tasks based on their unique task IDs.
+ * All operations are safe to call from multiple threads: inserts and deletes are atomic,
+ * and updates to the same task are applied one at a time under that task's map entry lock.
+ * An update stores a new Task in place of the old one rather than changing it, so a task returned by getTask()
+ * never changes afterwards and always shows a name and description that were stored together.
+ *
+ * A service created with open(Path) is durable: every change is written to a TaskJournal and synced
+ * to disk before the method returns, and the tasks are restored when the directory is opened again.
+ *
+ * Every add, update and delete is published as a ChangeEvent through getChangePublisher(), numbered in the
+ * order the changes were applied to each task.
+ *
+ * A service created with snapshots enabled also keeps every task as an immutable version in a persistent map,
+ * so snapshot() returns a consistent view of all tasks in constant time without blocking writers.
+ *
+ * search() finds tasks by the words in their names and descriptions through a TextIndex, which is built on the
+ * first search and then kept in step with every change made through the service.
+ *
+ * exportTo() and importFrom() move all tasks to and from a compact RecordFile, for backups and bulk loads.
+ *
+ * A TaskService is also a TaskShard, so it can hold one partition of the tasks of a ShardedTaskService.
+ *
+ * Calls, failures by error type, latencies and the task count are recorded in getMetrics().
  */
-public class TaskService {
+public class TaskService implements Closeable, TaskShard {
+    // Log size after which a durable service writes a snapshot in the background, bounding restart time.
+    static final long DEFAULT_CHECKPOINT_BYTES = 64L * 1024 * 1024;
+    // Operations recorded in the metrics, by their index in OPERATIONS.
+    private static final String[] OPERATIONS = {"addTask", "getTask", "getTaskList", "deleteTask", "updateTaskName",
+            "updateTaskDescription", "addAll", "deleteAll", "updateAll", "snapshot", "checkpoint", "search"};
+    private static final int ADD_TASK = 0;
+    private static final int GET_TASK = 1;
+    private static final int GET_TASK_LIST = 2;
+    private static final int DELETE_TASK = 3;
+    private static final int UPDATE_TASK_NAME = 4;
+    private static final int UPDATE_TASK_DESCRIPTION = 5;
+    private static final int ADD_ALL = 6;
+    private static final int DELETE_ALL = 7;
+    private static final int UPDATE_ALL = 8;
+    private static final int SNAPSHOT = 9;
+    private static final int CHECKPOINT = 10;
+    private static final int SEARCH = 11;
+
     // Map to store tasks, using task ID as the key and the Task object as the value.
-    private final Map<String, Task> tasks = new HashMap<>();
+    // ConcurrentHashMap locks individual bins, so writers to different tasks do not contend.
+    final Map<String, Task> tasks = new ConcurrentHashMap<>();
+    // Write-ahead log for durable services; null for a purely in-memory service.
+    private final TaskJournal journal;
+    // Log size that triggers an automatic checkpoint.
+    private final long checkpointBytes;
+    // Durable changes hold the read side while they log and apply a change; a checkpoint holds the write side
+    // while it switches log segments, so every change in the old segment is visible to the snapshot.
+    private final ReadWriteLock segmentSwitch = new ReentrantReadWriteLock();
+    // Serializes checkpoints with each other.
+    private final Object checkpointLock = new Object();
+    // Set while an automatic checkpoint is running, so only one is started at a time.
+    private final AtomicBoolean checkpointing = new AtomicBoolean();
+    // Stream of changes for downstream consumers; idle until someone subscribes.
+    private final ChangePublisher<Task> changes = new ChangePublisher<>(TaskSnapshot::freeze);
+    // Read-only versions of all tasks, replaced as a whole on every change; null unless snapshots are enabled.
+    private final AtomicReference<PersistentMap<String, Task>> versions;
+    // Word index of task names and descriptions; null until the first search.
+    private volatile TextIndex textIndex;
+    // Set once every task has been added to the word index, so searches no longer wait for the build.
+    private volatile boolean textIndexBuilt;
+    // Serializes building the word index.
+    private final Object textIndexLock = new Object();
+    // Call counts, failures and latencies of the public operations.
+    private final OperationMetrics metrics = new OperationMetrics("TaskService", () -> tasks.size(), OPERATIONS);
+
+    /**
+     * Creates an empty, in-memory task service.
+     */
+    public TaskService() {
+        this(false);
+    }
+
+    /**
+     * Creates an empty, in-memory task service, optionally keeping the versions that snapshot() needs.
+     *
+     * @param snapshots If true, every change also records an immutable task version.
+     */
+    public TaskService(boolean snapshots) {
+        this.journal = null;
+        this.checkpointBytes = Long.MAX_VALUE;
+        this.versions = snapshots ? new AtomicReference<>(PersistentMap.empty()) : null;
+    }
+
+    private TaskService(Path directory, long checkpointBytes, boolean snapshots) throws IOException {
+        this.journal = TaskJournal.open(directory, tasks);
+        this.checkpointBytes = checkpointBytes;
+        this.versions = snapshots ? new AtomicReference<>(freezeAll()) : null;
+    }
+
+    /**
+     * Opens a durable task service stored in a directory, restoring the tasks saved there.
+     *
+     * @param directory The directory holding the snapshot and log files; created if missing.
+     * @return The durable service.
+     * @throws IOException If the stored tasks cannot be read.
+     */
+    public static TaskService open(Path directory) throws IOException {
+        return new TaskService(directory, DEFAULT_CHECKPOINT_BYTES, false);
+    }
+
+    /**
+     * Opens a durable task service stored in a directory, optionally keeping the versions that snapshot() needs.
+     *
+     * @param directory The directory holding the snapshot and log files; created if missing.
+     * @param snapshots If true, every change also records an immutable task version.
+     * @return The durable service.
+     * @throws IOException If the stored tasks cannot be read.
+     */
+    public static TaskService open(Path directory, boolean snapshots) throws IOException {
+        return new TaskService(directory, DEFAULT_CHECKPOINT_BYTES, snapshots);
+    }
+
+    /**
+     * Opens a durable task service that checkpoints whenever its log grows past the given size.
+     *
+     * @param directory The directory holding the snapshot and log files; created if missing.
+     * @param checkpointBytes The log size in bytes that triggers a background checkpoint.
+     * @return The durable service.
+     * @throws IOException If the stored tasks cannot be read.
+     */
+    static TaskService open(Path directory, long checkpointBytes) throws IOException {
+        return new TaskService(directory, checkpointBytes, false);
+    }
 
     /**
      * Adds a new task to the collection.
@@ -17,10 +155,46 @@ public class TaskService {
      * @throws IllegalArgumentException If the task is null or already exists.
      */
     public void addTask(Task task) {
-        if (task == null || tasks.containsKey(task.getTaskId())) {
-            throw new IllegalArgumentException("Task already exists or is null");
+        long start = metrics.start(ADD_TASK);
+        try {
+            // Insert only if absent, so two callers racing on the same ID cannot both succeed
+            if (task == null || !insert(task)) {
+                throw new IllegalArgumentException("Task already exists or is null");
+            }
+            awaitDurable();
+        } catch (RuntimeException e) {
+            throw metrics.failed(ADD_TASK, start, e);
         }
-        tasks.put(task.getTaskId(), task);
+        metrics.succeeded(ADD_TASK, start);
+    }
+
+    /**
+     * Returns the task identified by the task ID.
+     *
+     * @param taskId The unique ID of the task to look up.
+     * @return The stored task.
+     * @throws IllegalArgumentException If the task does not exist.
+     */
+    public Task getTask(String taskId) {
+        long start = metrics.start(GET_TASK);
+        Task task = taskId == null ? null : tasks.get(taskId);
+        if (task == null) {
+            throw metrics.failed(GET_TASK, start, new IllegalArgumentException("Task does not exist"));
+        }
+        metrics.succeeded(GET_TASK, start);
+        return task;
+    }
+
+    /**
+     * Returns a copy of the tasks currently held by the service.
+     *
+     * @return A new list containing every stored task.
+     */
+    public List<Task> getTaskList() {
+        long start = metrics.start(GET_TASK_LIST);
+        List<Task> list = new ArrayList<>(tasks.values());
+        metrics.succeeded(GET_TASK_LIST, start);
+        return list;
     }
 
     /**
@@ -31,10 +205,16 @@ public class TaskService {
      * @throws IllegalArgumentException If the task does not exist.
      */
     public void deleteTask(String taskId) {
-        if (!tasks.containsKey(taskId)) {
-            throw new IllegalArgumentException("Task does not exist");
+        long start = metrics.start(DELETE_TASK);
+        try {
+            if (remove(taskId, null) == null) {
+                throw new IllegalArgumentException("Task does not exist");
+            }
+            awaitDurable();
+        } catch (RuntimeException e) {
+            throw metrics.failed(DELETE_TASK, start, e);
         }
-        tasks.remove(taskId);
+        metrics.succeeded(DELETE_TASK, start);
     }
 
     /**
@@ -46,11 +226,16 @@ public class TaskService {
      * @throws IllegalArgumentException If the task does not exist.
      */
     public void updateTaskName(String taskId, String name) {
-        Task task = tasks.get(taskId);
-        if (task == null) {
-            throw new IllegalArgumentException("Task does not exist");
+        long start = metrics.start(UPDATE_TASK_NAME);
+        try {
+            if (update(taskId, task -> task.setName(name)) == null) {
+                throw new IllegalArgumentException("Task does not exist");
+            }
+            awaitDurable();
+        } catch (RuntimeException e) {
+            throw metrics.failed(UPDATE_TASK_NAME, start, e);
         }
-        task.setName(name);
+        metrics.succeeded(UPDATE_TASK_NAME, start);
     }
 
     /**
@@ -62,10 +247,654 @@ public class TaskService {
      * @throws IllegalArgumentException If the task does not exist.
      */
     public void updateTaskDescription(String taskId, String description) {
-        Task task = tasks.get(taskId);
-        if (task == null) {
-            throw new IllegalArgumentException("Task does not exist");
+        long start = metrics.start(UPDATE_TASK_DESCRIPTION);
+        try {
+            if (update(taskId, task -> task.setDescription(description)) == null) {
+                throw new IllegalArgumentException("Task does not exist");
+            }
+            awaitDurable();
+        } catch (RuntimeException e) {
+            throw metrics.failed(UPDATE_TASK_DESCRIPTION, start, e);
+        }
+        metrics.succeeded(UPDATE_TASK_DESCRIPTION, start);
+    }
+
+    /**
+     * Adds a batch of tasks.
+     * Every rejected task is reported instead of aborting the batch on the first failure.
+     * An all-or-nothing batch is validated in one pass before anything is stored, and one that is rejected is
+     * neither logged nor published. A durable service syncs the whole batch to disk once.
+     *
+     * @param batch The tasks to be added.
+     * @param atomic If true, nothing is added unless every task in the batch is valid.
+     * @return A report listing the rejected tasks.
+     */
+    public BatchResult addAll(Collection<Task> batch, boolean atomic) {
+        long start = metrics.start(ADD_ALL);
+        BatchResult result;
+        try {
+            result = applyAddAll(batch, atomic);
+        } catch (RuntimeException e) {
+            throw metrics.failed(ADD_ALL, start, e);
+        }
+        metrics.succeeded(ADD_ALL, start);
+        return result;
+    }
+
+    /**
+     * Applies a batch for addAll(), which records it in the metrics.
+     */
+    private BatchResult applyAddAll(Collection<Task> batch, boolean atomic) {
+        if (atomic) {
+            return applyAtomically(batch, task -> task.getTaskId(), false, "Task is null", "Task already exists",
+                    task -> tasks.putIfAbsent(task.getTaskId(), task) == null ? new Change(task.getTaskId(), null, task) : null);
+        }
+
+        // Inserts stay atomic per task, so a task repeated in the batch or claimed by another writer is rejected here
+        BatchResult result = new BatchResult(batch.size());
+        int index = 0;
+        for (Task task : batch) {
+            if (task == null) {
+                result.reject(index, null, "Task is null");
+            } else if (!insert(task)) {
+                result.reject(index, task.getTaskId(), "Task already exists");
+            }
+            index++;
+        }
+        awaitDurable();
+        return result;
+    }
+
+    /**
+     * Deletes a batch of tasks by ID.
+     * Every ID that does not match a stored task is reported instead of aborting the batch.
+     *
+     * @param taskIds The unique IDs of the tasks to be deleted.
+     * @param atomic If true, nothing is deleted unless every ID matches a stored task.
+     * @return A report listing the rejected IDs.
+     */
+    public BatchResult deleteAll(Collection<String> taskIds, boolean atomic) {
+        long start = metrics.start(DELETE_ALL);
+        BatchResult result;
+        try {
+            result = applyDeleteAll(taskIds, atomic);
+        } catch (RuntimeException e) {
+            throw metrics.failed(DELETE_ALL, start, e);
+        }
+        metrics.succeeded(DELETE_ALL, start);
+        return result;
+    }
+
+    /**
+     * Applies a batch for deleteAll(), which records it in the metrics.
+     */
+    private BatchResult applyDeleteAll(Collection<String> taskIds, boolean atomic) {
+        if (atomic) {
+            return applyAtomically(taskIds, taskId -> taskId, true, "Task does not exist", "Task does not exist", taskId -> {
+                Task removed = tasks.remove(taskId);
+                return removed == null ? null : new Change(taskId, removed, null);
+            });
+        }
+
+        BatchResult result = new BatchResult(taskIds.size());
+        int index = 0;
+        for (String taskId : taskIds) {
+            if (remove(taskId, null) == null) {
+                result.reject(index, taskId, "Task does not exist");
+            }
+            index++;
+        }
+        awaitDurable();
+        return result;
+    }
+
+    /**
+     * Updates a batch of existing tasks.
+     * Each task in the batch carries the ID of a stored task and the name and description to copy onto it.
+     *
+     * @param updates The new task values, matched to stored tasks by ID.
+     * @param atomic If true, nothing is updated unless every task in the batch matches a stored task.
+     * @return A report listing the rejected updates.
+     */
+    public BatchResult updateAll(Collection<Task> updates, boolean atomic) {
+        long start = metrics.start(UPDATE_ALL);
+        BatchResult result;
+        try {
+            result = applyUpdateAll(updates, atomic);
+        } catch (RuntimeException e) {
+            throw metrics.failed(UPDATE_ALL, start, e);
+        }
+        metrics.succeeded(UPDATE_ALL, start);
+        return result;
+    }
+
+    /**
+     * Applies a batch for updateAll(), which records it in the metrics.
+     */
+    private BatchResult applyUpdateAll(Collection<Task> updates, boolean atomic) {
+        if (atomic) {
+            return applyAtomically(updates, task -> task.getTaskId(), true, "Task is null", "Task does not exist", update -> {
+                Task before = tasks.get(update.getTaskId());
+                Task after = before == null ? null : copyWith(before, changed -> {
+                    changed.setName(update.getName());
+                    changed.setDescription(update.getDescription());
+                });
+                return after != null && tasks.replace(update.getTaskId(), before, after) ? new Change(update.getTaskId(), before, after) : null;
+            });
+        }
+
+        BatchResult result = new BatchResult(updates.size());
+        int index = 0;
+        for (Task update : updates) {
+            Task stored = update == null ? null : update(update.getTaskId(), changed -> {
+                changed.setName(update.getName());
+                changed.setDescription(update.getDescription());
+            });
+            if (stored == null) {
+                result.reject(index, update == null ? null : update.getTaskId(), update == null ? "Task is null" : "Task does not exist");
+            }
+            index++;
+        }
+        awaitDurable();
+        return result;
+    }
+
+    /**
+     * Applies an all-or-nothing batch for addAll(), deleteAll() or updateAll().
+     * The batch is validated and stored while holding the write side of the segment switch, so no logged, published
+     * or versioned change can run in between. Only once every item is stored are the changes logged, published and
+     * versioned. A batch that still fails midway, because a change on the untracked path got in first, is undone
+     * directly in the map, so it leaves nothing in the log, the change stream or the snapshots.
+     *
+     * @param stage Stores one validated item and returns the change, or null if the item cannot be applied.
+     * @param failReason Why an item that stage() could not apply was rejected.
+     */
+    private <T> BatchResult applyAtomically(Collection<T> batch, Function<T, String> idOf, boolean mustExist,
+            String nullReason, String failReason, Function<T, Change> stage) {
+        BatchResult result = new BatchResult(batch.size());
+        List<Change> staged = new ArrayList<>(batch.size());
+        segmentSwitch.writeLock().lock();
+        try {
+            if (!validateAtomicBatch(batch, idOf, mustExist, nullReason, result)) {
+                return result;
+            }
+            try {
+                int index = 0;
+                for (T item : batch) {
+                    Change change = stage.apply(item);
+                    if (change == null) {
+                        result.reject(index, idOf.apply(item), failReason);
+                        result.rollBack();
+                        undo(staged);
+                        return result;
+                    }
+                    staged.add(change);
+                    index++;
+                }
+                commit(staged);
+            } catch (RuntimeException e) {
+                undo(staged);
+                throw e;
+            }
+        } finally {
+            segmentSwitch.writeLock().unlock();
+            for (Change change : staged) {
+                reindex(change.taskId);
+            }
+        }
+        awaitDurable();
+        return result;
+    }
+
+    /**
+     * Logs, publishes and versions the staged changes of an all-or-nothing batch. Every change is logged before
+     * any is published, so a journal that refuses a change leaves nothing to take back but the map.
+     */
+    private void commit(List<Change> staged) {
+        if (journal != null) {
+            for (Change change : staged) {
+                if (change.after == null) {
+                    journal.logDelete(change.taskId);
+                } else {
+                    journal.logPut(change.after);
+                }
+            }
+        }
+        for (Change change : staged) {
+            ChangeEvent.Type type = change.before == null ? ChangeEvent.Type.ADDED
+                    : change.after == null ? ChangeEvent.Type.DELETED : ChangeEvent.Type.UPDATED;
+            changes.publish(type, change.taskId, change.after == null ? change.before : change.after);
+            recordVersion(change.taskId, change.after);
+        }
+    }
+
+    /**
+     * Takes the staged changes of an all-or-nothing batch back out of the map, newest first, leaving alone any
+     * task that another writer has changed since.
+     */
+    private void undo(List<Change> staged) {
+        for (int i = staged.size() - 1; i >= 0; i--) {
+            Change change = staged.get(i);
+            if (change.before == null) {
+                tasks.remove(change.taskId, change.after);
+            } else if (change.after == null) {
+                tasks.putIfAbsent(change.taskId, change.before);
+            } else {
+                tasks.replace(change.taskId, change.after, change.before);
+            }
+        }
+    }
+
+    /**
+     * Writes all tasks to a RecordFile, replacing the file only once it is complete.
+     * A service with snapshots enabled exports one point in time; otherwise tasks changed during the export
+     * may be written before or after the change.
+     *
+     * @param file The file to write.
+     * @param compress Whether to deflate the blocks of the file.
+     * @return The number of tasks written.
+     * @throws IOException If the file cannot be written.
+     */
+    public long exportTo(Path file, boolean compress) throws IOException {
+        Iterable<Task> all = versions == null ? tasks.values() : new TaskSnapshot(versions.get());
+        return RecordFile.write(file, TaskCodec.INSTANCE, all, compress);
+    }
+
+    /**
+     * Adds the tasks of a file written by exportTo(), one block at a time through addAll().
+     * Tasks that are invalid or whose IDs are already in use are reported rather than added.
+     *
+     * @param file The file to read.
+     * @return The outcome of every task in the file, indexed by its position in the file.
+     * @throws IOException If the file cannot be read, is damaged or does not hold tasks.
+     */
+    public BatchResult importFrom(Path file) throws IOException {
+        return RecordFile.read(file, TaskCodec.INSTANCE, batch -> addAll(batch, false));
+    }
+
+    /**
+     * Writes a snapshot of all tasks and discards the log it replaces, so the next restart replays less.
+     * Writers are not blocked while the snapshot is written. Does nothing for an in-memory service.
+     *
+     * @throws IOException If the snapshot cannot be written.
+     */
+    public void checkpoint() throws IOException {
+        long start = metrics.start(CHECKPOINT);
+        try {
+            writeCheckpoint();
+        } catch (IOException e) {
+            throw metrics.failed(CHECKPOINT, start, e);
+        } catch (RuntimeException e) {
+            throw metrics.failed(CHECKPOINT, start, e);
         }
-        task.setDescription(description);
+        metrics.succeeded(CHECKPOINT, start);
+    }
+
+    /**
+     * Rolls the log over to a new segment and writes the snapshot that replaces the old ones.
+     */
+    private void writeCheckpoint() throws IOException {
+        if (journal == null) {
+            return;
+        }
+        synchronized (checkpointLock) {
+            long number;
+            segmentSwitch.writeLock().lock();
+            try {
+                number = journal.rollSegment();
+            } finally {
+                segmentSwitch.writeLock().unlock();
+            }
+            journal.writeCheckpoint(number, tasks.values());
+        }
+    }
+
+    /**
+     * Returns a point-in-time view of all tasks.
+     * Taking it is a single volatile read: it neither copies the tasks nor waits for writers, and the view
+     * stays unchanged however long it is read.
+     *
+     * @return The snapshot.
+     * @throws IllegalStateException If the service was created without snapshots enabled.
+     */
+    public TaskSnapshot snapshot() {
+        long start = metrics.start(SNAPSHOT);
+        if (versions == null) {
+            throw metrics.failed(SNAPSHOT, start, new IllegalStateException("Snapshots are not enabled for this service"));
+        }
+        TaskSnapshot snapshot = new TaskSnapshot(versions.get());
+        metrics.succeeded(SNAPSHOT, start);
+        return snapshot;
+    }
+
+    /**
+     * Finds the tasks whose name or description contains any of the query's words, best matches first.
+     * Tasks containing more of the words, and rarer ones, rank higher. The first search indexes every task.
+     *
+     * @param query The words to look for; case and punctuation are ignored.
+     * @param limit The maximum number of tasks to return.
+     * @return The matching tasks, best first.
+     * @throws IllegalArgumentException If the query is null or the limit is negative.
+     */
+    public List<Task> search(String query, int limit) {
+        long start = metrics.start(SEARCH);
+        List<Task> found = new ArrayList<>();
+        try {
+            TextIndex index = textIndexBuilt ? textIndex : buildTextIndex();
+            for (String taskId : index.search(query, limit)) {
+                // A task deleted since the index was read is left out
+                Task task = tasks.get(taskId);
+                if (task != null) {
+                    found.add(task);
+                }
+            }
+        } catch (RuntimeException e) {
+            throw metrics.failed(SEARCH, start, e);
+        }
+        metrics.succeeded(SEARCH, start);
+        return found;
+    }
+
+    /**
+     * Returns the metrics of this service's public operations.
+     *
+     * @return The metrics, which can be read with snapshot() or published with registerMBean().
+     */
+    public OperationMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the publisher of this service's changes.
+     * Subscribers receive every add, update and delete in batches, and can resume from a sequence number.
+     *
+     * @return The change publisher.
+     */
+    public ChangePublisher<Task> getChangePublisher() {
+        return changes;
+    }
+
+    /**
+     * Flushes and closes the journal of a durable service. Does nothing for an in-memory service.
+     *
+     * @throws IOException If the remaining log records cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Stores a new task unless its ID is taken.
+     * The journal record, change event and snapshot version are written under the same map entry lock as the
+     * change, so the log, the subscribers and the snapshots see changes to a task in order.
+     *
+     * @return True if the task was stored.
+     */
+    private boolean insert(Task task) {
+        if (untracked()) {
+            boolean inserted = tasks.putIfAbsent(task.getTaskId(), task) == null;
+            reindex(task.getTaskId());
+            return inserted;
+        }
+        boolean[] inserted = new boolean[1];
+        segmentSwitch.readLock().lock();
+        try {
+            tasks.computeIfAbsent(task.getTaskId(), id -> {
+                if (journal != null) {
+                    journal.logPut(task);
+                }
+                changes.publish(ChangeEvent.Type.ADDED, id, task);
+                recordVersion(id, task);
+                inserted[0] = true;
+                return task;
+            });
+        } finally {
+            segmentSwitch.readLock().unlock();
+        }
+        reindex(task.getTaskId());
+        return inserted[0];
+    }
+
+    /**
+     * Removes a stored task, optionally only if it is still the expected instance.
+     *
+     * @param taskId The unique ID of the task to remove; may be null.
+     * @param expected The instance that must be stored under the ID, or null to remove whatever is stored.
+     * @return The removed task, or null if nothing was removed.
+     */
+    private Task remove(String taskId, Task expected) {
+        if (taskId == null) {
+            return null;
+        }
+        if (untracked()) {
+            Task removed = expected == null ? tasks.remove(taskId) : tasks.remove(taskId, expected) ? expected : null;
+            reindex(taskId);
+            return removed;
+        }
+        Task[] removed = new Task[1];
+        segmentSwitch.readLock().lock();
+        try {
+            tasks.computeIfPresent(taskId, (id, current) -> {
+                if (expected != null && current != expected) {
+                    return current;
+                }
+                if (journal != null) {
+                    journal.logDelete(id);
+                }
+                changes.publish(ChangeEvent.Type.DELETED, id, current);
+                recordVersion(id, null);
+                removed[0] = current;
+                return null;
+            });
+        } finally {
+            segmentSwitch.readLock().unlock();
+        }
+        reindex(taskId);
+        return removed[0];
+    }
+
+    /**
+     * Applies a change to a copy of a stored task and stores the copy in its place, while holding the task's map
+     * entry, so concurrent updates to the task are serialized. The stored task itself is never changed, so readers
+     * see either the old or the new task, never the new value of one field next to the old value of another.
+     * A change that fails validation, or that the journal refuses, leaves the stored task in place.
+     *
+     * @return The updated task, or null if no task is stored under the ID.
+     */
+    private Task update(String taskId, Consumer<Task> change) {
+        if (taskId == null) {
+            return null;
+        }
+        Task updated;
+        if (untracked()) {
+            updated = tasks.computeIfPresent(taskId, (id, current) -> copyWith(current, change));
+            reindex(taskId);
+            return updated;
+        }
+        segmentSwitch.readLock().lock();
+        try {
+            updated = tasks.computeIfPresent(taskId, (id, current) -> {
+                Task changed = copyWith(current, change);
+                if (journal != null) {
+                    journal.logPut(changed);
+                }
+                changes.publish(ChangeEvent.Type.UPDATED, id, changed);
+                recordVersion(id, changed);
+                return changed;
+            });
+        } finally {
+            segmentSwitch.readLock().unlock();
+        }
+        reindex(taskId);
+        return updated;
+    }
+
+    /**
+     * Returns a new task with the fields of a stored one and a change applied to it.
+     */
+    private static Task copyWith(Task current, Consumer<Task> change) {
+        Task changed = new Task(current.getTaskId(), current.getName(), current.getDescription());
+        change.accept(changed);
+        return changed;
+    }
+
+    /**
+     * Returns whether changes can skip the locked path, because nothing logs, publishes or versions them.
+     */
+    private boolean untracked() {
+        return journal == null && versions == null && !changes.isActive();
+    }
+
+    /**
+     * Replaces the snapshot version of a task with a read-only copy of its current state. Does nothing unless
+     * snapshots are enabled. Called under the task's map entry lock, so versions of one task are recorded in order;
+     * writers of different tasks retry the swap of the map root until it succeeds.
+     *
+     * @param taskId The unique ID of the changed task.
+     * @param task The task after the change, or null if it was deleted.
+     */
+    private void recordVersion(String taskId, Task task) {
+        if (versions == null) {
+            return;
+        }
+        Task version = task == null ? null : TaskSnapshot.freeze(task);
+        PersistentMap<String, Task> current;
+        do {
+            current = versions.get();
+        } while (!versions.compareAndSet(current, version == null ? current.minus(taskId) : current.plus(taskId, version)));
+    }
+
+    /**
+     * Brings the word index entry of a task in line with the stored task, if the index has been built.
+     * Called after every change, outside the change's own entry lock: reading the task again under that lock
+     * means concurrent changes to one task leave the index with its latest text whichever reindexes last.
+     * A change that still saw no index happened before the index was published, so the build picks it up.
+     *
+     * @param taskId The unique ID of the changed task.
+     */
+    private void reindex(String taskId) {
+        TextIndex index = textIndex;
+        if (index == null) {
+            return;
+        }
+        tasks.compute(taskId, (id, current) -> {
+            if (current == null) {
+                index.remove(id);
+            } else {
+                index.put(id, current.getName(), current.getDescription());
+            }
+            return current;
+        });
+    }
+
+    /**
+     * Builds the word index on the first search; searches that arrive meanwhile wait for it. The index is
+     * published to writers before the tasks are added to it, so that changes made meanwhile reindex their own task.
+     */
+    private TextIndex buildTextIndex() {
+        synchronized (textIndexLock) {
+            if (textIndex == null) {
+                textIndex = new TextIndex();
+                for (String taskId : tasks.keySet()) {
+                    reindex(taskId);
+                }
+                textIndexBuilt = true;
+            }
+            return textIndex;
+        }
+    }
+
+    /**
+     * Builds the snapshot versions of the tasks restored from disk.
+     */
+    private PersistentMap<String, Task> freezeAll() {
+        PersistentMap<String, Task> all = PersistentMap.empty();
+        for (Task task : tasks.values()) {
+            all = all.plus(task.getTaskId(), TaskSnapshot.freeze(task));
+        }
+        return all;
+    }
+
+    /**
+     * Waits until the changes made so far are on disk, sharing the sync with concurrent writers.
+     * Starts a background checkpoint once the log has grown past its limit.
+     */
+    private void awaitDurable() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.sync();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Task change could not be made durable", e);
+        }
+        if (journal.segmentBytes() > checkpointBytes && checkpointing.compareAndSet(false, true)) {
+            Thread checkpointer = new Thread(() -> {
+                try {
+                    checkpoint();
+                } catch (IOException e) {
+                    // The log still holds every change, so a failed checkpoint only delays compaction
+                } finally {
+                    checkpointing.set(false);
+                }
+            }, "task-checkpoint");
+            checkpointer.setDaemon(true);
+            checkpointer.start();
+        }
+    }
+
+    /**
+     * Validates an all-or-nothing batch in one pass: no null items, no ID repeated within the batch,
+     * and every ID either absent from the service (adds) or present in it (updates and deletes).
+     * Every failure is recorded, and the batch is marked as rolled back if there is any.
+     *
+     * @return True if the whole batch may be applied.
+     */
+    private <T> boolean validateAtomicBatch(Collection<T> batch, Function<T, String> idOf, boolean mustExist,
+            String nullReason, BatchResult result) {
+        Set<String> seen = new HashSet<>(capacityFor(batch.size()));
+        int index = 0;
+        for (T item : batch) {
+            String id = item == null ? null : idOf.apply(item);
+            if (id == null) {
+                result.reject(index, null, nullReason);
+            } else if (!seen.add(id)) {
+                result.reject(index, id, "Duplicate task ID in batch");
+            } else if (tasks.containsKey(id) != mustExist) {
+                result.reject(index, id, mustExist ? "Task does not exist" : "Task already exists");
+            }
+            index++;
+        }
+        if (result.hasFailures()) {
+            result.rollBack();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * One change stored by an all-or-nothing batch: the task under an ID before and after it, null before an add
+     * and after a delete.
+     */
+    private static final class Change {
+        final String taskId;
+        final Task before;
+        final Task after;
+
+        Change(String taskId, Task before, Task after) {
+            this.taskId = taskId;
+            this.before = before;
+            this.after = after;
+        }
+    }
+
+    /**
+     * Returns the initial capacity a hash-based collection needs to hold the given number of entries without resizing.
+     */
+    private static int capacityFor(int expected) {
+        return Math.max(16, (int) (expected / 0.75f) + 1);
     }
 }
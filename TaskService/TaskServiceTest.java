@@ -1,5 +1,24 @@
 import org.junit.Before;
 import org.junit.Test;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import static org.junit.Assert.*;
 
 /**
@@ -60,4 +79,541 @@ public class TaskServiceTest {
     public void testDeleteNonexistent() {
         service.deleteTask("nonexistent"); // Attempt to delete a task that doesn't exist, should throw exception
     }
+
+    /**
+     * Stress test for concurrent writers.
+     * Every thread tries to add the same set of task IDs, so exactly one add per ID may succeed,
+     * and no task may be lost while threads insert at the same time.
+     */
+    @Test
+    public void testConcurrentAddsHaveNoDuplicatesOrLostTasks() throws Exception {
+        final int threads = 8;
+        final int tasksPerRun = 10_000;
+        final AtomicInteger successes = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < tasksPerRun; i++) {
+                    try {
+                        service.addTask(new Task("T" + i, "Name", "Description"));
+                        successes.incrementAndGet();
+                    } catch (IllegalArgumentException duplicate) {
+                        // Another thread won the race for this ID
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(); // Rethrows any unexpected failure from a worker
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals("Each ID should be added exactly once.", tasksPerRun, successes.get());
+        assertEquals("No task should be lost.", tasksPerRun, service.tasks.size());
+    }
+
+    /**
+     * Stress test for concurrent updates and deletes.
+     * Threads update tasks while others delete disjoint tasks; updates must never fail on live tasks
+     * and the surviving tasks must hold a value written by one of the updaters.
+     */
+    @Test
+    public void testConcurrentUpdatesAndDeletes() throws Exception {
+        final int count = 5_000;
+        for (int i = 0; i < count; i++) {
+            service.addTask(new Task("T" + i, "Name", "Description"));
+        }
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 3; t++) {
+            final String name = "Writer" + t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < count; i += 2) {
+                    service.updateTaskName("T" + i, name);
+                    service.updateTaskDescription("T" + i, name);
+                }
+                return null;
+            }));
+        }
+        futures.add(pool.submit(() -> {
+            start.await();
+            for (int i = 1; i < count; i += 2) {
+                service.deleteTask("T" + i);
+            }
+            return null;
+        }));
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals("Only the odd tasks should have been deleted.", count / 2, service.tasks.size());
+        for (Task task : service.tasks.values()) {
+            assertTrue("Name should come from an updater.", task.getName().startsWith("Writer"));
+            assertTrue("Description should come from an updater.", task.getDescription().startsWith("Writer"));
+        }
+    }
+
+    /**
+     * Stress test for reads during updates that change both fields of a task at once.
+     * Every task a reader gets must show a name and description written by the same update, with or without
+     * tracking, which takes the locked update path.
+     */
+    @Test
+    public void testReadsDuringUpdatesSeeConsistentTasks() throws Exception {
+        assertConsistentReads(service);
+        TaskService tracked = new TaskService(true);
+        assertConsistentReads(tracked);
+    }
+
+    // Runs two writers that update both fields of one task together and two readers that check every pair.
+    private static void assertConsistentReads(TaskService target) throws Exception {
+        final int rounds = 50_000;
+        target.addTask(new Task("1", "Name0", "Description0"));
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger torn = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 2; t++) {
+            final int writer = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < rounds; i++) {
+                    String value = writer + "-" + i;
+                    target.updateAll(Arrays.asList(new Task("1", "Name" + value, "Description" + value)), false);
+                }
+                return null;
+            }));
+        }
+        for (int t = 0; t < 2; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < rounds; i++) {
+                    Task task = target.getTask("1");
+                    String name = task.getName();
+                    String description = task.getDescription();
+                    if (!description.equals("Description" + name.substring("Name".length()))) {
+                        torn.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals("Every read should show a name and description from the same update.", 0, torn.get());
+    }
+
+    /**
+     * Tests that a non-atomic batch add stores the valid tasks and reports each rejected one.
+     */
+    @Test
+    public void testAddAllReportsFailures() {
+        service.addTask(new Task("1", "Task1", "Description1"));
+        List<Task> batch = Arrays.asList(
+                new Task("1", "Dup", "Already stored"),
+                new Task("2", "Task2", "Description2"),
+                null,
+                new Task("2", "Task2", "Repeated in batch"),
+                new Task("3", "Task3", "Description3"));
+
+        BatchResult result = service.addAll(batch, false);
+        assertTrue("Batch should be applied.", result.isApplied());
+        assertEquals("Three items should be rejected.", 3, result.getFailures().size());
+        assertEquals("Two tasks should be added.", 2, result.succeeded());
+        assertEquals("Rejected item should keep its batch index.", 0, result.getFailures().get(0).getIndex());
+        assertEquals("Service should hold the original and the two new tasks.", 3, service.tasks.size());
+        assertEquals("Existing task must not be overwritten.", "Task1", service.tasks.get("1").getName());
+    }
+
+    /**
+     * Tests that an atomic batch is rejected as a whole when any item is invalid.
+     */
+    @Test
+    public void testAtomicBatchesAreAllOrNothing() {
+        service.addTask(new Task("1", "Task1", "Description1"));
+
+        BatchResult added = service.addAll(Arrays.asList(new Task("2", "Task2", "D2"), new Task("1", "Dup", "D")), true);
+        assertFalse("Atomic batch with a duplicate should not be applied.", added.isApplied());
+        assertEquals("No task should be added.", 1, service.tasks.size());
+
+        BatchResult updated = service.updateAll(Arrays.asList(new Task("1", "New", "New"), new Task("9", "Missing", "M")), true);
+        assertFalse(updated.isApplied());
+        assertEquals("Existing task must keep its name.", "Task1", service.tasks.get("1").getName());
+
+        BatchResult deleted = service.deleteAll(Arrays.asList("1", "9"), true);
+        assertFalse(deleted.isApplied());
+        assertEquals("Existing task must not be deleted.", 1, service.tasks.size());
+
+        assertTrue(service.updateAll(Arrays.asList(new Task("1", "New", "New")), true).isApplied());
+        assertEquals("New", service.tasks.get("1").getName());
+        assertTrue(service.deleteAll(Arrays.asList("1"), true).isApplied());
+        assertTrue(service.tasks.isEmpty());
+    }
+
+    /**
+     * Stress test for all-or-nothing deletes racing single deletes of the same tasks.
+     * A batch that loses the race must leave no trace: no task is published as added again, and every task is
+     * published as deleted exactly once.
+     */
+    @Test
+    public void testRejectedAtomicBatchPublishesNothing() throws Exception {
+        final int pairs = 1000;
+        for (int i = 0; i < 2 * pairs; i++) {
+            service.addTask(new Task(Integer.toString(i), "Name", "Description"));
+        }
+        BlockingQueue<ChangeEvent<Task>> events = record(service.getChangePublisher());
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        Future<?> batches = pool.submit(() -> {
+            start.await();
+            for (int k = 0; k < pairs; k++) {
+                service.deleteAll(Arrays.asList(Integer.toString(2 * k), Integer.toString(2 * k + 1)), true);
+            }
+            return null;
+        });
+        Future<?> singles = pool.submit(() -> {
+            start.await();
+            for (int k = 0; k < pairs; k++) {
+                try {
+                    service.deleteTask(Integer.toString(2 * k + 1));
+                } catch (IllegalArgumentException e) {
+                    // Already deleted by the batch
+                }
+            }
+            return null;
+        });
+        start.countDown();
+        batches.get();
+        singles.get();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        long published = service.getChangePublisher().getSequence();
+        assertEquals("Every deleted task should be published once.", 2 * pairs - service.tasks.size(), published);
+        Set<String> deleted = new HashSet<>();
+        for (long i = 0; i < published; i++) {
+            ChangeEvent<Task> event = events.poll(5, TimeUnit.SECONDS);
+            assertNotNull("Change event should arrive.", event);
+            assertEquals("Only deletes should be published.", ChangeEvent.Type.DELETED, event.getType());
+            assertTrue("A task should be deleted once.", deleted.add(event.getId()));
+            assertNull("A published delete should stick.", service.tasks.get(event.getId()));
+        }
+    }
+
+    /**
+     * Tests that adds, updates and deletes are published in order, and that sequence numbers increase.
+     */
+    @Test
+    public void testChangeEvents() throws InterruptedException {
+        BlockingQueue<ChangeEvent<Task>> events = record(service.getChangePublisher());
+        service.addTask(new Task("T1", "Name", "Description"));
+        service.updateTaskName("T1", "Renamed");
+        service.deleteTask("T1");
+        service.addAll(Arrays.asList(new Task("T2", "Name", "Description")), false);
+
+        expectEvent(events, ChangeEvent.Type.ADDED, "T1");
+        expectEvent(events, ChangeEvent.Type.UPDATED, "T1");
+        expectEvent(events, ChangeEvent.Type.DELETED, "T1");
+        expectEvent(events, ChangeEvent.Type.ADDED, "T2");
+        assertEquals(4, service.getChangePublisher().getSequence());
+    }
+
+    /**
+     * Tests that an event keeps the task as it was published, even if the caller changes the added instance.
+     */
+    @Test
+    public void testChangeEventsHoldSnapshots() throws InterruptedException {
+        BlockingQueue<ChangeEvent<Task>> events = record(service.getChangePublisher());
+        Task task = new Task("T1", "Name", "Description");
+        service.addTask(task);
+        task.setName("Changed");
+
+        ChangeEvent<Task> event = events.poll(5, TimeUnit.SECONDS);
+        assertNotNull("Change event should arrive.", event);
+        assertEquals("Event should keep the published name.", "Name", event.getValue().getName());
+        try {
+            event.getValue().setName("Other");
+            fail("Event tasks should be read-only.");
+        } catch (UnsupportedOperationException expected) {
+            // Events are shared by every subscriber
+        }
+    }
+
+    /**
+     * Tests that a snapshot keeps the tasks as they were when it was taken, and that its tasks are read-only.
+     */
+    @Test
+    public void testSnapshotIsStable() {
+        service = new TaskService(true);
+        service.addTask(new Task("1", "Task1", "Description1"));
+        service.addTask(new Task("2", "Task2", "Description2"));
+        TaskSnapshot before = service.snapshot();
+
+        service.updateTaskName("1", "Renamed");
+        service.deleteTask("2");
+        service.addTask(new Task("3", "Task3", "Description3"));
+        service.updateAll(Arrays.asList(new Task("3", "Batch", "Batch")), false);
+
+        assertEquals(2, before.size());
+        assertEquals("Snapshot should keep the old name.", "Task1", before.getTask("1").getName());
+        assertTrue("Deleted task should remain in the old snapshot.", before.contains("2"));
+        assertFalse(before.contains("3"));
+
+        TaskSnapshot after = service.snapshot();
+        assertEquals(2, after.size());
+        assertEquals("Renamed", after.getTask("1").getName());
+        assertFalse(after.contains("2"));
+        assertEquals("Batch", after.getTask("3").getDescription());
+        try {
+            after.getTask("1").setName("Changed");
+            fail("Snapshot tasks should be read-only.");
+        } catch (UnsupportedOperationException expected) {
+            // expected
+        }
+        assertEquals("Renamed", service.getTask("1").getName());
+    }
+
+    /**
+     * Stress test for snapshots taken while writers rename and delete tasks.
+     * Each writer renames all of its tasks in one pass after another, so a consistent snapshot never shows
+     * a task of a later pass next to one of a pass that ended earlier, and never loses a task that was not deleted.
+     */
+    @Test
+    public void testSnapshotsDuringWrites() throws Exception {
+        service = new TaskService(true);
+        final int count = 2_000;
+        for (int i = 0; i < count; i++) {
+            service.addTask(new Task("T" + i, "0", "Description"));
+        }
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        Future<?> renamer = pool.submit(() -> {
+            start.await();
+            for (int pass = 1; pass <= 20; pass++) {
+                for (int i = 0; i < count; i += 2) {
+                    service.updateTaskName("T" + i, Integer.toString(pass));
+                }
+            }
+            return null;
+        });
+        Future<?> deleter = pool.submit(() -> {
+            start.await();
+            for (int i = 1; i < count; i += 2) {
+                service.deleteTask("T" + i);
+            }
+            return null;
+        });
+        start.countDown();
+        while (!renamer.isDone() || !deleter.isDone()) {
+            TaskSnapshot snapshot = service.snapshot();
+            int highest = 0;
+            int lowest = Integer.MAX_VALUE;
+            int even = 0;
+            for (Task task : snapshot) {
+                if (Integer.parseInt(task.getTaskId().substring(1)) % 2 == 0) {
+                    int pass = Integer.parseInt(task.getName());
+                    highest = Math.max(highest, pass);
+                    lowest = Math.min(lowest, pass);
+                    even++;
+                }
+            }
+            assertEquals("Renamed tasks should all be present.", count / 2, even);
+            assertTrue("Snapshot should span at most two consecutive passes.", highest - lowest <= 1);
+        }
+        renamer.get();
+        deleter.get();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(count / 2, service.snapshot().size());
+    }
+
+    /**
+     * Tests that a service created without snapshots refuses to take one.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testSnapshotsMustBeEnabled() {
+        service.snapshot();
+    }
+
+    /**
+     * Tests that calls and failures are counted per operation and readable through JMX.
+     */
+    @Test
+    public void testMetrics() throws Exception {
+        service.getMetrics().setSamplingInterval(1);
+        service.addTask(new Task("M1", "Name", "Description"));
+        service.getTask("M1");
+        service.getTaskList();
+        try {
+            service.getTask("missing");
+            fail("Unknown task should be rejected.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        OperationMetrics.Snapshot snapshot = service.getMetrics().snapshot();
+        assertEquals(1, snapshot.getEntityCount());
+        assertEquals(1, snapshot.getOperation("addTask").getCalls());
+        assertEquals(2, snapshot.getOperation("getTask").getCalls());
+        assertEquals(1, snapshot.getOperation("getTask").getFailures());
+        assertEquals(2, snapshot.getOperation("getTask").getLatency().getCount());
+
+        ObjectName name = service.getMetrics().registerMBean();
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(1L, server.getAttribute(name, "getTaskListCalls"));
+            assertEquals(1L, server.getAttribute(name, "getTaskFailures"));
+        } finally {
+            service.getMetrics().unregisterMBean();
+        }
+    }
+
+    /**
+     * Tests that search finds tasks by words in their names and descriptions and follows later changes.
+     */
+    @Test
+    public void testSearch() {
+        service.addTask(new Task("S1", "Pay rent", "Transfer to landlord"));
+        service.addTask(new Task("S2", "Pay invoice", "Invoice from the landlord"));
+        service.addTask(new Task("S3", "Buy milk", "Corner shop"));
+
+        assertEquals(Arrays.asList("S2", "S1"), ids(service.search("landlord invoice", 10)));
+        assertEquals(Arrays.asList("S1", "S2"), ids(service.search("pay", 10)));
+
+        // Changes after the index was built are reflected
+        service.updateTaskName("S3", "Buy oat milk");
+        service.updateTaskDescription("S1", "Standing order");
+        service.deleteTask("S2");
+        service.addTask(new Task("S4", "Pay for milk", "Oat milk"));
+        assertEquals(Arrays.asList("S3", "S4"), ids(service.search("oat", 10)));
+        assertEquals(Arrays.asList("S1", "S4"), ids(service.search("pay", 10)));
+        assertTrue(service.search("landlord", 10).isEmpty());
+    }
+
+    /**
+     * Tests that the search index ends up matching the tasks when it is built while other threads write.
+     */
+    @Test
+    public void testSearchDuringWrites() throws Exception {
+        int writers = 4;
+        int perWriter = 2_000;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        CountDownLatch ready = new CountDownLatch(writers);
+        List<Future<?>> results = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            results.add(executor.submit(() -> {
+                ready.countDown();
+                for (int i = 0; i < perWriter; i++) {
+                    String id = "W" + writer + "-" + i;
+                    service.addTask(new Task(id, "Draft", "Write report"));
+                    service.updateTaskName(id, "Final");
+                    if (i % 2 == 0) {
+                        service.deleteTask(id);
+                    }
+                }
+                return null;
+            }));
+        }
+        ready.await();
+        service.search("final", 10);
+        for (Future<?> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+
+        assertEquals(writers * perWriter / 2, service.search("final report", Integer.MAX_VALUE).size());
+        assertTrue(service.search("draft", 10).isEmpty());
+    }
+
+    /**
+     * Returns the IDs of tasks, in order.
+     */
+    private static List<String> ids(List<Task> tasks) {
+        List<String> ids = new ArrayList<>();
+        for (Task task : tasks) {
+            ids.add(task.getTaskId());
+        }
+        return ids;
+    }
+
+    /**
+     * Tests that exported tasks are imported into another service unchanged, and that IDs already in use
+     * are reported by their position in the file.
+     */
+    @Test
+    public void testExportImport() throws Exception {
+        for (int i = 0; i < 5000; i++) {
+            service.addTask(new Task("E" + i, "Task " + i, i % 2 == 0 ? "Even task" : "Odd t\u00e2che"));
+        }
+        Path file = Files.createTempFile("tasks", ".msrf");
+        try {
+            assertEquals(5000, service.exportTo(file, true));
+
+            TaskService copy = new TaskService();
+            copy.addTask(new Task("E7", "Already here", "Kept"));
+            BatchResult result = copy.importFrom(file);
+            assertEquals(5000, result.size());
+            assertEquals(1, result.getFailures().size());
+            assertEquals("E7", result.getFailures().get(0).getId());
+            assertEquals(5000, copy.getTaskList().size());
+            assertEquals("Already here", copy.getTask("E7").getName());
+            assertEquals("Odd t\u00e2che", copy.getTask("E4999").getDescription());
+            assertEquals(Arrays.asList("E12"), ids(copy.search("12", 10)));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Subscribes to a change publisher with unbounded demand and returns the queue its events arrive in.
+     */
+    private static <T> BlockingQueue<ChangeEvent<T>> record(ChangePublisher<T> publisher) {
+        BlockingQueue<ChangeEvent<T>> events = new LinkedBlockingQueue<>();
+        publisher.subscribe(new Flow.Subscriber<List<ChangeEvent<T>>>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(List<ChangeEvent<T>> batch) {
+                events.addAll(batch);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        return events;
+    }
+
+    /**
+     * Takes the next event from the queue and checks its kind and ID.
+     */
+    private static <T> void expectEvent(BlockingQueue<ChangeEvent<T>> events, ChangeEvent.Type type, String id) throws InterruptedException {
+        ChangeEvent<T> event = events.poll(5, TimeUnit.SECONDS);
+        assertNotNull("Change event should arrive.", event);
+        assertEquals(type, event.getType());
+        assertEquals(id, event.getId());
+    }
 }
@@ -0,0 +1,44 @@
+import java.util.List;
+
+/**
+ * One partition of the tasks of a ShardedTaskService.
+ * A TaskService is a shard in the same process; a RemoteTaskShard is a TaskService in another JVM,
+ * reached over a loopback socket. Methods behave as the TaskService methods of the same name.
+ */
+public interface TaskShard {
+
+    /**
+     * Adds a new task.
+     * @throws IllegalArgumentException If the task is null or already exists.
+     */
+    void addTask(Task task);
+
+    /**
+     * Returns the task identified by the task ID.
+     * @throws IllegalArgumentException If the task does not exist.
+     */
+    Task getTask(String taskId);
+
+    /**
+     * Deletes the task identified by the task ID.
+     * @throws IllegalArgumentException If the task does not exist.
+     */
+    void deleteTask(String taskId);
+
+    /**
+     * Updates the name of an existing task.
+     * @throws IllegalArgumentException If the task does not exist or the name is invalid.
+     */
+    void updateTaskName(String taskId, String name);
+
+    /**
+     * Updates the description of an existing task.
+     * @throws IllegalArgumentException If the task does not exist or the description is invalid.
+     */
+    void updateTaskDescription(String taskId, String description);
+
+    /**
+     * Returns a copy of the tasks currently held by the shard.
+     */
+    List<Task> getTaskList();
+}
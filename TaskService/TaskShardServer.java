@@ -0,0 +1,208 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves a TaskService as a shard to RemoteTaskShard clients over a loopback socket.
+ *
+ * Each connection is handled by its own thread and carries one request at a time. A request is an operation
+ * code followed by its string arguments; the reply is a status byte followed by the result, or by the message
+ * of the exception the service threw. Strings are written with DataOutput.writeUTF behind a presence flag,
+ * so null arguments reach the service and are rejected there exactly as in-process.
+ *
+ * Run main() to host a shard in a separate JVM: it prints the port it listens on and serves until its standard
+ * input is closed.
+ */
+public final class TaskShardServer implements Closeable {
+    // Operation codes.
+    static final byte ADD = 1;
+    static final byte GET = 2;
+    static final byte DELETE = 3;
+    static final byte UPDATE_NAME = 4;
+    static final byte UPDATE_DESCRIPTION = 5;
+    static final byte LIST = 6;
+    // Reply status codes.
+    static final byte OK = 0;
+    static final byte REJECTED = 1;
+    static final byte FAILED = 2;
+
+    private final TaskService service;
+    private final ServerSocket server;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+    private TaskShardServer(TaskService service, ServerSocket server) {
+        this.service = service;
+        this.server = server;
+    }
+
+    /**
+     * Starts serving a task service on the loopback interface.
+     *
+     * @param service The service holding the shard's tasks.
+     * @param port The port to listen on, or 0 for any free port.
+     * @return The running server.
+     * @throws IOException If the port cannot be bound.
+     */
+    public static TaskShardServer start(TaskService service, int port) throws IOException {
+        if (service == null) {
+            throw new IllegalArgumentException("Service must be non-null");
+        }
+        TaskShardServer shardServer = new TaskShardServer(service, new ServerSocket(port, 50, InetAddress.getLoopbackAddress()));
+        Thread acceptor = new Thread(shardServer::accept, "task-shard-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return shardServer;
+    }
+
+    /**
+     * Returns the port the server listens on.
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Stops accepting connections and closes the open ones. The service itself is left open.
+     *
+     * @throws IOException If the listening socket cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        server.close();
+        for (Socket connection : connections) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Hosts an in-memory task shard in this JVM.
+     * Usage: java TaskShardServer [port]
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        try (TaskShardServer shardServer = start(new TaskService(), port)) {
+            System.out.println(shardServer.getPort());
+            System.out.flush();
+            // Serve until the parent process closes our input
+            while (System.in.read() >= 0) {
+                // discard
+            }
+        }
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                Socket connection = server.accept();
+                connection.setTcpNoDelay(true);
+                connections.add(connection);
+                Thread handler = new Thread(() -> serve(connection), "task-shard-connection");
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                // Closed, or a connection that failed before it was set up
+            }
+        }
+    }
+
+    // Answers the requests of one connection until the client disconnects.
+    private void serve(Socket connection) {
+        try (Socket socket = connection;
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            while (true) {
+                byte op;
+                try {
+                    op = in.readByte();
+                } catch (EOFException e) {
+                    return;
+                }
+                handle(op, in, out);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // The client went away mid-request; nothing to answer
+        } finally {
+            connections.remove(connection);
+        }
+    }
+
+    private void handle(byte op, DataInputStream in, DataOutputStream out) throws IOException {
+        String taskId = readString(in);
+        String first = op == ADD || op == UPDATE_NAME || op == UPDATE_DESCRIPTION ? readString(in) : null;
+        String second = op == ADD ? readString(in) : null;
+        try {
+            switch (op) {
+                case ADD:
+                    service.addTask(new Task(taskId, first, second));
+                    out.writeByte(OK);
+                    break;
+                case GET:
+                    Task task = service.getTask(taskId);
+                    out.writeByte(OK);
+                    writeTask(out, task);
+                    break;
+                case DELETE:
+                    service.deleteTask(taskId);
+                    out.writeByte(OK);
+                    break;
+                case UPDATE_NAME:
+                    service.updateTaskName(taskId, first);
+                    out.writeByte(OK);
+                    break;
+                case UPDATE_DESCRIPTION:
+                    service.updateTaskDescription(taskId, first);
+                    out.writeByte(OK);
+                    break;
+                case LIST:
+                    List<Task> tasks = service.getTaskList();
+                    out.writeByte(OK);
+                    out.writeInt(tasks.size());
+                    for (Task listed : tasks) {
+                        writeTask(out, listed);
+                    }
+                    break;
+                default:
+                    out.writeByte(FAILED);
+                    out.writeUTF("Unknown operation " + op);
+            }
+        } catch (IllegalArgumentException e) {
+            out.writeByte(REJECTED);
+            out.writeUTF(String.valueOf(e.getMessage()));
+        } catch (RuntimeException e) {
+            out.writeByte(FAILED);
+            out.writeUTF(String.valueOf(e));
+        }
+    }
+
+    static void writeTask(DataOutputStream out, Task task) throws IOException {
+        out.writeUTF(task.getTaskId());
+        out.writeUTF(task.getName());
+        out.writeUTF(task.getDescription());
+    }
+
+    static Task readTask(DataInputStream in) throws IOException {
+        return new Task(in.readUTF(), in.readUTF(), in.readUTF());
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,79 @@
+import java.util.Iterator;
+
+/**
+ * A point-in-time view of all tasks in a TaskService, taken with TaskService.snapshot().
+ *
+ * The view never changes: later adds, updates and deletes on the service are not visible in it, and
+ * iterating it while writers keep working sees exactly the tasks stored when it was taken. The tasks it
+ * returns are read-only copies; calling their setters throws UnsupportedOperationException.
+ */
+public final class TaskSnapshot implements Iterable<Task> {
+    private final PersistentMap<String, Task> tasks;
+
+    TaskSnapshot(PersistentMap<String, Task> tasks) {
+        this.tasks = tasks;
+    }
+
+    /**
+     * Returns the task identified by the task ID, as it was when the snapshot was taken.
+     *
+     * @param taskId The unique ID of the task to look up.
+     * @return The read-only task.
+     * @throws IllegalArgumentException If the task did not exist.
+     */
+    public Task getTask(String taskId) {
+        Task task = taskId == null ? null : tasks.get(taskId);
+        if (task == null) {
+            throw new IllegalArgumentException("Task does not exist");
+        }
+        return task;
+    }
+
+    /**
+     * Returns whether a task with the given ID existed when the snapshot was taken.
+     */
+    public boolean contains(String taskId) {
+        return taskId != null && tasks.get(taskId) != null;
+    }
+
+    /**
+     * Returns the number of tasks in the snapshot.
+     */
+    public int size() {
+        return tasks.size();
+    }
+
+    /**
+     * Returns an iterator over the read-only tasks, in no particular order.
+     */
+    @Override
+    public Iterator<Task> iterator() {
+        return tasks.values();
+    }
+
+    /**
+     * Returns a read-only copy of a task's current state, to be stored as one version in the snapshot map.
+     */
+    static Task freeze(Task task) {
+        return new FrozenTask(task.getTaskId(), task.getName(), task.getDescription());
+    }
+
+    /**
+     * A task version whose fields can no longer change.
+     */
+    private static final class FrozenTask extends Task {
+        FrozenTask(String taskId, String name, String description) {
+            super(taskId, name, description);
+        }
+
+        @Override
+        public void setName(String name) {
+            throw new UnsupportedOperationException("Snapshot tasks are read-only");
+        }
+
+        @Override
+        public void setDescription(String description) {
+            throw new UnsupportedOperationException("Snapshot tasks are read-only");
+        }
+    }
+}
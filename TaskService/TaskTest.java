@@ -50,4 +50,29 @@ public class TaskTest {
         // Attempt to create a Task with a null description, expecting an exception
         new Task("1", "Task Name", null);
     }
+
+    /**
+     * Test that validate() reports the first invalid field by its code, without throwing, and that the
+     * constructor and setters throw the message of the same rule.
+     */
+    @Test
+    public void testValidate() {
+        assertEquals(ValidationRules.VALID, Task.validate("1", "Task Name", "Task Description"));
+        assertEquals(Task.INVALID_ID, Task.validate("12345678901", null, null));
+        assertEquals(Task.INVALID_NAME, Task.validate("1", "This name is far too long", null));
+        assertEquals(Task.INVALID_DESCRIPTION, Task.validate("1", "Task Name", null));
+        assertEquals("Invalid name", Task.RULES.message(Task.INVALID_NAME));
+        assertEquals("description", Task.RULES.field(Task.INVALID_DESCRIPTION));
+        ValidationRules.Result result = new ValidationRules.Result();
+        assertNull(Task.tryCreate("1", null, "Task Description", result));
+        assertEquals(Task.INVALID_NAME, result.getCode());
+        assertEquals("Task Name", Task.tryCreate("1", "Task Name", "Task Description", result).getName());
+        assertTrue(result.isValid());
+        try {
+            new Task("1", "Task Name", "Task Description").setName(null);
+            fail("A null name should be rejected.");
+        } catch (IllegalArgumentException e) {
+            assertEquals(Task.RULES.message(Task.INVALID_NAME), e.getMessage());
+        }
+    }
 }